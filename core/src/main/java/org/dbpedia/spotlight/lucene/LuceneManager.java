@@ -130,7 +130,6 @@ public class LuceneManager {
 
     /**
      * Implementation to open the implementation of Directory that we found to work best.
-     * TODO test MMapDirectory
      * @param indexDir
      * @return
      * @throws IOException
@@ -145,6 +144,77 @@ public class LuceneManager {
         }
     }
 
+    /**
+     * Directory implementations that can be configured. AUTO picks one by platform (see {@link #pickDirectory(java.io.File)}).
+     */
+    public enum DirectoryType {
+        AUTO, MMAP, NIO, SIMPLE
+    }
+
+    /**
+     * Opens the index directory with the given implementation.
+     * @param indexDir
+     * @param type
+     * @param preload if true, the postings, term dictionary and term vector files are read once so that they are in the page cache (see {@link #preload(java.io.File)})
+     * @return
+     * @throws IOException
+     */
+    public static FSDirectory pickDirectory(File indexDir, DirectoryType type, boolean preload) throws IOException {
+        FSDirectory directory;
+        switch (type) {
+            case MMAP:   directory = new MMapDirectory(indexDir); break;
+            case NIO:    directory = new NIOFSDirectory(indexDir); break;
+            case SIMPLE: directory = new SimpleFSDirectory(indexDir); break;
+            default:     directory = pickDirectory(indexDir);
+        }
+        LOG.info(String.format("Using %s for %s.", directory.getClass().getSimpleName(), indexDir));
+
+        if (preload) {
+            long start = System.currentTimeMillis();
+            long bytes = preload(indexDir);
+            LOG.info(String.format("Preloaded %d MB of index files in %d ms.", bytes / (1024 * 1024), System.currentTimeMillis() - start));
+        }
+        return directory;
+    }
+
+    /* Files that are read at search time: term dictionary, postings, term vectors and compound files (which contain all of them). */
+    private static final Set<String> PRELOAD_EXTENSIONS = new HashSet<String>(Arrays.asList("tis", "tii", "frq", "prx", "tvx", "tvd", "tvf", "cfs"));
+
+    /**
+     * Touches every page of the index files that are used for searching (including those of sub-indexes),
+     * so that the first queries do not have to wait for the disk.
+     * @param indexDir
+     * @return number of bytes that were loaded
+     * @throws IOException
+     */
+    public static long preload(File indexDir) throws IOException {
+        long bytes = 0;
+        File[] files = indexDir.listFiles();
+        if (files == null)
+            return bytes;
+
+        for (File file: files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                bytes += preload(file);
+            } else if (PRELOAD_EXTENSIONS.contains(name.substring(name.lastIndexOf('.') + 1))) {
+                RandomAccessFile raf = new RandomAccessFile(file, "r");
+                try {
+                    java.nio.channels.FileChannel channel = raf.getChannel();
+                    long size = channel.size();
+                    long chunkSize = 1L << 28;
+                    for (long position = 0; position < size; position += chunkSize) {
+                        channel.map(java.nio.channels.FileChannel.MapMode.READ_ONLY, position, Math.min(chunkSize, size - position)).load();
+                    }
+                    bytes += size;
+                } finally {
+                    raf.close();
+                }
+            }
+        }
+        return bytes;
+    }
+
     public static IndexReader openIndexReader(Directory indexDir) throws IOException {
              if (indexDir.getClass().equals(RAMDirectory.class)) {
                  return openSingleReader(indexDir);
@@ -232,6 +302,10 @@ public class LuceneManager {
         return RAMBufferSizeMB;
     }
 
+    public void setRAMBufferSizeMB(int RAMBufferSizeMB) {
+        this.RAMBufferSizeMB = RAMBufferSizeMB;
+    }
+
     public boolean shouldOverride() {
         return shouldOverwrite;
     }
@@ -549,7 +623,18 @@ public class LuceneManager {
         Query contextQuery = getQuery(context);
         contextQuery.extractTerms(ctxTerms);
 
-        // Then get the surface form terms
+        return getQuery(sf, ctxTerms);
+    }
+
+    /**
+     * Same as {@link #getQuery(SurfaceForm, Text)} for context terms that have already been analyzed.
+     * @param sf
+     * @param ctxTerms
+     * @return
+     * @throws SearchException
+     */
+    public Query getQuery(SurfaceForm sf, Set<Term> ctxTerms) throws SearchException, UnsupportedOperationException {
+        // Get the surface form terms
         Query sfQuery = getQuery(sf); // calls the sf querying behavior defined in the LuceneManager implementation chosen
         Set<Term> sfTerms = new HashSet<Term>();
         try {
@@ -51,6 +51,8 @@ public class BaseSearcher implements Closeable {
     IndexSearcher mSearcher;
     public IndexReader mReader;
 
+    private volatile DocResourceMap mDocResources = null;
+
     //TODO create method that iterates over all documents in the index and computes this. (if takes too long, think about storing somewhere at indexing time)
     private double mNumberOfOccurrences = 69772256;
 
@@ -75,17 +77,30 @@ public class BaseSearcher implements Closeable {
 
         //If the DBpediaResourceFactory uses SQL, the mapping from Lucene docID to URI must be cached:
         if(mLucene.getDBpediaResourceFactory() instanceof DBpediaResourceFactorySQL) {
-            /*
-               Here, the Cache for the URIs is called (but not read) for the first time and will be
-               created from the index and held within the Lucene cache manager.
-            */
             LOG.debug("Caching all URIs" );
-            FieldCache.DEFAULT.getStrings(mReader, LuceneManager.DBpediaResourceField.URI.toString());
+            getDocResourceMap();
             LOG.debug("Done.");
         }
         
     }
 
+    /**
+     * Returns the mapping from docID to resource for the index of this searcher. It is loaded (or built) on first use.
+     * @return
+     * @throws IOException
+     */
+    public DocResourceMap getDocResourceMap() throws IOException {
+        DocResourceMap map = mDocResources;
+        if (map == null) {
+            synchronized (this) {
+                if (mDocResources == null)
+                    mDocResources = DocResourceMap.load(mReader, mLucene.mContextIndexDir);
+                map = mDocResources;
+            }
+        }
+        return map;
+    }
+
     public int getNumberOfEntries() {
         return this.mReader.numDocs();    // can use maxDoc?
     }
@@ -280,15 +295,18 @@ public class BaseSearcher implements Closeable {
     }
 
     /**
-     * This is an experimental function to evaluate the feasibility of caching all URIs in Lucene
+     * Creates a DBpediaResource with only the URI, taken from the docID to resource map (without reading stored fields).
      * @param docNo
      * @return
      * @throws SearchException
      */
     public DBpediaResource getCachedDBpediaResource(int docNo) throws SearchException {
         try {
-            String[] uris = FieldCache.DEFAULT.getStrings(mReader, LuceneManager.DBpediaResourceField.URI.toString());
-            return new DBpediaResource(uris[docNo]);
+            DocResourceMap map = getDocResourceMap();
+            int id = map.getResourceId(docNo);
+            if (id == DocResourceMap.NO_RESOURCE)
+                throw new SearchException("Cannot find URI for document "+docNo);
+            return new DBpediaResource(map.getUri(id));
         } catch (IOException e) {
             throw new SearchException("Error getting cached DBpediaResource.",e);
         }
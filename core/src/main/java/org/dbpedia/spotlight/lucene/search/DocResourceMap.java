@@ -0,0 +1,309 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.lucene.search;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.FieldSelector;
+import org.apache.lucene.document.MapFieldSelector;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.dbpedia.spotlight.lucene.LuceneManager;
+import org.dbpedia.spotlight.model.DBpediaResource;
+import org.dbpedia.spotlight.model.Factory;
+import org.dbpedia.spotlight.model.OntologyType;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Maps Lucene document numbers to the resource stored in the document: a resource ID (index into the table of URIs),
+ * the support (URI_COUNT) and the IDs of the types, all kept in primitive arrays.
+ *
+ * The map is built once per index by reading the stored fields of all documents and saved next to the index
+ * (file {@link #FILE_NAME} in the index directory). It is reloaded as long as the index has not changed,
+ * so searchers can create DBpediaResources for their hits without reading stored fields.
+ */
+public class DocResourceMap {
+
+    static Log LOG = LogFactory.getLog(DocResourceMap.class);
+
+    public static final String FILE_NAME = "spotlight-docmap.bin";
+    private static final int FORMAT = 1;
+
+    public static final int NO_RESOURCE = -1;
+
+    private static final String OWL_THING = "http://www.w3.org/2002/07/owl#Thing";
+
+    private final String[] uris;        // resource ID -> URI
+    private final int[] resourceIds;    // doc -> resource ID
+    private final int[] support;        // doc -> support
+    private final int[] typeStarts;     // doc -> first position in typeIds, typeStarts[maxDoc] = typeIds.length
+    private final int[] typeIds;        // type IDs of all docs, doc by doc
+    private final String[] typeNames;   // type ID -> type as stored in the index
+    private final OntologyType[] types; // type ID -> type
+
+    private DocResourceMap(String[] uris, int[] resourceIds, int[] support, int[] typeStarts, int[] typeIds, String[] typeNames) {
+        this.uris = uris;
+        this.resourceIds = resourceIds;
+        this.support = support;
+        this.typeStarts = typeStarts;
+        this.typeIds = typeIds;
+        this.typeNames = typeNames;
+
+        this.types = new OntologyType[typeNames.length];
+        for (int i = 0; i < typeNames.length; i++)
+            types[i] = Factory.ontologyType().fromQName(typeNames[i]);
+    }
+
+    /**
+     * Loads the map saved in the index directory or, if there is none for the current version of the index,
+     * builds it and tries to save it.
+     */
+    public static DocResourceMap load(IndexReader reader, Directory directory) throws IOException {
+        long version = indexVersion(reader);
+
+        if (version != -1 && directory.fileExists(FILE_NAME)) {
+            DocResourceMap map = read(directory, version, reader.maxDoc());
+            if (map != null) {
+                LOG.info(String.format("Loaded docID to resource map for %s docs from %s.", map.maxDoc(), FILE_NAME));
+                return map;
+            }
+            LOG.info(String.format("%s is out of date, rebuilding.", FILE_NAME));
+        }
+
+        DocResourceMap map = build(reader);
+
+        if (version != -1 && !(directory instanceof RAMDirectory)) {
+            try {
+                map.write(directory, version);
+            } catch (IOException e) {
+                LOG.warn(String.format("Could not save %s in the index directory, it will be rebuilt next time. %s", FILE_NAME, e.getMessage()));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * The version of the index, or -1 if the reader does not provide one (e.g. for a MultiReader).
+     */
+    private static long indexVersion(IndexReader reader) {
+        try {
+            return reader.getVersion();
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Builds the map by reading the URI, URI_COUNT and TYPE fields of all documents.
+     */
+    public static DocResourceMap build(IndexReader reader) throws IOException {
+        long start = System.currentTimeMillis();
+        int maxDoc = reader.maxDoc();
+        LOG.info(String.format("Building docID to resource map for %s docs...", maxDoc));
+
+        String uriField = LuceneManager.DBpediaResourceField.URI.toString();
+        String countField = LuceneManager.DBpediaResourceField.URI_COUNT.toString();
+        String typeField = LuceneManager.DBpediaResourceField.TYPE.toString();
+        FieldSelector selector = new MapFieldSelector(new String[]{uriField, countField, typeField});
+
+        Map<String, Integer> uriIds = new HashMap<String, Integer>();
+        List<String> uris = new ArrayList<String>();
+        Map<String, Integer> typeNameIds = new HashMap<String, Integer>();
+        List<String> typeNames = new ArrayList<String>();
+
+        int[] resourceIds = new int[maxDoc];
+        int[] support = new int[maxDoc];
+        int[] typeStarts = new int[maxDoc + 1];
+        int[] typeIds = new int[Math.max(16, maxDoc)];
+        int numTypeIds = 0;
+
+        for (int doc = 0; doc < maxDoc; doc++) {
+            typeStarts[doc] = numTypeIds;
+            resourceIds[doc] = NO_RESOURCE;
+            if (reader.isDeleted(doc))
+                continue;
+
+            Document document = reader.document(doc, selector);
+            String[] docUris = document.getValues(uriField);
+            if (docUris.length == 0)
+                continue;
+
+            // Use the URI in the form the DBpediaResource constructor normalizes it to.
+            String uri = new DBpediaResource(docUris[0]).uri();
+            Integer id = uriIds.get(uri);
+            if (id == null) {
+                id = uris.size();
+                uriIds.put(uri, id);
+                uris.add(uri);
+            }
+            resourceIds[doc] = id;
+
+            String count = document.get(countField);
+            support[doc] = (count == null) ? docUris.length : Integer.parseInt(count); // backwards compatibility: number of URI fields
+
+            for (String type : document.getValues(typeField)) {
+                if (type.equalsIgnoreCase(OWL_THING))
+                    continue;
+                Integer typeId = typeNameIds.get(type);
+                if (typeId == null) {
+                    typeId = typeNames.size();
+                    typeNameIds.put(type, typeId);
+                    typeNames.add(type);
+                }
+                if (numTypeIds == typeIds.length)
+                    typeIds = Arrays.copyOf(typeIds, typeIds.length * 2);
+                typeIds[numTypeIds++] = typeId;
+            }
+        }
+        typeStarts[maxDoc] = numTypeIds;
+
+        LOG.info(String.format("Done (%s resources, %s types, %s ms).", uris.size(), typeNames.size(), System.currentTimeMillis() - start));
+        return new DocResourceMap(uris.toArray(new String[uris.size()]), resourceIds, support, typeStarts,
+                Arrays.copyOf(typeIds, numTypeIds), typeNames.toArray(new String[typeNames.size()]));
+    }
+
+    private void write(Directory directory, long version) throws IOException {
+        IndexOutput out = directory.createOutput(FILE_NAME);
+        try {
+            out.writeInt(FORMAT);
+            out.writeLong(version);
+            out.writeVInt(maxDoc());
+
+            writeStrings(out, uris);
+            writeStrings(out, typeNames);
+            for (int doc = 0; doc < maxDoc(); doc++) {
+                out.writeVInt(resourceIds[doc] + 1);
+                out.writeVInt(support[doc]);
+                out.writeVInt(typeStarts[doc + 1] - typeStarts[doc]);
+                for (int i = typeStarts[doc]; i < typeStarts[doc + 1]; i++)
+                    out.writeVInt(typeIds[i]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads the map, returns null if it was saved for a different version of the index.
+     */
+    private static DocResourceMap read(Directory directory, long version, int maxDoc) throws IOException {
+        IndexInput in = directory.openInput(FILE_NAME);
+        try {
+            if (in.readInt() != FORMAT || in.readLong() != version || in.readVInt() != maxDoc)
+                return null;
+
+            String[] uris = readStrings(in);
+            String[] typeNames = readStrings(in);
+
+            int[] resourceIds = new int[maxDoc];
+            int[] support = new int[maxDoc];
+            int[] typeStarts = new int[maxDoc + 1];
+            int[] typeIds = new int[Math.max(16, maxDoc)];
+            int numTypeIds = 0;
+            for (int doc = 0; doc < maxDoc; doc++) {
+                resourceIds[doc] = in.readVInt() - 1;
+                support[doc] = in.readVInt();
+                typeStarts[doc] = numTypeIds;
+                int n = in.readVInt();
+                if (numTypeIds + n > typeIds.length)
+                    typeIds = Arrays.copyOf(typeIds, Math.max(typeIds.length * 2, numTypeIds + n));
+                for (int i = 0; i < n; i++)
+                    typeIds[numTypeIds++] = in.readVInt();
+            }
+            typeStarts[maxDoc] = numTypeIds;
+
+            return new DocResourceMap(uris, resourceIds, support, typeStarts, Arrays.copyOf(typeIds, numTypeIds), typeNames);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeStrings(IndexOutput out, String[] strings) throws IOException {
+        out.writeVInt(strings.length);
+        for (String s : strings)
+            out.writeString(s);
+    }
+
+    private static String[] readStrings(IndexInput in) throws IOException {
+        String[] strings = new String[in.readVInt()];
+        for (int i = 0; i < strings.length; i++)
+            strings[i] = in.readString();
+        return strings;
+    }
+
+    public int maxDoc() {
+        return resourceIds.length;
+    }
+
+    public int getNumberOfResources() {
+        return uris.length;
+    }
+
+    /**
+     * @return the resource ID of the document, or NO_RESOURCE if the document is deleted or has no URI
+     */
+    public int getResourceId(int docNo) {
+        return resourceIds[docNo];
+    }
+
+    public String getUri(int resourceId) {
+        return uris[resourceId];
+    }
+
+    public int getSupport(int docNo) {
+        return support[docNo];
+    }
+
+    public int[] getTypeIds(int docNo) {
+        return Arrays.copyOfRange(typeIds, typeStarts[docNo], typeStarts[docNo + 1]);
+    }
+
+    public String getTypeName(int typeId) {
+        return typeNames[typeId];
+    }
+
+    public List<OntologyType> getTypes(int docNo) {
+        int from = typeStarts[docNo];
+        int to = typeStarts[docNo + 1];
+        List<OntologyType> result = new ArrayList<OntologyType>(to - from);
+        for (int i = from; i < to; i++)
+            result.add(types[typeIds[i]]);
+        return result;
+    }
+
+    /**
+     * Creates a DBpediaResource with URI, support and types of the document, or returns null if the document has no resource.
+     */
+    public DBpediaResource getDBpediaResource(int docNo) {
+        int id = resourceIds[docNo];
+        if (id == NO_RESOURCE)
+            return null;
+
+        DBpediaResource resource = new DBpediaResource(uris[id], support[docNo]);
+        resource.setTypes(getTypes(docNo));
+        return resource;
+    }
+
+}
@@ -36,6 +36,7 @@ import org.dbpedia.spotlight.model.CandidateSearcher;
 import org.dbpedia.spotlight.model.vsm.FeatureVector;
 import org.dbpedia.spotlight.string.ContextExtractor;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.HashMap;
@@ -67,6 +68,37 @@ public class MergedOccurrencesContextSearcher extends BaseSearcher implements Co
     public MergedOccurrencesContextSearcher(LuceneManager lucene, boolean inMemory) throws IOException {
         super(lucene, inMemory);
         mSearcher.setSimilarity(lucene.contextSimilarity());
+        if (lucene.getDBpediaResourceFactory() == null)
+            getDocResourceMap(); // resources are created from the docID to resource map, load it before the first request
+    }
+
+    /**
+     * Creates a DBpediaResource with URI, support and types.
+     * Without a DBpediaResourceFactory, these are taken from the docID to resource map instead of the stored fields.
+     * @param docNo
+     * @return
+     * @throws SearchException
+     */
+    @Override
+    public DBpediaResource getDBpediaResource(int docNo) throws SearchException {
+        if (mLucene.getDBpediaResourceFactory() != null)
+            return super.getDBpediaResource(docNo);
+
+        long start = System.nanoTime();
+        DBpediaResource resource;
+        try {
+            resource = getDocResourceMap().getDBpediaResource(docNo);
+        } catch (IOException e) {
+            throw new SearchException("Error reading the docID to resource map.", e);
+        }
+        if (resource == null)
+            throw new SearchException("Cannot find URI for document "+docNo);
+
+        if (resource.prior() == 0.0) { // adjust prior
+            resource.setPrior(resource.support() / this.getNumberOfOccurrences());
+        }
+        objectCreationTime += (System.nanoTime() - start);
+        return resource;
     }
 
     public LuceneManager getLuceneManager() {
@@ -205,11 +237,47 @@ public class MergedOccurrencesContextSearcher extends BaseSearcher implements Co
     int maxContextWords = 500;
     ContextExtractor contextExtractor = new ContextExtractor(minContextWords, maxContextWords);
 
+    QueryLog queryLog = null;
+
+    /**
+     * Records (a sample of) the surface forms and contexts of the queries to a log that can be used to warm up the searcher.
+     * @param queryLog
+     */
+    public void setQueryLog(QueryLog queryLog) {
+        this.queryLog = queryLog;
+    }
+
     public ScoreDoc[] getHits(SurfaceFormOccurrence sfOcc) throws SearchException, InputException {
         Text narrowContext = contextExtractor.narrowContext(sfOcc).context();
+        if (queryLog != null)
+            queryLog.record(sfOcc.surfaceForm(), narrowContext);
         ScoreDoc[] hits = getHits(mLucene.getQuery(sfOcc.surfaceForm(), narrowContext));
         return hits;
     }
+
+    /**
+     * Warms up the searcher by replaying the most frequent surface forms of a query log with their most frequent context terms.
+     * @see WarmUpPlanner
+     * @param queryLogFile
+     * @param maxQueries
+     * @param maxTermsPerQuery
+     */
+    public void warmUp(File queryLogFile, int maxQueries, int maxTermsPerQuery) {
+        try {
+            long start = System.currentTimeMillis();
+            WarmUpPlanner planner = new WarmUpPlanner(mLucene);
+            planner.addQueryLog(queryLogFile);
+            List<Query> plan = planner.plan(maxQueries, maxTermsPerQuery);
+            LOG.info(String.format("Warming up with %s queries from %s.", plan.size(), queryLogFile));
+
+            for (Query q: plan)
+                getHits(q);
+
+            LOG.info(String.format("Warm up took %s ms.", System.currentTimeMillis() - start));
+        } catch (Exception e) {
+            LOG.error("Error warming up from query log. Ignoring. ", e);
+        }
+    }
     public ScoreDoc[] getHitsSurfaceFormHack(SurfaceFormOccurrence sfOcc, SurfaceForm hackedSf) throws SearchException, InputException { //TODO this hack attempts to null the effect of another hack that disappears with determiners at index time
         Text narrowContext = contextExtractor.narrowContext(sfOcc).context();
         ScoreDoc[] hits = getHits(mLucene.getQuery(hackedSf, narrowContext));
@@ -265,26 +333,36 @@ public class MergedOccurrencesContextSearcher extends BaseSearcher implements Co
      * @throws SearchException
      */
     public int getSupport(DBpediaResource res) throws SearchException {
-        FieldSelector fieldSelector = new MapFieldSelector(uriAndCount);
         int support = 0;
 
         //if (res.support()>0) return res.support(); //TODO what happens if value is already set?
 
-        List<Document> uris = getDocuments(res, fieldSelector);
-        if (uris.size()>1)
+        ScoreDoc[] hits = getHits(mLucene.getQuery(res));
+        if (hits.length>1)
             LOG.error("Found the same URI twice in the index: "+res);
 
-        for (Document doc: uris) { //TODO should only return one.
-            String value = doc.get(LuceneManager.DBpediaResourceField.URI_COUNT.toString());
-            if (value==null) { //backwards compatibility
-                support = doc.getValues(LuceneManager.DBpediaResourceField.URI.toString()).length;
-            } else {
-                support = new Integer(value);
-            }
+        for (ScoreDoc hit: hits) { //TODO should only return one.
+            support = getSupport(hit.doc);
         }
         return support;
     }
 
+    /**
+     * Returns the number of times the URI in document number docNo was seen in the training data
+     * (from the docID to resource map, without reading stored fields).
+     *
+     * @param docNo
+     * @return
+     * @throws SearchException
+     */
+    public int getSupport(int docNo) throws SearchException {
+        try {
+            return getDocResourceMap().getSupport(docNo);
+        } catch (IOException e) {
+            throw new SearchException("Error reading the docID to resource map.", e);
+        }
+    }
+
 
     /**
      * Returns the number of URIs in document number docNo:
@@ -307,6 +385,16 @@ public class MergedOccurrencesContextSearcher extends BaseSearcher implements Co
         return support;
     }
 
+    // Returns the types of the resource in document number docNo (from the docID to resource map), without owl:Thing.
+    // The order is the order of the TYPE fields in the document.
+    public List<OntologyType> getDBpediaTypes(int docNo) throws SearchException {
+        try {
+            return getDocResourceMap().getTypes(docNo);
+        } catch (IOException e) {
+            throw new SearchException("Error reading the docID to resource map.", e);
+        }
+    }
+
     // Returns a list of DBpediaTypes that are registered in the index in document number docNo.
     // Duplicates are not removed.
     // CAUTION: sorting is not guaranteed! (but should be fine (Max thinks) if an order was given when indexing (typically from least to most specific)
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.lucene.search;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbpedia.spotlight.model.SurfaceForm;
+import org.dbpedia.spotlight.model.Text;
+
+import java.io.*;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records a sample of the (surface form, context) pairs that are sent to the context searcher,
+ * one per line: surface form, tab, context. The log can be replayed by the {@link WarmUpPlanner}.
+ *
+ * Recording does not block the query: the sampled queries are put in a bounded queue and written by a
+ * background thread, queries that do not fit in the queue are dropped. When the log is larger than
+ * the maximum size, it is moved to [file].1 (replacing the previous one) and a new log is started.
+ */
+public class QueryLog implements Closeable {
+
+    static Log LOG = LogFactory.getLog(QueryLog.class);
+
+    public static final long DEFAULT_MAX_SIZE = 100L * 1024 * 1024;
+    private static final int QUEUE_CAPACITY = 10000;
+
+    private final File file;
+    private final double sampleRate;
+    private final long maxSize;
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<String>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed = false;
+
+    private final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    /**
+     * @param file the log file, new queries are appended
+     * @param sampleRate fraction of the queries that are recorded
+     * @throws IOException
+     */
+    public QueryLog(File file, double sampleRate) throws IOException {
+        this(file, sampleRate, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param file the log file, new queries are appended
+     * @param sampleRate fraction of the queries that are recorded
+     * @param maxSize size in bytes at which the log is rotated
+     * @throws IOException
+     */
+    public QueryLog(File file, double sampleRate, long maxSize) throws IOException {
+        this.file = file;
+        this.sampleRate = sampleRate;
+        this.maxSize = maxSize;
+
+        final Writer out = open();
+        this.writer = new Thread("query-log-writer") {
+            @Override
+            public void run() {
+                write(out);
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+        LOG.info(String.format("Recording %.1f%% of the queries to %s.", sampleRate * 100, file));
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the number of sampled queries that were not recorded because the writer could not keep up
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public void record(SurfaceForm sf, Text context) {
+        if (closed || random.get().nextDouble() >= sampleRate)
+            return;
+
+        if (!queue.offer(clean(sf.name()) + "\t" + clean(context.text()) + "\n"))
+            dropped.incrementAndGet();
+    }
+
+    private static String clean(String s) {
+        return s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private Writer open() throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+    }
+
+    /**
+     * Writes the queued queries until the log is closed, the log is flushed whenever the queue is empty.
+     */
+    private void write(Writer out) {
+        long size = file.length();
+        try {
+            while (!closed || !queue.isEmpty()) {
+                String line = queue.poll(1, TimeUnit.SECONDS);
+                if (line == null) {
+                    out.flush();
+                    continue;
+                }
+
+                out.write(line);
+                size += line.length(); // characters, close enough to the bytes for rotation
+                if (size > maxSize) {
+                    out.close();
+                    rotate();
+                    out = open();
+                    size = 0;
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not write to query log, stopped recording: " + e.getMessage());
+            closed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close query log: " + e.getMessage());
+            }
+        }
+    }
+
+    private void rotate() throws IOException {
+        File rotated = new File(file.getPath() + ".1");
+        if (rotated.exists() && !rotated.delete())
+            throw new IOException("Cannot delete " + rotated);
+        if (!file.renameTo(rotated))
+            throw new IOException("Cannot move " + file + " to " + rotated);
+        LOG.info(String.format("Rotated query log to %s.", rotated));
+    }
+
+    /**
+     * Stops recording and waits until the queued queries are written.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (dropped.get() > 0)
+            LOG.info(String.format("Dropped %d queries that could not be recorded in time.", dropped.get()));
+    }
+
+}
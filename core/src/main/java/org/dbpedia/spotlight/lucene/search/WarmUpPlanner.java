@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.lucene.search;
+
+import com.google.common.collect.Ordering;
+import com.google.common.primitives.Ints;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.dbpedia.spotlight.exceptions.SearchException;
+import org.dbpedia.spotlight.lucene.LuceneManager;
+import org.dbpedia.spotlight.model.SurfaceForm;
+import org.dbpedia.spotlight.model.Text;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Plans the warm-up of the context searcher from a {@link QueryLog} of queries seen in production.
+ *
+ * The surface forms in the log are counted, and for each surface form the (analyzed) context terms it
+ * was queried with. The plan contains one query per frequent surface form with its most frequent context
+ * terms, so that replaying it fills Lucene's caches and the term cache of the ICF similarity with the
+ * surface form/context term pairs that are actually requested, instead of the globally most frequent terms.
+ */
+public class WarmUpPlanner {
+
+    static Log LOG = LogFactory.getLog(WarmUpPlanner.class);
+
+    private final LuceneManager mLucene;
+
+    private final Map<String, Integer> sfCounts = new HashMap<String, Integer>();
+    private final Map<String, Map<Term, Integer>> contextTermCounts = new HashMap<String, Map<Term, Integer>>();
+
+    public WarmUpPlanner(LuceneManager lucene) {
+        this.mLucene = lucene;
+    }
+
+    private static <K> void increment(Map<K, Integer> counts, K key) {
+        Integer count = counts.get(key);
+        counts.put(key, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Reads a query log (surface form, tab, context per line) and adds its queries to the counts.
+     * @param log
+     * @throws IOException
+     */
+    public void addQueryLog(File log) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(log), "UTF-8"));
+        int lines = 0;
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t", 2);
+                if (fields.length < 2 || fields[0].trim().isEmpty())
+                    continue;
+
+                String sf = fields[0].trim();
+                Set<Term> terms = new HashSet<Term>();
+                try {
+                    mLucene.getQuery(new Text(fields[1])).extractTerms(terms);
+                } catch (SearchException e) {
+                    LOG.debug("Skipping query log entry that could not be parsed: " + line);
+                    continue;
+                }
+
+                increment(sfCounts, sf);
+                Map<Term, Integer> termCounts = contextTermCounts.get(sf);
+                if (termCounts == null) {
+                    termCounts = new HashMap<Term, Integer>();
+                    contextTermCounts.put(sf, termCounts);
+                }
+                for (Term t : terms)
+                    increment(termCounts, t);
+                lines++;
+            }
+        } finally {
+            in.close();
+        }
+        LOG.info(String.format("Read %s queries with %s distinct surface forms from %s.", lines, sfCounts.size(), log));
+    }
+
+    private static <K> List<K> topKeys(Map<K, Integer> counts, int n) {
+        Ordering<Map.Entry<K, Integer>> descOrder = new Ordering<Map.Entry<K, Integer>>() {
+            public int compare(Map.Entry<K, Integer> left, Map.Entry<K, Integer> right) {
+                return Ints.compare(right.getValue(), left.getValue());
+            }
+        };
+        List<Map.Entry<K, Integer>> sorted = descOrder.sortedCopy(counts.entrySet());
+        List<K> keys = new ArrayList<K>();
+        for (Map.Entry<K, Integer> e : sorted.subList(0, Math.min(n, sorted.size())))
+            keys.add(e.getKey());
+        return keys;
+    }
+
+    /**
+     * Creates the warm-up queries, most frequent surface forms first.
+     * @param maxQueries maximum number of queries (i.e. surface forms)
+     * @param maxTermsPerQuery maximum number of context terms per surface form
+     * @return
+     * @throws SearchException
+     */
+    public List<Query> plan(int maxQueries, int maxTermsPerQuery) throws SearchException {
+        List<Query> queries = new ArrayList<Query>();
+        for (String sf : topKeys(sfCounts, maxQueries)) {
+            Set<Term> terms = new HashSet<Term>(topKeys(contextTermCounts.get(sf), maxTermsPerQuery));
+            queries.add(mLucene.getQuery(new SurfaceForm(sf), terms));
+        }
+        return queries;
+    }
+
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.lucene.similarity;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.util.OpenBitSet;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Immutable, compressed set of Lucene document IDs.
+ *
+ * The doc IDs are partitioned by their upper 16 bits. Each partition is stored in a container that holds the
+ * lower 16 bits either as a sorted char array (at most 4096 docs) or as a bitmap of 1024 longs (dense partitions).
+ * Rare terms therefore take two bytes per document instead of maxDoc/8 bytes, and since instances are never
+ * modified they can be shared between threads without copying.
+ */
+public final class CompressedDocIdSet {
+
+    /** Maximum number of docs in an array container, above this a bitmap container is smaller. */
+    static final int ARRAY_MAX_SIZE = 4096;
+    static final int BITMAP_WORDS = 1 << 10;
+
+    public static final CompressedDocIdSet EMPTY = new CompressedDocIdSet(new char[0], new Object[0], 0);
+
+    private final char[] keys;          // upper 16 bits of the doc IDs in each container, ascending
+    private final Object[] containers;  // char[] or long[]
+    private final int cardinality;
+
+    private CompressedDocIdSet(char[] keys, Object[] containers, int cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Reads the documents containing the term from the index.
+     */
+    public static CompressedDocIdSet create(IndexReader reader, Term term) throws IOException {
+        Builder builder = new Builder();
+        TermDocs td = reader.termDocs();
+        try {
+            int[] docs = new int[256];
+            int[] freqs = new int[256];
+            td.seek(term);
+            int n;
+            while ((n = td.read(docs, freqs)) > 0) {
+                for (int i = 0; i < n; i++)
+                    builder.add(docs[i]);
+            }
+        } finally {
+            td.close();
+        }
+        return builder.build();
+    }
+
+    public static CompressedDocIdSet fromOpenBitSet(OpenBitSet bits) {
+        Builder builder = new Builder();
+        for (int doc = bits.nextSetBit(0); doc >= 0; doc = bits.nextSetBit(doc + 1))
+            builder.add(doc);
+        return builder.build();
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean contains(int doc) {
+        int i = Arrays.binarySearch(keys, (char) (doc >>> 16));
+        if (i < 0)
+            return false;
+        Object c = containers[i];
+        char low = (char) doc;
+        if (c instanceof long[])
+            return (((long[]) c)[low >>> 6] & (1L << low)) != 0;
+        else
+            return Arrays.binarySearch((char[]) c, low) >= 0;
+    }
+
+    /**
+     * Number of documents in both sets. The intersection itself is not built.
+     */
+    public int intersectCardinality(CompressedDocIdSet other) {
+        int count = 0;
+        int i = 0, j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += intersectCardinality(containers[i], other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the intersection of both sets as a new set.
+     */
+    public CompressedDocIdSet and(CompressedDocIdSet other) {
+        int n = Math.min(keys.length, other.keys.length);
+        char[] resultKeys = new char[n];
+        Object[] resultContainers = new Object[n];
+        int size = 0;
+        int resultCardinality = 0;
+
+        int i = 0, j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object c = and(containers[i], other.containers[j]);
+                int card = containerCardinality(c);
+                if (card > 0) {
+                    resultKeys[size] = keys[i];
+                    resultContainers[size] = c;
+                    resultCardinality += card;
+                    size++;
+                }
+                i++;
+                j++;
+            }
+        }
+
+        if (size == 0)
+            return EMPTY;
+        return new CompressedDocIdSet(Arrays.copyOf(resultKeys, size), Arrays.copyOf(resultContainers, size), resultCardinality);
+    }
+
+    public OpenBitSet toOpenBitSet(long numBits) {
+        OpenBitSet bits = new OpenBitSet(numBits);
+        for (int i = 0; i < keys.length; i++) {
+            int high = keys[i] << 16;
+            Object c = containers[i];
+            if (c instanceof long[]) {
+                long[] words = (long[]) c;
+                for (int w = 0; w < words.length; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        bits.fastSet(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                for (char low : (char[]) c)
+                    bits.fastSet(high | low);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Approximate number of bytes used on the heap.
+     */
+    public long sizeInBytes() {
+        long size = 32 + 2L * keys.length + 8L * containers.length;
+        for (Object c : containers) {
+            if (c instanceof long[])
+                size += 16 + 8L * BITMAP_WORDS;
+            else
+                size += 16 + 2L * ((char[]) c).length;
+        }
+        return size;
+    }
+
+    private static int containerCardinality(Object c) {
+        if (c instanceof long[]) {
+            int card = 0;
+            for (long word : (long[]) c)
+                card += Long.bitCount(word);
+            return card;
+        }
+        return ((char[]) c).length;
+    }
+
+    private static int intersectCardinality(Object a, Object b) {
+        if (a instanceof long[] && b instanceof long[]) {
+            long[] wa = (long[]) a;
+            long[] wb = (long[]) b;
+            int card = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++)
+                card += Long.bitCount(wa[w] & wb[w]);
+            return card;
+        } else if (a instanceof long[]) {
+            return countInBitmap((char[]) b, (long[]) a);
+        } else if (b instanceof long[]) {
+            return countInBitmap((char[]) a, (long[]) b);
+        } else {
+            char[] ca = (char[]) a;
+            char[] cb = (char[]) b;
+            int card = 0;
+            int i = 0, j = 0;
+            while (i < ca.length && j < cb.length) {
+                if (ca[i] < cb[j]) {
+                    i++;
+                } else if (ca[i] > cb[j]) {
+                    j++;
+                } else {
+                    card++;
+                    i++;
+                    j++;
+                }
+            }
+            return card;
+        }
+    }
+
+    private static int countInBitmap(char[] values, long[] bitmap) {
+        int card = 0;
+        for (char v : values) {
+            if ((bitmap[v >>> 6] & (1L << v)) != 0)
+                card++;
+        }
+        return card;
+    }
+
+    private static Object and(Object a, Object b) {
+        if (a instanceof long[] && b instanceof long[]) {
+            long[] wa = (long[]) a;
+            long[] wb = (long[]) b;
+            long[] result = new long[BITMAP_WORDS];
+            int card = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                result[w] = wa[w] & wb[w];
+                card += Long.bitCount(result[w]);
+            }
+            return card > ARRAY_MAX_SIZE ? result : toArrayContainer(result, card);
+        }
+
+        if (a instanceof long[])
+            return filterByBitmap((char[]) b, (long[]) a);
+        else if (b instanceof long[])
+            return filterByBitmap((char[]) a, (long[]) b);
+
+        char[] ca = (char[]) a;
+        char[] cb = (char[]) b;
+        char[] values = new char[Math.min(ca.length, cb.length)];
+        int size = 0;
+        int i = 0, j = 0;
+        while (i < ca.length && j < cb.length) {
+            if (ca[i] < cb[j]) {
+                i++;
+            } else if (ca[i] > cb[j]) {
+                j++;
+            } else {
+                values[size++] = ca[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    private static char[] filterByBitmap(char[] values, long[] bitmap) {
+        char[] result = new char[values.length];
+        int size = 0;
+        for (char v : values) {
+            if ((bitmap[v >>> 6] & (1L << v)) != 0)
+                result[size++] = v;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static char[] toArrayContainer(long[] bitmap, int cardinality) {
+        char[] values = new char[cardinality];
+        int size = 0;
+        for (int w = 0; w < bitmap.length; w++) {
+            long word = bitmap[w];
+            while (word != 0) {
+                values[size++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Builds a set from doc IDs that are added in increasing order (the order in which TermDocs returns them).
+     */
+    public static class Builder {
+
+        private char[] keys = new char[16];
+        private Object[] containers = new Object[16];
+        private int size = 0;
+        private int cardinality = 0;
+
+        private int currentKey = -1;
+        private final char[] values = new char[ARRAY_MAX_SIZE];
+        private int numValues = 0;
+        private long[] bitmap = null;
+        private int lastDoc = -1;
+
+        public void add(int doc) {
+            if (doc <= lastDoc)
+                throw new IllegalArgumentException(String.format("Doc IDs must be added in increasing order (%s after %s).", doc, lastDoc));
+            lastDoc = doc;
+
+            int key = doc >>> 16;
+            char low = (char) doc;
+            if (key != currentKey) {
+                flush();
+                currentKey = key;
+            }
+
+            if (bitmap != null) {
+                bitmap[low >>> 6] |= 1L << low;
+            } else if (numValues < ARRAY_MAX_SIZE) {
+                values[numValues] = low;
+            } else {
+                // the partition is dense, switch to a bitmap
+                bitmap = new long[BITMAP_WORDS];
+                for (int i = 0; i < numValues; i++)
+                    bitmap[values[i] >>> 6] |= 1L << values[i];
+                bitmap[low >>> 6] |= 1L << low;
+            }
+            numValues++;
+        }
+
+        private void flush() {
+            if (numValues == 0)
+                return;
+
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                containers = Arrays.copyOf(containers, size * 2);
+            }
+            keys[size] = (char) currentKey;
+            containers[size] = bitmap != null ? bitmap : Arrays.copyOf(values, numValues);
+            size++;
+            cardinality += numValues;
+
+            numValues = 0;
+            bitmap = null;
+        }
+
+        public CompressedDocIdSet build() {
+            flush();
+            if (size == 0)
+                return EMPTY;
+            return new CompressedDocIdSet(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size), cardinality);
+        }
+    }
+
+}
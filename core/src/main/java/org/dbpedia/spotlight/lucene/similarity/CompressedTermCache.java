@@ -0,0 +1,276 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.lucene.similarity;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.OpenBitSet;
+import org.dbpedia.spotlight.lucene.LuceneManager;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Term cache that keeps a {@link CompressedDocIdSet} for each term.
+ *
+ * In contrast to {@link JCSTermCache}:
+ * - the cached sets are compressed and immutable, so they are shared between threads instead of cloned on every read;
+ * - entries are kept per IndexReader (keyed on the reader's core cache key) in concurrent maps and are dropped when the reader is closed;
+ * - the cache is bounded by the approximate number of bytes of the cached sets, not by the number of terms.
+ *   If the budget is exceeded, the least recently used entries are evicted until the cache is at 75% of the budget;
+ * - the number of documents containing two terms is counted without building the intersection.
+ */
+public class CompressedTermCache extends TermCache {
+
+    static Log LOG = LogFactory.getLog(CompressedTermCache.class);
+
+    //Singleton
+    private static CompressedTermCache instance;
+
+    private final ConcurrentMap<Object, ConcurrentMap<Term, Entry>> readerCaches = new ConcurrentHashMap<Object, ConcurrentMap<Term, Entry>>();
+
+    private final AtomicLong sizeInBytes = new AtomicLong(0);
+    private final AtomicLong clock = new AtomicLong(0);
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * Reader of the last lookup, used by the term-keyed methods of {@link TermCache}.
+     */
+    private volatile IndexReader currentReader;
+
+    private static class Entry {
+        final CompressedDocIdSet docs;
+        volatile long lastAccess;
+
+        Entry(CompressedDocIdSet docs) {
+            this.docs = docs;
+        }
+    }
+
+    /**
+     * @param mgr
+     * @param maxCacheBytes approximate maximum number of bytes used by the cached doc ID sets
+     */
+    public CompressedTermCache(LuceneManager mgr, long maxCacheBytes) {
+        super(mgr, maxCacheBytes);
+    }
+
+    /**
+     * Singleton access point, so that all searchers share one budget.
+     */
+    public static CompressedTermCache getInstance(LuceneManager mgr, long maxCacheBytes) {
+        synchronized (CompressedTermCache.class) {
+            if (instance == null) {
+                instance = new CompressedTermCache(mgr, maxCacheBytes);
+            } else {
+                LOG.info("Reusing already initialized cache.");
+            }
+            return instance;
+        }
+    }
+
+    private ConcurrentMap<Term, Entry> cacheFor(IndexReader reader) {
+        currentReader = reader;
+        final Object key = reader.getCoreCacheKey();
+        ConcurrentMap<Term, Entry> cache = readerCaches.get(key);
+        if (cache == null) {
+            ConcurrentMap<Term, Entry> created = new ConcurrentHashMap<Term, Entry>(1024, 0.75f, 16);
+            cache = readerCaches.putIfAbsent(key, created);
+            if (cache == null) {
+                cache = created;
+                reader.addReaderFinishedListener(new IndexReader.ReaderFinishedListener() {
+                    public void finished(IndexReader finishedReader) {
+                        removeReader(key);
+                    }
+                });
+            }
+        }
+        return cache;
+    }
+
+    private void removeReader(Object key) {
+        IndexReader reader = currentReader;
+        if (reader != null && reader.getCoreCacheKey() == key)
+            currentReader = null;
+        ConcurrentMap<Term, Entry> cache = readerCaches.remove(key);
+        if (cache != null) {
+            for (Entry entry : cache.values())
+                sizeInBytes.addAndGet(-entry.docs.sizeInBytes());
+        }
+    }
+
+    /**
+     * Returns the cached doc ID set of the term, reading it from the index if necessary.
+     */
+    public CompressedDocIdSet getDocs(IndexReader reader, Term term) throws IOException {
+        ConcurrentMap<Term, Entry> cache = cacheFor(reader);
+        Entry entry = cache.get(term);
+        if (entry == null) {
+            Entry created = new Entry(CompressedDocIdSet.create(reader, term));
+            entry = cache.putIfAbsent(term, created);
+            if (entry == null) {
+                entry = created;
+                if (sizeInBytes.addAndGet(created.docs.sizeInBytes()) > mMaxCacheSize)
+                    evict();
+            }
+        }
+        entry.lastAccess = clock.incrementAndGet();
+        return entry.docs;
+    }
+
+    /**
+     * Removes the least recently used entries until the cache is at 75% of its budget.
+     * Only one thread evicts at a time, the others go on without waiting.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock())
+            return;
+
+        try {
+            final long target = (long) (mMaxCacheSize * 0.75);
+            long before = sizeInBytes.get();
+
+            List<Object[]> entries = new ArrayList<Object[]>();
+            for (ConcurrentMap<Term, Entry> cache : readerCaches.values()) {
+                for (Map.Entry<Term, Entry> e : cache.entrySet())
+                    entries.add(new Object[]{cache, e.getKey(), e.getValue(), e.getValue().lastAccess});
+            }
+            Collections.sort(entries, new Comparator<Object[]>() {
+                public int compare(Object[] a, Object[] b) {
+                    long accessA = (Long) a[3];
+                    long accessB = (Long) b[3];
+                    return accessA < accessB ? -1 : (accessA > accessB ? 1 : 0);
+                }
+            });
+
+            int evicted = 0;
+            for (Object[] e : entries) {
+                if (sizeInBytes.get() <= target)
+                    break;
+                ConcurrentMap<Term, Entry> cache = (ConcurrentMap<Term, Entry>) e[0];
+                Entry entry = (Entry) e[2];
+                if (cache.remove(e[1], entry)) {
+                    sizeInBytes.addAndGet(-entry.docs.sizeInBytes());
+                    evicted++;
+                }
+            }
+
+            LOG.debug(String.format("Evicted %s terms from the cache (%s bytes -> %s bytes).", evicted, before, sizeInBytes.get()));
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public long sizeInBytes() {
+        return sizeInBytes.get();
+    }
+
+    @Override
+    public long cardinality(IndexReader reader, Term surfaceFormTerm) throws IOException {
+        return getDocs(reader, surfaceFormTerm).cardinality();
+    }
+
+    @Override
+    public long cardinality(IndexReader reader, Term surfaceFormTerm, Term contextTerm) throws IOException {
+        return getDocs(reader, surfaceFormTerm).intersectCardinality(getDocs(reader, contextTerm));
+    }
+
+    @Override
+    public long cardinality(IndexReader reader, Set<Term> terms) throws IOException {
+        if (terms.isEmpty())
+            return 0;
+
+        List<CompressedDocIdSet> sets = new ArrayList<CompressedDocIdSet>(terms.size());
+        for (Term t : terms)
+            sets.add(getDocs(reader, t));
+
+        // intersect starting with the smallest sets
+        Collections.sort(sets, new Comparator<CompressedDocIdSet>() {
+            public int compare(CompressedDocIdSet a, CompressedDocIdSet b) {
+                return a.cardinality() - b.cardinality();
+            }
+        });
+
+        if (sets.size() == 1)
+            return sets.get(0).cardinality();
+
+        CompressedDocIdSet result = sets.get(0);
+        for (int i = 1; i < sets.size() - 1 && result.cardinality() > 0; i++)
+            result = result.and(sets.get(i));
+        return result.intersectCardinality(sets.get(sets.size() - 1));
+    }
+
+    /**
+     * Whether the term is cached for the current reader (the reader of the last lookup).
+     */
+    @Override
+    @Deprecated
+    public boolean containsKey(Term term) {
+        IndexReader reader = currentReader;
+        return reader != null && cacheFor(reader).containsKey(term);
+    }
+
+    /**
+     * Caches the documents of the term for the current reader (the reader of the last lookup).
+     * The bit set is compressed, later changes to it are not reflected in the cache.
+     *
+     * @return the documents previously cached for the term, or null
+     * @throws IllegalStateException if no reader has been used with this cache yet
+     */
+    @Override
+    public OpenBitSet put(Term term, OpenBitSet openBitSet) {
+        IndexReader reader = currentReader;
+        if (reader == null)
+            throw new IllegalStateException("CompressedTermCache has no current IndexReader, use getDocs(reader, term).");
+
+        Entry entry = new Entry(CompressedDocIdSet.fromOpenBitSet(openBitSet));
+        entry.lastAccess = clock.incrementAndGet();
+        Entry previous = cacheFor(reader).put(term, entry);
+
+        long delta = entry.docs.sizeInBytes() - (previous == null ? 0 : previous.docs.sizeInBytes());
+        if (sizeInBytes.addAndGet(delta) > mMaxCacheSize)
+            evict();
+        return previous == null ? null : previous.docs.toOpenBitSet(reader.maxDoc());
+    }
+
+    /**
+     * Documents of the term cached for the current reader (the reader of the last lookup), as a new bit set.
+     *
+     * @return the documents of the term or null if they are not cached
+     */
+    @Override
+    public OpenBitSet get(Term term) {
+        IndexReader reader = currentReader;
+        if (reader == null)
+            return null;
+
+        Entry entry = cacheFor(reader).get(term);
+        if (entry == null)
+            return null;
+        entry.lastAccess = clock.incrementAndGet();
+        return entry.docs.toOpenBitSet(reader.maxDoc());
+    }
+
+}
@@ -21,6 +21,7 @@ package org.dbpedia.spotlight.model;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.dbpedia.spotlight.exceptions.ConfigurationException;
+import org.dbpedia.spotlight.lucene.LuceneManager;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -53,6 +54,18 @@ public class DisambiguatorConfiguration {
 
     protected boolean contextIndexInMemory = false;
 
+    static String CONFIG_CONTEXT_INDEX_DIRECTORY_TYPE = "org.dbpedia.spotlight.index.directory";
+    protected LuceneManager.DirectoryType contextIndexDirectoryType = LuceneManager.DirectoryType.AUTO;
+    protected boolean contextIndexPreload = false;
+
+    protected File queryLogFile = null;
+    protected double queryLogSampleRate = 0.0;
+    protected long queryLogMaxSize = 0;
+    protected int warmUpQueries = DEFAULT_WARM_UP_QUERIES;
+
+    /** Number of queries replayed from the query log if org.dbpedia.spotlight.index.warmUp.queries is not set. */
+    public static final int DEFAULT_WARM_UP_QUERIES = 1000;
+
     public DisambiguatorConfiguration(String configFileName) throws ConfigurationException {
 
         //Read config properties:
@@ -80,6 +93,62 @@ public class DisambiguatorConfiguration {
 		}
         contextIndexInMemory = config.getProperty("org.dbpedia.spotlight.index.loadToMemory", "false").trim().equals("true");
 
+        String directoryType = config.getProperty(CONFIG_CONTEXT_INDEX_DIRECTORY_TYPE, "auto").trim();
+        try {
+            contextIndexDirectoryType = LuceneManager.DirectoryType.valueOf(directoryType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException(String.format("Unknown directory type %s=%s. Use one of %s.", CONFIG_CONTEXT_INDEX_DIRECTORY_TYPE, directoryType, Arrays.toString(LuceneManager.DirectoryType.values())));
+        }
+        contextIndexPreload = config.getProperty("org.dbpedia.spotlight.index.preload", "false").trim().equals("true");
+
+        String queryLog = config.getProperty("org.dbpedia.spotlight.index.queryLog", "").trim();
+        if (!queryLog.isEmpty())
+            queryLogFile = new File(queryLog);
+        try {
+            queryLogSampleRate = Double.parseDouble(config.getProperty("org.dbpedia.spotlight.index.queryLog.sampleRate", "0").trim());
+            queryLogMaxSize = Long.parseLong(config.getProperty("org.dbpedia.spotlight.index.queryLog.maxSizeMB", "100").trim()) * 1024 * 1024;
+            warmUpQueries = Integer.parseInt(config.getProperty("org.dbpedia.spotlight.index.warmUp.queries", String.valueOf(DEFAULT_WARM_UP_QUERIES)).trim());
+        } catch (NumberFormatException e) {
+            throw new ConfigurationException("Invalid query log configuration.", e);
+        }
+
+    }
+
+    public LuceneManager.DirectoryType getContextIndexDirectoryType() {
+        return contextIndexDirectoryType;
+    }
+
+    public boolean isContextIndexPreload() {
+        return contextIndexPreload;
+    }
+
+    /**
+     * @return the query log used to warm up the context index, or null
+     */
+    public File getQueryLogFile() {
+        return queryLogFile;
+    }
+
+    /**
+     * @return fraction of the queries that are appended to the query log (0 to disable recording)
+     */
+    public double getQueryLogSampleRate() {
+        return queryLogSampleRate;
+    }
+
+    /**
+     * @return size in bytes at which the query log is rotated
+     */
+    public long getQueryLogMaxSize() {
+        return queryLogMaxSize;
+    }
+
+    /**
+     * @return number of queries replayed from the query log at startup, {@link #DEFAULT_WARM_UP_QUERIES} by default
+     * (0 to disable the warm up). Only used if a query log is configured.
+     */
+    public int getWarmUpQueries() {
+        return warmUpQueries;
     }
 
     public String getContextIndexDirectory() {
@@ -109,6 +109,7 @@ public class SpotlightConfiguration {
     protected String sparqlEndpoint = "http://dbpedia.org";
 
     protected long maxCacheSize = Long.MAX_VALUE;
+    protected long maxTermCacheBytes = 256L * 1024 * 1024;
 
     //Lucene's analyzers have default stopwords
     @Deprecated
@@ -157,6 +158,10 @@ public class SpotlightConfiguration {
         return maxCacheSize;
     }
 
+    public long getMaxTermCacheBytes() {
+        return maxTermCacheBytes;
+    }
+
     DBpediaResourceFactory dbpediaResourceFactory = null;
 
     public DBpediaResourceFactory getDBpediaResourceFactory() {
@@ -295,6 +300,15 @@ public class SpotlightConfiguration {
             LOG.error(ignored);
         }
 
+        String maxTermCacheMBString = config.getProperty("org.dbpedia.spotlight.lucene.termCache.maxMB", "").trim();
+        if (!maxTermCacheMBString.isEmpty()) {
+            try {
+                maxTermCacheBytes = Long.parseLong(maxTermCacheMBString) * 1024 * 1024;
+            } catch (NumberFormatException e) {
+                throw new ConfigurationException("org.dbpedia.spotlight.lucene.termCache.maxMB must be a number of megabytes.", e);
+            }
+        }
+
 
         /**
          * These configuration parameters are for an alternative way to load DBpediaResources (from an in-memory database instead of Lucene)
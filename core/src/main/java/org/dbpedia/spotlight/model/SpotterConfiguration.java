@@ -89,8 +89,13 @@ public class SpotterConfiguration {
         // Validate CoOccurrenceBasedSelector
         if (spotters.contains(SpotterPolicy.CoOccurrenceBasedSelector)) {
 
+            //Occurrence data is read either from a memory-mapped data file or from a JDBC database
+            boolean useDataFile = getCoOcSelectorDataFile() != null;
+
             //Check if all required parameters are there, trim whitespace
-            String[] parameters = {"database.jdbcdriver", "database.connector", "database.user", "database.password",
+            String[] parameters = useDataFile
+                    ? new String[] {"datafile", "classifier.unigram", "classifier.ngram", "datasource"}
+                    : new String[] {"database.jdbcdriver", "database.connector", "database.user", "database.password",
                     "classifier.unigram", "classifier.ngram", "datasource"};
 
             for(String parameter : parameters) {
@@ -104,7 +109,9 @@ public class SpotterConfiguration {
             }
 
             //Check if all the required files are there:
-            String[] parameterFiles = {"classifier.unigram", "classifier.ngram"};
+            String[] parameterFiles = useDataFile
+                    ? new String[] {"datafile", "classifier.unigram", "classifier.ngram"}
+                    : new String[] {"classifier.unigram", "classifier.ngram"};
             for(String fileparameter : parameterFiles) {
                 String file = config.getProperty(PREFIX_COOCCURRENCE_SELECTOR + fileparameter);
                 if(!new File(file).isFile()) {
@@ -122,7 +129,7 @@ public class SpotterConfiguration {
             String configConnectorParam = PREFIX_COOCCURRENCE_SELECTOR + "database.connector";
             String connector = config.getProperty(configConnectorParam,"");
             try {
-                if (connector.contains(":file:")) {
+                if (!useDataFile && connector.contains(":file:")) {
                     String[] parts = connector.split(":");
                     String path = parts[parts.length-1].split(";")[0];
                     if (!new File(path).exists())
@@ -181,6 +188,17 @@ public class SpotterConfiguration {
         return config.getProperty(PREFIX_COOCCURRENCE_SELECTOR + "database.password");
     }
 
+    /**
+     * Occurrence data file for the co-occurrence based spot selector, see
+     * {@link org.dbpedia.spotlight.spot.cooccurrence.features.data.OccurrenceDataProviderMMap}.
+     *
+     * @return path of the data file or null if the occurrence data is read from the JDBC database
+     */
+    public String getCoOcSelectorDataFile() {
+        String dataFile = config.getProperty(PREFIX_COOCCURRENCE_SELECTOR + "datafile", "").trim();
+        return dataFile.isEmpty() ? null : dataFile;
+    }
+
     public String getCoOcSelectorClassifierNGram() {
         return config.getProperty(PREFIX_COOCCURRENCE_SELECTOR + "classifier.ngram");
     }
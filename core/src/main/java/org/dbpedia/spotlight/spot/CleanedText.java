@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.spot;
+
+import java.util.Arrays;
+
+/**
+ * A text with the quotation marks and commas removed (these confuse the OpenNLP chunker), together with
+ * a table that maps offsets in the cleaned text back to offsets in the original text.
+ *
+ * The table only holds one entry per removed character and is searched with binary search, so mapping an offset
+ * is logarithmic in the number of removed characters. If nothing was removed, the cleaned text is the original
+ * String and offsets are not changed.
+ */
+public class CleanedText {
+
+    /** Characters that are removed, see: http://en.wikipedia.org/wiki/Quotation_mark_glyphs */
+    private static final String CHARS_TO_REMOVE = "\",\u00AB\u00BB\u2018\u2019\u201A\u201B\u201C\u201D\u201E\u201F\u2039\u203A";
+
+    private final String original;
+    private final String cleaned;
+
+    /** For each removed character (in text order): the offset in the cleaned text at which it was removed. */
+    private final int[] removedAt;
+
+    private CleanedText(String original, String cleaned, int[] removedAt) {
+        this.original = original;
+        this.cleaned = cleaned;
+        this.removedAt = removedAt;
+    }
+
+    /**
+     * Removes the quotation marks and commas from the text.
+     */
+    public static CleanedText removeQuotes(String text) {
+        int[] removedAt = null;
+        int nRemoved = 0;
+        StringBuilder cleaned = null;
+
+        for (int i = 0; i < text.length(); i++) {
+            if (CHARS_TO_REMOVE.indexOf(text.charAt(i)) < 0)
+                continue;
+
+            if (cleaned == null) {
+                cleaned = new StringBuilder(text.length());
+                removedAt = new int[16];
+            } else if (nRemoved == removedAt.length) {
+                removedAt = Arrays.copyOf(removedAt, 2 * nRemoved);
+            }
+
+            //Copy everything after the previously removed character:
+            cleaned.append(text, cleaned.length() + nRemoved, i);
+            removedAt[nRemoved++] = cleaned.length();
+        }
+
+        if (cleaned == null)
+            return new CleanedText(text, text, new int[0]);
+
+        cleaned.append(text, cleaned.length() + nRemoved, text.length());
+        return new CleanedText(text, cleaned.toString(), Arrays.copyOf(removedAt, nRemoved));
+    }
+
+    /**
+     * Maps an offset in the cleaned text to the offset of the same character in the original text.
+     */
+    public int toOriginalOffset(int cleanedOffset) {
+        //Number of characters that were removed up to this offset: the first entry that is larger than the offset.
+        int low = 0;
+        int high = removedAt.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (removedAt[mid] <= cleanedOffset)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return cleanedOffset + low;
+    }
+
+    public String getOriginal() {
+        return original;
+    }
+
+    public String getCleaned() {
+        return cleaned;
+    }
+
+    /**
+     * @return true if no characters were removed, i.e. the cleaned text is the original text
+     */
+    public boolean isUnchanged() {
+        return removedAt.length == 0;
+    }
+
+}
@@ -26,6 +26,9 @@ import org.dbpedia.spotlight.spot.cooccurrence.ClassifierFactory;
 import org.dbpedia.spotlight.spot.cooccurrence.classification.SpotClass;
 import org.dbpedia.spotlight.spot.cooccurrence.classification.SpotClassification;
 import org.dbpedia.spotlight.spot.cooccurrence.classification.SpotClassifier;
+import org.dbpedia.spotlight.spot.cooccurrence.features.data.CachingOccurrenceDataProvider;
+import org.dbpedia.spotlight.spot.cooccurrence.features.data.OccurrenceDataProvider;
+import org.dbpedia.spotlight.spot.cooccurrence.features.data.OccurrenceDataProviderMMap;
 import org.dbpedia.spotlight.spot.cooccurrence.features.data.OccurrenceDataProviderSQL;
 import org.dbpedia.spotlight.spot.cooccurrence.filter.FilterPOS;
 import org.dbpedia.spotlight.spot.cooccurrence.filter.FilterPattern;
@@ -33,7 +36,8 @@ import org.dbpedia.spotlight.spot.cooccurrence.filter.FilterTermsize;
 import org.dbpedia.spotlight.tagging.TaggedToken;
 import org.dbpedia.spotlight.tagging.TaggedTokenProvider;
 
-import java.util.LinkedList;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -55,7 +59,7 @@ public class CoOccurrenceBasedSelector implements TaggedSpotSelector {
 	 * @see org.dbpedia.spotlight.spot.cooccurrence.features.data.OccurrenceDataProvider
 	 * @see ClassifierFactory
 	 *
-	 * @param spotterConfiguration SpotterConfiguration object with classifier paths and JDBC
+	 * @param spotterConfiguration SpotterConfiguration object with classifier paths and occurrence data file or JDBC
 	 * 			description of occurrence data provider.
      * @throws InitializationException Either the OccurrenceDataProvider or the ClassifierFactory
 	 * 			could not be initialized.
@@ -63,14 +67,21 @@ public class CoOccurrenceBasedSelector implements TaggedSpotSelector {
 	public CoOccurrenceBasedSelector(SpotterConfiguration spotterConfiguration) throws InitializationException {
 		
 		LOG.info("Initializing spot occurrence data provider.");
-		OccurrenceDataProviderSQL.initialize(spotterConfiguration);
+		OccurrenceDataProvider occurrenceDataProvider;
+		if (spotterConfiguration.getCoOcSelectorDataFile() != null) {
+			OccurrenceDataProviderMMap.initialize(new File(spotterConfiguration.getCoOcSelectorDataFile()));
+			occurrenceDataProvider = OccurrenceDataProviderMMap.getInstance();
+		} else {
+			OccurrenceDataProviderSQL.initialize(spotterConfiguration);
+			occurrenceDataProvider = OccurrenceDataProviderSQL.getInstance();
+		}
 		LOG.info("Done.");
 
 		LOG.info("Initializing spot candidate classifiers.");
 		new ClassifierFactory(spotterConfiguration.getCoOcSelectorClassifierUnigram(),
 				spotterConfiguration.getCoOcSelectorClassifierNGram(),
 				spotterConfiguration.getCoOcSelectorDatasource(),
-				OccurrenceDataProviderSQL.getInstance()
+				occurrenceDataProvider
 			);
         LOG.info("Done.");
     }
@@ -84,7 +95,7 @@ public class CoOccurrenceBasedSelector implements TaggedSpotSelector {
 	 * @see org.dbpedia.spotlight.spot.cooccurrence.features.data.OccurrenceDataProvider
 	 * @see ClassifierFactory
 	 *
-	 * @param spotterConfiguration SpotterConfiguration object with classifier paths and JDBC
+	 * @param spotterConfiguration SpotterConfiguration object with classifier paths and occurrence data file or JDBC
 	 * 			description of occurrence data provider.
      * @param taggedTokenProvider TaggedTokenProvider used to create a tagged text to test the
      *          classifiers.
@@ -126,12 +137,20 @@ public class CoOccurrenceBasedSelector implements TaggedSpotSelector {
 	 * Filter the list of surface form occurrences, removing all occurrences that are considered
 	 * common.
 	 *
+	 * The occurrences that pass the filters are classified in two batches (unigrams and n-grams)
+	 * that share the lookups of occurrence data, see {@link SpotClassifier#classify(List, OccurrenceDataProvider)}.
+	 *
 	 * @param surfaceFormOccurrences spotted surface form occurrences
-	 * @return List of non-common surface form occurrences
+	 * @return List of non-common surface form occurrences, in the order of the input
 	 */
 	public List<SurfaceFormOccurrence> select(List<SurfaceFormOccurrence> surfaceFormOccurrences) {
 
-		List<SurfaceFormOccurrence> selectedOccurrences = new LinkedList<SurfaceFormOccurrence>();
+		boolean[] selected = new boolean[surfaceFormOccurrences.size()];
+
+		List<SurfaceFormOccurrence> unigramCandidates = new ArrayList<SurfaceFormOccurrence>();
+		List<Integer> unigramPositions = new ArrayList<Integer>();
+		List<SurfaceFormOccurrence> ngramCandidates = new ArrayList<SurfaceFormOccurrence>();
+		List<Integer> ngramPositions = new ArrayList<Integer>();
 
 		FilterPOS filterPOS = new FilterPOS();
 		FilterTermsize unigramFilter = new FilterTermsize(FilterTermsize.Termsize.unigram);
@@ -143,11 +162,13 @@ public class CoOccurrenceBasedSelector implements TaggedSpotSelector {
 		assert unigramClassifier != null;
 		assert ngramClassifier != null;
 
-		//ngramClassifier.setVerboseMode(true);                                         f
+		//ngramClassifier.setVerboseMode(true);
 		//unigramClassifier.setVerboseMode(true);
-		List<String> decisions = new LinkedList<String>();
+		List<String> decisions = new ArrayList<String>();
 
+		int position = -1;
 		for(SurfaceFormOccurrence surfaceFormOccurrence : surfaceFormOccurrences) {
+			position++;
 
             if (surfaceFormOccurrence.surfaceForm().name().trim().length()==0) {
                 LOG.warn("I have an occurrence with empty surface form. :-O Ignoring.");
@@ -157,8 +178,8 @@ public class CoOccurrenceBasedSelector implements TaggedSpotSelector {
 
             if (! (surfaceFormOccurrence.context() instanceof TaggedText)) { //FIXME added this to avoid breaking, but code below will never run if we don't pass the taggedtext
                 LOG.error(String.format("SurfaceFormOccurrence did not contain TaggedText. Cannot apply %s",this.getClass()));
-				
-                selectedOccurrences.add(surfaceFormOccurrence);
+
+                selected[position] = true;
                 continue;
             }
 
@@ -184,7 +205,7 @@ public class CoOccurrenceBasedSelector implements TaggedSpotSelector {
 						 * Add uppercase adjectives (e.g. Canadian tv star)
 						 */
 						if(taggedToken.getPOSTag() != null && taggedToken.getPOSTag().startsWith("j"))
-							selectedOccurrences.add(surfaceFormOccurrence);
+							selected[position] = true;
 
 					}else{
 						decisions.add("Dropped by POS filter: " + surfaceFormOccurrence);
@@ -194,22 +215,8 @@ public class CoOccurrenceBasedSelector implements TaggedSpotSelector {
 				}else if(!filterPattern.applies(surfaceFormOccurrence)){
 					decisions.add("Dropped by Pattern filter: " + surfaceFormOccurrence);
 				}else{
-
-                    SpotClassification spotClassification;
-                    try {
-                        spotClassification = unigramClassifier.classify(surfaceFormOccurrence);
-
-                        if(spotClassification.getCandidateClass() == SpotClass.valid) {
-                            selectedOccurrences.add(surfaceFormOccurrence);
-                            //LOG.info(("Kept by UnigramClassifier (Confidence: " + spotClassification.getConfidence() + "): " + surfaceFormOccurrence);
-                        }else{
-                            decisions.add("Dropped by UnigramClassifier (Confidence: " + spotClassification.getConfidence() + "): " + surfaceFormOccurrence);
-                        }
-
-                    } catch (Exception e) {
-                        LOG.error("Exception when classifying unigram candidate: " + e);
-                    }
-
+					unigramCandidates.add(surfaceFormOccurrence);
+					unigramPositions.add(position);
 				}
 
 
@@ -219,30 +226,57 @@ public class CoOccurrenceBasedSelector implements TaggedSpotSelector {
 				 * n > 1
 				 */
 
-				SpotClassification spotClassification;
-				try{
-					spotClassification = ngramClassifier.classify(surfaceFormOccurrence);
-				}catch (Exception e) {
-                    LOG.error("Exception when classifying ngram candidate: " + e);
-                    continue;
-				}
+				ngramCandidates.add(surfaceFormOccurrence);
+				ngramPositions.add(position);
 
-				if(spotClassification.getCandidateClass() == SpotClass.valid) {
-					selectedOccurrences.add(surfaceFormOccurrence);
-					//LOG.info("Kept by nGramClassifier (Confidence: " + spotClassification.getConfidence() + "): " + surfaceFormOccurrence);
-				}else{
-					decisions.add("Dropped by NGramClassifier: " + surfaceFormOccurrence);
-				}
+			}
 
+		}
+
+		/**
+		 * Classify the remaining candidates, tokens that occur in several candidates are only looked up once.
+		 */
+		OccurrenceDataProvider batchDataProvider = new CachingOccurrenceDataProvider(unigramClassifier.getDataProvider());
+
+		List<SpotClassification> unigramClassifications = unigramClassifier.classify(unigramCandidates, batchDataProvider);
+		for (int i = 0; i < unigramCandidates.size(); i++) {
+			SpotClassification spotClassification = unigramClassifications.get(i);
+			if (spotClassification == null)
+				continue; //Exception when classifying unigram candidate, logged by the classifier
+
+			if(spotClassification.getCandidateClass() == SpotClass.valid) {
+				selected[unigramPositions.get(i)] = true;
+				//LOG.info(("Kept by UnigramClassifier (Confidence: " + spotClassification.getConfidence() + "): " + surfaceFormOccurrence);
+			}else{
+				decisions.add("Dropped by UnigramClassifier (Confidence: " + spotClassification.getConfidence() + "): " + unigramCandidates.get(i));
 			}
+		}
+
+		List<SpotClassification> ngramClassifications = ngramClassifier.classify(ngramCandidates, batchDataProvider);
+		for (int i = 0; i < ngramCandidates.size(); i++) {
+			SpotClassification spotClassification = ngramClassifications.get(i);
+			if (spotClassification == null)
+				continue; //Exception when classifying ngram candidate, logged by the classifier
 
+			if(spotClassification.getCandidateClass() == SpotClass.valid) {
+				selected[ngramPositions.get(i)] = true;
+				//LOG.info("Kept by nGramClassifier (Confidence: " + spotClassification.getConfidence() + "): " + surfaceFormOccurrence);
+			}else{
+				decisions.add("Dropped by NGramClassifier: " + ngramCandidates.get(i));
+			}
 		}
 
         if (LOG.isDebugEnabled())
             for (String decision : decisions) {
                 LOG.debug(decision);
             }
-		
+
+		List<SurfaceFormOccurrence> selectedOccurrences = new ArrayList<SurfaceFormOccurrence>();
+		position = 0;
+		for(SurfaceFormOccurrence surfaceFormOccurrence : surfaceFormOccurrences) {
+			if (selected[position++])
+				selectedOccurrences.add(surfaceFormOccurrence);
+		}
 		return selectedOccurrences;
 	}
 
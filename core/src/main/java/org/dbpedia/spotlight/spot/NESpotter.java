@@ -42,10 +42,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Spotter that uses Named Entity Recognition (NER) models from OpenNLP. Only spots People, Organisations and Locations.
  *
+ * The text is split into sentences and tokenized once, then the name finder models of all entity types are run
+ * over the same token arrays. If there are idle cores, the entity types are processed concurrently. NameFinderME
+ * instances are kept per thread and entity type.
+ *
  * TODO remove hardcoding of opennlp models. get from configuration
  *
  * @author Rohana Rajapakse (GOSS Interactive Limited) - implemented the class
@@ -62,6 +68,50 @@ public class NESpotter implements Spotter {
         }
     };
 
+    // Threads for processing entity types concurrently
+    private static final ThreadPoolExecutor typeExecutor = new ThreadPoolExecutor(
+            Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors(),
+            60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ne-spotter-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    // NameFinderME and SentenceDetectorME are not thread-safe, each thread keeps its own instances
+    private static final ThreadLocal<Map<String, NameFinderME>> nameFinders = new ThreadLocal<Map<String, NameFinderME>>() {
+        @Override
+        protected Map<String, NameFinderME> initialValue() {
+            return new HashMap<String, NameFinderME>();
+        }
+    };
+    private static final ThreadLocal<SentenceDetectorME> sentenceDetectors = new ThreadLocal<SentenceDetectorME>() {
+        @Override
+        protected SentenceDetectorME initialValue() {
+            return new SentenceDetectorME((SentenceModel) sentenceModel);
+        }
+    };
+
+    /**
+     * A sentence of the text with its tokens, shared by the name finders of all entity types.
+     */
+    protected static class TokenizedSentence {
+        final String sentence;
+        final int offset;
+        final String[] tokens;
+        final Span[] tokenSpans;
+
+        TokenizedSentence(String sentence, int offset, String[] tokens, Span[] tokenSpans) {
+            this.sentence = sentence;
+            this.offset = offset;
+            this.tokens = tokens;
+            this.tokenSpans = tokenSpans;
+        }
+    }
+
     public NESpotter(String onlpModelDir, String i18nLanguageCode, Map<String, String> openNLPModelsURI) throws ConfigurationException {
 
         try {
@@ -97,31 +147,59 @@ public class NESpotter implements Spotter {
 
         List<SurfaceFormOccurrence> ret = new ArrayList<SurfaceFormOccurrence>();
         try {
-            for (Map.Entry<String, Object[]> type : entityTypes.entrySet()) {
-                List<SurfaceFormOccurrence> res = null;
-                //TODO pass type information within SurfaceFormOccurrence to later stages
-                String typeLabel = type.getKey();
-                Object[] typeInfo = type.getValue();
-                URI typeUri = (URI) typeInfo[0];
-                BaseModel nameFinderModel = (BaseModel) typeInfo[1];
-                res = extractNameOccurrences(nameFinderModel, text, typeUri);
-                if (res != null && !res.isEmpty()) {
-                    if (ret == null) {
-                        ret = res;
-                    }
-                    else {
-                        ret.addAll(res);
-                    }
-                }
+            final Text fText = text;
+            final List<TokenizedSentence> sentences = tokenize(text, sentenceDetectors.get());
+            List<Map.Entry<String, Object[]>> types = new ArrayList<Map.Entry<String, Object[]>>(entityTypes.entrySet());
 
+            // If enough threads are idle, all types but the first are processed by other threads
+            boolean concurrent = types.size() > 1 && sentences.size() > 0
+                    && typeExecutor.getActiveCount() + types.size() - 1 <= typeExecutor.getMaximumPoolSize();
+            List<FutureTask<List<SurfaceFormOccurrence>>> results = new ArrayList<FutureTask<List<SurfaceFormOccurrence>>>();
+            for (final Map.Entry<String, Object[]> type : types) {
+                FutureTask<List<SurfaceFormOccurrence>> result = new FutureTask<List<SurfaceFormOccurrence>>(new Callable<List<SurfaceFormOccurrence>>() {
+                    public List<SurfaceFormOccurrence> call() {
+                        //TODO pass type information within SurfaceFormOccurrence to later stages
+                        return findNames(nameFinder(type.getKey(), (BaseModel) type.getValue()[1]), sentences, fText, (URI) type.getValue()[0]);
+                    }
+                });
+                if (concurrent && !results.isEmpty())
+                    typeExecutor.execute(result);
+                results.add(result);
             }
+            for (int i = 0; i < results.size(); i++) {
+                if (!concurrent || i == 0)
+                    results.get(i).run();
+            }
+
+            // Merge in the order of the entity types
+            for (Future<List<SurfaceFormOccurrence>> result : results)
+                ret.addAll(result.get());
+
+        } catch (ExecutionException e) {
+            throw new SpottingException(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
         } catch (Exception e) {
             throw new SpottingException(e);
         }
 
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Occurrences found: "   +StringUtils.join(ret, ", "));
+        }
         return ret;
     }
 
+    /**
+     * The NameFinderME of the current thread for the entity type.
+     */
+    private static NameFinderME nameFinder(String type, BaseModel nameFinderModel) {
+        Map<String, NameFinderME> finders = nameFinders.get();
+        NameFinderME finder = finders.get(type);
+        if (finder == null) {
+            finder = new NameFinderME((TokenNameFinderModel) nameFinderModel);
+            finders.put(type, finder);
+        }
+        return finder;
+    }
+
     String name = "NESpotter";
 
 	@Override
@@ -134,8 +212,20 @@ public class NESpotter implements Spotter {
     }
 
     protected List<SurfaceFormOccurrence> extractNameOccurrences(BaseModel nameFinderModel, Text text, URI oType) {
+        List<SurfaceFormOccurrence> sfOccurrences = findNames(new NameFinderME((TokenNameFinderModel)nameFinderModel),
+                tokenize(text, new SentenceDetectorME((SentenceModel)sentenceModel)), text, oType);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Occurrences found: "   +StringUtils.join(sfOccurrences, ", "));
+        }
+        return sfOccurrences;
+    }
+
+    /**
+     * Splits the text into sentences and tokenizes them.
+     */
+    protected static List<TokenizedSentence> tokenize(Text text, SentenceDetectorME sentenceDetector) {
         String intext = text.text();
-        SentenceDetectorME sentenceDetector = new SentenceDetectorME((SentenceModel)sentenceModel);
         String[] sentences = sentenceDetector.sentDetect(intext);
         Span[] sentenceEndings = sentenceDetector.sentPosDetect(intext);
         int[] sentencePositions = new int[sentences.length + 1];
@@ -143,28 +233,33 @@ public class NESpotter implements Spotter {
             sentencePositions[k] = sentenceEndings[k].getStart();
         }
 
-        NameFinderME finder = new NameFinderME((TokenNameFinderModel)nameFinderModel);
-
-        List<SurfaceFormOccurrence> sfOccurrences = new ArrayList<SurfaceFormOccurrence>();
+        List<TokenizedSentence> tokenizedSentences = new ArrayList<TokenizedSentence>(sentences.length);
         Tokenizer tokenizer = new SimpleTokenizer();
         for (int i = 0; i < sentences.length; i++) {
             String sentence = sentences[i];
             //LOG.debug("Sentence: " + sentence);
+            tokenizedSentences.add(new TokenizedSentence(sentence, sentencePositions[i], tokenizer.tokenize(sentence), tokenizer.tokenizePos(sentence)));
+        }
+        return tokenizedSentences;
+    }
+
+    /**
+     * Finds the names of one entity type in the tokenized sentences of the text.
+     */
+    protected List<SurfaceFormOccurrence> findNames(NameFinderME finder, List<TokenizedSentence> sentences, Text text, URI oType) {
+        List<SurfaceFormOccurrence> sfOccurrences = new ArrayList<SurfaceFormOccurrence>();
+        for (TokenizedSentence tokenizedSentence : sentences) {
+            String sentence = tokenizedSentence.sentence;
+            String[] tokens = tokenizedSentence.tokens;
+            Span[] tokenspan = tokenizedSentence.tokenSpans;
 
             // extract the names in the current sentence
-            String[] tokens = tokenizer.tokenize(sentence);
-            Span[] tokenspan = tokenizer.tokenizePos(sentence);
             Span[] nameSpans = finder.find(tokens);
-            double[] probs = finder.probs();
 
             if (nameSpans != null && nameSpans.length > 0) {
-                //System.out.println("Tokens: " +(new ArrayList(Arrays.asList(tokens))).toString());
-                //System.out.println("NameSpans: " +(new ArrayList(Arrays.asList(nameSpans))).toString());
                 for (Span span : nameSpans) {
                     StringBuilder buf = new StringBuilder();
-                    //System.out.println("StartSpan: " + span.getStart() + " EndSpan: " + span.getEnd());
                     for (int j = span.getStart(); j < span.getEnd(); j++) {
-                        //System.out.println(tokens[i] + " appended to " + buf.toString());
                         buf.append(tokens[j]);
                         if(j<span.getEnd()-1) buf.append(" ");
                     }
@@ -172,17 +267,8 @@ public class NESpotter implements Spotter {
                     if (surfaceFormStr.contains(".")) {
                     	surfaceFormStr = correctPhrase(surfaceFormStr, sentence);
                     }
-                    
-                    int entStart = sentencePositions[i] + tokenspan[span.getStart()].getStart();
-                    int entEnd = sentencePositions[i] +tokenspan[span.getEnd()-1].getEnd();
-
-                    /*
-                    System.out.println("\n\nRR-NE Found = " + buf.toString());
-                    System.out.println("Start = " + entStart);
-                    System.out.println("End = " + entEnd);
-                    System.out.println("Sentence = " + sentence);
-                    System.out.println("Text = " + text);
-                    */
+
+                    int entStart = tokenizedSentence.offset + tokenspan[span.getStart()].getStart();
 
                     SurfaceForm surfaceForm = new SurfaceForm(surfaceFormStr);
                     SurfaceFormOccurrence sfocc =  new SurfaceFormOccurrence(surfaceForm, text, entStart);
@@ -194,11 +280,9 @@ public class NESpotter implements Spotter {
         }
         finder.clearAdaptiveData();
 
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("Occurrences found: "   +StringUtils.join(sfOccurrences, ", "));
-        }
         return sfOccurrences;
     }
+
 	private String correctPhrase(String phrs, String intext) {
 		//first remove " ."
 		while (phrs.contains(" .")){
@@ -95,40 +95,22 @@ public class OpenNLPNGramSpotter implements Spotter {
 	@Override
 	public List<SurfaceFormOccurrence> extract(Text text) {
 
-		//System.out.println("\n\nRR- extract(...) method called! with text: " + intext + "\n\n");
-       
-		//remove special chars from input text, and keep a list of positions of them n a list.
-		//start/end offsets need to be adjusted after extracting spots from cleaned text.
-		String orgText = text.text();
-		List<Integer> chars2removeLst = OpenNLPUtil.chars2remove(orgText);
-		String cleanText = OpenNLPUtil.cleanText(orgText, chars2removeLst);
-		Text cleanTextStr = new Text(cleanText);
+		//remove special chars from input text. The spots are extracted from the cleaned text, their
+		//start offsets are mapped back to the original text afterwards.
+		CleanedText cleanText = CleanedText.removeQuotes(text.text());
+		Text cleanTextStr = cleanText.isUnchanged() ? text : new Text(cleanText.getCleaned());
+
 		//extracting NounPhrase nGrams
 		List<SurfaceFormOccurrence> npNgrams = extractNPNGrams(cleanTextStr);
-		/*
-		System.out.println("\n\nAll NGrams of sentence:");
-		System.out.println(intext + "\n");
-		for( SurfaceFormOccurrence ng: npNgrams) {
-			System.out.println(ng.surfaceForm() + " [" + ng.textOffset() + "]");
-		}
-		 */
-		
-		
-		if (npNgrams != null && !npNgrams.isEmpty()) {
-			//lets correct the offsets
-			for( SurfaceFormOccurrence ng: npNgrams) {
-				int offset_clean = ng.textOffset();
-				int offset_org = OpenNLPUtil.computeOffset(orgText, offset_clean, chars2removeLst);
-				ng.setTextOffset(offset_org);
-				//System.out.println(ng.surfaceForm() + " [" + ng.textOffset() + "]");
-			}
 
-			
+		if (cleanText.isUnchanged())
 			return npNgrams;
-		}
-		else {
-            return (List) new ArrayList<String>();
-        }
+
+		//lets correct the offsets
+		List<SurfaceFormOccurrence> spots = new ArrayList<SurfaceFormOccurrence>(npNgrams.size());
+		for (SurfaceFormOccurrence ng: npNgrams)
+			spots.add(new SurfaceFormOccurrence(ng.surfaceForm(), text, cleanText.toOriginalOffset(ng.textOffset())));
+		return spots;
 	}
 
     String name = "OpenNLPNGramSpotter";
@@ -151,6 +133,7 @@ public class OpenNLPNGramSpotter implements Spotter {
         String intext = text.text();
 		//System.out.println("\n\nRR- nextractNPNGrams(...) method called! with text: " + intext + "\n\n");
 		List<SurfaceFormOccurrence> npNgramSFLst = new ArrayList<SurfaceFormOccurrence>();
+		Set<SurfaceFormOccurrence> seen = new HashSet<SurfaceFormOccurrence>();
 		SentenceDetectorME  sentenceDetector = new SentenceDetectorME((SentenceModel)sentenceModel);
 		TokenizerME tokenizer = new TokenizerME((TokenizerModel)tokenModel);
 		POSTaggerME posTagger = new POSTaggerME((POSModel)posModel);
@@ -177,19 +160,23 @@ public class OpenNLPNGramSpotter implements Spotter {
 					//to compute the actual start/end offsets from the begining of the input text.
 					int begin = tokSpans[chunk.getStart()].getStart();
 					int end =   tokSpans[chunk.getEnd() - 1].getEnd();
-					List<Map<String,Integer>> ngrampos = extractNGramPos(chunk.getStart(),chunk.getEnd() + -1);
-					extractNGrams(ngrampos, start, text, tokSpans, npNgramSFLst);
+					int[] ngrampos = extractNGramPos(chunk.getStart(), chunk.getEnd() - 1);
+					extractNGrams(ngrampos, start, text, tokSpans, npNgramSFLst, seen);
 				}
 			}
 		}
 		return npNgramSFLst;
 	}
 	
-	public void extractNGrams(List<Map<String,Integer>> ngrampos, int start, Text text, Span[] tokSpans, List<SurfaceFormOccurrence> sfOccurrences) {
+	/**Adds the n-grams that are not ignored (too long, starting or ending with a stopword) to the occurrences.
+	 * @param ngrampos start/end token indexes of the n-grams, as returned by {@link #extractNGramPos(int, int)}
+	 * @param seen the occurrences that were already added
+	 */
+	public void extractNGrams(int[] ngrampos, int start, Text text, Span[] tokSpans, List<SurfaceFormOccurrence> sfOccurrences, Set<SurfaceFormOccurrence> seen) {
 		String intext = text.text();
-        for( Map<String,Integer> mapelem: ngrampos) {
-			int starttokenidx = mapelem.get("start");
-			int endtokenidx = mapelem.get("end");
+        for (int n = 0; n < ngrampos.length; n += 2) {
+			int starttokenidx = ngrampos[n];
+			int endtokenidx = ngrampos[n + 1];
 			//restrict to max 3-word phrases
 			int noftkens = endtokenidx - starttokenidx;
 			boolean ignorephrase = false;
@@ -222,7 +209,7 @@ public class OpenNLPNGramSpotter implements Spotter {
                 assert !ng.getTextform().isEmpty();
 
 				SurfaceFormOccurrence sfocc =  new SurfaceFormOccurrence(surfaceForm, text, ng.getStart());
-				if (surfaceForm.name().trim().length()>0 && !sfOccurrences.contains(sfocc)) {
+				if (surfaceForm.name().trim().length()>0 && seen.add(sfocc)) {
 					sfOccurrences.add(sfocc);
 				}
 			}
@@ -234,24 +221,22 @@ public class OpenNLPNGramSpotter implements Spotter {
 	 *      then generate [5], [5,6], [5,6,7], [6], [6,7] and [7] as sub-phrases (n-grams) of the the original phrase.
 	 * @param startpos
 	 * @param endpos
-	 * @return A list of Maps. A Map element has only two keys "start" and "end".
+	 * @return The start and end token indexes of the n-grams: [start1, end1, start2, end2, ...]
 	 */
-	public List<Map<String,Integer>>  extractNGramPos(int startpos, int endpos) {
-		List<Map<String,Integer>> ngrampos1 = new ArrayList<Map<String,Integer>>();
-		if (startpos <=endpos) {
-
-			for (int i = startpos; i <=endpos; i++) {
-				for (int j=i; j<=endpos;j++) {
-					int start = i;
-					int end = j;
-					Map<String,Integer> posmap = new HashMap<String,Integer>();
-					posmap.put("start", start);
-					posmap.put("end", end);
-					ngrampos1.add(posmap);
-				}
+	public int[] extractNGramPos(int startpos, int endpos) {
+		if (startpos > endpos)
+			return new int[0];
+
+		int n = endpos - startpos + 1;
+		int[] ngrampos = new int[n * (n + 1)];
+		int k = 0;
+		for (int i = startpos; i <= endpos; i++) {
+			for (int j = i; j <= endpos; j++) {
+				ngrampos[k++] = i;
+				ngrampos[k++] = j;
 			}
 		}
-		return ngrampos1;
+		return ngrampos;
 	}	
 
 	/**Uses the stopWords from Lucene (StopAnalyzer.ENGLISH_STOP_WORDS_SET) to find if a given piece of text is
@@ -4,6 +4,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.dbpedia.spotlight.exceptions.ConfigurationException;
 import org.dbpedia.spotlight.spot.cooccurrence.weka.InstanceBuilder;
+import org.dbpedia.spotlight.spot.cooccurrence.features.data.CachingOccurrenceDataProvider;
 import org.dbpedia.spotlight.spot.cooccurrence.features.data.OccurrenceDataProvider;
 import org.dbpedia.spotlight.exceptions.InitializationException;
 import org.dbpedia.spotlight.model.SurfaceFormOccurrence;
@@ -14,6 +15,10 @@ import weka.core.Instances;
 import weka.core.SerializationHelper;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -36,6 +41,8 @@ public class SpotClassifier {
 
 	protected boolean verboseMode = false;
 
+	private static ExecutorService workers;
+
 	
 	/**
 	 * Create a new candidate classifier that was serialized in modelFile and that
@@ -87,17 +94,105 @@ public class SpotClassifier {
 	public SpotClassification classify(SurfaceFormOccurrence surfaceFormOccurrence) throws Exception {
 		Instance instance = buildInstance(surfaceFormOccurrence);
 
-        double candidateClassification = classifier.classifyInstance(instance);
+		synchronized (classifier) {
+			return classify(instance);
+		}
 
-        double[] distributionForInstance = classifier.distributionForInstance(instance);
-        double confidence = distributionForInstance[(int) candidateClassification];
-        SpotClass candidateClass = candidateClassification == 0 && confidence > MIN_CONFIDENCE ? SpotClass.valid : SpotClass.common;
+	}
 
-        return new SpotClassification(confidence, candidateClass);
+	
+	/**
+	 * Classify a batch of surface form candidates, e.g. all candidates of a text.
+	 *
+	 * @see #classify(java.util.List, org.dbpedia.spotlight.spot.cooccurrence.features.data.OccurrenceDataProvider)
+	 * @param surfaceFormOccurrences the surface form occurrences
+	 * @return the classifications in the order of the surface form occurrences
+	 */
+	public List<SpotClassification> classify(List<SurfaceFormOccurrence> surfaceFormOccurrences) {
+		return classify(surfaceFormOccurrences, new CachingOccurrenceDataProvider(dataProvider));
+	}
+
+
+	/**
+	 * Classify a batch of surface form candidates.
+	 *
+	 * The WEKA instances are built in parallel on a worker pool shared by all classifiers. The
+	 * occurrence data is read from batchDataProvider, which should remember the results of the
+	 * lookups (see {@link CachingOccurrenceDataProvider}) so that tokens and n-grams occurring in
+	 * several candidates are only looked up once. The instances are classified one after the
+	 * other since WEKA classifiers are not guaranteed to be thread-safe.
+	 *
+	 * @param surfaceFormOccurrences the surface form occurrences
+	 * @param batchDataProvider data provider for the occurrence data of this batch
+	 * @return the classifications in the order of the surface form occurrences, null for occurrences
+	 * 			that could not be classified
+	 */
+	public List<SpotClassification> classify(List<SurfaceFormOccurrence> surfaceFormOccurrences,
+											 final OccurrenceDataProvider batchDataProvider) {
+
+		List<Instance> instances = new ArrayList<Instance>(surfaceFormOccurrences.size());
+		if (surfaceFormOccurrences.size() <= 1) {
+			for (SurfaceFormOccurrence surfaceFormOccurrence : surfaceFormOccurrences)
+				instances.add(buildInstanceOrNull(surfaceFormOccurrence, batchDataProvider));
+		} else {
+			List<Future<Instance>> futures = new ArrayList<Future<Instance>>(surfaceFormOccurrences.size());
+			for (final SurfaceFormOccurrence surfaceFormOccurrence : surfaceFormOccurrences) {
+				futures.add(getWorkers().submit(new Callable<Instance>() {
+					public Instance call() {
+						return buildInstance(surfaceFormOccurrence, batchDataProvider);
+					}
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					instances.add(futures.get(i).get());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					instances.add(null);
+				} catch (ExecutionException e) {
+					LOG.error("Exception when building instance for " + surfaceFormOccurrences.get(i) + ": " + e.getCause());
+					instances.add(null);
+				}
+			}
+		}
 
+		List<SpotClassification> classifications = new ArrayList<SpotClassification>(instances.size());
+		synchronized (classifier) {
+			for (Instance instance : instances) {
+				try {
+					classifications.add(instance == null ? null : classify(instance));
+				} catch (Exception e) {
+					LOG.error("Exception when classifying candidate: " + e);
+					classifications.add(null);
+				}
+			}
+		}
+		return classifications;
 	}
 
-	
+
+	private SpotClassification classify(Instance instance) throws Exception {
+
+		double candidateClassification = classifier.classifyInstance(instance);
+
+		double[] distributionForInstance = classifier.distributionForInstance(instance);
+		double confidence = distributionForInstance[(int) candidateClassification];
+		SpotClass candidateClass = candidateClassification == 0 && confidence > MIN_CONFIDENCE ? SpotClass.valid : SpotClass.common;
+
+		return new SpotClassification(confidence, candidateClass);
+	}
+
+
+	private Instance buildInstanceOrNull(SurfaceFormOccurrence surfaceFormOccurrence, OccurrenceDataProvider batchDataProvider) {
+		try {
+			return buildInstance(surfaceFormOccurrence, batchDataProvider);
+		} catch (Exception e) {
+			LOG.error("Exception when building instance for " + surfaceFormOccurrence + ": " + e);
+			return null;
+		}
+	}
+
+
 	/**
 	 * Builds a suitable WEKA Instance of the surface form occurrence for
 	 * the serialized classifier.
@@ -106,12 +201,46 @@ public class SpotClassifier {
 	 * @return WEKA instance
 	 */
 	protected Instance buildInstance(SurfaceFormOccurrence surfaceFormOccurrence) {
+		return buildInstance(surfaceFormOccurrence, dataProvider);
+	}
+
+
+	protected Instance buildInstance(SurfaceFormOccurrence surfaceFormOccurrence, OccurrenceDataProvider dataProvider) {
 		Instance instance = new DenseInstance(header.numAttributes());
 		instance.setDataset(header);
-		return instanceBuilder.buildInstance(surfaceFormOccurrence, instance);
+		return instanceBuilder.buildInstance(surfaceFormOccurrence, instance, dataProvider);
+	}
+
+
+	/**
+	 * Worker pool for building instances, shared by all classifiers. The threads are daemon
+	 * threads, so the pool does not need to be shut down.
+	 */
+	private static ExecutorService getWorkers() {
+		synchronized (SpotClassifier.class) {
+			if (workers == null) {
+				final AtomicInteger threadNumber = new AtomicInteger(0);
+				workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "spot-classifier-" + threadNumber.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+			return workers;
+		}
 	}
 
 	
+	/**
+	 * @return the data provider for occurrence data used by the instance builder
+	 */
+	public OccurrenceDataProvider getDataProvider() {
+		return dataProvider;
+	}
+
+
 	/**
 	 * In verbose mode, the classifier logs why and how it made its classification decision.
 	 * 
@@ -0,0 +1,99 @@
+package org.dbpedia.spotlight.spot.cooccurrence.features.data;
+
+import org.dbpedia.spotlight.exceptions.ItemNotFoundException;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the results (including missing items) of another occurrence data provider.
+ *
+ * The same tokens and n-grams are looked up many times for the candidates of one text, e.g. the
+ * left and right neighbours of adjacent candidates. A CachingOccurrenceDataProvider is created for
+ * a batch of candidates and discarded afterwards, so it does not grow without bounds. It may be
+ * used by several threads at once, which then query the wrapped provider concurrently, so the
+ * wrapped provider has to be thread-safe (the SQL provider serializes its queries).
+ */
+
+public class CachingOccurrenceDataProvider implements OccurrenceDataProvider {
+
+	private final OccurrenceDataProvider dataProvider;
+
+	/** Marks items that are not known to the data provider. */
+	private static final Object NOT_FOUND = new Object();
+
+	private final ConcurrentMap<String, Object> candidates = new ConcurrentHashMap<String, Object>();
+	private final ConcurrentMap<String, Object> ngrams = new ConcurrentHashMap<String, Object>();
+
+	public CachingOccurrenceDataProvider(OccurrenceDataProvider dataProvider) {
+		this.dataProvider = dataProvider;
+	}
+
+	@Override
+	public CandidateData getCandidateData(String candidate) throws ItemNotFoundException {
+
+		Object data = candidates.get(candidate);
+		if (data == null) {
+			try {
+				data = dataProvider.getCandidateData(candidate);
+			} catch (ItemNotFoundException e) {
+				data = NOT_FOUND;
+			}
+			// the SQL provider returns null on database errors, do not remember those
+			if (data != null)
+				candidates.putIfAbsent(candidate, data);
+		}
+
+		if (data == NOT_FOUND)
+			throw new ItemNotFoundException("Could not find information about candidate \"" + candidate +  "\".");
+		return (CandidateData) data;
+	}
+
+	@Override
+	public CoOccurrenceData getBigramData(CandidateData word1, CandidateData word2) throws ItemNotFoundException {
+
+		String key = word1.getId() + " " + word2.getId();
+		Object data = ngrams.get(key);
+		if (data == null) {
+			try {
+				data = dataProvider.getBigramData(word1, word2);
+			} catch (ItemNotFoundException e) {
+				data = NOT_FOUND;
+			}
+			if (data != null)
+				ngrams.putIfAbsent(key, data);
+		}
+
+		if (data == NOT_FOUND)
+			throw new ItemNotFoundException("Could not find bigram.");
+		return (CoOccurrenceData) data;
+	}
+
+	@Override
+	/** {@inheritDoc} */
+	public CoOccurrenceData getTrigramData(CandidateData word1, CandidateData word2, CandidateData word3) throws ItemNotFoundException {
+
+		String key = word1.getId() + " " + word2.getId() + " " + word3.getId();
+		Object data = ngrams.get(key);
+		if (data == null) {
+			try {
+				data = dataProvider.getTrigramData(word1, word2, word3);
+			} catch (ItemNotFoundException e) {
+				data = NOT_FOUND;
+			}
+			if (data != null)
+				ngrams.putIfAbsent(key, data);
+		}
+
+		if (data == NOT_FOUND)
+			throw new ItemNotFoundException("Could not find trigram.");
+		return (CoOccurrenceData) data;
+	}
+
+	@Override
+	public List<CoOccurrenceData> getSentenceData(CandidateData candidate, List<String> tokens) {
+		return dataProvider.getSentenceData(candidate, tokens);
+	}
+
+}
@@ -0,0 +1,247 @@
+package org.dbpedia.spotlight.spot.cooccurrence.features.data;
+
+import it.unimi.dsi.fastutil.Swapper;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbpedia.spotlight.util.bloomfilter.LongFastBloomFilter;
+
+import java.io.*;
+
+/**
+ * Writes occurrence data for words, bigrams and trigrams to a file that can be memory-mapped
+ * by {@link OccurrenceDataProviderMMap}.
+ *
+ * All entries are kept in primitive lists until {@link #write(File)} is called, which sorts
+ * each section by key and writes the sections and the Bloom filter.
+ */
+
+public class OccurrenceDataFileWriter {
+
+	private final Log LOG = LogFactory.getLog(this.getClass());
+
+	private static final double BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+	private final LongArrayList wordKeys = new LongArrayList();
+	private final LongArrayList wordCountCorpus = new LongArrayList();
+	private final LongArrayList wordCountWeb = new LongArrayList();
+	private final IntArrayList wordIds = new IntArrayList();
+	private final ObjectArrayList<byte[]> wordBytes = new ObjectArrayList<byte[]>();
+
+	private final LongArrayList bigramKeys = new LongArrayList();
+	private final FloatArrayList bigramSignificanceWeb = new FloatArrayList();
+
+	private final LongArrayList trigramKeys = new LongArrayList();
+	private final LongArrayList trigramCountWeb = new LongArrayList();
+	private final IntArrayList trigramWord3 = new IntArrayList();
+
+
+	/**
+	 * Add a row of the words table.
+	 */
+	public void addWord(int id, String word, long countCorpus, long countWeb) {
+		byte[] bytes = OccurrenceDataProviderMMap.wordBytes(word);
+		addWord(OccurrenceDataProviderMMap.wordKey(bytes), id, bytes, countCorpus, countWeb);
+	}
+
+	/**
+	 * Add a row of the words table with the given key, words with the same key are told apart by their bytes.
+	 */
+	void addWord(long key, int id, byte[] bytes, long countCorpus, long countWeb) {
+		wordKeys.add(key);
+		wordBytes.add(bytes);
+		wordIds.add(id);
+		wordCountCorpus.add(countCorpus);
+		wordCountWeb.add(countWeb);
+	}
+
+	/**
+	 * Add a row of the bigrams table.
+	 */
+	public void addBigram(int word1, int word2, float significanceWeb) {
+		bigramKeys.add(OccurrenceDataProviderMMap.bigramKey(word1, word2));
+		bigramSignificanceWeb.add(significanceWeb);
+	}
+
+	/**
+	 * Add a row of the trigrams table.
+	 */
+	public void addTrigram(int word1, int word2, int word3, long countWeb) {
+		trigramKeys.add(OccurrenceDataProviderMMap.bigramKey(word1, word2));
+		trigramWord3.add(word3);
+		trigramCountWeb.add(countWeb);
+	}
+
+
+	/**
+	 * Sorts the entries of a section by key and moves the values along.
+	 *
+	 * @param keys keys of the section
+	 * @param tieBreak order of entries with the same key, entries it considers equal are duplicates
+	 * @param values value lists of the section
+	 * @return number of distinct entries, the duplicates are moved to the end
+	 */
+	private int sortSection(String name, final long[] keys, final AbstractIntComparator tieBreak, final Object... values) {
+
+		AbstractIntComparator comparator = new AbstractIntComparator() {
+			public int compare(int a, int b) {
+				if (keys[a] != keys[b])
+					return keys[a] < keys[b] ? -1 : 1;
+				return tieBreak.compare(a, b);
+			}
+		};
+
+		it.unimi.dsi.fastutil.Arrays.quickSort(0, keys.length, comparator, new Swapper() {
+			public void swap(int a, int b) {
+				swapElements(keys, a, b, values);
+			}
+		});
+
+		// Keep the first of equal entries
+		int distinct = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0 && comparator.compare(i, distinct - 1) == 0)
+				continue;
+			if (i != distinct)
+				swapElements(keys, i, distinct, values);
+			distinct++;
+		}
+
+		if (distinct < keys.length)
+			LOG.warn(String.format("Dropped %s duplicate %s.", keys.length - distinct, name));
+
+		return distinct;
+	}
+
+	private static final AbstractIntComparator NO_TIE_BREAK = new AbstractIntComparator() {
+		public int compare(int a, int b) {
+			return 0;
+		}
+	};
+
+	private static int compareBytes(byte[] a, byte[] b) {
+		for (int i = 0; i < Math.min(a.length, b.length); i++) {
+			if (a[i] != b[i])
+				return a[i] < b[i] ? -1 : 1;
+		}
+		return a.length - b.length;
+	}
+
+	private static void swapElements(long[] keys, int a, int b, Object[] values) {
+		long key = keys[a]; keys[a] = keys[b]; keys[b] = key;
+
+		for (Object value : values) {
+			if (value instanceof long[]) {
+				long[] v = (long[]) value;
+				long t = v[a]; v[a] = v[b]; v[b] = t;
+			} else if (value instanceof int[]) {
+				int[] v = (int[]) value;
+				int t = v[a]; v[a] = v[b]; v[b] = t;
+			} else if (value instanceof byte[][]) {
+				byte[][] v = (byte[][]) value;
+				byte[] t = v[a]; v[a] = v[b]; v[b] = t;
+			} else {
+				float[] v = (float[]) value;
+				float t = v[a]; v[a] = v[b]; v[b] = t;
+			}
+		}
+	}
+
+
+	/**
+	 * Writes the occurrence data file.
+	 *
+	 * @param file output file
+	 * @throws IOException the file could not be written
+	 */
+	public void write(File file) throws IOException {
+
+		long[] wKeys = wordKeys.toLongArray();
+		long[] wCountCorpus = wordCountCorpus.toLongArray();
+		long[] wCountWeb = wordCountWeb.toLongArray();
+		int[] wIds = wordIds.toIntArray();
+		final byte[][] wBytes = wordBytes.toArray(new byte[wordBytes.size()][]);
+		int words = sortSection("words", wKeys, new AbstractIntComparator() {
+			public int compare(int a, int b) {
+				return compareBytes(wBytes[a], wBytes[b]);
+			}
+		}, wCountCorpus, wCountWeb, wIds, wBytes);
+
+		long[] wTextOffsets = new long[words + 1];
+		for (int i = 0; i < words; i++)
+			wTextOffsets[i + 1] = wTextOffsets[i] + wBytes[i].length;
+
+		long[] bKeys = bigramKeys.toLongArray();
+		float[] bSignificanceWeb = bigramSignificanceWeb.toFloatArray();
+		int bigrams = sortSection("bigrams", bKeys, NO_TIE_BREAK, bSignificanceWeb);
+
+		long[] tKeys = trigramKeys.toLongArray();
+		long[] tCountWeb = trigramCountWeb.toLongArray();
+		final int[] tWord3 = trigramWord3.toIntArray();
+		int trigrams = sortSection("trigrams", tKeys, new AbstractIntComparator() {
+			public int compare(int a, int b) {
+				return tWord3[a] < tWord3[b] ? -1 : (tWord3[a] > tWord3[b] ? 1 : 0);
+			}
+		}, tCountWeb, tWord3);
+
+		LongFastBloomFilter bloomFilter = LongFastBloomFilter.getFilter(
+				Math.max(1, words + bigrams + trigrams), BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY);
+		for (int i = 0; i < words; i++)
+			bloomFilter.add(OccurrenceDataProviderMMap.bloomFilterElement(OccurrenceDataProviderMMap.SECTION_WORDS, wKeys[i], 0));
+		for (int i = 0; i < bigrams; i++)
+			bloomFilter.add(OccurrenceDataProviderMMap.bloomFilterElement(OccurrenceDataProviderMMap.SECTION_BIGRAMS, bKeys[i], 0));
+		for (int i = 0; i < trigrams; i++)
+			bloomFilter.add(OccurrenceDataProviderMMap.bloomFilterElement(OccurrenceDataProviderMMap.SECTION_TRIGRAMS, tKeys[i], tWord3[i]));
+
+		long bloomFilterOffset = OccurrenceDataProviderMMap.HEADER_SIZE
+				+ 24L * words + 8L * (words + 1) + OccurrenceDataProviderMMap.padded(4L * words)
+				+ OccurrenceDataProviderMMap.padded(wTextOffsets[words])
+				+ 8L * bigrams + OccurrenceDataProviderMMap.padded(4L * bigrams)
+				+ 16L * trigrams + OccurrenceDataProviderMMap.padded(4L * trigrams);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(OccurrenceDataProviderMMap.MAGIC);
+			out.writeInt(OccurrenceDataProviderMMap.FORMAT);
+			out.writeLong(words);
+			out.writeLong(bigrams);
+			out.writeLong(trigrams);
+			out.writeLong(bloomFilterOffset);
+
+			for (int i = 0; i < words; i++) out.writeLong(wKeys[i]);
+			for (int i = 0; i < words; i++) out.writeLong(wCountCorpus[i]);
+			for (int i = 0; i < words; i++) out.writeLong(wCountWeb[i]);
+			for (int i = 0; i <= words; i++) out.writeLong(wTextOffsets[i]);
+			for (int i = 0; i < words; i++) out.writeInt(wIds[i]);
+			pad(out, 4L * words);
+			for (int i = 0; i < words; i++) out.write(wBytes[i]);
+			pad(out, wTextOffsets[words]);
+
+			for (int i = 0; i < bigrams; i++) out.writeLong(bKeys[i]);
+			for (int i = 0; i < bigrams; i++) out.writeFloat(bSignificanceWeb[i]);
+			pad(out, 4L * bigrams);
+
+			for (int i = 0; i < trigrams; i++) out.writeLong(tKeys[i]);
+			for (int i = 0; i < trigrams; i++) out.writeLong(tCountWeb[i]);
+			for (int i = 0; i < trigrams; i++) out.writeInt(tWord3[i]);
+			pad(out, 4L * trigrams);
+
+			LongFastBloomFilter.serializer().serialize(bloomFilter, out);
+		} finally {
+			out.close();
+		}
+
+		LOG.info(String.format("Wrote occurrence data for %s words, %s bigrams and %s trigrams to %s (%s bytes).",
+				words, bigrams, trigrams, file, file.length()));
+	}
+
+	private static void pad(DataOutputStream out, long bytes) throws IOException {
+		for (long i = bytes; i < OccurrenceDataProviderMMap.padded(bytes); i++)
+			out.writeByte(0);
+	}
+
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.spot.cooccurrence.features.data;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbpedia.spotlight.exceptions.InitializationException;
+import org.dbpedia.spotlight.exceptions.ItemNotFoundException;
+import org.dbpedia.spotlight.util.bloomfilter.LongFastBloomFilter;
+import org.dbpedia.spotlight.util.bloomfilter.MurmurHash;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Provides Co-occurrence data for unigrams, bigrams and trigrams from a read-only, memory-mapped
+ * file created by {@link OccurrenceDataFileWriter}.
+ *
+ * The file contains one section per table of the SQL database (words, bigrams, trigrams). Each section
+ * is a sorted array of 64 bit keys and one array per value, lookups are binary searches over the mapped
+ * keys. Words are keyed on a hash of the token and the UTF-8 bytes of the token are stored as well, so
+ * that tokens with the same hash are told apart. Bigrams are keyed on the two word ids, trigrams on the
+ * first two word ids and sorted by the third word id within the same key. A Bloom filter over all keys
+ * is stored at the end of the file and rejects most unknown tokens and n-grams before the keys are
+ * searched.
+ *
+ * In contrast to {@link OccurrenceDataProviderSQL}, there is no shared connection and no state
+ * that is modified by lookups, so the provider can be used by any number of threads.
+ */
+
+public class OccurrenceDataProviderMMap implements OccurrenceDataProvider {
+
+	private final Log LOG = LogFactory.getLog(this.getClass());
+
+	private static OccurrenceDataProviderMMap INSTANCE;
+
+	static final int MAGIC = 0x53504f43; // "SPOC"
+	static final int FORMAT = 2;
+
+	/** Header: magic, format, number of words, bigrams and trigrams, offset of the Bloom filter. */
+	static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 8;
+
+	static final byte SECTION_WORDS = 1;
+	static final byte SECTION_BIGRAMS = 2;
+	static final byte SECTION_TRIGRAMS = 3;
+
+	private static final long WORD_SEED = 0x2f0e1d5bL;
+
+	private static final MurmurHash murmurHash = new MurmurHash();
+
+	private final File file;
+
+	private final LongBuffer wordKeys;
+	private final IntBuffer wordIds;
+	private final LongBuffer wordCountCorpus;
+	private final LongBuffer wordCountWeb;
+	private final LongBuffer wordTextOffsets;
+	private final ByteBuffer wordText;
+
+	private final LongBuffer bigramKeys;
+	private final FloatBuffer bigramSignificanceWeb;
+
+	private final LongBuffer trigramKeys;
+	private final LongBuffer trigramCountWeb;
+	private final IntBuffer trigramWord3;
+
+	private final LongFastBloomFilter bloomFilter;
+
+
+	/**
+	 * Maps the occurrence data file.
+	 *
+	 * @param file occurrence data file created by {@link OccurrenceDataFileWriter}
+	 * @throws InitializationException the file does not exist or is not an occurrence data file
+	 */
+	public OccurrenceDataProviderMMap(File file) throws InitializationException {
+
+		this.file = file;
+
+		RandomAccessFile randomAccessFile = null;
+		try {
+			randomAccessFile = new RandomAccessFile(file, "r");
+			FileChannel channel = randomAccessFile.getChannel();
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC)
+				throw new InitializationException("File " + file + " is not an occurrence data file.");
+			if (header.getInt() != FORMAT)
+				throw new InitializationException("Occurrence data file " + file + " was written in an unsupported format, " +
+						"please recreate it with " + OccurrenceDataFileWriter.class.getSimpleName() + ".");
+
+			int words = (int) header.getLong();
+			int bigrams = (int) header.getLong();
+			int trigrams = (int) header.getLong();
+			long bloomFilterOffset = header.getLong();
+
+			long offset = HEADER_SIZE;
+			wordKeys = map(channel, offset, words, 8).asLongBuffer();
+			offset += 8L * words;
+			wordCountCorpus = map(channel, offset, words, 8).asLongBuffer();
+			offset += 8L * words;
+			wordCountWeb = map(channel, offset, words, 8).asLongBuffer();
+			offset += 8L * words;
+			wordTextOffsets = map(channel, offset, words + 1, 8).asLongBuffer();
+			offset += 8L * (words + 1);
+			wordIds = map(channel, offset, words, 4).asIntBuffer();
+			offset += padded(4L * words);
+			long textLength = wordTextOffsets.get(words);
+			wordText = channel.map(FileChannel.MapMode.READ_ONLY, offset, textLength);
+			offset += padded(textLength);
+
+			bigramKeys = map(channel, offset, bigrams, 8).asLongBuffer();
+			offset += 8L * bigrams;
+			bigramSignificanceWeb = map(channel, offset, bigrams, 4).asFloatBuffer();
+			offset += padded(4L * bigrams);
+
+			trigramKeys = map(channel, offset, trigrams, 8).asLongBuffer();
+			offset += 8L * trigrams;
+			trigramCountWeb = map(channel, offset, trigrams, 8).asLongBuffer();
+			offset += 8L * trigrams;
+			trigramWord3 = map(channel, offset, trigrams, 4).asIntBuffer();
+			offset += padded(4L * trigrams);
+
+			if (offset != bloomFilterOffset)
+				throw new InitializationException("Occurrence data file " + file + " is corrupt.");
+
+			channel.position(bloomFilterOffset);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			bloomFilter = LongFastBloomFilter.serializer().deserialize(in);
+
+			LOG.info(String.format("Mapped occurrence data for %s words, %s bigrams and %s trigrams from %s.",
+					words, bigrams, trigrams, file));
+
+		} catch (IOException e) {
+			throw new InitializationException("Could not read occurrence data file " + file + ".", e);
+		} finally {
+			// the mapped buffers stay valid after the channel is closed
+			if (randomAccessFile != null) {
+				try {
+					randomAccessFile.close();
+				} catch (IOException ignored) { }
+			}
+		}
+
+	}
+
+	private static ByteBuffer map(FileChannel channel, long offset, int elements, int elementSize) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) elements * elementSize);
+	}
+
+	/**
+	 * Sections start at multiples of 8 bytes.
+	 */
+	static long padded(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	public static OccurrenceDataProviderMMap getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Initialize the occurrence data provider, see {@link OccurrenceDataProviderSQL#initialize}.
+	 *
+	 * @param file occurrence data file
+	 * @throws InitializationException the file could not be mapped
+	 */
+
+	public static void initialize(File file) throws InitializationException {
+
+		INSTANCE = new OccurrenceDataProviderMMap(file);
+
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+
+	/*
+	 * Keys
+	 */
+
+	static byte[] wordBytes(String word) {
+		try {
+			return word.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static long wordKey(byte[] bytes) {
+		return murmurHash.hash(bytes, bytes.length, WORD_SEED);
+	}
+
+	static long bigramKey(long word1, long word2) {
+		return (word1 << 32) | (word2 & 0xffffffffL);
+	}
+
+	/**
+	 * Element of the Bloom filter for a key: the section followed by the key and the third word id
+	 * of a trigram (0 in the other sections).
+	 */
+	static byte[] bloomFilterElement(byte section, long key, int word3) {
+		byte[] bytes = new byte[13];
+		bytes[0] = section;
+		putInt(bytes, 1, (int) (key >>> 32));
+		putInt(bytes, 5, (int) key);
+		putInt(bytes, 9, word3);
+		return bytes;
+	}
+
+	private static void putInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+
+	/**
+	 * Returns the first position of the key in the section, or -1 if the section does not contain the key.
+	 */
+	private static int find(LongBuffer keys, long key) {
+
+		int low = 0;
+		int high = keys.limit() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (keys.get(mid) < key)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+		return low < keys.limit() && keys.get(low) == key ? low : -1;
+	}
+
+	/**
+	 * Returns the position of the word, or -1 if there is no word with the same bytes.
+	 */
+	private int findWord(byte[] bytes) {
+
+		long key = wordKey(bytes);
+		if (!bloomFilter.contains(bloomFilterElement(SECTION_WORDS, key, 0)))
+			return -1;
+
+		int i = find(wordKeys, key);
+		if (i == -1)
+			return -1;
+
+		// Words with the same hash follow each other
+		for (; i < wordKeys.limit() && wordKeys.get(i) == key; i++) {
+			if (wordEquals(i, bytes))
+				return i;
+		}
+		return -1;
+	}
+
+	private boolean wordEquals(int i, byte[] bytes) {
+		long start = wordTextOffsets.get(i);
+		if (wordTextOffsets.get(i + 1) - start != bytes.length)
+			return false;
+		for (int j = 0; j < bytes.length; j++) {
+			if (wordText.get((int) start + j) != bytes[j])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the position of the trigram, or -1 if the section does not contain the trigram.
+	 */
+	private int findTrigram(long key, int word3) {
+
+		if (!bloomFilter.contains(bloomFilterElement(SECTION_TRIGRAMS, key, word3)))
+			return -1;
+
+		int low = find(trigramKeys, key);
+		if (low == -1)
+			return -1;
+
+		// Trigrams with the same first two words are sorted by the third word
+		int high = low;
+		while (high + 1 < trigramKeys.limit() && trigramKeys.get(high + 1) == key)
+			high++;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int midWord3 = trigramWord3.get(mid);
+			if (midWord3 < word3)
+				low = mid + 1;
+			else if (midWord3 > word3)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+
+	@Override
+	public CandidateData getCandidateData(String candidate) throws ItemNotFoundException {
+
+		int i = findWord(wordBytes(candidate));
+		if (i == -1)
+			throw new ItemNotFoundException("Could not find information about candidate \"" + candidate +  "\".");
+
+		return new CandidateData(wordIds.get(i), candidate, wordCountCorpus.get(i), wordCountWeb.get(i));
+	}
+
+	@Override
+	public CoOccurrenceData getBigramData(CandidateData word1, CandidateData word2) throws ItemNotFoundException {
+
+		long key = bigramKey(word1.getId(), word2.getId());
+		int i = bloomFilter.contains(bloomFilterElement(SECTION_BIGRAMS, key, 0)) ? find(bigramKeys, key) : -1;
+		if (i == -1)
+			throw new ItemNotFoundException("Could not find bigram.");
+
+		return new CoOccurrenceData(0, 0, 0, bigramSignificanceWeb.get(i));
+	}
+
+	@Override
+	/** {@inheritDoc} */
+	public CoOccurrenceData getTrigramData(CandidateData word1, CandidateData word2, CandidateData word3) throws ItemNotFoundException {
+
+		int i = findTrigram(bigramKey(word1.getId(), word2.getId()), (int) word3.getId());
+		if (i == -1)
+			throw new ItemNotFoundException("Could not find trigram.");
+
+		return new CoOccurrenceData(0, trigramCountWeb.get(i), 0, 0);
+	}
+
+	/**
+	 * Not supported: the occurrence data file only contains the words, bigrams and trigrams tables.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public List<CoOccurrenceData> getSentenceData(CandidateData candidate, List<String> tokens) {
+		throw new UnsupportedOperationException("The occurrence data file " + file + " contains no sentence co-occurrences.");
+	}
+
+}
@@ -13,6 +13,9 @@ import java.util.List;
  * Provides Co-occurrence data for unigrams, bigrams and trigrams using any SQL-based database
  * via a JDBC driver specified in the configuration file.
  *
+ * All queries go through one connection, which JDBC does not require to be thread-safe, so the
+ * queries are serialized on the connection.
+ *
  * @author Joachim Daiber
  * @author pablomendes (changed initialization to accept configuration without hardcoded filename)
  */
@@ -73,18 +76,22 @@ public class OccurrenceDataProviderSQL implements OccurrenceDataProvider {
 	@Override
 	public CandidateData getCandidateData(String candidate) throws ItemNotFoundException {
 
-		try {
-			PreparedStatement statement
-					= this.sqlConnection.prepareStatement("SELECT * FROM words WHERE word=? LIMIT 1;");
-			statement.setString(1, candidate);
-			ResultSet resultSet = statement.executeQuery();
-
-			if(!resultSet.next())
-				throw new ItemNotFoundException("Could not find information about candidate \"" + candidate +  "\".");
-
-			return new CandidateData(resultSet.getLong("id"), candidate, resultSet.getLong("count_corpus"), resultSet.getLong("count_web"));
-		} catch (SQLException e) {
-			e.printStackTrace();
+		synchronized (sqlConnection) {
+			PreparedStatement statement = null;
+			try {
+				statement = this.sqlConnection.prepareStatement("SELECT * FROM words WHERE word=? LIMIT 1;");
+				statement.setString(1, candidate);
+				ResultSet resultSet = statement.executeQuery();
+
+				if(!resultSet.next())
+					throw new ItemNotFoundException("Could not find information about candidate \"" + candidate +  "\".");
+
+				return new CandidateData(resultSet.getLong("id"), candidate, resultSet.getLong("count_corpus"), resultSet.getLong("count_web"));
+			} catch (SQLException e) {
+				e.printStackTrace();
+			} finally {
+				close(statement);
+			}
 		}
 
 		return null;
@@ -92,24 +99,29 @@ public class OccurrenceDataProviderSQL implements OccurrenceDataProvider {
 
 	@Override
 	public CoOccurrenceData getBigramData(CandidateData word1, CandidateData word2) throws ItemNotFoundException {
-		try {
-
-			Statement statement = this.sqlConnection.createStatement();
-			ResultSet resultSet = statement.executeQuery
-					("SELECT * FROM bigrams WHERE " +
-							"word1=" + word1.getId() + " AND word2=" + word2.getId() + " " +
-							"LIMIT 1;");
-
-			if(!resultSet.next())
-				throw new ItemNotFoundException("Could not find bigram.");
-
-			return new CoOccurrenceData(
-					0, 0,
-					0, resultSet.getLong("significance_web"));
-
-		} catch (SQLException e) {
-			//Could not retrieve bigram information
-			e.printStackTrace();
+		synchronized (sqlConnection) {
+			Statement statement = null;
+			try {
+
+				statement = this.sqlConnection.createStatement();
+				ResultSet resultSet = statement.executeQuery
+						("SELECT * FROM bigrams WHERE " +
+								"word1=" + word1.getId() + " AND word2=" + word2.getId() + " " +
+								"LIMIT 1;");
+
+				if(!resultSet.next())
+					throw new ItemNotFoundException("Could not find bigram.");
+
+				return new CoOccurrenceData(
+						0, 0,
+						0, resultSet.getLong("significance_web"));
+
+			} catch (SQLException e) {
+				//Could not retrieve bigram information
+				e.printStackTrace();
+			} finally {
+				close(statement);
+			}
 		}
 
 		return null;
@@ -119,28 +131,42 @@ public class OccurrenceDataProviderSQL implements OccurrenceDataProvider {
 	@Override
 	/** {@inheritDoc} */
 	public CoOccurrenceData getTrigramData(CandidateData word1, CandidateData word2, CandidateData word3) throws ItemNotFoundException {
-		try {
-
+		synchronized (sqlConnection) {
+			Statement statement = null;
+			try {
 
-			Statement statement = this.sqlConnection.createStatement();
-			ResultSet resultSet = statement.executeQuery("SELECT * FROM trigrams WHERE " +
-					"word1=" + word1.getId() + " AND word2=" + word2.getId() + " AND word3="
-					+ word3.getId() + " LIMIT 1;");
+				statement = this.sqlConnection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT * FROM trigrams WHERE " +
+						"word1=" + word1.getId() + " AND word2=" + word2.getId() + " AND word3="
+						+ word3.getId() + " LIMIT 1;");
 
 
-			if(!resultSet.next())
-				throw new ItemNotFoundException("Could not find trigram.");
+				if(!resultSet.next())
+					throw new ItemNotFoundException("Could not find trigram.");
 
-			return new CoOccurrenceData(0, resultSet.getLong("count_web"), 0, 0);
+				return new CoOccurrenceData(0, resultSet.getLong("count_web"), 0, 0);
 
-		} catch (SQLException e) {
-			//Could not retrieve trigram information
-			e.printStackTrace();
+			} catch (SQLException e) {
+				//Could not retrieve trigram information
+				e.printStackTrace();
+			} finally {
+				close(statement);
+			}
 		}
 
 		throw new ItemNotFoundException("Could not find trigram.");
 	}
 
+	private static void close(Statement statement) {
+		if (statement != null) {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				//the statement is not used anymore
+			}
+		}
+	}
+
 	@Override
 	public List<CoOccurrenceData> getSentenceData(CandidateData candidate, List<String> tokens) {
 		return null; //TODO implement
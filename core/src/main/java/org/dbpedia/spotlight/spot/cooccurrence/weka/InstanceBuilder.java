@@ -9,6 +9,7 @@ import weka.core.Instance;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -32,6 +33,12 @@ public abstract class InstanceBuilder {
 
 	protected boolean verboseMode = false;
 
+	/**
+	 * The attributes of the instances, built once with {@link #buildAttributeList()} when the builder is
+	 * created. Instances are built concurrently, so {@link #buildInstance} must only read them.
+	 */
+	protected final List<Attribute> attributeList;
+
 
 	/**
 	 * Create an instance builder with an instance of a {@link OccurrenceDataProvider}.
@@ -39,6 +46,7 @@ public abstract class InstanceBuilder {
 	 */
 	protected InstanceBuilder(OccurrenceDataProvider dataProvider) {
 		this.dataProvider = dataProvider;
+		this.attributeList = Collections.unmodifiableList(buildAttributeList());
 	}
 
 	
@@ -64,12 +72,23 @@ public abstract class InstanceBuilder {
 
 
 	/**
-	 * Build the List of Attributes
+	 * Build the List of Attributes. This is called once by the constructor of the builder, so it may
+	 * only use static attributes.
 	 *
 	 * @return List of Attributes
 	 */
 	public abstract ArrayList<Attribute> buildAttributeList();
 
+
+	/**
+	 * Get the attributes of the instances built by this builder.
+	 *
+	 * @return List of Attributes
+	 */
+	public List<Attribute> getAttributeList() {
+		return attributeList;
+	}
+
 	
 
 	/**
@@ -80,7 +99,24 @@ public abstract class InstanceBuilder {
 	 * 			{@link weka.core.DenseInstance} depending on the classifier.
 	 * @return the filled WEKA instance
 	 */
-	public abstract Instance buildInstance(SurfaceFormOccurrence surfaceFormOccurrence, Instance instance);
+	public Instance buildInstance(SurfaceFormOccurrence surfaceFormOccurrence, Instance instance) {
+		return buildInstance(surfaceFormOccurrence, instance, dataProvider);
+	}
+
+
+	/**
+	 * Build/fill a WEKA Instance for a surface form occurrence, reading occurrence data from
+	 * the provided OccurrenceDataProvider instead of the one of the builder (e.g. a
+	 * {@link org.dbpedia.spotlight.spot.cooccurrence.features.data.CachingOccurrenceDataProvider}
+	 * for a batch of occurrences).
+	 *
+	 * @param surfaceFormOccurrence the surface form occurrence for which the Instance is built
+	 * @param instance the empty WEKA Instance
+	 * @param dataProvider provider for occurrence data
+	 * @return the filled WEKA instance
+	 */
+	public abstract Instance buildInstance(SurfaceFormOccurrence surfaceFormOccurrence, Instance instance,
+										   OccurrenceDataProvider dataProvider);
 
 
 	/**
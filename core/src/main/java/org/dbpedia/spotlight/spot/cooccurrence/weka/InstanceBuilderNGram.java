@@ -85,7 +85,7 @@ public abstract class InstanceBuilderNGram extends InstanceBuilder {
 
 	@Override
 	/** {@inheritDoc} */
-	public Instance buildInstance(SurfaceFormOccurrence surfaceFormOccurrence, Instance instance) {
+	public Instance buildInstance(SurfaceFormOccurrence surfaceFormOccurrence, Instance instance, OccurrenceDataProvider dataProvider) {
 
 		TaggedText text = (TaggedText) surfaceFormOccurrence.context();
 		List<TaggedToken> candidateTokens = text.taggedTokenProvider().getTaggedTokens(surfaceFormOccurrence);
@@ -192,7 +192,7 @@ public abstract class InstanceBuilderNGram extends InstanceBuilder {
 					CoOccurrenceData bigramData = dataProvider.getBigramData(firstTaggedTokenData, secondTaggedTokenData);
 
 					//if (bigramData.getUnitCountWeb() > bigramLeftWebMin)
-						instance.setValue(i(count_web, buildAttributeList()), bigramData.getUnitCountWeb());
+						instance.setValue(i(count_web, attributeList), bigramData.getUnitCountWeb());
 				}
 			} catch (ItemNotFoundException ignored) {}
 			catch (ArrayIndexOutOfBoundsException ignored) {}
@@ -221,51 +221,51 @@ public abstract class InstanceBuilderNGram extends InstanceBuilder {
 
 		try{
 			if(verbs.size() > 1)
-				instance.setValue(i(contains_verb, buildAttributeList()), 5);
+				instance.setValue(i(contains_verb, attributeList), 5);
 			else if(verbs.size()==0)
-				instance.setValue(i(contains_verb, buildAttributeList()), 0);
+				instance.setValue(i(contains_verb, attributeList), 0);
 			else if(verbs.get(0).equals("vb"))
-				instance.setValue(i(contains_verb, buildAttributeList()), 1);
+				instance.setValue(i(contains_verb, attributeList), 1);
 			else if(verbs.get(0).equals("vbd"))
-				instance.setValue(i(contains_verb, buildAttributeList()), 2);
+				instance.setValue(i(contains_verb, attributeList), 2);
 			else if(verbs.get(0).equals("vbg"))
-				instance.setValue(i(contains_verb, buildAttributeList()), 3);
+				instance.setValue(i(contains_verb, attributeList), 3);
 			else if(verbs.get(0).equals("vbn"))
-				instance.setValue(i(contains_verb, buildAttributeList()), 4);
+				instance.setValue(i(contains_verb, attributeList), 4);
 			else if(verbs.get(0).equals("be"))
-				instance.setValue(i(contains_verb, buildAttributeList()), 5);
+				instance.setValue(i(contains_verb, attributeList), 5);
 		} catch (ArrayIndexOutOfBoundsException ignored) {}
 
 		try{
 			if(allLowercase)
-				instance.setValue(i(term_case, buildAttributeList()), 0);
+				instance.setValue(i(term_case, attributeList), 0);
 			else if(allUppercase)
-				instance.setValue(i(term_case, buildAttributeList()), 3);
+				instance.setValue(i(term_case, attributeList), 3);
 			else if(capitalizedWords == candidateTokens.size())
-				instance.setValue(i(term_case, buildAttributeList()), 2);
+				instance.setValue(i(term_case, attributeList), 2);
 			else if(capitalizedWords == 1 && Character.isUpperCase(candidateTokens.get(0).getToken().charAt(0)))
-				instance.setValue(i(term_case, buildAttributeList()), 4);
+				instance.setValue(i(term_case, attributeList), 4);
 			else
-				instance.setValue(i(term_case, buildAttributeList()), 1);
+				instance.setValue(i(term_case, attributeList), 1);
 
 
 		} catch (ArrayIndexOutOfBoundsException ignored) {}
 
 
 		try{
-			instance.setValue(i(candidate_size, buildAttributeList()), termSize);
+			instance.setValue(i(candidate_size, attributeList), termSize);
 		} catch (ArrayIndexOutOfBoundsException ignored) {}
 
 		try {
 			TaggedToken leftNeighbourToken = text.taggedTokenProvider().getLeftNeighbourToken(surfaceFormOccurrence);
 
 			if(leftNeighbourToken.getPOSTag().equals("to")) {
-				instance.setValue(i(pre_pos, buildAttributeList()), 0);
+				instance.setValue(i(pre_pos, attributeList), 0);
 			}
 			else if(leftNeighbourToken.getPOSTag().matches("[mnf].*")) {
-				instance.setValue(i(pre_pos, buildAttributeList()), 1);
+				instance.setValue(i(pre_pos, attributeList), 1);
 			}else if(leftNeighbourToken.getToken().matches("[aA][nN]?")) {
-				instance.setValue(i(pre_pos, buildAttributeList()), 2);
+				instance.setValue(i(pre_pos, attributeList), 2);
 			}
 
 		} catch (ItemNotFoundException ignored) {
@@ -278,12 +278,12 @@ public abstract class InstanceBuilderNGram extends InstanceBuilder {
 			if(leftContext.size() > 0) {
 
 				if(leftContext.get(0).getPOSTag().equals("to")) {
-					instance.setValue(i(pre_pos, buildAttributeList()), 0);
+					instance.setValue(i(pre_pos, attributeList), 0);
 				}
 				else if(leftContext.get(0).getPOSTag().matches("[mnf].*")) {
-					instance.setValue(i(pre_pos, buildAttributeList()), 1);
+					instance.setValue(i(pre_pos, attributeList), 1);
 				}else if(leftContext.get(0).getToken().matches("[aA][nN]?")) {
-					instance.setValue(i(pre_pos, buildAttributeList()), 2);
+					instance.setValue(i(pre_pos, attributeList), 2);
 				}
 			}
 
@@ -291,7 +291,7 @@ public abstract class InstanceBuilderNGram extends InstanceBuilder {
 
 		try{
 			if (CandidateFeatures.quoted(surfaceFormOccurrence) == 1)
-				instance.setValue(i(quoted, buildAttributeList()), 0);
+				instance.setValue(i(quoted, attributeList), 0);
 
 		} catch (ArrayIndexOutOfBoundsException ignored) {}
 
@@ -302,13 +302,13 @@ public abstract class InstanceBuilderNGram extends InstanceBuilder {
 			if(rightContext.size() > 0) {
 
 				if(rightContext.get(0).getToken().equals("of")) {
-					instance.setValue(i(next_pos, buildAttributeList()), 0);
+					instance.setValue(i(next_pos, attributeList), 0);
 				}else if(rightContext.get(0).getToken().equals("to")) {
-					instance.setValue(i(next_pos, buildAttributeList()), 1);
+					instance.setValue(i(next_pos, attributeList), 1);
 				}else if(rightContext.get(0).getPOSTag().startsWith("be")) {
-					instance.setValue(i(next_pos, buildAttributeList()), 2);
+					instance.setValue(i(next_pos, attributeList), 2);
 				}else if(rightContext.get(0).getPOSTag().startsWith("v")) {
-					instance.setValue(i(next_pos, buildAttributeList()), 3);
+					instance.setValue(i(next_pos, attributeList), 3);
 				}
 			}
 		} catch (ArrayIndexOutOfBoundsException ignored) {}
@@ -320,7 +320,7 @@ public abstract class InstanceBuilderNGram extends InstanceBuilder {
 
 
 			if(lastToken.getPOSTag().equals("in")) {
-				instance.setValue(i(ends_with, buildAttributeList()), 0);
+				instance.setValue(i(ends_with, attributeList), 0);
 			}
 		} catch (ArrayIndexOutOfBoundsException ignored) {}
 
@@ -341,7 +341,7 @@ public abstract class InstanceBuilderNGram extends InstanceBuilder {
 			if(bigramLeft != null && bigramLeft.getUnitSignificanceWeb() > bigramLeftWebMin) {
 
 				try{
-					instance.setValue(i(bigram_left_significance_web, buildAttributeList()), bigramLeft.getUnitSignificanceWeb());
+					instance.setValue(i(bigram_left_significance_web, attributeList), bigramLeft.getUnitSignificanceWeb());
 				} catch (ArrayIndexOutOfBoundsException ignored) {}
 
 			}
@@ -361,7 +361,7 @@ public abstract class InstanceBuilderNGram extends InstanceBuilder {
 			if(trigramLeft != null && trigramLeft.getUnitCountWeb() > trigramLeftWebMin) {
 
 				try{
-					instance.setValue(i(trigram_left, buildAttributeList()), trigramLeft.getUnitCountWeb());
+					instance.setValue(i(trigram_left, attributeList), trigramLeft.getUnitCountWeb());
 				} catch (ArrayIndexOutOfBoundsException ignored) {}
 
 			}
@@ -379,7 +379,7 @@ public abstract class InstanceBuilderNGram extends InstanceBuilder {
 			if(trigramRight != null && trigramRight.getUnitCountWeb() > trigramRightWebMin) {
 
 				try{
-					instance.setValue(i(trigram_right, buildAttributeList()), trigramRight.getUnitCountWeb());
+					instance.setValue(i(trigram_right, attributeList), trigramRight.getUnitCountWeb());
 				} catch (ArrayIndexOutOfBoundsException ignored) {}
 
 			}
@@ -400,7 +400,7 @@ public abstract class InstanceBuilderNGram extends InstanceBuilder {
 			if(bigramRight != null && bigramRight.getUnitSignificanceWeb() > bigramRightWebMin) {
 
 				try {
-					instance.setValue(i(bigram_right_significance_web, buildAttributeList()), bigramRight.getUnitSignificanceWeb());
+					instance.setValue(i(bigram_right_significance_web, attributeList), bigramRight.getUnitSignificanceWeb());
 				} catch (ArrayIndexOutOfBoundsException ignored) {}
 
 			}
@@ -127,10 +127,7 @@ public abstract class InstanceBuilderUnigram extends InstanceBuilder {
 
 	@Override
 	/** {@inheritDoc} */
-	public Instance buildInstance(SurfaceFormOccurrence surfaceFormOccurrence, Instance instance) {
-
-		List<Attribute> attributeList = buildAttributeList();
-
+	public Instance buildInstance(SurfaceFormOccurrence surfaceFormOccurrence, Instance instance, OccurrenceDataProvider dataProvider) {
 
 		/**
 		 * Occurrence data of the candidate
@@ -195,12 +192,12 @@ public abstract class InstanceBuilderUnigram extends InstanceBuilder {
 				if(candidateData.getCountWikipedia() != null && candidateData.getCountWikipedia() < this.unigramCorpusMax)
 					instance.setValue(unigram_count_corpus, candidateData.getCountWikipedia());
 				//else
-					//instance.setValue(i(unigram_count_corpus, buildAttributeList()), this.unigramCorpusMax);
+					//instance.setValue(i(unigram_count_corpus, attributeList), this.unigramCorpusMax);
 			}catch (ArrayIndexOutOfBoundsException ignored) {}
 
 			try {
 				if(candidateData.getCountWeb() != null && candidateData.getCountWeb() > this.unigramWebMin)
-					instance.setValue(i(unigram_count_web, buildAttributeList()), candidateData.getCountWeb());
+					instance.setValue(i(unigram_count_web, attributeList), candidateData.getCountWeb());
 			}catch (ArrayIndexOutOfBoundsException ignored) {}
 
 
@@ -215,7 +212,7 @@ public abstract class InstanceBuilderUnigram extends InstanceBuilder {
 
 					if(leftBigram != null){
 					try{
-						instance.setValue(i(bigram_left_significance_web, buildAttributeList()), leftBigram.getUnitSignificanceWeb());
+						instance.setValue(i(bigram_left_significance_web, attributeList), leftBigram.getUnitSignificanceWeb());
 					}catch (ArrayIndexOutOfBoundsException ignored) {}
 					}
 
@@ -236,7 +233,7 @@ public abstract class InstanceBuilderUnigram extends InstanceBuilder {
 							!(leftContext.get(0).getPOSTag().equals("in") && leftContext.get(1).getPOSTag().equals("at"))
 							&& leftTrigram.getUnitCountWeb() >= this.trigramLeftWebMin
 							)
-						instance.setValue(i(trigram_left_count_web, buildAttributeList()), leftTrigram.getUnitCountWeb());
+						instance.setValue(i(trigram_left_count_web, attributeList), leftTrigram.getUnitCountWeb());
 				}
 				catch (ArrayIndexOutOfBoundsException ignored) {}
 				catch (ItemNotFoundException ignored) {}
@@ -255,7 +252,7 @@ public abstract class InstanceBuilderUnigram extends InstanceBuilder {
 
 					if(!(rightContext.get(0).getPOSTag().equals(",") || rightContext.get(1).getPOSTag().equals(","))
 						&& rightTrigram.getUnitCountWeb() >= this.trigramRightWebMin)
-						instance.setValue(i(trigram_right_count_web, buildAttributeList()), rightTrigram.getUnitCountWeb());
+						instance.setValue(i(trigram_right_count_web, attributeList), rightTrigram.getUnitCountWeb());
 				}
 				catch (ArrayIndexOutOfBoundsException ignored) { }
 				catch (ItemNotFoundException ignored) { }
@@ -275,7 +272,7 @@ public abstract class InstanceBuilderUnigram extends InstanceBuilder {
 							&& !(leftContext.get(0).getPOSTag().equals("in") || rightContext.get(0).getPOSTag().equals("cc"))
 							&& middleTrigram.getUnitCountWeb() >= this.trigramMiddleWebMin
 							)
-						instance.setValue(i(trigram_middle_count_web, buildAttributeList()), middleTrigram.getUnitCountWeb());
+						instance.setValue(i(trigram_middle_count_web, attributeList), middleTrigram.getUnitCountWeb());
 				}
 				catch (ArrayIndexOutOfBoundsException ignored) { }
 				catch (ItemNotFoundException ignored) { }
@@ -299,7 +296,7 @@ public abstract class InstanceBuilderUnigram extends InstanceBuilder {
 				if (rightBigram != null) {
 
 					try {
-						instance.setValue(i(bigram_right_significance_web, buildAttributeList()), rightBigram.getUnitSignificanceWeb());
+						instance.setValue(i(bigram_right_significance_web, attributeList), rightBigram.getUnitSignificanceWeb());
 					}catch (ArrayIndexOutOfBoundsException ignored) {}
 
 				}
@@ -308,21 +305,21 @@ public abstract class InstanceBuilderUnigram extends InstanceBuilder {
 
 		try {
 			int uppercaseValue = CandidateFeatures.nonSentenceInitialUppercase(surfaceFormOccurrence);
-			instance.setValue(i(candidateCase, buildAttributeList()), uppercaseValue);
+			instance.setValue(i(candidateCase, attributeList), uppercaseValue);
 		}catch (ArrayIndexOutOfBoundsException e) {
 			//value does not exist in header: ignore
 		}
 
 		try{
 			int quotedValue = CandidateFeatures.quoted(surfaceFormOccurrence);
-			instance.setValue(i(quoted, buildAttributeList()), quotedValue);
+			instance.setValue(i(quoted, attributeList), quotedValue);
 		}catch (ArrayIndexOutOfBoundsException e) {
 			//value does not exist in header: ignore
 		}
 
 		try{
 			int nextToUppercase = CandidateFeatures.nextToUppercase(surfaceFormOccurrence);
-			instance.setValue(i(next_to_uppercase, buildAttributeList()), nextToUppercase);
+			instance.setValue(i(next_to_uppercase, attributeList), nextToUppercase);
 		}catch (ArrayIndexOutOfBoundsException e) {
 			//value does not exist in header: ignore
 		}
@@ -331,7 +328,7 @@ public abstract class InstanceBuilderUnigram extends InstanceBuilder {
 		try {
 			Integer prePOS = CandidateFeatures.prePOS(surfaceFormOccurrence);
 			if (prePOS != null)
-				instance.setValue(i(pre_pos, buildAttributeList()), prePOS);
+				instance.setValue(i(pre_pos, attributeList), prePOS);
 		}catch (ArrayIndexOutOfBoundsException e) {
 			//value does not exist in header: ignore
 		}
@@ -340,7 +337,7 @@ public abstract class InstanceBuilderUnigram extends InstanceBuilder {
 		try{
 			Integer nextPOS = CandidateFeatures.nextPOS(surfaceFormOccurrence);
 			if (nextPOS != null)
-				instance.setValue(i(next_pos, buildAttributeList()), nextPOS);
+				instance.setValue(i(next_pos, attributeList), nextPOS);
 		}catch (ArrayIndexOutOfBoundsException e) {
 			//value does not exist in header: ignore
 		}
@@ -348,7 +345,7 @@ public abstract class InstanceBuilderUnigram extends InstanceBuilder {
 
 		try{
 			if (CandidateFeatures.isInEnumeration(surfaceFormOccurrence))
-				instance.setValue(i(in_enumeration, buildAttributeList()), 0);
+				instance.setValue(i(in_enumeration, attributeList), 0);
 		}catch (ArrayIndexOutOfBoundsException e) {
 			//value does not exist in header: ignore
 		}
@@ -63,10 +63,14 @@ public class LongFastBloomFilter {
         currentNumElements++;
     }
 
+    /**
+     * Uses only local state, so concurrent calls are safe as long as no elements are added.
+     */
     public boolean contains(byte[] element) {
-        setHashValues(element);
+        final long h1 = murmurHash.hash(element, element.length, 0);
+        final long h2 = murmurHash.hash(element, element.length, h1);
         for (int i = 0; i < k; i++) {
-            final long index = (hash1 + i * hash2) % longBitSet.size();
+            final long index = (h1 + i * h2) % longBitSet.size();
             if (!longBitSet.get((index < 0) ? index + longBitSet.size() : index)) {
                 return false;
             }
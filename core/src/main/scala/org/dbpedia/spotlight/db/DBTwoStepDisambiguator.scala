@@ -23,6 +23,9 @@ import scala.collection.mutable.ArrayBuffer
  * For each candidate, we calculate scores, including the context similarity, which
  * are then combined in a Mixture and assigned to the [[org.dbpedia.spotlight.model.DBpediaResourceOccurrence]].
  *
+ * If a [[org.dbpedia.spotlight.db.model.ProbabilityStore]] is provided, the log priors are read from its
+ * precomputed tables instead of being computed for every surface form occurrence.
+ *
  * @author Joachim Daiber
  * @author pablomendes (Lucene-based TwoStepDisambiguator)
  */
@@ -34,7 +37,8 @@ class DBTwoStepDisambiguator(
   val candidateSearcher: DBCandidateSearcher,
   contextStore: ContextStore,
   mixture: Mixture,
-  contextSimilarity: ContextSimilarity
+  contextSimilarity: ContextSimilarity,
+  probabilityStore: ProbabilityStore = null
 ) extends ParagraphDisambiguator {
 
   /* Tokenizer that may be used for tokenization if the text is not already tokenized. */
@@ -43,6 +47,18 @@ class DBTwoStepDisambiguator(
   private def getQuery(tokenTypes: Seq[TokenType]): java.util.Map[TokenType, Int]
     = tokenTypes.groupBy(identity).mapValues(_.size).asJava
 
+  /* log P(e|s), note that cand.prior is P(e|s) */
+  private def logCandidatePrior(cand: Candidate): Double =
+    if (probabilityStore != null) probabilityStore.getLogCandidatePrior(cand) else breeze.numerics.log( cand.prior )
+
+  /* log P(e) */
+  private def logResourcePrior(res: DBpediaResource): Double =
+    if (probabilityStore != null) probabilityStore.getLogResourcePrior(res) else breeze.numerics.log( res.prior )
+
+  /* log P(e) for the NIL entity, surfaceFormStore.getTotalAnnotatedCount = total number of entity mentions */
+  private def logNILPrior: Double =
+    if (probabilityStore != null) probabilityStore.getLogNILPrior else breeze.numerics.log( 1 / surfaceFormStore.getTotalAnnotatedCount.toDouble )
+
   /**
    * Calculate the context similarity given the text for all candidates in the set.
    *
@@ -163,6 +179,14 @@ class DBTwoStepDisambiguator(
     else
       mutable.Map[DBpediaResource, Double]()
 
+    // the NIL context score and prior only depend on the paragraph context, compute them once
+    val nilContextScore = if (contextStore != null)
+      contextSimilarity.nilScore(getQuery(tokens))
+    else
+      0.0
+
+    val nilPrior = logNILPrior
+
     // pick the best k for each surface form
     occs.keys.foldLeft(Map[SurfaceFormOccurrence, List[DBpediaResourceOccurrence]]())( (acc, aSfOcc) => {
 
@@ -179,13 +203,8 @@ class DBTwoStepDisambiguator(
         case _ =>
       }
 
-      val nilContextScore = if (contextStore != null)
-        contextSimilarity.nilScore(getQuery(tokens))
-      else
-        0.0
-
       eNIL.setFeature(new Score("P(c|e)", nilContextScore))
-      eNIL.setFeature(new Score("P(e)",   breeze.numerics.log( 1 / surfaceFormStore.getTotalAnnotatedCount.toDouble ) )) //surfaceFormStore.getTotalAnnotatedCount = total number of entity mentions
+      eNIL.setFeature(new Score("P(e)",   nilPrior))
       val nilEntityScore = mixture.getScore(eNIL)
 
       //Get all other entities:
@@ -207,9 +226,9 @@ class DBTwoStepDisambiguator(
 
         //Note that this is not mathematically correct, since the candidate prior is P(e|s),
         //the correct P(s|e) should be breeze.numerics.log( cand.support / cand.resource.support.toDouble )
-        resOcc.setFeature(new Score("P(s|e)", breeze.numerics.log( cand.prior )))
+        resOcc.setFeature(new Score("P(s|e)", logCandidatePrior(cand)))
         resOcc.setFeature(new Score("P(c|e)", resOcc.contextualScore))
-        resOcc.setFeature(new Score("P(e)",   breeze.numerics.log( cand.resource.prior )))
+        resOcc.setFeature(new Score("P(e)",   logResourcePrior(cand.resource)))
 
         //Use the mixture to combine the scores
         resOcc.setSimilarityScore(mixture.getScore(resOcc))
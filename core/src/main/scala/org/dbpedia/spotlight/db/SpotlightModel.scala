@@ -1,7 +1,7 @@
 package org.dbpedia.spotlight.db
 
 import concurrent.{TokenizerWrapper, SpotterWrapper}
-import memory.MemoryStore
+import memory.{MemoryStoreDelta, MemoryContextStore, MemorySurfaceFormStore, MemoryResourceStore, MemoryCandidateMapStore, MemoryStore}
 import model._
 import opennlp.tools.tokenize.{TokenizerModel, TokenizerME}
 import opennlp.tools.sentdetect.{SentenceModel, SentenceDetectorME}
@@ -15,23 +15,62 @@ import org.dbpedia.spotlight.disambiguate.ParagraphDisambiguatorJ
 import org.dbpedia.spotlight.spot.{SpotXmlParser, Spotter}
 import java.io.{IOException, File, FileInputStream}
 import java.util.{Locale, Properties}
+import java.util.concurrent.TimeUnit
 import opennlp.tools.chunker.ChunkerModel
 import opennlp.tools.namefind.TokenNameFinderModel
 import stem.SnowballStemmer
 import tokenize.{OpenNLPTokenizer, LanguageIndependentTokenizer}
 
 
+/**
+ * @param delta delta layer of the memory stores that new occurrences (e.g. from the live update feed) can be added to,
+ *              null if live updates are disabled
+ */
 class SpotlightModel(val tokenizer: TextTokenizer,
                      val spotters: java.util.Map[SpotterPolicy, Spotter],
                      val disambiguators: java.util.Map[DisambiguationPolicy, ParagraphDisambiguatorJ],
-                     val properties: Properties)
+                     val properties: Properties,
+                     val delta: MemoryStoreDelta = null) {
+
+  /**
+   * Stops the background threads of the model (the compaction of the delta).
+   */
+  def close() {
+    if (delta != null)
+      delta.close()
+  }
+
+}
 
+/**
+ * Live updates of the memory stores are enabled with the system property org.dbpedia.spotlight.db.liveUpdates=true.
+ * The delta is then compacted into the memory stores every org.dbpedia.spotlight.db.compactionInterval seconds
+ * (default: 600). The precomputed probabilities (prob.mem) are not used with live updates.
+ */
 object SpotlightModel {
 
+  def liveUpdates = System.getProperty("org.dbpedia.spotlight.db.liveUpdates", "false").toBoolean
+  def compactionInterval = System.getProperty("org.dbpedia.spotlight.db.compactionInterval", "600").toLong
+
   def loadStopwords(modelFolder: File): Set[String] = scala.io.Source.fromFile(new File(modelFolder, "stopwords.list")).getLines().map(_.trim()).toSet
   def loadSpotterThresholds(file: File): Seq[Double] = scala.io.Source.fromFile(file).getLines().next().split(" ").map(_.toDouble)
 
-  def storesFromFolder(modelFolder: File): (TokenTypeStore, SurfaceFormStore, ResourceStore, CandidateMapStore, ContextStore) = {
+  private def usedMemory: Long = Runtime.getRuntime.totalMemory() - Runtime.getRuntime.freeMemory()
+
+  /* Loads a store, the growth of the used heap is reported to the memory listener (if there is one). */
+  private def measured[T](store: String, memoryListener: (String, Long) => Unit)(load: => T): T = {
+    if (memoryListener == null)
+      return load
+    val before = usedMemory
+    val loaded = load
+    memoryListener(store, usedMemory - before)
+    loaded
+  }
+
+  /**
+   * @param memoryListener called with the name of each store (e.g. "sf") and the growth of the used heap while it was loaded
+   */
+  def storesFromFolder(modelFolder: File, memoryListener: (String, Long) => Unit = null): (TokenTypeStore, SurfaceFormStore, ResourceStore, CandidateMapStore, ContextStore) = {
     val modelDataFolder = new File(modelFolder, "model")
 
     List(
@@ -45,21 +84,35 @@ object SpotlightModel {
           throw new IOException("Invalid Spotlight model folder: Could not read required file %s in %s.".format(modelFile.getName, modelFile.getPath))
     }
 
-    val tokenTypeStore = MemoryStore.loadTokenTypeStore(new FileInputStream(new File(modelDataFolder, "tokens.mem")))
-    val sfStore = MemoryStore.loadSurfaceFormStore(new FileInputStream(new File(modelDataFolder, "sf.mem")))
-    val resStore = MemoryStore.loadResourceStore(new FileInputStream(new File(modelDataFolder, "res.mem")))
-    val candMapStore = MemoryStore.loadCandidateMapStore(new FileInputStream(new File(modelDataFolder, "candmap.mem")), resStore)
+    val tokenTypeStore = measured("tokens", memoryListener) { MemoryStore.loadTokenTypeStore(new FileInputStream(new File(modelDataFolder, "tokens.mem"))) }
+    val sfStore = measured("sf", memoryListener) { MemoryStore.loadSurfaceFormStore(new FileInputStream(new File(modelDataFolder, "sf.mem"))) }
+    val resStore = measured("res", memoryListener) { MemoryStore.loadResourceStore(new FileInputStream(new File(modelDataFolder, "res.mem"))) }
+    val candMapStore = measured("candmap", memoryListener) { MemoryStore.loadCandidateMapStore(new FileInputStream(new File(modelDataFolder, "candmap.mem")), resStore) }
     val contextStore = if (new File(modelDataFolder, "context.mem").exists())
-      MemoryStore.loadContextStore(new FileInputStream(new File(modelDataFolder, "context.mem")), tokenTypeStore)
+      measured("context", memoryListener) { MemoryStore.loadContextStore(new FileInputStream(new File(modelDataFolder, "context.mem")), tokenTypeStore) }
     else
       null
 
     (tokenTypeStore, sfStore, resStore, candMapStore, contextStore)
   }
 
-  def fromFolder(modelFolder: File): SpotlightModel = {
+  def probabilityStoreFromFolder(modelFolder: File, candMapStore: CandidateMapStore): ProbabilityStore = {
+    val probFile = new File(new File(modelFolder, "model"), "prob.mem")
+
+    (probFile.exists(), candMapStore) match {
+      case (true, s: MemoryCandidateMapStore) => MemoryStore.loadProbabilityStore(new FileInputStream(probFile), s)
+      case _ => null
+    }
+  }
+
+  def fromFolder(modelFolder: File): SpotlightModel = fromFolder(modelFolder, storesFromFolder(modelFolder))
+
+  /**
+   * Creates the model from stores that were already loaded with [[org.dbpedia.spotlight.db.SpotlightModel.storesFromFolder]].
+   */
+  def fromFolder(modelFolder: File, stores: (TokenTypeStore, SurfaceFormStore, ResourceStore, CandidateMapStore, ContextStore)): SpotlightModel = {
 
-    val (tokenTypeStore, sfStore, resStore, candMapStore, contextStore) = storesFromFolder(modelFolder)
+    val (tokenTypeStore, baseSfStore, baseResStore, baseCandMapStore, baseContextStore) = stores
 
     val stopwords = loadStopwords(modelFolder)
 
@@ -101,6 +154,32 @@ object SpotlightModel {
       new LanguageIndependentTokenizer(stopwords, stemmer(), new Locale(locale(0), locale(1)), tokenTypeStore)
     }
 
+    //With live updates, the model reads the stores through the delta layer:
+    val delta = if (liveUpdates)
+      (baseSfStore, baseResStore, baseCandMapStore, baseContextStore) match {
+        case (sf: MemorySurfaceFormStore, res: MemoryResourceStore, candMap: MemoryCandidateMapStore, context: MemoryContextStore) =>
+          new MemoryStoreDelta(sf, res, candMap, context, tokenizer)
+        case (sf: MemorySurfaceFormStore, res: MemoryResourceStore, candMap: MemoryCandidateMapStore, null) =>
+          new MemoryStoreDelta(sf, res, candMap, null, tokenizer)
+        case _ => throw new IOException("Live updates are only supported for memory stores.")
+      }
+    else
+      null
+
+    val (sfStore, resStore, candMapStore, contextStore) = if (delta == null)
+      (baseSfStore, baseResStore, baseCandMapStore, baseContextStore)
+    else {
+      delta.startCompaction(compactionInterval, TimeUnit.SECONDS)
+      (delta.surfaceFormStore, delta.resourceStore, delta.candidateMapStore, delta.contextStore)
+    }
+
+    //The precomputed probabilities are derived from the base stores and do not follow the delta,
+    //so with live updates all probabilities are computed from the current counts:
+    val probabilityStore = if (delta == null)
+      probabilityStoreFromFolder(modelFolder, baseCandMapStore)
+    else
+      null
+
     val searcher      = new DBCandidateSearcher(resStore, sfStore, candMapStore)
     val disambiguator = new ParagraphDisambiguatorJ(new DBTwoStepDisambiguator(
       tokenTypeStore,
@@ -109,7 +188,8 @@ object SpotlightModel {
       searcher,
       contextStore,
       new UnweightedMixture(Set("P(e)", "P(c|e)", "P(s|e)")),
-      new GenerativeContextSimilarity(tokenTypeStore)
+      new GenerativeContextSimilarity(tokenTypeStore, probabilityStore),
+      probabilityStore
     ))
 
     //If there is at least one NE model or a chunker, use the OpenNLP spotter:
@@ -153,6 +233,6 @@ object SpotlightModel {
 
     val spotters: java.util.Map[SpotterPolicy, Spotter] = Map(SpotterPolicy.SpotXmlParser -> new SpotXmlParser(), SpotterPolicy.Default -> spotter).asJava
     val disambiguators: java.util.Map[DisambiguationPolicy, ParagraphDisambiguatorJ] = Map(DisambiguationPolicy.Default -> disambiguator).asJava
-    new SpotlightModel(tokenizer, spotters, disambiguators, properties)
+    new SpotlightModel(tokenizer, spotters, disambiguators, properties, delta)
   }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.db.memory
+
+import org.dbpedia.spotlight.db.model.ProbabilityStore
+import org.dbpedia.spotlight.model.{TokenType, Candidate, DBpediaResource}
+
+/**
+ * A memory-based store for precomputed log probabilities. All tables are indexed by the
+ * same IDs as the other memory stores:
+ *
+ *  - logResourcePriors:  resource ID => log P(e)
+ *  - logCandidatePriors: surface form ID => log P(e|s) for each candidate, in the order
+ *                        of [[org.dbpedia.spotlight.db.memory.MemoryCandidateMapStore]].candidates
+ *  - logLMProbabilities: token ID => log P_LM(t)
+ *
+ * If an entry is not in the tables, it is computed on the fly.
+ */
+
+@SerialVersionUID(1008001)
+class MemoryProbabilityStore
+  extends MemoryStore
+  with ProbabilityStore {
+
+  var logResourcePriors: Array[Float] = null
+  var logCandidatePriors: Array[Array[Float]] = null
+  var logLMProbabilities: Array[Float] = null
+  var logNILPrior: Float = 0.0f
+
+  /* Normalization for the LM probabilities of unknown tokens: log(total token count + vocabulary size) */
+  var logLMNormalization: Float = 0.0f
+
+  @transient
+  var candidateMapStore: MemoryCandidateMapStore = null
+
+  def size = logResourcePriors.length
+
+  def getLogResourcePrior(resource: DBpediaResource): Double = {
+    if (resource.id >= 0 && resource.id < logResourcePriors.length)
+      logResourcePriors(resource.id)
+    else
+      math.log(resource.prior)
+  }
+
+  def getLogCandidatePrior(candidate: Candidate): Double = {
+    val sfID = candidate.surfaceForm.id
+
+    if (candidateMapStore != null && sfID >= 0 && sfID < logCandidatePriors.length && logCandidatePriors(sfID) != null) {
+      val resIDs = candidateMapStore.candidates(sfID)
+      val resID  = candidate.resource.id
+
+      var j = 0
+      while (j < resIDs.length) {
+        if (resIDs(j) == resID)
+          return logCandidatePriors(sfID)(j)
+        j += 1
+      }
+    }
+
+    math.log(candidate.prior)
+  }
+
+  def getLogLMProbability(token: TokenType): Double = {
+    //The IDs of the special token types overlap with real token types:
+    if (token.id >= 0 && token.id < logLMProbabilities.length && !(token eq TokenType.UNKNOWN) && !(token eq TokenType.STOPWORD))
+      logLMProbabilities(token.id)
+    else
+      math.log(token.count + 1.0) - logLMNormalization
+  }
+
+  def getLogNILPrior: Double = logNILPrior
+
+}
+
+object MemoryProbabilityStore {
+
+  /**
+   * Precompute all probability tables from the other memory stores.
+   *
+   * @param sfStore the surface form store
+   * @param resStore the resource store
+   * @param candMapStore the candidate map store
+   * @param tokenStore the token type store
+   * @return
+   */
+  def fromStores(sfStore: MemorySurfaceFormStore, resStore: MemoryResourceStore, candMapStore: MemoryCandidateMapStore, tokenStore: MemoryTokenTypeStore): MemoryProbabilityStore = {
+    val probStore = new MemoryProbabilityStore()
+
+    val totalSupport = resStore.supportForID.map(_.toDouble).sum
+    probStore.logResourcePriors = resStore.supportForID.map{ s: Int => math.log(s / totalSupport).toFloat }
+
+    probStore.logCandidatePriors = (0 until candMapStore.candidateCounts.length).map{ sfID: Int =>
+      candMapStore.candidateCounts(sfID) match {
+        case counts: Array[Int] if sfID < sfStore.annotatedCountForID.length => {
+          val annotatedCount = sfStore.annotatedCountForID(sfID).toDouble
+          counts.map{ c: Int => math.log(c / annotatedCount).toFloat }
+        }
+        case _ => null
+      }
+    }.toArray
+
+    val logNormalization = math.log(tokenStore.getTotalTokenCount + tokenStore.getVocabularySize)
+    probStore.logLMNormalization = logNormalization.toFloat
+    probStore.logLMProbabilities = tokenStore.counts.map{ c: Int => (math.log(c + 1.0) - logNormalization).toFloat }
+
+    probStore.logNILPrior = math.log(1 / sfStore.getTotalAnnotatedCount.toDouble).toFloat
+
+    probStore
+  }
+
+}
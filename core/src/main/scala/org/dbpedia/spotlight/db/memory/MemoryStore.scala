@@ -112,6 +112,19 @@ object MemoryStore {
   }
   )
 
+  kryos.put(classOf[MemoryProbabilityStore].getSimpleName,
+  {
+    val kryo = new Kryo()
+    kryo.setRegistrationRequired(true)
+
+    kryo.register(classOf[Array[Float]],        new DefaultArraySerializers.FloatArraySerializer())
+    kryo.register(classOf[Array[Array[Float]]], new JavaSerializer())
+    kryo.register(classOf[MemoryProbabilityStore])
+
+    kryo
+  }
+  )
+
   kryos.put(classOf[FSADictionary].getSimpleName,
   {
     val kryo = new Kryo()
@@ -163,6 +176,12 @@ object MemoryStore {
     s
   }
 
+  def loadProbabilityStore(in: InputStream, candidateMapStore: MemoryCandidateMapStore): MemoryProbabilityStore = {
+    val s = load[MemoryProbabilityStore](in, classOf[MemoryProbabilityStore].getSimpleName)
+    s.candidateMapStore = candidateMapStore
+    s
+  }
+
   def loadFSADictionary(in: InputStream): FSADictionary = {
     load[FSADictionary](in, classOf[FSADictionary].getSimpleName)
   }
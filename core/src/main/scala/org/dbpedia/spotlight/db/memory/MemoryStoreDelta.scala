@@ -0,0 +1,469 @@
+package org.dbpedia.spotlight.db.memory
+
+import java.io.File
+import java.util.concurrent.{ScheduledExecutorService, ThreadFactory, TimeUnit, Executors, ConcurrentHashMap}
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import scala.collection.JavaConversions._
+import scala.collection.mutable
+import org.dbpedia.spotlight.db.model._
+import org.dbpedia.spotlight.model._
+import org.dbpedia.spotlight.exceptions.{DBpediaResourceNotFoundException, SurfaceFormNotFoundException}
+import org.dbpedia.spotlight.log.SpotlightLog
+
+/**
+ * A delta layer on top of the surface form, resource, candidate map and context memory stores, which absorbs
+ * new occurrences (e.g. from the live Wikipedia update feed) at runtime.
+ *
+ * The views surfaceFormStore, resourceStore, candidateMapStore and contextStore answer queries from the immutable base
+ * stores plus the counts collected in the delta. Readers never wait: the state (base stores and deltas) is
+ * replaced atomically. New surface forms and resources get IDs following the IDs of the base stores.
+ *
+ * compact() folds the delta into new base stores. While a compaction is running, the delta that is being folded is
+ * frozen and new occurrences are collected in a fresh delta.
+ *
+ * @param tokenizer tokenizer for the context of the occurrences, if null, only the surface form, resource and candidate
+ *                  counts are updated
+ */
+
+class MemoryStoreDelta(baseSfStore: MemorySurfaceFormStore,
+                       baseResStore: MemoryResourceStore,
+                       baseCandMapStore: MemoryCandidateMapStore,
+                       baseContextStore: MemoryContextStore,
+                       tokenizer: TextTokenizer) {
+
+  private class Snapshot(val sfStore: MemorySurfaceFormStore,
+                         val resStore: MemoryResourceStore,
+                         val candMapStore: MemoryCandidateMapStore,
+                         val contextStore: MemoryContextStore)
+
+  private class Delta {
+    //New surface forms (including their normalized forms) and resources:
+    val sfIDs = new ConcurrentHashMap[String, Integer]()
+    val sfStrings = new ConcurrentHashMap[Integer, String]()
+    val resIDs = new ConcurrentHashMap[String, Integer]()
+    val resURIs = new ConcurrentHashMap[Integer, String]()
+
+    //Counts for new and existing surface forms, resources and tokens:
+    val sfAnnotatedCounts = new ConcurrentHashMap[Integer, AtomicInteger]()
+    val sfTotalCounts = new ConcurrentHashMap[Integer, AtomicInteger]()
+    val resSupport = new ConcurrentHashMap[Integer, AtomicInteger]()
+    val candidateCounts = new ConcurrentHashMap[Integer, ConcurrentHashMap[Integer, AtomicInteger]]()
+    val contextCounts = new ConcurrentHashMap[Integer, ConcurrentHashMap[Integer, AtomicInteger]]()
+    val contextTotals = new ConcurrentHashMap[Integer, AtomicInteger]()
+
+    val totalAnnotatedCount = new AtomicInteger()
+    val totalSupport = new AtomicInteger()
+    val occurrences = new AtomicInteger()
+  }
+
+  private class State(val base: Snapshot, val frozen: Delta, val active: Delta) {
+    val deltas = if (frozen == null) List(active) else List(frozen, active)
+  }
+
+  @volatile
+  private var state = new State(new Snapshot(baseSfStore, baseResStore, baseCandMapStore, baseContextStore), null, new Delta())
+
+  //Updates share the lock, swapping the active delta takes it exclusively. Readers do not lock.
+  private val updateLock = new ReentrantReadWriteLock()
+
+  private val nextSurfaceFormID = new AtomicInteger(baseSfStore.size)
+  private val nextResourceID = new AtomicInteger(baseResStore.size)
+
+  /**
+   * Number of occurrences that have not been compacted into the base stores yet.
+   */
+  def pendingOccurrences: Int = state.deltas.map(_.occurrences.get).sum
+
+
+  /**
+   * Adds occurrences to the delta. Occurrences sharing the same context are tokenized only once.
+   */
+  def add(occurrences: Iterable[DBpediaResourceOccurrence]) {
+    occurrences.groupBy(_.context.text).foreach {
+      case (_, contextOccurrences) =>
+        val tokenIDs = if (tokenizer == null)
+          List()
+        else
+          tokenizer.synchronized {
+            tokenizer.tokenize(contextOccurrences.head.context)
+          }.map(_.tokenType).filter(t => t != null && t.id > 0).map(_.id)
+
+        updateLock.readLock().lock()
+        try {
+          contextOccurrences.foreach(add(state, _, tokenIDs))
+        } finally {
+          updateLock.readLock().unlock()
+        }
+    }
+  }
+
+  private def add(s: State, occurrence: DBpediaResourceOccurrence, tokenIDs: List[Int]) {
+    val d = s.active
+
+    val sfID = surfaceFormID(s, occurrence.surfaceForm.name).getOrElse(newSurfaceForm(s, occurrence.surfaceForm.name))
+    val resID = resourceID(s, occurrence.resource.uri).getOrElse(newResource(s, occurrence.resource.uri))
+
+    increment(d.sfAnnotatedCounts, sfID, 1)
+    increment(d.sfTotalCounts, sfID, 1)
+    increment(d.resSupport, resID, 1)
+    increment(nested(d.candidateCounts, sfID), resID, 1)
+    d.totalAnnotatedCount.incrementAndGet()
+    d.totalSupport.incrementAndGet()
+
+    if (!tokenIDs.isEmpty) {
+      val resourceContext = nested(d.contextCounts, resID)
+      tokenIDs.foreach(increment(resourceContext, _, 1))
+      increment(d.contextTotals, resID, tokenIDs.size)
+    }
+
+    d.occurrences.incrementAndGet()
+  }
+
+  private def newSurfaceForm(s: State, sf: String): Int = s.active.sfIDs.synchronized {
+    val d = s.active
+    val existing = d.sfIDs.get(sf)
+    if (existing != null) {
+      existing.intValue
+    } else {
+      val id = nextSurfaceFormID.getAndIncrement
+      d.sfStrings.put(id, sf)
+      d.sfIDs.put(sf, id)
+
+      val normalized = s.base.sfStore.normalize(sf)
+      if (surfaceFormID(s, normalized).isEmpty)
+        d.sfIDs.put(normalized, id)
+      id
+    }
+  }
+
+  private def newResource(s: State, uri: String): Int = s.active.resIDs.synchronized {
+    val d = s.active
+    val existing = d.resIDs.get(uri)
+    if (existing != null) {
+      existing.intValue
+    } else {
+      val id = nextResourceID.getAndIncrement
+      d.resURIs.put(id, uri)
+      d.resIDs.put(uri, id)
+      id
+    }
+  }
+
+  private def surfaceFormID(s: State, sf: String): Option[Int] = {
+    (s.base.sfStore.idForString.get(sf) :: s.deltas.map(_.sfIDs.get(sf))).find(_ != null).map(_.intValue)
+  }
+
+  private def resourceID(s: State, uri: String): Option[Int] = {
+    (s.base.resStore.idFromURI.get(uri) :: s.deltas.map(_.resIDs.get(uri))).find(_ != null).map(_.intValue)
+  }
+
+  private def increment(counts: ConcurrentHashMap[Integer, AtomicInteger], key: Int, by: Int) {
+    val count = counts.get(key)
+    if (count != null) {
+      count.addAndGet(by)
+    } else {
+      val newCount = new AtomicInteger()
+      val previous = counts.putIfAbsent(key, newCount)
+      (if (previous == null) newCount else previous).addAndGet(by)
+    }
+  }
+
+  private def nested(counts: ConcurrentHashMap[Integer, ConcurrentHashMap[Integer, AtomicInteger]], key: Int) = {
+    val map = counts.get(key)
+    if (map != null) {
+      map
+    } else {
+      val newMap = new ConcurrentHashMap[Integer, AtomicInteger]()
+      val previous = counts.putIfAbsent(key, newMap)
+      if (previous == null) newMap else previous
+    }
+  }
+
+  private def deltaCount(s: State, counts: Delta => ConcurrentHashMap[Integer, AtomicInteger], key: Int): Int = {
+    s.deltas.map(d => counts(d).get(key)).filter(_ != null).map(_.get).sum
+  }
+
+
+  val surfaceFormStore: SurfaceFormStore = new SurfaceFormStore {
+
+    private def withDelta(s: State, name: String, id: Int, annotatedCount: Int, totalCount: Int) =
+      new SurfaceForm(name, id,
+        annotatedCount + deltaCount(s, _.sfAnnotatedCounts, id),
+        totalCount + deltaCount(s, _.sfTotalCounts, id))
+
+    private def fromDelta(s: State, name: String, key: String): SurfaceForm = {
+      s.deltas.map(_.sfIDs.get(key)).find(_ != null) match {
+        case Some(id) => withDelta(s, name, id, 0, 0)
+        case None => throw new SurfaceFormNotFoundException("SurfaceForm %s not found.".format(name))
+      }
+    }
+
+    def getSurfaceForm(surfaceform: String): SurfaceForm = {
+      val s = state
+      try {
+        val sf = s.base.sfStore.getSurfaceForm(surfaceform)
+        withDelta(s, sf.name, sf.id, sf.annotatedCount, sf.totalCount)
+      } catch {
+        case e: SurfaceFormNotFoundException => fromDelta(s, surfaceform, surfaceform)
+      }
+    }
+
+    def getSurfaceFormNormalized(surfaceform: String): SurfaceForm = {
+      val s = state
+      try {
+        val sf = s.base.sfStore.getSurfaceFormNormalized(surfaceform)
+        withDelta(s, sf.name, sf.id, sf.annotatedCount, sf.totalCount)
+      } catch {
+        case e: SurfaceFormNotFoundException => fromDelta(s, surfaceform, s.base.sfStore.normalize(surfaceform))
+      }
+    }
+
+    def getTotalAnnotatedCount: Int = {
+      val s = state
+      s.base.sfStore.getTotalAnnotatedCount + s.deltas.map(_.totalAnnotatedCount.get).sum
+    }
+
+    def getTotalOccurrenceCount: Int = {
+      val s = state
+      s.base.sfStore.getTotalOccurrenceCount + s.deltas.map(_.totalAnnotatedCount.get).sum
+    }
+
+    def iterateSurfaceForms: Seq[SurfaceForm] = {
+      val s = state
+      s.base.sfStore.iterateSurfaceForms.map(sf => withDelta(s, sf.name, sf.id, sf.annotatedCount, sf.totalCount)) ++
+        s.deltas.flatMap(_.sfStrings.map { case (id, name) => withDelta(s, name, id, 0, 0) })
+    }
+  }
+
+
+  val resourceStore: ResourceStore = new ResourceStore {
+
+    def getResource(id: Int): DBpediaResource = {
+      val s = state
+      val totalSupport = s.base.resStore.totalSupport + s.deltas.map(_.totalSupport.get).sum
+
+      val res = if (id < s.base.resStore.size) {
+        s.base.resStore.getResource(id)
+      } else {
+        s.deltas.map(_.resURIs.get(id)).find(_ != null) match {
+          case Some(uri) => {
+            val newRes = new DBpediaResource(uri, 0)
+            newRes.id = id
+            newRes
+          }
+          case None => throw new DBpediaResourceNotFoundException("DBpediaResource %d not found.".format(id))
+        }
+      }
+
+      res.setSupport(res.support + deltaCount(s, _.resSupport, id))
+      res.setPrior(res.support / totalSupport)
+      res
+    }
+
+    def getResourceByName(name: String): DBpediaResource = {
+      resourceID(state, name) match {
+        case Some(id) => getResource(id)
+        case None => throw new DBpediaResourceNotFoundException("Could not find %s".format(name))
+      }
+    }
+  }
+
+
+  val candidateMapStore: CandidateMapStore = new CandidateMapStore {
+
+    def getCandidates(surfaceform: SurfaceForm): Set[Candidate] = {
+      val s = state
+      val counts = mutable.HashMap[Int, Int]()
+
+      val base = s.base.candMapStore
+      if (surfaceform.id < base.candidates.length && base.candidates(surfaceform.id) != null)
+        base.candidates(surfaceform.id).zip(base.candidateCounts(surfaceform.id)).foreach {
+          case (resID, count) => counts.put(resID, count)
+        }
+
+      s.deltas.map(_.candidateCounts.get(surfaceform.id)).filter(_ != null).foreach(_.foreach {
+        case (resID, count) => counts.put(resID, counts.getOrElse(resID, 0) + count.get)
+      })
+
+      counts.map {
+        case (resID, count) => new Candidate(surfaceform, resourceStore.getResource(resID), count)
+      }.toSet
+    }
+  }
+
+
+  /**
+   * View of the context store with the delta, null if there is no base context store.
+   */
+  val contextStore: ContextStore = if (baseContextStore == null) null else new ContextStore {
+
+    def getContextCount(resource: DBpediaResource, token: TokenType): Int =
+      getContextCounts(resource).getOrElse(token, 0)
+
+    def getContextCounts(resource: DBpediaResource): java.util.Map[TokenType, Int] = {
+      val s = state
+      val base = s.base.contextStore
+      val contextCounts = if (resource.id < base.size)
+        base.getContextCounts(resource)
+      else
+        new java.util.HashMap[TokenType, Int]()
+
+      s.deltas.map(_.contextCounts.get(resource.id)).filter(_ != null).foreach(_.foreach {
+        case (tokenID, count) =>
+          val tokenType = base.tokenStore.getTokenTypeByID(tokenID)
+          contextCounts.put(tokenType, contextCounts.getOrElse(tokenType, 0) + count.get)
+      })
+      contextCounts
+    }
+
+    def getTotalTokenCount(resource: DBpediaResource): Int = {
+      val s = state
+      val base = s.base.contextStore
+      (if (resource.id < base.size) base.getTotalTokenCount(resource) else 0) + deltaCount(s, _.contextTotals, resource.id)
+    }
+  }
+
+
+  /**
+   * Folds the delta into new base stores. Updates arriving during the compaction are collected in a new delta.
+   */
+  def compact() {
+    synchronized {
+      updateLock.writeLock().lock()
+      val (s, sfCount, resCount) = try {
+        state = new State(state.base, state.active, new Delta())
+        (state, nextSurfaceFormID.get, nextResourceID.get)
+      } finally {
+        updateLock.writeLock().unlock()
+      }
+
+      SpotlightLog.info(this.getClass, "Compacting %d occurrences into the memory stores...", s.frozen.occurrences.get)
+      val start = System.currentTimeMillis()
+      val base = fold(s.base, s.frozen, sfCount, resCount)
+      state = new State(base, null, s.active)
+      SpotlightLog.info(this.getClass, "Done (%d ms)", System.currentTimeMillis() - start)
+    }
+  }
+
+  private def grow[T: ClassManifest](array: Array[T], size: Int): Array[T] = {
+    val grown = new Array[T](math.max(size, array.length))
+    Array.copy(array, 0, grown, 0, array.length)
+    grown
+  }
+
+  /**
+   * Merges the counts of a delta into a row of (id, count) arrays.
+   */
+  private def merge(ids: Array[Int], counts: Array[Int], delta: ConcurrentHashMap[Integer, AtomicInteger]): (Array[Int], Array[Int]) = {
+    val merged = mutable.LinkedHashMap[Int, Int]()
+    if (ids != null)
+      ids.zip(counts).foreach { case (id, count) => merged.put(id, count) }
+    delta.foreach { case (id, count) => merged.put(id, merged.getOrElse(id, 0) + count.get) }
+    (merged.keys.toArray, merged.values.toArray)
+  }
+
+  private def fold(base: Snapshot, d: Delta, sfCount: Int, resCount: Int): Snapshot = {
+
+    val sfs = new MemorySurfaceFormStore()
+    sfs.stopWords = base.sfStore.stopWords
+    sfs.stringForID = grow(base.sfStore.stringForID, sfCount)
+    sfs.annotatedCountForID = grow(base.sfStore.annotatedCountForID, sfCount)
+    sfs.totalCountForID = grow(base.sfStore.totalCountForID, sfCount)
+    d.sfStrings.foreach { case (id, sf) => sfs.stringForID(id) = sf }
+    d.sfAnnotatedCounts.foreach { case (id, count) => sfs.annotatedCountForID(id) += count.get }
+    d.sfTotalCounts.foreach { case (id, count) => sfs.totalCountForID(id) += count.get }
+    sfs.loaded()
+
+    val res = new MemoryResourceStore()
+    res.ontologyTypeStore = base.resStore.ontologyTypeStore
+    res.uriForID = grow(base.resStore.uriForID, resCount)
+    res.supportForID = grow(base.resStore.supportForID, resCount)
+    res.typesForID = grow(base.resStore.typesForID, resCount)
+    d.resURIs.foreach { case (id, uri) =>
+      res.uriForID(id) = uri
+      res.typesForID(id) = new Array[java.lang.Short](0)
+    }
+    d.resSupport.foreach { case (id, count) => res.supportForID(id) += count.get }
+    res.loaded()
+
+    val candMap = new MemoryCandidateMapStore()
+    candMap.candidates = grow(base.candMapStore.candidates, sfCount)
+    candMap.candidateCounts = grow(base.candMapStore.candidateCounts, sfCount)
+    d.candidateCounts.foreach { case (sfID, counts) =>
+      val (ids, mergedCounts) = merge(candMap.candidates(sfID), candMap.candidateCounts(sfID), counts)
+      candMap.candidates(sfID) = ids
+      candMap.candidateCounts(sfID) = mergedCounts
+    }
+    candMap.resourceStore = res
+
+    val context = if (base.contextStore == null) null else {
+      val c = new MemoryContextStore()
+      c.tokenStore = base.contextStore.tokenStore
+      c.tokens = grow(base.contextStore.tokens, resCount)
+      c.counts = grow(base.contextStore.counts, resCount)
+      c.totalTokenCounts = grow(base.contextStore.totalTokenCounts, resCount)
+      d.contextCounts.foreach { case (resID, counts) =>
+        val (ids, mergedCounts) = merge(c.tokens(resID), c.counts(resID), counts)
+        c.tokens(resID) = ids
+        c.counts(resID) = mergedCounts
+      }
+      d.contextTotals.foreach { case (resID, count) => c.totalTokenCounts(resID) += count.get }
+      c
+    }
+
+    new Snapshot(sfs, res, candMap, context)
+  }
+
+  @volatile
+  private var compaction: ScheduledExecutorService = null
+
+  /**
+   * Compacts the delta every interval in a background thread, until close() is called.
+   */
+  def startCompaction(interval: Long, unit: TimeUnit) {
+    val executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory {
+      def newThread(runnable: Runnable): Thread = {
+        val thread = new Thread(runnable, "memory-store-compaction")
+        thread.setDaemon(true)
+        thread
+      }
+    })
+    executor.scheduleWithFixedDelay(new Runnable {
+      def run() {
+        try {
+          if (state.active.occurrences.get > 0)
+            compact()
+        } catch {
+          case e: Exception => SpotlightLog.error(MemoryStoreDelta.this.getClass, "Error compacting memory stores: %s", e)
+        }
+      }
+    }, interval, interval, unit)
+    compaction = executor
+  }
+
+  /**
+   * Stops the background compaction. Occurrences that were not compacted stay in the delta.
+   */
+  def close() {
+    if (compaction != null) {
+      compaction.shutdownNow()
+      compaction = null
+    }
+  }
+
+  /**
+   * Compacts the delta and writes the new base stores to the model data folder
+   * (sf.mem, res.mem, candmap.mem, context.mem).
+   */
+  def dump(modelDataFolder: File) {
+    compact()
+    val base = state.base
+    MemoryStore.dump(base.sfStore, new File(modelDataFolder, "sf.mem"))
+    MemoryStore.dump(base.resStore, new File(modelDataFolder, "res.mem"))
+    MemoryStore.dump(base.candMapStore, new File(modelDataFolder, "candmap.mem"))
+    if (base.contextStore != null)
+      MemoryStore.dump(base.contextStore, new File(modelDataFolder, "context.mem"))
+  }
+
+}
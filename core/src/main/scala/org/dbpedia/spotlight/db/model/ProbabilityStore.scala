@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.db.model
+
+import org.dbpedia.spotlight.model.{TokenType, Candidate, DBpediaResource}
+
+/**
+ * A store interface for log probabilities that are precomputed when the model
+ * is built, so that they do not have to be recomputed for every surface form
+ * occurrence during disambiguation.
+ */
+
+trait ProbabilityStore {
+
+  /**
+   * Returns the log prior probability log P(e) of the DBpedia resource.
+   *
+   * @param resource the resource object
+   * @return
+   */
+  def getLogResourcePrior(resource: DBpediaResource): Double
+
+  /**
+   * Returns the log probability log P(e|s) of the candidate, i.e. of its DBpedia resource
+   * given its surface form.
+   *
+   * @param candidate the candidate object
+   * @return
+   */
+  def getLogCandidatePrior(candidate: Candidate): Double
+
+  /**
+   * Returns the smoothed log language model probability log P_LM(t) of the token type.
+   *
+   * @param token the token type
+   * @return
+   */
+  def getLogLMProbability(token: TokenType): Double
+
+  /**
+   * Returns the log prior probability of the NIL entity, log(1 / total number of entity mentions).
+   *
+   * @return
+   */
+  def getLogNILPrior: Double
+
+}
@@ -2,7 +2,7 @@ package org.dbpedia.spotlight.db.similarity
 
 import org.dbpedia.spotlight.model.{DBpediaResource, TokenType}
 import collection.mutable
-import org.dbpedia.spotlight.db.model.TokenTypeStore
+import org.dbpedia.spotlight.db.model.{ProbabilityStore, TokenTypeStore}
 import scala.collection.JavaConversions._
 import breeze.numerics._
 
@@ -13,10 +13,13 @@ import breeze.numerics._
  * In Proceedings of the 49th Annual Meeting of the Association for Computational Linguistics: Human
  * Language Technologies-Volume 1, pages 945–954. Association for Computational Linguistics, 2011.
  *
+ * If a [[org.dbpedia.spotlight.db.model.ProbabilityStore]] is provided, the LM probabilities
+ * are read from its precomputed tables.
+ *
  * @author Joachim Daiber
  */
 
-class GenerativeContextSimilarity(tokenTypeStore: TokenTypeStore) extends ContextSimilarity {
+class GenerativeContextSimilarity(tokenTypeStore: TokenTypeStore, probabilityStore: ProbabilityStore = null) extends ContextSimilarity {
 
   /**
    * Weight for smoothing the token probability with the general language model probability.
@@ -35,8 +38,11 @@ class GenerativeContextSimilarity(tokenTypeStore: TokenTypeStore) extends Contex
     /* TODO: We use simple Laplace smoothing here because it does not require heldout estimation,
      but a more advanced smoothing method may be used here. */
 
-    //(token.count + 1.0) / (tokenTypeStore.getTotalTokenCount + tokenTypeStore.getVocabularySize)
-    breeze.numerics.log(token.count + 1.0) - breeze.numerics.log(tokenTypeStore.getTotalTokenCount + tokenTypeStore.getVocabularySize)
+    if (probabilityStore != null)
+      probabilityStore.getLogLMProbability(token)
+    else
+      //(token.count + 1.0) / (tokenTypeStore.getTotalTokenCount + tokenTypeStore.getVocabularySize)
+      breeze.numerics.log(token.count + 1.0) - breeze.numerics.log(tokenTypeStore.getTotalTokenCount + tokenTypeStore.getVocabularySize)
   }
 
   /**
@@ -93,47 +93,72 @@ object FileOccurrenceSource
     }
 
     /**
-     * DBpediaResourceOccurrence Source from previously saved data.
+     * Opens an occurrences TSV file, which is gzipped if its name ends with .gz.
      */
-    private class FileOccurrenceSource(tsvFile : File) extends OccurrenceSource {
+    def openInputStream(tsvFile : File) : InputStream = {
+        var input : InputStream = new FileInputStream(tsvFile)
+        if (tsvFile.getName.endsWith(".gz")) {
+            input = new GZIPInputStream(input)
+        }
+        input
+    }
 
-        override def foreach[U](f : DBpediaResourceOccurrence => U) {
+    /**
+     * Lines of an occurrences TSV file.
+     */
+    def getLines(input : InputStream) : Iterator[String] = {
+        //something fishy going on here:
+        // if you get a java.nio.charset.UnmappableCharacterException:
+        //     put "UTF-8" as second argument of fromInputStream
+        // if you get a java.nio.charset.MalformedInputException:
+        //     call fromInputStream only with one argument
+        var linesIterator : Iterator[String] = Iterator.empty
+        try {
+            linesIterator = Source.fromInputStream(input, "UTF-8").getLines
+        }
+        catch {
+            case e: java.nio.charset.MalformedInputException => linesIterator = Source.fromInputStream(input).getLines
+        }
+        linesIterator
+    }
 
-            var input : InputStream = new FileInputStream(tsvFile)
-            if (tsvFile.getName.endsWith(".gz")) {
-                input = new GZIPInputStream(input)
-            }
+    /**
+     * Parses a line of an occurrences TSV file: id, resource, surface form, context and offset.
+     *
+     * @return the occurrence, or None if the line does not have 5 fields
+     */
+    def parseOccurrence(line : String) : Option[DBpediaResourceOccurrence] = {
+        val elements = line.trim.split("\t")
 
-            //something fishy going on here:
-            // if you get a java.nio.charset.UnmappableCharacterException:
-            //     put "UTF-8" as second argument of fromInputStream
-            // if you get a java.nio.charset.MalformedInputException:
-            //     call fromInputStream only with one argument
-            var linesIterator : Iterator[String] = Iterator.empty
-            try {
-                linesIterator = Source.fromInputStream(input, "UTF-8").getLines
-            }
-            catch {
-                case e: java.nio.charset.MalformedInputException => linesIterator = Source.fromInputStream(input).getLines
-            }
+        if (elements.length == 5) {
+            val id = elements(0)
+            val res = new DBpediaResource(elements(1), 1) // support is at least one if this resource has been seen once here
+            val sf = new SurfaceForm(elements(2))
+            val t = new Text(elements(3))
+            val offset = elements(4).toInt
 
-            for (line <- linesIterator) {
-                val elements = line.trim.split("\t")
+            Some(new DBpediaResourceOccurrence(id, res, sf, t, offset, Provenance.Wikipedia))
+        }
+        else {
+            //throw new ParseException("line must have 4 tab separators; got "+(elements.length-1)+" in line: "+line, elements.length-1)
+            SpotlightLog.error(this.getClass, "line must have 4 tab separators; got %d in line: %s", elements.length-1, line)
+            None
+        }
+    }
 
-                if (elements.length == 5) {
-                    val id = elements(0)
-                    val res = new DBpediaResource(elements(1), 1) // support is at least one if this resource has been seen once here
-                    val sf = new SurfaceForm(elements(2))
-                    val t = new Text(elements(3))
-                    val offset = elements(4).toInt
+    /**
+     * DBpediaResourceOccurrence Source from previously saved data.
+     */
+    private class FileOccurrenceSource(tsvFile : File) extends OccurrenceSource {
 
-                    f( new DBpediaResourceOccurrence(id, res, sf, t, offset, Provenance.Wikipedia) )
-                }
-                else {
-                    //throw new ParseException("line must have 4 tab separators; got "+(elements.length-1)+" in line: "+line, elements.length-1)
-                    SpotlightLog.error(this.getClass, "line must have 4 tab separators; got %d in line: %d", elements.length-1, line)
+        override def foreach[U](f : DBpediaResourceOccurrence => U) {
+            val input = openInputStream(tsvFile)
+            try {
+                for (line <- getLines(input); occ <- parseOccurrence(line)) {
+                    f(occ)
                 }
-
+            } finally {
+                input.close()
             }
         }
     }
@@ -28,7 +28,7 @@ import org.dbpedia.spotlight.lucene.search.{LuceneCandidateSearcher, BaseSearche
 import org.dbpedia.spotlight.exceptions.{ItemNotFoundException, ConfigurationException}
 import org.dbpedia.spotlight.log.SpotlightLog
 import org.apache.lucene.analysis.standard.StandardAnalyzer
-import org.dbpedia.spotlight.lucene.similarity.{CachedInvCandFreqSimilarity, JCSTermCache, InvCandFreqSimilarity}
+import org.dbpedia.spotlight.lucene.similarity.{CachedInvCandFreqSimilarity, CompressedTermCache, InvCandFreqSimilarity}
 import org.apache.lucene.misc.SweetSpotSimilarity
 import org.apache.lucene.search.{DefaultSimilarity, ScoreDoc, Similarity}
 import scala.collection.JavaConverters._
@@ -254,7 +254,7 @@ object Factory {
             if (configuration.getDisambiguatorConfiguration.isContextIndexInMemory)
                 new InvCandFreqSimilarity
             else
-                new CachedInvCandFreqSimilarity(JCSTermCache.getInstance(contextLuceneManager, configuration.getMaxCacheSize))
+                new CachedInvCandFreqSimilarity(CompressedTermCache.getInstance(contextLuceneManager, configuration.getMaxTermCacheBytes))
         }
     }
 
@@ -27,18 +27,15 @@ import org.dbpedia.spotlight.spot.lingpipe.LingPipeSpotter
 import java.io.File
 import org.dbpedia.spotlight.spot._
 import ahocorasick.AhoCorasickSpotter
-import opennlp.{ProbabilisticSurfaceFormDictionary, OpenNLPChunkerSpotter}
+import opennlp.{CompactSurfaceFormDictionary, OpenNLPChunkerSpotter}
 import org.dbpedia.spotlight.tagging.lingpipe.{LingPipeTextUtil, LingPipeTaggedTokenProvider, LingPipeFactory}
 import collection.JavaConversions._
 import org.dbpedia.spotlight.annotate.DefaultAnnotator
 import org.dbpedia.spotlight.lucene.disambiguate.MergedOccurrencesDisambiguator
 import org.dbpedia.spotlight.model.SpotterConfiguration.SpotterPolicy
 import org.dbpedia.spotlight.model.SpotlightConfiguration.DisambiguationPolicy
-import org.dbpedia.spotlight.lucene.search.{LuceneCandidateSearcher, MergedOccurrencesContextSearcher}
-import com.aliasi.util.AbstractExternalizable
-import com.aliasi.dict.Dictionary
+import org.dbpedia.spotlight.lucene.search.{QueryLog, LuceneCandidateSearcher, MergedOccurrencesContextSearcher}
 import org.dbpedia.spotlight.exceptions.ConfigurationException
-import io.Source
 
 /**
  * This class contains many of the "defaults" for DBpedia Spotlight.
@@ -50,13 +47,16 @@ class SpotlightFactory(val configuration: SpotlightConfiguration) {
     val analyzer = configuration.analyzer
     assert(analyzer!=null)
 
-    val contextIndexDir = LuceneManager.pickDirectory(new File(configuration.getContextIndexDirectory))
+    val contextIndexDir = LuceneManager.pickDirectory(new File(configuration.getContextIndexDirectory),
+                                                      configuration.getDisambiguatorConfiguration.getContextIndexDirectoryType,
+                                                      configuration.getDisambiguatorConfiguration.isContextIndexPreload)
     val contextLuceneManager = new LuceneManager.CaseInsensitiveSurfaceForms(contextIndexDir) // use this if all surface forms in the index are lower-cased
     val similarity = Factory.Similarity.fromConfig(configuration, contextLuceneManager)
     contextLuceneManager.setContextSimilarity(similarity)        // set most successful Similarity
     contextLuceneManager.setDBpediaResourceFactory(configuration.getDBpediaResourceFactory)
     contextLuceneManager.setDefaultAnalyzer(configuration.getAnalyzer)
     val contextSearcher : MergedOccurrencesContextSearcher = new MergedOccurrencesContextSearcher(contextLuceneManager, configuration.getDisambiguatorConfiguration.isContextIndexInMemory)
+    val queryLog : QueryLog = warmUpContextSearcher()
 
     var candidateSearcher : CandidateSearcher =
         if (configuration.getCandidateIndexDirectory!=configuration.getContextIndexDirectory) {
@@ -84,12 +84,55 @@ class SpotlightFactory(val configuration: SpotlightConfiguration) {
 
     //populate
     SpotlightLog.info(this.getClass, "Initiating spotters...")
-    lazy val spotDict : Dictionary[String] = AbstractExternalizable.readObject(new File(configuration.getSpotterConfiguration.getSpotterFile)).asInstanceOf[Dictionary[String]] //TODO temp until new configuration is in place
+    // loaded once and shared by the dictionary-based spotters
+    lazy val surfaceFormDictionary : CompactSurfaceFormDictionary = CompactSurfaceFormDictionary.fromLingPipeDictionaryFile(
+        new File(configuration.getSpotterConfiguration.getSpotterFile),
+        configuration.getSpotterConfiguration.config.getOrElse("org.dbpedia.spotlight.spot.caseSensitive", "false").equals("true"))
     spotter()
     SpotlightLog.info(this.getClass, "Initiating disambiguators...")
     disambiguator()
     SpotlightLog.info(this.getClass, "Done.")
 
+    /**
+     * Replays the query log (if configured) in the background and starts recording new queries to it.
+     *
+     * @return the query log new queries are recorded to, null if queries are not recorded
+     */
+    def warmUpContextSearcher() : QueryLog = {
+        val disambiguatorConfiguration = configuration.getDisambiguatorConfiguration
+        val queryLogFile = disambiguatorConfiguration.getQueryLogFile
+        if (queryLogFile == null)
+            return null
+
+        if (disambiguatorConfiguration.getWarmUpQueries > 0 && queryLogFile.exists) {
+            val warmUp = new Thread() {
+                override def run() {
+                    contextSearcher.warmUp(queryLogFile, disambiguatorConfiguration.getWarmUpQueries, 20)
+                }
+            }
+            warmUp.setDaemon(true)
+            warmUp.start()
+        }
+
+        if (disambiguatorConfiguration.getQueryLogSampleRate > 0) {
+            val log = new QueryLog(queryLogFile, disambiguatorConfiguration.getQueryLogSampleRate, disambiguatorConfiguration.getQueryLogMaxSize)
+            contextSearcher.setQueryLog(log)
+            log
+        } else {
+            null
+        }
+    }
+
+    /**
+     * Stops recording queries and writes the queries that are still queued to the query log.
+     */
+    def close() {
+        if (queryLog != null) {
+            contextSearcher.setQueryLog(null)
+            queryLog.close()
+        }
+    }
+
     def spotter(policy: SpotterConfiguration.SpotterPolicy) : Spotter = {
         if (policy == SpotterConfiguration.SpotterPolicy.Default) {
             if (spotters.isEmpty)
@@ -105,14 +148,10 @@ class SpotlightFactory(val configuration: SpotlightConfiguration) {
         } else if(policy == SpotterConfiguration.SpotterPolicy.AhoCorasickSpotter) {
             val overlap = configuration.getSpotterConfiguration.config.getOrElse("org.dbpedia.spotlight.spot.allowOverlap", "false").equals("true")
             val caseSensitive = configuration.getSpotterConfiguration.config.getOrElse("org.dbpedia.spotlight.spot.caseSensitive", "false").equals("true")
-            val sourceChunks = Source.fromFile(configuration.getSpotterConfiguration.getSpotterSurfaceForms)
-            val spotter = AhoCorasickSpotter.fromSurfaceForms(sourceChunks.getLines(), caseSensitive, overlap)
-            sourceChunks.close
-            spotters.getOrElse(policy,spotter)
+            spotters.getOrElse(policy, AhoCorasickSpotter.fromSurfaceFormsFile(new File(configuration.getSpotterConfiguration.getSpotterSurfaceForms), caseSensitive, overlap))
         } else if(policy == SpotterConfiguration.SpotterPolicy.LingPipeSpotter) {
             val overlap = configuration.getSpotterConfiguration.config.getOrElse("org.dbpedia.spotlight.spot.allowOverlap", "false").equals("true")
-            val caseSensitive = configuration.getSpotterConfiguration.config.getOrElse("org.dbpedia.spotlight.spot.caseSensitive", "false").equals("true")
-            spotters.getOrElse(policy, new LingPipeSpotter(spotDict,analyzer,overlap,caseSensitive))
+            spotters.getOrElse(policy, new LingPipeSpotter(surfaceFormDictionary, overlap))
         } else if (policy == SpotterConfiguration.SpotterPolicy.AtLeastOneNounSelector) {
             spotters.getOrElse(policy, SpotterWithSelector.getInstance(spotter(SpotterConfiguration.SpotterPolicy.LingPipeSpotter),new AtLeastOneNounSelector(),taggedTokenProvider()))
         } else if (policy == SpotterConfiguration.SpotterPolicy.CoOccurrenceBasedSelector) {
@@ -122,8 +161,7 @@ class SpotlightFactory(val configuration: SpotlightConfiguration) {
         } else if (policy == SpotterConfiguration.SpotterPolicy.KeyphraseSpotter) {
             spotters.getOrElse(policy, new KeaSpotter(configuration.getSpotterConfiguration.getKeaModel, configuration.getSpotterConfiguration.getKeaMaxNumberOfPhrases, configuration.getSpotterConfiguration.getKeaCutoff))
         } else if (policy == SpotterConfiguration.SpotterPolicy.OpenNLPChunkerSpotter) {
-            val dict = ProbabilisticSurfaceFormDictionary.fromLingPipeDictionary(spotDict, false) //TODO with new configuration in place, we can load from file into a more compact dictionary
-            spotters.getOrElse(policy, OpenNLPChunkerSpotter.fromDir(configuration.getSpotterConfiguration.getOpenNLPModelDir+"/"+configuration.getLanguage.toLowerCase+"/",configuration.getI18nLanguageCode.toLowerCase , dict, configuration.getStopWords))
+            spotters.getOrElse(policy, OpenNLPChunkerSpotter.fromDir(configuration.getSpotterConfiguration.getOpenNLPModelDir+"/"+configuration.getLanguage.toLowerCase+"/",configuration.getI18nLanguageCode.toLowerCase , surfaceFormDictionary, configuration.getStopWords))
         } else if (policy == SpotterConfiguration.SpotterPolicy.SpotXmlParser) {
           new SpotXmlParser
         } else if (policy == SpotterConfiguration.SpotterPolicy.WikiMarkupSpotter) {
@@ -17,9 +17,8 @@
 package org.dbpedia.spotlight.spot.ahocorasick
 
 import collection.mutable.ListBuffer
-import com.corruptmemory.aho_corasick.AhoCorasickBuilder.Data
-import com.corruptmemory.aho_corasick.{Match, AhoCorasickBuilder}
-import util.Sorting
+import java.io.{IOException, File}
+import scala.io.Source
 import org.dbpedia.spotlight.spot.Spotter
 import org.dbpedia.spotlight.log.SpotlightLog
 import org.dbpedia.spotlight.model.{SurfaceForm, Text, SurfaceFormOccurrence}
@@ -28,16 +27,18 @@ import scala.collection.JavaConversions._
 /**
  * AhoCorasick Spotter Class
  *
- * @param builder  AhoCorasickBuilder instance
- * @param overlap  overlap: true or false?
- * @param pattern regex pattern to check if the chunk is a complete word
+ * Only surface forms that start and end at token boundaries are spotted. Finding a text with the
+ * name Dilma Rousseff, the spotter reports Match(13, "Dilma Rousseff") and, if overlap is allowed,
+ * Match(13, "Dilma") and Match(19, "Rousseff"), but no partial matches like "ilma" or "D".
+ *
+ * @param automaton  Aho-Corasick automaton over the surface forms
+ * @param overlap  overlap: true or false? If false, only the longest of overlapping matches is kept
  */
-class AhoCorasickSpotter(val builder: AhoCorasickBuilder[String], val overlap: Boolean, pattern: String = "\\s|\\n|\\t|[,.:;¿?¡!()\\-'\"]") extends Spotter {
+class AhoCorasickSpotter(val automaton: CompactAhoCorasick, val overlap: Boolean) extends Spotter {
 
-  private val finder = builder.build()
   private var name = ""
 
-  SpotlightLog.debug(this.getClass, "Allow overlap: %s" + overlap)
+  SpotlightLog.debug(this.getClass, "Allow overlap: %s", overlap)
 
   /**
    * Find a specific text
@@ -45,113 +46,16 @@ class AhoCorasickSpotter(val builder: AhoCorasickBuilder[String], val overlap: B
    *
    */
   def extract(text: Text): java.util.List[SurfaceFormOccurrence] = {
-    val results = finder.find(text.text)
+    val results = if (overlap) automaton.allMatches(text.text) else automaton.longestMatches(text.text)
 
     val buffer: ListBuffer[SurfaceFormOccurrence] = ListBuffer()
-
-    if (overlap) {
-      results.foreach(result =>
-        buffer.append(new SurfaceFormOccurrence(new SurfaceForm(result.actual), text, result.start))
-      )
-
-    } else {
-      filter(results, text.text, pattern).foreach(result =>
-        buffer.append(new SurfaceFormOccurrence(new SurfaceForm(result.actual), text, result.start))
-      )
+    results.foreach { case (start, length) =>
+      buffer.append(new SurfaceFormOccurrence(new SurfaceForm(text.text.substring(start, start + length)), text, start))
     }
 
-
     seqAsJavaList[SurfaceFormOccurrence](buffer.toSeq)
   }
 
-
-  /**
-   * Comparator by Match start point and length
-   */
-  object StartLengthOrdering extends Ordering[Match[String]] {
-    def compare(matchA: Match[String], matchB: Match[String]): Int = {
-      Ordering.Tuple2(Ordering.Int, Ordering.Int).compare((matchA.start, matchB.actual.length), (matchB.start, matchA.actual.length))
-    }
-  }
-
-
-  /**
-   * When overlap is false, this method try to filter most relevant sequences
-   *
-   * E.g. Finding a text with the name Dilma Rousseff, Scala-aho-corasick found the follow sequences
-   * Match(13,DI,Di,)
-   * Match(13,D,D,)
-   * Match(13,Dilma Rousseff,Dilma Rousseff,)
-   * Match(13,Dilma,Dilma,)
-   * Match(14,ILMA,ilma,)
-   * Match(14,IL,il,)
-   * Match(15,L,l,)
-   * Match(15,LM,lm,)
-   * Match(15,LMA,lma,)
-   * Match(16,Ma,ma,)
-   * Match(16,M,m,)
-   * Match(17,a,a,)
-   * Match(19,R,R,)
-   * Match(19,Ro,Ro,)
-   * Match(19,Rousseff,Rousseff,)
-   * Match(19,Rousse,Rousse,)
-   * Match(20,Ousse,ousse,)
-   * Match(21,US,us,)
-   * Match(21,USS,uss,)
-   * Match(22,Sse,sse,)
-   * Match(22,SS,ss,)
-   * Match(22,S,s,)
-   * Match(23,SEF,sef,)
-   * Match(23,S,s,)
-   * Match(24,Ef,ef,)
-   * Match(25,F,f,)
-   * Match(25,FF,ff,)
-   * Match(26,F,f,)
-   * Is relevant for me only the complete Match, like the third Match-  Match(13,Dilma Rousseff,Dilma Rousseff,)
-   *
-   * @param result
-   * @param originalText
-   * @param pattern
-   * @return  a Seq of Match[T]
-   */
-
-  private def filter(result: Seq[Match[String]], originalText: String, pattern: String): Seq[Match[String]] = {
-
-    var chunk: Match[String] = null
-    val buffer: ListBuffer[Match[String]] = ListBuffer()
-    val resultsArray = result.toArray[Match[String]]
-
-    Sorting.quickSort(resultsArray)(StartLengthOrdering)
-
-    //println(originalText)
-
-    resultsArray.foreach(resultArray => {
-      //println(resultArray)
-      var position = resultArray.start + resultArray.actual.length;
-
-      if ((resultArray.start == 0 || originalText.charAt(resultArray.start - 1).toString.matches(pattern)) &&
-        (position >= originalText.length ||
-         originalText.charAt(position).toString.matches(pattern))) {
-        if (chunk == null) {
-          buffer.append(resultArray)
-          chunk = resultArray
-          //println("* selected: * " + resultArray)
-        }
-        else if (chunk.start + chunk.actual.length < resultArray.start) {
-          buffer.append(resultArray)
-          chunk = resultArray
-          //println("* selected: * " + resultArray)
-        }
-      }
-    }
-    )
-
-
-    buffer.toSeq
-
-
-  }
-
   /**
    * Every spotter has a name that describes its strategy
    * (for comparing multiple spotters during evaluation)
@@ -177,10 +81,47 @@ object AhoCorasickSpotter {
    * @param caseSensitive  case sensitive: true or false?
    */
   def fromSurfaceForms(surfaceForms: TraversableOnce[String], caseSensitive: Boolean, overlap: Boolean): AhoCorasickSpotter = {
-    val builder = AhoCorasickBuilder[String](surfaceForms.map(Data(_, "")).toSeq,
-      if (caseSensitive) _.toChar else _.toLower)
+    new AhoCorasickSpotter(CompactAhoCorasick.build(surfaceForms, caseSensitive), overlap)
+  }
+
+  /**
+   * Loads the automaton saved next to the surface forms file (surfaceForms + ".automaton") if it is newer than
+   * the surface forms file and was built with the same case sensitivity. Otherwise, the automaton is built from the
+   * surface forms file (one surface form per line) and saved for the next time. An automaton file that cannot be
+   * read is rebuilt as well.
+   *
+   * @param surfaceForms surface forms file
+   * @param caseSensitive  case sensitive: true or false?
+   */
+  def fromSurfaceFormsFile(surfaceForms: File, caseSensitive: Boolean, overlap: Boolean): AhoCorasickSpotter = {
+    val automatonFile = new File(surfaceForms.getPath + ".automaton")
+
+    if (automatonFile.exists && automatonFile.lastModified >= surfaceForms.lastModified) {
+      try {
+        val automaton = CompactAhoCorasick.load(automatonFile)
+        if (automaton.caseSensitive == caseSensitive)
+          return new AhoCorasickSpotter(automaton, overlap)
+        SpotlightLog.info(this.getClass, "%s was built with different case sensitivity, rebuilding.", automatonFile)
+      } catch {
+        //a truncated or otherwise unreadable file can also fail with runtime exceptions (e.g. BufferUnderflowException)
+        case e: Exception => SpotlightLog.warn(this.getClass, "Could not load %s, rebuilding: %s", automatonFile, e.toString)
+      }
+    }
+
+    val source = Source.fromFile(surfaceForms, "UTF-8")
+    val automaton = try {
+      CompactAhoCorasick.build(source.getLines(), caseSensitive)
+    } finally {
+      source.close()
+    }
+
+    try {
+      automaton.save(automatonFile)
+    } catch {
+      case e: IOException => SpotlightLog.warn(this.getClass, "Could not save %s, it will be rebuilt next time: %s", automatonFile, e.getMessage)
+    }
 
-    new AhoCorasickSpotter(builder, overlap)
+    new AhoCorasickSpotter(automaton, overlap)
   }
 
 }
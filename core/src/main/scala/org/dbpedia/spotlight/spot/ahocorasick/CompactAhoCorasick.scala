@@ -0,0 +1,349 @@
+/**
+ * Copyright 2012
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dbpedia.spotlight.spot.ahocorasick
+
+import java.io._
+import java.nio.channels.FileChannel
+import org.dbpedia.spotlight.log.SpotlightLog
+
+/**
+ * Character-level Aho-Corasick automaton over a surface form dictionary.
+ *
+ * The trie is stored in flat arrays: the outgoing transitions of node n are
+ * edgeChars/edgeTargets(edgeStart(n) until edgeStart(n + 1)), sorted by character. Every node has a failure link
+ * and a link to the longest surface form that is a proper suffix of the node ("dictionary link").
+ *
+ * Only matches that start and end at a token boundary (see [[org.dbpedia.spotlight.spot.ahocorasick.CompactAhoCorasick.isBoundary]])
+ * are reported, so partial matches inside words (e.g. "ilma" in "Dilma") are never produced.
+ *
+ * @param caseSensitive if false, the surface forms and the text are lowercased character by character
+ */
+class CompactAhoCorasick private (val caseSensitive: Boolean,
+                                  edgeStart: Array[Int],
+                                  edgeChars: Array[Char],
+                                  edgeTargets: Array[Int],
+                                  fail: Array[Int],
+                                  dictLink: Array[Int],
+                                  depth: Array[Int],
+                                  terminal: Array[Boolean]) {
+
+  import CompactAhoCorasick._
+
+  def numberOfNodes = depth.length
+
+  private def fold(c: Char) = if (caseSensitive) c else Character.toLowerCase(c)
+
+  /**
+   * Target of the transition from node with character c, or -1.
+   */
+  private def transition(node: Int, c: Char): Int = {
+    var low = edgeStart(node)
+    var high = edgeStart(node + 1) - 1
+    while (low <= high) {
+      val mid = (low + high) >>> 1
+      val midChar = edgeChars(mid)
+      if (midChar < c)
+        low = mid + 1
+      else if (midChar > c)
+        high = mid - 1
+      else
+        return edgeTargets(mid)
+    }
+    -1
+  }
+
+  /**
+   * Calls f(start, length) for every token-boundary-aligned match in the text, ordered by end position
+   * and, for the same end position, longest match first.
+   */
+  def foreachMatch(text: String)(f: (Int, Int) => Unit) {
+    var state = Root
+    var i = 0
+    while (i < text.length) {
+      val c = fold(text.charAt(i))
+      var next = transition(state, c)
+      while (next == -1 && state != Root) {
+        state = fail(state)
+        next = transition(state, c)
+      }
+      state = if (next == -1) Root else next
+
+      val end = i + 1
+      if (end == text.length || isBoundary(text.charAt(end))) {
+        var output = if (terminal(state)) state else dictLink(state)
+        while (output != -1) {
+          val start = end - depth(output)
+          if (start == 0 || isBoundary(text.charAt(start - 1)))
+            f(start, depth(output))
+          output = dictLink(output)
+        }
+      }
+      i += 1
+    }
+  }
+
+  /**
+   * All token-boundary-aligned matches as (start, length), ordered by start and, for the same start, longest first.
+   */
+  def allMatches(text: String): Seq[(Int, Int)] = {
+    val matches = new scala.collection.mutable.ArrayBuffer[(Int, Int)]()
+    foreachMatch(text)((start, length) => matches += ((start, length)))
+    matches.sortWith((a, b) => a._1 < b._1 || (a._1 == b._1 && a._2 > b._2))
+  }
+
+  /**
+   * Non-overlapping token-boundary-aligned matches as (start, length): from left to right, the longest match
+   * starting at a position is taken if it starts after the end of the previously taken match.
+   */
+  def longestMatches(text: String): Seq[(Int, Int)] = {
+    val longest = new Array[Int](text.length)
+    foreachMatch(text)((start, length) => if (length > longest(start)) longest(start) = length)
+
+    val matches = new scala.collection.mutable.ArrayBuffer[(Int, Int)]()
+    var lastEnd = -1
+    var start = 0
+    while (start < text.length) {
+      if (longest(start) > 0 && start > lastEnd) {
+        matches += ((start, longest(start)))
+        lastEnd = start + longest(start)
+      }
+      start += 1
+    }
+    matches
+  }
+
+  /**
+   * Saves the automaton, see [[org.dbpedia.spotlight.spot.ahocorasick.CompactAhoCorasick.load]].
+   *
+   * The automaton is written to a temporary file next to the target, which is then renamed, so a
+   * concurrent or interrupted save never leaves a partially written automaton behind.
+   */
+  def save(file: File) {
+    val tmp = File.createTempFile(file.getName, ".tmp", file.getAbsoluteFile.getParentFile)
+    try {
+      write(tmp)
+      if (!tmp.renameTo(file)) {
+        //renameTo does not replace existing files on all platforms
+        file.delete()
+        if (!tmp.renameTo(file))
+          throw new IOException("Could not rename %s to %s.".format(tmp, file))
+      }
+    } finally {
+      tmp.delete()
+    }
+  }
+
+  private def write(file: File) {
+    val out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))
+    try {
+      out.writeInt(Magic)
+      out.writeInt(Format)
+      out.writeBoolean(caseSensitive)
+      out.writeInt(numberOfNodes)
+      out.writeInt(edgeChars.length)
+      edgeStart.foreach(out.writeInt(_))
+      edgeChars.foreach(out.writeChar(_))
+      edgeTargets.foreach(out.writeInt(_))
+      fail.foreach(out.writeInt(_))
+      dictLink.foreach(out.writeInt(_))
+      depth.foreach(out.writeInt(_))
+      terminal.foreach(out.writeBoolean(_))
+    } finally {
+      out.close()
+    }
+  }
+
+}
+
+object CompactAhoCorasick {
+
+  private val Root = 0
+  private val Magic = 0x41484f43 // "AHOC"
+  private val Format = 1
+
+  private val BoundaryChars = ",.:;¿?¡!()-'\""
+
+  /**
+   * Characters that separate tokens: whitespace and punctuation.
+   */
+  def isBoundary(c: Char) = Character.isWhitespace(c) || BoundaryChars.indexOf(c) >= 0
+
+  /**
+   * Builds the automaton for the surface forms.
+   */
+  def build(surfaceForms: TraversableOnce[String], caseSensitive: Boolean): CompactAhoCorasick = {
+    val start = System.currentTimeMillis()
+
+    val sorted = surfaceForms.map(sf => if (caseSensitive) sf else sf.map(Character.toLowerCase(_)))
+      .filter(_.length > 0).toArray
+    scala.util.Sorting.quickSort(sorted)
+
+    // Insert the sorted surface forms: nodes are numbered in creation order, the children of
+    // each node are created in increasing order of their characters.
+    val edgeParents = new IntArrayBuilder()
+    val edgeCharsBuilder = new IntArrayBuilder()
+    val edgeTargetsBuilder = new IntArrayBuilder()
+    val depthBuilder = new IntArrayBuilder()
+    val terminalNodes = new IntArrayBuilder()
+    depthBuilder += 0
+
+    var path = new Array[Int](16) // nodes of the previous surface form, path(d) is the node at depth d
+    var previous = ""
+    for (sf <- sorted if sf != previous) {
+      var common = 0
+      while (common < sf.length && common < previous.length && sf.charAt(common) == previous.charAt(common))
+        common += 1
+
+      if (path.length <= sf.length)
+        path = java.util.Arrays.copyOf(path, math.max(path.length * 2, sf.length + 1))
+
+      var d = common
+      while (d < sf.length) {
+        val node = depthBuilder.size
+        depthBuilder += d + 1
+        edgeParents += path(d)
+        edgeCharsBuilder += sf.charAt(d)
+        edgeTargetsBuilder += node
+        path(d + 1) = node
+        d += 1
+      }
+      terminalNodes += path(sf.length)
+      previous = sf
+    }
+
+    val numberOfNodes = depthBuilder.size
+    val depth = depthBuilder.result()
+    val terminal = new Array[Boolean](numberOfNodes)
+    terminalNodes.result().foreach(terminal(_) = true)
+
+    // Group the edges by parent (stable, so they stay sorted by character)
+    val parents = edgeParents.result()
+    val edgeStart = new Array[Int](numberOfNodes + 1)
+    parents.foreach(p => edgeStart(p + 1) += 1)
+    for (n <- 0 until numberOfNodes) edgeStart(n + 1) += edgeStart(n)
+    val edgeChars = new Array[Char](parents.length)
+    val edgeTargets = new Array[Int](parents.length)
+    val fill = java.util.Arrays.copyOf(edgeStart, numberOfNodes)
+    val chars = edgeCharsBuilder.result()
+    val targets = edgeTargetsBuilder.result()
+    for (e <- 0 until parents.length) {
+      val p = parents(e)
+      edgeChars(fill(p)) = chars(e).toChar
+      edgeTargets(fill(p)) = targets(e)
+      fill(p) += 1
+    }
+
+    val fail = new Array[Int](numberOfNodes)
+    val dictLink = new Array[Int](numberOfNodes)
+    dictLink(Root) = -1
+    val automaton = new CompactAhoCorasick(caseSensitive, edgeStart, edgeChars, edgeTargets, fail, dictLink, depth, terminal)
+
+    // Failure and dictionary links in breadth-first order
+    val queue = new Array[Int](numberOfNodes)
+    var head = 0
+    var tail = 0
+    queue(tail) = Root
+    tail += 1
+    while (head < tail) {
+      val node = queue(head)
+      head += 1
+      var e = edgeStart(node)
+      while (e < edgeStart(node + 1)) {
+        val child = edgeTargets(e)
+        val c = edgeChars(e)
+        if (node == Root) {
+          fail(child) = Root
+        } else {
+          var f = fail(node)
+          var next = automaton.transition(f, c)
+          while (next == -1 && f != Root) {
+            f = fail(f)
+            next = automaton.transition(f, c)
+          }
+          fail(child) = if (next == -1) Root else next
+        }
+        dictLink(child) = if (terminal(fail(child))) fail(child) else dictLink(fail(child))
+        queue(tail) = child
+        tail += 1
+        e += 1
+      }
+    }
+
+    SpotlightLog.info(this.getClass, "Built Aho-Corasick automaton for %d surface forms with %d nodes in %d ms.",
+      terminalNodes.size, numberOfNodes, System.currentTimeMillis() - start)
+    automaton
+  }
+
+  /**
+   * Loads an automaton saved with [[org.dbpedia.spotlight.spot.ahocorasick.CompactAhoCorasick.save]].
+   */
+  def load(file: File): CompactAhoCorasick = {
+    val raf = new RandomAccessFile(file, "r")
+    try {
+      val buffer = raf.getChannel.map(FileChannel.MapMode.READ_ONLY, 0, raf.length)
+      if (buffer.getInt != Magic || buffer.getInt != Format)
+        throw new IOException("%s is not an Aho-Corasick automaton in the current format.".format(file))
+      val caseSensitive = buffer.get != 0
+      val numberOfNodes = buffer.getInt
+      val numberOfEdges = buffer.getInt
+      if (numberOfNodes < 1 || numberOfEdges != numberOfNodes - 1 ||
+          buffer.remaining != 4L * (numberOfNodes + 1) + 2L * numberOfEdges + 4L * numberOfEdges + 12L * numberOfNodes + numberOfNodes)
+        throw new IOException("%s is truncated or corrupt.".format(file))
+
+      def ints(n: Int) = {
+        val array = new Array[Int](n)
+        buffer.asIntBuffer.get(array)
+        buffer.position(buffer.position + 4 * n)
+        array
+      }
+
+      val edgeStart = ints(numberOfNodes + 1)
+      val edgeChars = new Array[Char](numberOfEdges)
+      buffer.asCharBuffer.get(edgeChars)
+      buffer.position(buffer.position + 2 * numberOfEdges)
+      val edgeTargets = ints(numberOfEdges)
+      val fail = ints(numberOfNodes)
+      val dictLink = ints(numberOfNodes)
+      val depth = ints(numberOfNodes)
+      val terminal = new Array[Boolean](numberOfNodes)
+      for (n <- 0 until numberOfNodes) terminal(n) = buffer.get != 0
+
+      SpotlightLog.info(this.getClass, "Loaded Aho-Corasick automaton with %d nodes from %s.", numberOfNodes, file)
+      new CompactAhoCorasick(caseSensitive, edgeStart, edgeChars, edgeTargets, fail, dictLink, depth, terminal)
+    } finally {
+      raf.close()
+    }
+  }
+
+  /**
+   * Growable int array.
+   */
+  private class IntArrayBuilder {
+    private var array = new Array[Int](1024)
+    var size = 0
+
+    def +=(value: Int) {
+      if (size == array.length)
+        array = java.util.Arrays.copyOf(array, size * 2)
+      array(size) = value
+      size += 1
+    }
+
+    def result() = java.util.Arrays.copyOf(array, size)
+  }
+
+}
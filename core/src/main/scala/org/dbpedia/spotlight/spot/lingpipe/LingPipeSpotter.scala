@@ -16,77 +16,67 @@
 
 package org.dbpedia.spotlight.spot.lingpipe
 
-import org.dbpedia.spotlight.model.{SpotlightConfiguration, SurfaceForm, Text, SurfaceFormOccurrence}
+import org.dbpedia.spotlight.model.{SurfaceForm, Text, SurfaceFormOccurrence}
 import scala.collection.JavaConversions._
-import com.aliasi.util.AbstractExternalizable
 import org.dbpedia.spotlight.log.SpotlightLog
-import com.aliasi.dict.{Dictionary, ExactDictionaryChunker}
+import com.aliasi.dict.Dictionary
 import java.io.File
-import org.dbpedia.spotlight.spot.{JAnnotationTokenizerFactory, Spotter}
-import org.apache.lucene.analysis.br.BrazilianAnalyzer
-import javax.sound.sampled.LineUnavailableException
-import org.apache.lucene.util.Version
+import org.dbpedia.spotlight.spot.Spotter
+import org.dbpedia.spotlight.spot.opennlp.CompactSurfaceFormDictionary
 import org.apache.lucene.analysis.Analyzer
-import org.dbpedia.spotlight.lucene.LuceneManager.DBpediaResourceField
-import com.aliasi.tokenizer.IndoEuropeanTokenizerFactory
 
 /**
  * Spotter using LingPipe (http://alias-i.com/lingpipe/demos/tutorial/ne/read-me.html)
  *
- * To initialize the spotter for a dictionary with
- *   - 3.35 mio entries (typed resources, titles, redirects, disambiguations, occurrences)
- *     you need at least 4G of Java heap space (3500M is too little)
- *   - 2.77 mio entries (typed resources, titles, redirects, disambiguations)
- *     you need at least 3500M of Java heap space (3G is too little)
+ * The serialized LingPipe dictionary is converted into a [[org.dbpedia.spotlight.spot.opennlp.CompactSurfaceFormDictionary]]
+ * (token id sequences instead of LingPipe's trie of Strings), which is saved next to the dictionary file and
+ * can be shared with other spotters. The LingPipe dictionary itself is only loaded to build the compact dictionary.
  *
  * @author maxjakob
  **/
 
-class LingPipeSpotter(val dictionary : Dictionary[String], analyzer:Analyzer, val overlap : Boolean=false, val caseSensitive : Boolean=false)
+class LingPipeSpotter(val surfaceFormDictionary : CompactSurfaceFormDictionary, val overlap : Boolean)
         extends Spotter
 {
     var fileName = "Dictionary[String]";
 
     var name = ""
 
+    val caseSensitive = surfaceFormDictionary.caseSensitive
+
     SpotlightLog.debug(this.getClass, "Allow overlap: %s", overlap)
     SpotlightLog.debug(this.getClass, "Case sensitive: %s", caseSensitive)
 
+    def this(dictionary : Dictionary[String], analyzer:Analyzer, overlap : Boolean, caseSensitive : Boolean) = {
+        this(CompactSurfaceFormDictionary.fromLingPipeDictionary(dictionary, caseSensitive), overlap)
+    }
+
+    def this(dictionary : Dictionary[String], analyzer:Analyzer) = {
+        this(dictionary, analyzer, false, false)
+    }
+
     def this(dictionaryFile : File, analyzer:Analyzer, overlap : Boolean, caseSensitive : Boolean) = {
-        this(AbstractExternalizable.readObject(dictionaryFile).asInstanceOf[Dictionary[String]],analyzer, overlap, caseSensitive)
+        this(CompactSurfaceFormDictionary.fromLingPipeDictionaryFile(dictionaryFile, caseSensitive), overlap)
         fileName = dictionaryFile.getAbsolutePath
         SpotlightLog.debug(this.getClass, "Dictionary: %s", dictionaryFile)
     }
 
     def this(dictionaryFile : File, analyzer:Analyzer) = {
-        this(AbstractExternalizable.readObject(dictionaryFile).asInstanceOf[Dictionary[String]],analyzer)
-        fileName = dictionaryFile.getAbsolutePath
-        SpotlightLog.debug(this.getClass, "Dictionary: %s", dictionaryFile)
+        this(dictionaryFile, analyzer, false, false)
     }
 
-    SpotlightLog.info(this.getClass, "Initiating LingPipeSpotter ... (%s)", fileName)
-    val dictionaryChunker = new ExactDictionaryChunker(dictionary,
-                                                       IndoEuropeanTokenizerFactory.INSTANCE,  // splits "don't" into "don", "'" and "t"
-                                                       // AnnotationTokenizerFactory, //English only
-                                                       //new JAnnotationTokenizerFactory(analyzer),
-                                                       overlap,        // find all matches, including overlapping ones?
-                                                       caseSensitive)  // case-sensitive matching?
-    SpotlightLog.info(this.getClass, "Done.")
+    SpotlightLog.info(this.getClass, "Initiated LingPipeSpotter with %d surface forms.", surfaceFormDictionary.size)
 
     /**
      * Extracts a set of surface form occurrences from text.
      */
     def extract(text : Text) : java.util.List[SurfaceFormOccurrence] = {
         SpotlightLog.debug(this.getClass, "Spotting with dictionary: %s.", fileName)
-        val chunkSet = dictionaryChunker.chunk(text.text).chunkSet
-        chunkSet.toList.map{ chunk =>
-            val textOffsetStart = chunk.start
-            val textOffsetEnd = chunk.end
-            //val chunkType = chunk.`type`   // empty for ExactDictionaryChunker
-            //val score = chunk.score      // not interesting for us
+        // tokenized like LingPipe's ExactDictionaryChunker: IndoEuropeanTokenizerFactory splits "don't" into "don", "'" and "t"
+        surfaceFormDictionary.find(text.text, overlap).map{ case (textOffsetStart, textOffsetEnd) =>
             val surfaceForm = new SurfaceForm( text.text.substring(textOffsetStart, textOffsetEnd) )
             new SurfaceFormOccurrence(surfaceForm, text, textOffsetStart)
-        }.sortBy(_.textOffset)
+        }
     }
 
     /**
@@ -95,8 +85,8 @@ class LingPipeSpotter(val dictionary : Dictionary[String], analyzer:Analyzer, va
      */
     def getName() : String = {
         if (name=="") {
-            val allMatches = if (dictionaryChunker.returnAllMatches) "overlapping" else "non-overlapping"
-            val caseSensitivity = if (dictionaryChunker.caseSensitive) "case-sensitive" else "case-insensitive"
+            val allMatches = if (overlap) "overlapping" else "non-overlapping"
+            val caseSensitivity = if (caseSensitive) "case-sensitive" else "case-insensitive"
             "LingPipeExactSpotter["+allMatches+","+caseSensitivity+"]"
         } else {
             name
@@ -0,0 +1,265 @@
+package org.dbpedia.spotlight.spot.opennlp
+
+import java.io._
+import com.aliasi.dict.Dictionary
+import com.aliasi.tokenizer.IndoEuropeanTokenizerFactory
+import com.aliasi.util.AbstractExternalizable
+import collection.mutable.{ArrayBuffer, HashMap}
+import org.dbpedia.spotlight.log.SpotlightLog
+import scala.collection.JavaConversions._
+
+/**
+ * An immutable surface form dictionary that is shared by the spotters (LingPipeSpotter, OpenNLPChunkerSpotter).
+ * It is built at once with CompactSurfaceFormDictionary.fromSurfaceForms, so it is only a [[org.dbpedia.spotlight.spot.opennlp.SurfaceFormLookup]].
+ *
+ * Surface forms are tokenized like LingPipe's ExactDictionaryChunker does (IndoEuropeanTokenizerFactory) and
+ * stored as sequences of token ids: the vocabulary is a sorted array of tokens (the token id is the position in
+ * the array) and the token id sequences are sorted and concatenated into one int array. The surface forms
+ * starting with a given sequence of tokens are a contiguous range of sequences, so the dictionary can be
+ * searched token by token to find the surface forms in a text.
+ *
+ * @param caseSensitive if false, tokens are lowercased for building and searching the dictionary
+ */
+class CompactSurfaceFormDictionary private (val caseSensitive: Boolean,
+                                            vocabulary: Array[String],
+                                            tokenIds: Array[Int],
+                                            starts: Array[Int]) extends SurfaceFormLookup(caseSensitive) {
+
+  import CompactSurfaceFormDictionary._
+
+  def size = starts.length - 1
+
+  private def length(sequence: Int) = starts(sequence + 1) - starts(sequence)
+
+  /**
+   * Id of the token, or -1 if it is not in the vocabulary.
+   */
+  def tokenId(token: String): Int = {
+    val id = java.util.Arrays.binarySearch(vocabulary.asInstanceOf[Array[Object]], normalizeEntry(token))
+    if (id < 0) -1 else id
+  }
+
+  /**
+   * Compares the token at position k of the sequence with id. Sequences with k or less tokens are smaller.
+   */
+  private def compareAt(sequence: Int, k: Int, id: Int) = {
+    if (length(sequence) <= k) -1 else tokenIds(starts(sequence) + k) compare id
+  }
+
+  /**
+   * Narrows the range [from, until) of sequences sharing their first k tokens to the sequences
+   * that have id as (k+1)-th token.
+   */
+  private def narrow(from: Int, until: Int, k: Int, id: Int): (Int, Int) = {
+    var low = from
+    var high = until
+    while (low < high) {
+      val mid = (low + high) >>> 1
+      if (compareAt(mid, k, id) < 0) low = mid + 1 else high = mid
+    }
+    val first = low
+    high = until
+    while (low < high) {
+      val mid = (low + high) >>> 1
+      if (compareAt(mid, k, id) <= 0) low = mid + 1 else high = mid
+    }
+    (first, low)
+  }
+
+  /**
+   * Calls f(length) for each surface form that matches the token ids starting at position from, shortest first.
+   */
+  private def foreachMatch(ids: Array[Int], from: Int)(f: Int => Unit) {
+    var range = (0, size)
+    var k = 0
+    while (from + k < ids.length && ids(from + k) != -1 && range._1 < range._2) {
+      range = narrow(range._1, range._2, k, ids(from + k))
+      k += 1
+      // the sequence with exactly k tokens comes first in the range
+      if (range._1 < range._2 && length(range._1) == k)
+        f(k)
+    }
+  }
+
+  def contains(surfaceForm: String): Boolean = {
+    val ids = tokenize(surfaceForm).map(token => tokenId(token._1))
+    var found = false
+    if (ids.length > 0)
+      foreachMatch(ids, 0)(length => if (length == ids.length) found = true)
+    found
+  }
+
+  /**
+   * Finds the surface forms in the text.
+   *
+   * @param overlap if true, all matches are returned, otherwise the leftmost longest non-overlapping matches
+   * @return character offsets (start, end) of the matches, ordered by start
+   */
+  def find(text: String, overlap: Boolean): Seq[(Int, Int)] = {
+    val tokens = tokenize(text)
+    val ids = tokens.map(token => tokenId(token._1))
+    val matches = new ArrayBuffer[(Int, Int)]()
+
+    var i = 0
+    while (i < ids.length) {
+      var longest = 0
+      foreachMatch(ids, i)(length => {
+        if (overlap)
+          matches += ((tokens(i)._2, tokens(i + length - 1)._3))
+        longest = length
+      })
+      if (!overlap && longest > 0) {
+        matches += ((tokens(i)._2, tokens(i + longest - 1)._3))
+        i += longest
+      } else {
+        i += 1
+      }
+    }
+    matches
+  }
+
+  /**
+   * The surface forms in the dictionary, with their tokens separated by spaces.
+   */
+  def surfaceForms: Iterator[String] = (0 until size).iterator.map(sequence =>
+    (starts(sequence) until starts(sequence + 1)).map(i => vocabulary(tokenIds(i))).mkString(" "))
+
+  def save(file: File) {
+    val out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))
+    try {
+      out.writeInt(Magic)
+      out.writeInt(Format)
+      out.writeBoolean(caseSensitive)
+      out.writeInt(vocabulary.length)
+      vocabulary.foreach(out.writeUTF(_))
+      out.writeInt(starts.length)
+      starts.foreach(out.writeInt(_))
+      tokenIds.foreach(out.writeInt(_))
+    } finally {
+      out.close()
+    }
+  }
+
+}
+
+object CompactSurfaceFormDictionary {
+
+  private val Magic = 0x53464443 // "SFDC"
+  private val Format = 1
+
+  /**
+   * Tokens of the text with their start and end offsets.
+   */
+  def tokenize(text: String): Array[(String, Int, Int)] = {
+    val tokenizer = IndoEuropeanTokenizerFactory.INSTANCE.tokenizer(text.toCharArray, 0, text.length)
+    val tokens = new ArrayBuffer[(String, Int, Int)]()
+    var token = tokenizer.nextToken()
+    while (token != null) {
+      tokens += ((token, tokenizer.lastTokenStartPosition, tokenizer.lastTokenEndPosition))
+      token = tokenizer.nextToken()
+    }
+    tokens.toArray
+  }
+
+  def fromSurfaceForms(surfaceForms: TraversableOnce[String], caseSensitive: Boolean): CompactSurfaceFormDictionary = {
+    val start = System.currentTimeMillis()
+    def normalize(token: String) = if (caseSensitive) token else token.toLowerCase
+
+    val tokenSequences = new ArrayBuffer[Array[String]]()
+    val vocabularySet = new collection.mutable.HashSet[String]()
+    surfaceForms.foreach(surfaceForm => {
+      val tokens = tokenize(surfaceForm).map(token => normalize(token._1))
+      if (tokens.length > 0) {
+        tokenSequences += tokens
+        vocabularySet ++= tokens
+      }
+    })
+
+    val vocabulary = vocabularySet.toArray
+    scala.util.Sorting.quickSort(vocabulary)
+    val ids = new HashMap[String, Int]()
+    vocabulary.zipWithIndex.foreach { case (token, id) => ids(token) = id }
+    vocabularySet.clear()
+
+    val sequences = tokenSequences.map(_.map(ids)).toArray
+    tokenSequences.clear()
+    scala.util.Sorting.quickSort(sequences)(SequenceOrdering)
+
+    val starts = new ArrayBuffer[Int]()
+    val tokenIds = new ArrayBuffer[Int]()
+    var previous: Array[Int] = null
+    for (sequence <- sequences if previous == null || SequenceOrdering.compare(previous, sequence) != 0) {
+      starts += tokenIds.size
+      tokenIds ++= sequence
+      previous = sequence
+    }
+    starts += tokenIds.size
+
+    SpotlightLog.info(this.getClass, "Built surface form dictionary with %d surface forms and %d tokens in %d ms.",
+      starts.size - 1, vocabulary.length, System.currentTimeMillis() - start)
+    new CompactSurfaceFormDictionary(caseSensitive, vocabulary, tokenIds.toArray, starts.toArray)
+  }
+
+  def fromLingPipeDictionary(dictionary: Dictionary[String], caseSensitive: Boolean): CompactSurfaceFormDictionary = {
+    fromSurfaceForms(dictionary.entryList().iterator.map(_.phrase()), caseSensitive)
+  }
+
+  /**
+   * Loads the dictionary saved next to the serialized LingPipe dictionary (dictionaryFile + ".compact") if it is
+   * newer than the LingPipe dictionary and has the same case sensitivity. Otherwise, the dictionary is built
+   * from the LingPipe dictionary and saved for the next time.
+   */
+  def fromLingPipeDictionaryFile(dictionaryFile: File, caseSensitive: Boolean): CompactSurfaceFormDictionary = {
+    val compactFile = new File(dictionaryFile.getPath + ".compact")
+
+    if (compactFile.exists && compactFile.lastModified >= dictionaryFile.lastModified) {
+      try {
+        val dictionary = load(compactFile)
+        if (dictionary.caseSensitive == caseSensitive)
+          return dictionary
+        SpotlightLog.info(this.getClass, "%s was built with different case sensitivity, rebuilding.", compactFile)
+      } catch {
+        case e: IOException => SpotlightLog.warn(this.getClass, "Could not load %s, rebuilding: %s", compactFile, e.getMessage)
+      }
+    }
+
+    val dictionary = fromLingPipeDictionary(
+      AbstractExternalizable.readObject(dictionaryFile).asInstanceOf[Dictionary[String]], caseSensitive)
+    try {
+      dictionary.save(compactFile)
+    } catch {
+      case e: IOException => SpotlightLog.warn(this.getClass, "Could not save %s, it will be rebuilt next time: %s", compactFile, e.getMessage)
+    }
+    dictionary
+  }
+
+  def load(file: File): CompactSurfaceFormDictionary = {
+    val in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))
+    try {
+      if (in.readInt() != Magic || in.readInt() != Format)
+        throw new IOException("%s is not a surface form dictionary in the current format.".format(file))
+      val caseSensitive = in.readBoolean()
+      val vocabulary = Array.fill(in.readInt())(in.readUTF())
+      val starts = Array.fill(in.readInt())(in.readInt())
+      val tokenIds = Array.fill(starts.last)(in.readInt())
+
+      SpotlightLog.info(this.getClass, "Loaded surface form dictionary with %d surface forms from %s.", starts.length - 1, file)
+      new CompactSurfaceFormDictionary(caseSensitive, vocabulary, tokenIds, starts)
+    } finally {
+      in.close()
+    }
+  }
+
+  private object SequenceOrdering extends Ordering[Array[Int]] {
+    def compare(a: Array[Int], b: Array[Int]): Int = {
+      var i = 0
+      while (i < a.length && i < b.length) {
+        if (a(i) != b(i))
+          return a(i) compare b(i)
+        i += 1
+      }
+      a.length compare b.length
+    }
+  }
+
+}
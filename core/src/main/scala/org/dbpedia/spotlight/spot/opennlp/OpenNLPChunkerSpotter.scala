@@ -29,7 +29,7 @@ class OpenNLPChunkerSpotter(
   tokenizerModel: File,
   posModel: File,
   chunkerModel: File,
-  surfaceFormDictionary: SurfaceFormDictionary,
+  surfaceFormDictionary: SurfaceFormLookup,
   stopwords: java.util.Set[String]
 ) extends Spotter {
 
@@ -99,7 +99,7 @@ class OpenNLPChunkerSpotter(
 
 object OpenNLPChunkerSpotter {
 
-    def fromDir(openNLPDir: String, i18nLanguageCode:String, sfDict: SurfaceFormDictionary, stopwordsFile: File) : OpenNLPChunkerSpotter = {
+    def fromDir(openNLPDir: String, i18nLanguageCode:String, sfDict: SurfaceFormLookup, stopwordsFile: File) : OpenNLPChunkerSpotter = {
         val stopwords = new HashSet[String]()
         Source.fromFile(stopwordsFile).getLines().foreach { line =>
           stopwords.add(line.trim())
@@ -107,7 +107,7 @@ object OpenNLPChunkerSpotter {
         fromDir(openNLPDir,i18nLanguageCode,sfDict,stopwords.toSet.asJava)
     }
 
-    def fromDir(openNLPDir: String, i18nLanguageCode:String, sfDict: SurfaceFormDictionary, stopwords: java.util.Set[String]) : OpenNLPChunkerSpotter = {
+    def fromDir(openNLPDir: String, i18nLanguageCode:String, sfDict: SurfaceFormLookup, stopwords: java.util.Set[String]) : OpenNLPChunkerSpotter = {
         new OpenNLPChunkerSpotter(new File(openNLPDir, i18nLanguageCode + OpenNLPUtil.OpenNlpModels.SentenceModel.filename),
               new File(openNLPDir, i18nLanguageCode + OpenNLPUtil.OpenNlpModels.TokenizerModel.filename),
               new File(openNLPDir, i18nLanguageCode + OpenNLPUtil.OpenNlpModels.POSModel.filename),
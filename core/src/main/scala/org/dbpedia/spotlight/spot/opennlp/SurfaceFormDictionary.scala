@@ -13,16 +13,22 @@ import scala.collection.JavaConversions._
 
 
 /**
- * A surface form dictionary (or set, lookup) can be used to check if a surface form
+ * A surface form lookup can be used to check if a surface form
  * is known to be a valid spot candidate.
  */
-abstract class SurfaceFormDictionary(caseSensitive: Boolean = true) {
+abstract class SurfaceFormLookup(caseSensitive: Boolean = true) {
   def contains(surfaceForm: String): Boolean
-  def add(surfaceForm: String)
   def normalizeEntry(entry: String) = if(caseSensitive) entry else entry.toLowerCase
   def size: Int
 }
 
+/**
+ * A surface form dictionary (or set) is a lookup that surface forms can be added to.
+ */
+abstract class SurfaceFormDictionary(caseSensitive: Boolean = true) extends SurfaceFormLookup(caseSensitive) {
+  def add(surfaceForm: String)
+}
+
 /**
  * This is a SurfaceForm dictionary using a HashSet, hence it is fully reliable but requires more space
  * than a fuzzy dictionary.
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2011 DBpedia Spotlight Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dbpedia.spotlight.lucene.search;
+
+import org.dbpedia.spotlight.model.SurfaceForm;
+import org.dbpedia.spotlight.model.Text;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the queries recorded by the background writer end up in the log and that the log is rotated.
+ */
+public class QueryLogTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("queries", ".tsv");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        new File(file.getPath() + ".1").delete();
+    }
+
+    private static List<String> lines(File f) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(f), "UTF-8"));
+        try {
+            String line;
+            while ((line = in.readLine()) != null)
+                lines.add(line);
+        } finally {
+            in.close();
+        }
+        return lines;
+    }
+
+    @Test
+    public void testRecordedQueriesAreWritten() throws IOException {
+        QueryLog log = new QueryLog(file, 1.0);
+        log.record(new SurfaceForm("Berlin"), new Text("capital\tof\nGermany"));
+        log.record(new SurfaceForm("Paris"), new Text("capital of France"));
+        log.close();
+
+        List<String> lines = lines(file);
+        assertEquals(0, log.getDropped());
+        assertEquals(2, lines.size());
+        assertEquals("Berlin\tcapital of Germany", lines.get(0));
+        assertEquals("Paris\tcapital of France", lines.get(1));
+
+        // recording stops when the log is closed
+        log.record(new SurfaceForm("Rome"), new Text("capital of Italy"));
+        assertEquals(2, lines(file).size());
+    }
+
+    @Test
+    public void testNothingIsRecordedWithoutSampling() throws IOException {
+        QueryLog log = new QueryLog(file, 0.0);
+        for (int i = 0; i < 100; i++)
+            log.record(new SurfaceForm("Berlin"), new Text("capital of Germany"));
+        log.close();
+
+        assertEquals(0, lines(file).size());
+    }
+
+    @Test
+    public void testLogIsRotated() throws IOException {
+        QueryLog log = new QueryLog(file, 1.0, 100);
+        for (int i = 0; i < 50; i++)
+            log.record(new SurfaceForm("Berlin"), new Text("query " + i));
+        log.close();
+
+        File rotated = new File(file.getPath() + ".1");
+        assertTrue(rotated.exists());
+        assertTrue(rotated.length() > 100);
+        assertTrue(rotated.length() < 200);
+        assertTrue(file.length() <= 100);
+
+        // the last query is in the current log, or ended the rotated one
+        List<String> current = lines(file);
+        List<String> last = current.isEmpty() ? lines(rotated) : current;
+        assertEquals("Berlin\tquery 49", last.get(last.size() - 1));
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.lucene.similarity;
+
+import org.apache.lucene.util.OpenBitSet;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the compressed doc ID sets against OpenBitSet, for sparse (array) and dense (bitmap) containers.
+ */
+public class CompressedDocIdSetTest {
+
+    static final int MAX_DOC = 300000;
+
+    private OpenBitSet randomBits(Random random, double density) {
+        OpenBitSet bits = new OpenBitSet(MAX_DOC);
+        for (int doc = 0; doc < MAX_DOC; doc++) {
+            // the second partition is always dense, the others follow the density
+            if (random.nextDouble() < ((doc >>> 16) == 1 ? 0.5 : density))
+                bits.set(doc);
+        }
+        return bits;
+    }
+
+    @Test
+    public void testCardinalityAndContains() {
+        Random random = new Random(42);
+        OpenBitSet bits = randomBits(random, 0.01);
+        CompressedDocIdSet docs = CompressedDocIdSet.fromOpenBitSet(bits);
+
+        assertEquals(bits.cardinality(), docs.cardinality());
+        for (int doc = 0; doc < MAX_DOC; doc++)
+            assertEquals(bits.get(doc), docs.contains(doc));
+        assertEquals(bits, docs.toOpenBitSet(MAX_DOC));
+    }
+
+    @Test
+    public void testIntersection() {
+        Random random = new Random(23);
+        double[] densities = {0.0001, 0.01, 0.2};
+
+        for (double d1 : densities) {
+            for (double d2 : densities) {
+                OpenBitSet bits1 = randomBits(random, d1);
+                OpenBitSet bits2 = randomBits(random, d2);
+                CompressedDocIdSet docs1 = CompressedDocIdSet.fromOpenBitSet(bits1);
+                CompressedDocIdSet docs2 = CompressedDocIdSet.fromOpenBitSet(bits2);
+
+                OpenBitSet expected = (OpenBitSet) bits1.clone();
+                expected.and(bits2);
+
+                assertEquals(expected.cardinality(), docs1.intersectCardinality(docs2));
+                assertEquals(expected.cardinality(), docs2.intersectCardinality(docs1));
+
+                CompressedDocIdSet intersection = docs1.and(docs2);
+                assertEquals(expected.cardinality(), intersection.cardinality());
+                assertEquals(expected, intersection.toOpenBitSet(MAX_DOC));
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        CompressedDocIdSet empty = new CompressedDocIdSet.Builder().build();
+        CompressedDocIdSet docs = CompressedDocIdSet.fromOpenBitSet(randomBits(new Random(1), 0.01));
+
+        assertEquals(0, empty.cardinality());
+        assertEquals(0, empty.intersectCardinality(docs));
+        assertEquals(0, docs.and(empty).cardinality());
+        assertFalse(empty.contains(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnorderedAdd() {
+        CompressedDocIdSet.Builder builder = new CompressedDocIdSet.Builder();
+        builder.add(10);
+        builder.add(5);
+    }
+
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2011 DBpedia Spotlight Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dbpedia.spotlight.lucene.similarity;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.OpenBitSet;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the term-keyed methods of the compressed cache against the documents in the index.
+ */
+public class CompressedTermCacheTest {
+
+    private IndexReader reader;
+    private CompressedTermCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Version.LUCENE_36, new WhitespaceAnalyzer(Version.LUCENE_36)));
+        String[] texts = {"berlin germany", "berlin wall", "paris france", "berlin paris"};
+        for (String text : texts) {
+            Document doc = new Document();
+            doc.add(new Field("context", text, Field.Store.NO, Field.Index.ANALYZED));
+            writer.addDocument(doc);
+        }
+        writer.close();
+
+        reader = IndexReader.open(dir);
+        cache = new CompressedTermCache(null, 1 << 20);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.close();
+    }
+
+    @Test
+    public void testGetAfterLookup() throws Exception {
+        Term berlin = new Term("context", "berlin");
+        assertNull(cache.get(berlin));
+
+        assertEquals(3, cache.cardinality(reader, berlin));
+        assertTrue(cache.containsKey(berlin));
+        assertEquals(cache.createDocIdSet(reader, berlin), cache.get(berlin));
+        assertFalse(cache.containsKey(new Term("context", "france")));
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        Term paris = new Term("context", "paris");
+        assertEquals(2, cache.cardinality(reader, paris));
+
+        Term france = new Term("context", "france");
+        OpenBitSet docs = cache.createDocIdSet(reader, france);
+        assertNull(cache.put(france, docs));
+        assertEquals(docs, cache.get(france));
+        assertEquals(1, cache.cardinality(reader, paris, france));
+
+        // the cache keeps its own copy
+        docs.set(0);
+        assertEquals(1, cache.get(france).cardinality());
+        assertEquals(1, cache.put(france, docs).cardinality());
+        assertEquals(2, cache.get(france).cardinality());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPutWithoutReader() {
+        cache.put(new Term("context", "berlin"), new OpenBitSet(4));
+    }
+
+}
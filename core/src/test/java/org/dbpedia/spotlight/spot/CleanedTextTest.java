@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.spot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that offsets in the cleaned text are mapped back to the same characters in the original text.
+ */
+public class CleanedTextTest {
+
+    /**
+     * Every character of the cleaned text must be found at its mapped offset in the original text.
+     */
+    private static void assertOffsetsMapped(CleanedText cleanedText) {
+        String original = cleanedText.getOriginal();
+        String cleaned = cleanedText.getCleaned();
+
+        int previous = -1;
+        for (int i = 0; i < cleaned.length(); i++) {
+            int offset = cleanedText.toOriginalOffset(i);
+            assertTrue(offset > previous);
+            assertEquals(cleaned.charAt(i), original.charAt(offset));
+            previous = offset;
+        }
+    }
+
+    @Test
+    public void testUnchangedText() {
+        String text = "Berlin is the capital of Germany.";
+        CleanedText cleanedText = CleanedText.removeQuotes(text);
+
+        assertTrue(cleanedText.isUnchanged());
+        assertSame(text, cleanedText.getCleaned());
+        for (int i = 0; i <= text.length(); i++)
+            assertEquals(i, cleanedText.toOriginalOffset(i));
+    }
+
+    @Test
+    public void testQuotesAndCommasAreRemoved() {
+        String text = "He said \"Berlin, Germany\" and „Paris“, «Rome» or ‘Madrid’.";
+        CleanedText cleanedText = CleanedText.removeQuotes(text);
+
+        assertFalse(cleanedText.isUnchanged());
+        assertEquals(text, cleanedText.getOriginal());
+        assertEquals("He said Berlin Germany and Paris Rome or Madrid.", cleanedText.getCleaned());
+        assertOffsetsMapped(cleanedText);
+
+        //Surface forms found in the cleaned text start at the same surface form in the original text
+        for (String surfaceForm : new String[] {"He", "Berlin", "Germany", "Paris", "Rome", "Madrid"}) {
+            int offset = cleanedText.toOriginalOffset(cleanedText.getCleaned().indexOf(surfaceForm));
+            assertEquals(text.indexOf(surfaceForm), offset);
+        }
+    }
+
+    @Test
+    public void testRemovedCharactersAtStartAndEnd() {
+        String text = "\"“,Berlin,”\"";
+        CleanedText cleanedText = CleanedText.removeQuotes(text);
+
+        assertEquals("Berlin", cleanedText.getCleaned());
+        assertOffsetsMapped(cleanedText);
+        assertEquals(3, cleanedText.toOriginalOffset(0));
+        assertEquals(text.length(), cleanedText.toOriginalOffset(cleanedText.getCleaned().length()));
+    }
+
+    @Test
+    public void testAllCharactersRemoved() {
+        CleanedText cleanedText = CleanedText.removeQuotes("\",\"");
+
+        assertFalse(cleanedText.isUnchanged());
+        assertEquals("", cleanedText.getCleaned());
+        assertEquals(3, cleanedText.toOriginalOffset(0));
+    }
+
+    @Test
+    public void testManyRemovedCharacters() {
+        StringBuilder text = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append((char) ('a' + i % 26)).append(i % 3 == 0 ? ",\"" : ",");
+            expected.append((char) ('a' + i % 26));
+        }
+        CleanedText cleanedText = CleanedText.removeQuotes(text.toString());
+
+        assertEquals(expected.toString(), cleanedText.getCleaned());
+        assertOffsetsMapped(cleanedText);
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.spot.cooccurrence.features.data;
+
+import junit.framework.TestCase;
+import org.dbpedia.spotlight.exceptions.InitializationException;
+import org.dbpedia.spotlight.exceptions.ItemNotFoundException;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tests for the memory-mapped occurrence data provider: data written by the
+ * {@link OccurrenceDataFileWriter} must be read back unchanged.
+ */
+
+public class OccurrenceDataProviderMMapTest extends TestCase {
+
+	File dataFile;
+	OccurrenceDataProviderMMap occurrenceDataProvider;
+
+	public void setUp() throws IOException, InitializationException {
+
+		OccurrenceDataFileWriter writer = new OccurrenceDataFileWriter();
+		writer.addWord(3, "sky", 30, 300);
+		writer.addWord(1, "blue", 10, 100);
+		writer.addWord(2, "the", 20, 200);
+		for (int i = 100; i < 1100; i++)
+			writer.addWord(i, "word" + i, i, 2 * i);
+
+		// Words with the same key as "blue"
+		long blueKey = OccurrenceDataProviderMMap.wordKey(OccurrenceDataProviderMMap.wordBytes("blue"));
+		writer.addWord(blueKey, 4, OccurrenceDataProviderMMap.wordBytes("green"), 40, 400);
+		writer.addWord(blueKey, 5, OccurrenceDataProviderMMap.wordBytes("blu"), 50, 500);
+
+		writer.addBigram(1, 3, 1234);
+		writer.addBigram(2, 1, 56);
+		writer.addTrigram(2, 1, 3, 789);
+		writer.addTrigram(2, 1, 4, 790);
+		writer.addTrigram(2, 1, 1, 791);
+
+		dataFile = File.createTempFile("occurrences", ".occ");
+		writer.write(dataFile);
+
+		occurrenceDataProvider = new OccurrenceDataProviderMMap(dataFile);
+	}
+
+	public void tearDown() {
+		dataFile.delete();
+	}
+
+	public void testCandidateData() throws ItemNotFoundException {
+
+		CandidateData blue = occurrenceDataProvider.getCandidateData("blue");
+		assertEquals(1, blue.getId());
+		assertEquals("blue", blue.getToken());
+		assertEquals(10, blue.getCountWikipedia().longValue());
+		assertEquals(100, blue.getCountWeb().longValue());
+
+		for (int i = 100; i < 1100; i++)
+			assertEquals(2 * i, occurrenceDataProvider.getCandidateData("word" + i).getCountWeb().longValue());
+	}
+
+	public void testUnknownCandidate() {
+		try {
+			occurrenceDataProvider.getCandidateData("red");
+			fail("Found unknown candidate.");
+		} catch (ItemNotFoundException expected) { }
+	}
+
+	public void testCandidatesWithSameKey() throws ItemNotFoundException {
+
+		// "blu" and "green" are stored under the key of "blue" and must not be returned for "blue"
+		assertEquals(1, occurrenceDataProvider.getCandidateData("blue").getId());
+		assertEquals(10, occurrenceDataProvider.getCandidateData("blue").getCountWikipedia().longValue());
+
+		for (String word : new String[] {"green", "blu", "bluee"}) {
+			try {
+				occurrenceDataProvider.getCandidateData(word);
+				fail("Found candidate with different bytes.");
+			} catch (ItemNotFoundException expected) { }
+		}
+	}
+
+	public void testSentenceDataIsNotSupported() throws ItemNotFoundException {
+		try {
+			occurrenceDataProvider.getSentenceData(occurrenceDataProvider.getCandidateData("sky"), null);
+			fail("Returned sentence data.");
+		} catch (UnsupportedOperationException expected) { }
+	}
+
+	public void testNGramData() throws ItemNotFoundException {
+
+		CandidateData the = occurrenceDataProvider.getCandidateData("the");
+		CandidateData blue = occurrenceDataProvider.getCandidateData("blue");
+		CandidateData sky = occurrenceDataProvider.getCandidateData("sky");
+
+		assertEquals(1234f, occurrenceDataProvider.getBigramData(blue, sky).getUnitSignificanceWeb(), 0f);
+		assertEquals(789, occurrenceDataProvider.getTrigramData(the, blue, sky).getUnitCountWeb());
+		assertEquals(791, occurrenceDataProvider.getTrigramData(the, blue, blue).getUnitCountWeb());
+
+		try {
+			occurrenceDataProvider.getBigramData(sky, blue);
+			fail("Found unknown bigram.");
+		} catch (ItemNotFoundException expected) { }
+
+		try {
+			occurrenceDataProvider.getTrigramData(sky, blue, the);
+			fail("Found unknown trigram.");
+		} catch (ItemNotFoundException expected) { }
+	}
+
+}
@@ -0,0 +1,149 @@
+package org.dbpedia.spotlight.db.memory
+
+import org.junit.Test
+import org.junit.Assert._
+import java.util.concurrent.{ConcurrentLinkedQueue, CountDownLatch}
+import java.util.concurrent.atomic.AtomicBoolean
+import org.dbpedia.spotlight.model._
+import org.dbpedia.spotlight.exceptions.{DBpediaResourceNotFoundException, SurfaceFormNotFoundException}
+import scala.collection.JavaConversions._
+
+/**
+ * Reads the views of the delta while occurrences are added and the delta is compacted.
+ */
+class MemoryStoreDeltaTest {
+
+    private val nWriters = 4
+    private val nReaders = 4
+    private val occurrencesPerWriter = 2000
+
+    private def createDelta(): MemoryStoreDelta = {
+        val sfStore = new MemorySurfaceFormStore()
+        sfStore.stringForID = Array("Berlin", "Paris")
+        sfStore.annotatedCountForID = Array(10, 5)
+        sfStore.totalCountForID = Array(20, 10)
+        sfStore.loaded()
+
+        val resStore = new MemoryResourceStore()
+        resStore.uriForID = Array("Berlin", "Paris")
+        resStore.supportForID = Array(10, 5)
+        resStore.typesForID = Array(new Array[java.lang.Short](0), new Array[java.lang.Short](0))
+        resStore.loaded()
+
+        val candMapStore = new MemoryCandidateMapStore()
+        candMapStore.candidates = Array(Array(0), Array(1))
+        candMapStore.candidateCounts = Array(Array(10), Array(5))
+        candMapStore.resourceStore = resStore
+
+        new MemoryStoreDelta(sfStore, resStore, candMapStore, null, null)
+    }
+
+    private def occurrence(sf: String, uri: String, i: Int) =
+        new DBpediaResourceOccurrence(new DBpediaResource(uri), new SurfaceForm(sf), new Text("text " + i), 0)
+
+    private def candidateCount(delta: MemoryStoreDelta, sf: String, uri: String): Int = {
+        delta.candidateMapStore.getCandidates(delta.surfaceFormStore.getSurfaceForm(sf))
+          .find(_.resource.uri == uri).map(_.support).getOrElse(0)
+    }
+
+    @Test
+    def readWhileUpdating() {
+        val delta = createDelta()
+        val errors = new ConcurrentLinkedQueue[Throwable]()
+        val writing = new AtomicBoolean(true)
+        val start = new CountDownLatch(1)
+
+        def thread(body: => Unit) = new Thread(new Runnable {
+            def run() {
+                try {
+                    start.await()
+                    body
+                } catch {
+                    case e: Throwable => errors.add(e)
+                }
+            }
+        })
+
+        val writers = (0 until nWriters).map(w => thread {
+            (0 until occurrencesPerWriter).foreach(i => {
+                delta.add(List(occurrence("Berlin", "Berlin", i), occurrence("Berlin Wall", "Berlin_Wall", i)))
+            })
+        })
+
+        //the counts seen by a reader never decrease, also not while the delta is compacted
+        val readers = (0 until nReaders).map(r => thread {
+            var lastCount = 0
+            var lastCandidates = 0
+            while (writing.get) {
+                val count = delta.surfaceFormStore.getSurfaceForm("Berlin").annotatedCount
+                assertTrue("count decreased from %d to %d".format(lastCount, count), count >= lastCount)
+                lastCount = count
+
+                val candidates = candidateCount(delta, "Berlin", "Berlin")
+                assertTrue("candidate count decreased", candidates >= lastCandidates)
+                lastCandidates = candidates
+
+                try {
+                    val sf = delta.surfaceFormStore.getSurfaceForm("Berlin Wall")
+                    assertTrue(sf.id >= 2)
+                    assertEquals("Berlin_Wall", delta.resourceStore.getResourceByName("Berlin_Wall").uri)
+                } catch {
+                    case e: SurfaceFormNotFoundException => //not added yet
+                    case e: DBpediaResourceNotFoundException => //surface form added, resource not yet
+                }
+            }
+        })
+
+        val compactor = thread {
+            while (writing.get) {
+                delta.compact()
+                Thread.sleep(5)
+            }
+        }
+
+        (writers ++ readers :+ compactor).foreach(_.start())
+        start.countDown()
+        writers.foreach(_.join())
+        writing.set(false)
+        (readers :+ compactor).foreach(_.join())
+
+        errors.foreach(e => throw e)
+
+        val total = nWriters * occurrencesPerWriter
+        for (compacted <- List(false, true)) {
+            if (compacted)
+                delta.compact()
+
+            assertEquals(10 + total, delta.surfaceFormStore.getSurfaceForm("Berlin").annotatedCount)
+            assertEquals(20 + total, delta.surfaceFormStore.getSurfaceForm("Berlin").totalCount)
+            assertEquals(10 + total, candidateCount(delta, "Berlin", "Berlin"))
+            assertEquals(total, candidateCount(delta, "Berlin Wall", "Berlin_Wall"))
+            assertEquals(5, delta.surfaceFormStore.getSurfaceForm("Paris").annotatedCount)
+        }
+        assertEquals(0, delta.pendingOccurrences)
+    }
+
+    @Test
+    def newSurfaceFormsGetOneID() {
+        val delta = createDelta()
+        val start = new CountDownLatch(1)
+
+        val threads = (0 until nWriters).map(w => new Thread(new Runnable {
+            def run() {
+                start.await()
+                (0 until 100).foreach(i => delta.add(List(occurrence("Sf " + i, "Res_" + i, i))))
+            }
+        }))
+        threads.foreach(_.start())
+        start.countDown()
+        threads.foreach(_.join())
+
+        (0 until 100).foreach(i => {
+            val sf = delta.surfaceFormStore.getSurfaceForm("Sf " + i)
+            assertEquals(nWriters, sf.annotatedCount)
+            assertEquals(nWriters, candidateCount(delta, "Sf " + i, "Res_" + i))
+        })
+        assertEquals(2 + 100, delta.surfaceFormStore.iterateSurfaceForms.map(_.id).distinct.size)
+    }
+
+}
@@ -0,0 +1,124 @@
+package org.dbpedia.spotlight.spot.ahocorasick
+
+import java.io.{FileOutputStream, File}
+import org.scalatest._
+import matchers.ShouldMatchers
+import org.dbpedia.spotlight.model.Text
+import scala.collection.JavaConversions._
+
+class AhoCorasickSpotterTest extends FlatSpec with ShouldMatchers {
+
+    val surfaceForms = Seq("Dilma", "Rousseff", "Dilma Rousseff", "Brazil", "President of Brazil", "President",
+        "il", "ma", "Rio", "Rio de Janeiro", "de", "Janeiro", "a", "e")
+
+    val texts = Seq(
+        "Dilma Rousseff is the President of Brazil.",
+        "dilma rousseff visited Rio de Janeiro, (Brazil) and Rio.",
+        "Dilma-Rousseff; Brazilian \"Rio\" de\tJaneiro",
+        "a e a Dilma",
+        "")
+
+    /**
+     * The matches of the former spotter: all substring matches of the surface forms, filtered to
+     * boundary-aligned matches and reduced to the longest of overlapping matches from left to right.
+     */
+    def oldLongestMatches(text: String, caseSensitive: Boolean): Seq[(Int, Int)] = {
+        val fold = (s: String) => if (caseSensitive) s else s.map(Character.toLowerCase(_))
+        val foldedText = fold(text)
+        val pattern = "\\s|\\n|\\t|[,.:;¿?¡!()\\-'\"]"
+
+        val all = surfaceForms.map(fold).distinct.flatMap(sf =>
+            (0 to text.length - sf.length).filter(foldedText.startsWith(sf, _)).map(start => (start, sf.length)))
+        val aligned = all.filter { case (start, length) =>
+            (start == 0 || text.charAt(start - 1).toString.matches(pattern)) &&
+            (start + length >= text.length || text.charAt(start + length).toString.matches(pattern))
+        }.sortWith((a, b) => a._1 < b._1 || (a._1 == b._1 && a._2 > b._2))
+
+        var lastEnd = -1
+        aligned.filter { case (start, length) =>
+            if (start > lastEnd) { lastEnd = start + length; true } else false
+        }
+    }
+
+    def spots(spotter: AhoCorasickSpotter, text: String) =
+        spotter.extract(new Text(text)).map(o => (o.textOffset, o.surfaceForm.name)).toList
+
+    "The Aho-Corasick spotter" should "select the same spots as the former spotter" in {
+        for (caseSensitive <- Seq(true, false); text <- texts) {
+            val spotter = AhoCorasickSpotter.fromSurfaceForms(surfaceForms, caseSensitive, false)
+            val expected = oldLongestMatches(text, caseSensitive).map { case (start, length) => (start, text.substring(start, start + length)) }
+            spots(spotter, text) should equal (expected.toList)
+        }
+    }
+
+    it should "keep only the longest of overlapping matches" in {
+        val spotter = AhoCorasickSpotter.fromSurfaceForms(surfaceForms, true, false)
+        spots(spotter, "President of Brazil Dilma Rousseff") should equal (List((0, "President of Brazil"), (20, "Dilma Rousseff")))
+
+        val matches = spotter.automaton.longestMatches("Rio de Janeiro de Rio")
+        matches should equal (Seq((0, 14), (15, 2), (18, 3)))
+        matches.zip(matches.drop(1)).foreach { case ((start, length), (nextStart, _)) => nextStart should be > (start + length) }
+    }
+
+    it should "report all boundary-aligned matches with overlap" in {
+        val spotter = AhoCorasickSpotter.fromSurfaceForms(surfaceForms, true, true)
+        spots(spotter, "Dilma Rousseff") should equal (List((0, "Dilma Rousseff"), (0, "Dilma"), (6, "Rousseff")))
+    }
+
+    it should "not report matches inside words" in {
+        val spotter = AhoCorasickSpotter.fromSurfaceForms(surfaceForms, false, true)
+        spots(spotter, "Dilmas Brazilian") should equal (List())
+    }
+
+    it should "find the same matches after saving and loading the automaton" in {
+        val dir = new File(System.getProperty("java.io.tmpdir"), "ahocorasick-test-" + System.nanoTime)
+        dir.mkdirs()
+        val sfFile = new File(dir, "surfaceForms.tsv")
+        val out = new FileOutputStream(sfFile)
+        out.write(surfaceForms.mkString("\n").getBytes("UTF-8"))
+        out.close()
+
+        try {
+            val built = AhoCorasickSpotter.fromSurfaceFormsFile(sfFile, false, false)
+            val automatonFile = new File(dir, "surfaceForms.tsv.automaton")
+            automatonFile.exists should be (true)
+            dir.listFiles().filter(_.getName.endsWith(".tmp")) should have size (0)
+
+            val reloaded = new AhoCorasickSpotter(CompactAhoCorasick.load(automatonFile), false)
+            reloaded.automaton.numberOfNodes should equal (built.automaton.numberOfNodes)
+            texts.foreach(text => spots(reloaded, text) should equal (spots(built, text)))
+        } finally {
+            dir.listFiles().foreach(_.delete())
+            dir.delete()
+        }
+    }
+
+    it should "rebuild a truncated automaton" in {
+        val dir = new File(System.getProperty("java.io.tmpdir"), "ahocorasick-test-" + System.nanoTime)
+        dir.mkdirs()
+        val sfFile = new File(dir, "surfaceForms.tsv")
+        val out = new FileOutputStream(sfFile)
+        out.write(surfaceForms.mkString("\n").getBytes("UTF-8"))
+        out.close()
+
+        try {
+            val built = AhoCorasickSpotter.fromSurfaceFormsFile(sfFile, true, false)
+            val automatonFile = new File(dir, "surfaceForms.tsv.automaton")
+            val bytes = new Array[Byte](30)
+            val in = new java.io.FileInputStream(automatonFile)
+            in.read(bytes)
+            in.close()
+            val truncated = new FileOutputStream(automatonFile)
+            truncated.write(bytes)
+            truncated.close()
+
+            val rebuilt = AhoCorasickSpotter.fromSurfaceFormsFile(sfFile, true, false)
+            texts.foreach(text => spots(rebuilt, text) should equal (spots(built, text)))
+            CompactAhoCorasick.load(automatonFile).numberOfNodes should equal (built.automaton.numberOfNodes)
+        } finally {
+            dir.listFiles().foreach(_.delete())
+            dir.delete()
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+package org.dbpedia.spotlight.spot.opennlp
+
+import java.io.File
+import org.scalatest._
+import matchers.ShouldMatchers
+import com.aliasi.dict.{ExactDictionaryChunker, DictionaryEntry, MapDictionary}
+import com.aliasi.tokenizer.IndoEuropeanTokenizerFactory
+import scala.collection.JavaConversions._
+
+class CompactSurfaceFormDictionaryTest extends FlatSpec with ShouldMatchers {
+
+    val surfaceForms = Seq("Berlin", "Berlin Wall", "Fall of the Berlin Wall", "the Berlin", "Wall", "don't",
+        "New York", "New York City", "york", "U.S.", "Rock'n'Roll", "Rio de Janeiro")
+
+    val texts = Seq(
+        "The Fall of the Berlin Wall was seen in New York City and in the U.S.",
+        "the berlin wall, NEW YORK, new york city; don't stop Rock'n'Roll!",
+        "Berlin Berlin Wall Wall York",
+        "Rio  de\tJaneiro and rio de janeiro",
+        "")
+
+    def lingPipeDictionary = {
+        val dictionary = new MapDictionary[String]()
+        surfaceForms.foreach(sf => dictionary.addEntry(new DictionaryEntry[String](sf, "")))
+        dictionary
+    }
+
+    /**
+     * Spots of the former LingPipeSpotter, as (start, end) ordered by start and end.
+     */
+    def chunkerSpots(text: String, overlap: Boolean, caseSensitive: Boolean) = {
+        val chunker = new ExactDictionaryChunker(lingPipeDictionary, IndoEuropeanTokenizerFactory.INSTANCE, overlap, caseSensitive)
+        chunker.chunk(text).chunkSet.toList.map(chunk => (chunk.start, chunk.end)).distinct.sorted
+    }
+
+    "The compact surface form dictionary" should "find the same spots as the LingPipe dictionary chunker" in {
+        for (caseSensitive <- Seq(true, false); overlap <- Seq(true, false); text <- texts) {
+            val dictionary = CompactSurfaceFormDictionary.fromLingPipeDictionary(lingPipeDictionary, caseSensitive)
+            dictionary.find(text, overlap).toList.distinct.sorted should equal (chunkerSpots(text, overlap, caseSensitive))
+        }
+    }
+
+    it should "contain the same surface forms as the exact dictionary" in {
+        val lookups = surfaceForms ++ surfaceForms.map(_.toLowerCase) ++ surfaceForms.map(_.toUpperCase) ++
+            Seq("Berlin Walls", "Fall of the", "New", "City", "Rio de", "")
+
+        for (caseSensitive <- Seq(true, false)) {
+            val compact = CompactSurfaceFormDictionary.fromSurfaceForms(surfaceForms, caseSensitive)
+            val exact = SurfaceFormDictionary.fromIterator(surfaceForms.iterator, new ExactSurfaceFormDictionary(caseSensitive))
+
+            compact.size should equal (exact.size)
+            lookups.foreach(sf => (sf, compact.contains(sf)) should equal ((sf, exact.contains(sf))))
+        }
+    }
+
+    it should "tokenize surface forms like the LingPipe tokenizer" in {
+        val dictionary = CompactSurfaceFormDictionary.fromSurfaceForms(surfaceForms, true)
+        dictionary.contains("don ' t") should be (true)
+        dictionary.contains("Rio   de Janeiro") should be (true)
+        dictionary.surfaceForms.toSet should contain ("don ' t")
+        CompactSurfaceFormDictionary.tokenize("don't").map(_._1).toList should equal (List("don", "'", "t"))
+    }
+
+    it should "find the same spots after saving and loading" in {
+        val file = File.createTempFile("surfaceForms", ".compact")
+        try {
+            for (caseSensitive <- Seq(true, false)) {
+                val dictionary = CompactSurfaceFormDictionary.fromSurfaceForms(surfaceForms, caseSensitive)
+                dictionary.save(file)
+                val loaded = CompactSurfaceFormDictionary.load(file)
+
+                loaded.caseSensitive should equal (caseSensitive)
+                loaded.size should equal (dictionary.size)
+                loaded.surfaceForms.toList should equal (dictionary.surfaceForms.toList)
+                for (overlap <- Seq(true, false); text <- texts)
+                    loaded.find(text, overlap) should equal (dictionary.find(text, overlap))
+                surfaceForms.foreach(sf => loaded.contains(sf.toLowerCase) should equal (dictionary.contains(sf.toLowerCase)))
+            }
+        } finally {
+            file.delete()
+        }
+    }
+
+}
@@ -25,13 +25,18 @@ import org.dbpedia.spotlight.exceptions.SearchException
 
 /**
  * Evaluation class. 
+ *
+ * Besides the accuracy, the time spent spotting and disambiguating, the ambiguity of the mentions and the context
+ * sizes of the disambiguated resources are recorded in a [[org.dbpedia.spotlight.evaluation.PerformanceReport]].
  */
 class BatchEvaluator(val testSource : Traversable[DBpediaResourceOccurrence], val spotter : Spotter, val disambiguatorSet : Set[Disambiguator])
 {
+    val performance = new PerformanceReport("BatchEvaluator")
+
     def listToJavaList[T](l: List[T]) = l.foldLeft(new java.util.ArrayList[T](l.size)){(al, e) => al.add(e); al}
 
     def spot(current: Text, goldList: List[DBpediaResourceOccurrence]) : List[SurfaceFormOccurrence] = {
-        val spottedOcc = spotter.extract(current).toList
+        val spottedOcc = performance.time("spot") { spotter.extract(current).toList }
         //val spottedOccScala : List[SurfaceFormOccurrence] = JavaConversions.asBuffer(spottedOcc).toList
         //should return a list of SfOcc that are in goldSfSet to save time in disambiguating
         val correctlySpottedOccs : List[SurfaceFormOccurrence] = spottedOcc.filter(spotted => (goldList.find(gold => gold.surfaceForm equals spotted.surfaceForm) != None))
@@ -40,7 +45,8 @@ class BatchEvaluator(val testSource : Traversable[DBpediaResourceOccurrence], va
     }
 
     def disambiguate(disambiguator : Disambiguator, correctlySpottedOccs : List[SurfaceFormOccurrence], goldList : List[DBpediaResourceOccurrence]) : Int = {
-        val resOccList = disambiguator.disambiguate(correctlySpottedOccs).toList
+        val resOccList = performance.time("disambiguate " + disambiguator.name) { disambiguator.disambiguate(correctlySpottedOccs).toList }
+        resOccList.foreach(occ => performance.record("contextTerms " + disambiguator.name, disambiguator.contextTermsNumber(occ.resource)))
         //val resList = JavaConversions.asBuffer(resOccList).toList
         val resMatch = compare(goldList, resOccList)
         resMatch
@@ -97,7 +103,11 @@ class BatchEvaluator(val testSource : Traversable[DBpediaResourceOccurrence], va
 
                     //Remove Unambiguous (ambiguity==1)
                     //TODO FIXME Note that we just use the first disambiguator to measure ambiguity. This doesn't guarantee that all disambiguators will find this ambiguous
-                    val correctlySpottedAmbOccs = correctlySpottedOccs.filter(occ => disambiguatorSet.head.ambiguity(occ.surfaceForm) > 1)
+                    val correctlySpottedAmbOccs = correctlySpottedOccs.filter(occ => {
+                        val ambiguity = disambiguatorSet.head.ambiguity(occ.surfaceForm)
+                        performance.record("candidatesPerMention", ambiguity)
+                        ambiguity > 1
+                    })
                     var unamb = correctlySpottedOccs.size - correctlySpottedAmbOccs.size
                     totalUnambiguousCount += unamb;
                     SpotlightLog.info(this.getClass, "Unambiguous: %d/%d = %f", totalUnambiguousCount, totalCorrectSfMatches, totalUnambiguousCount.toDouble/totalCorrectSfMatches.toDouble)
@@ -127,6 +137,8 @@ class BatchEvaluator(val testSource : Traversable[DBpediaResourceOccurrence], va
                 goldList ::= testOcc
             }
 
+            performance.recordMemory("heap", PerformanceReport.usedMemory())
+            performance.finish()
 
         }
 
@@ -26,6 +26,8 @@ import org.dbpedia.spotlight.corpus.{PredoseCorpus, MilneWittenCorpus, AidaCorpu
 import org.dbpedia.spotlight.model._
 import org.dbpedia.spotlight.filter.occurrences.{UriWhitelistFilter, RedirectResolveFilter, OccurrenceFilter}
 import scala.Some
+import scala.collection.mutable
+import java.util.concurrent.{ExecutionException, Callable, Future, Executors}
 
 
 
@@ -41,7 +43,15 @@ object EvaluateParagraphDisambiguator {
         bestK;
     }
 
-    def evaluate(testSource: AnnotatedTextSource, disambiguator: ParagraphDisambiguator, outputs: List[OutputGenerator], occFilters: List[OccurrenceFilter] ) {
+    /**
+     * Disambiguates the paragraphs of the test source and reports accuracy, MRR, the latency of disambiguating a paragraph
+     * and the throughput.
+     *
+     * The paragraphs are streamed from the test source and disambiguated by a pool of nThreads threads, at most
+     * 2 * nThreads paragraphs are in progress at any time. Results are written to the outputs and aggregated in the order
+     * of the test source, so the outputs and metrics do not depend on the number of threads.
+     */
+    def evaluate(testSource: AnnotatedTextSource, disambiguator: ParagraphDisambiguator, outputs: List[OutputGenerator], occFilters: List[OccurrenceFilter], nThreads: Int = Runtime.getRuntime.availableProcessors()) {
         val startTime = System.nanoTime()
 
         var i = 0;
@@ -49,28 +59,24 @@ object EvaluateParagraphDisambiguator {
         var nCorrects = 0
         var nOccurrences = 0
         var nOriginalOccurrences = 0
-        val paragraphs = testSource.toList
-        var totalParagraphs = paragraphs.size
-        //testSource.view(10000,15000)
-        val mrrResults = paragraphs.map(a => {
+        var mrrSum = 0.0
+        val latency = new LatencyStatistics()
+
+        val executor = Executors.newFixedThreadPool(nThreads)
+        val pending = new mutable.Queue[(AnnotatedParagraph, Future[List[DisambiguationResult]])]()
+
+        //Takes the results of the oldest paragraph in progress:
+        def collect() {
+            val (a, result) = pending.dequeue()
             i = i + 1
-            SpotlightLog.info(this.getClass, "Paragraph %d/%d: %s.", i, totalParagraphs, a.id)
-            val paragraph = Factory.Paragraph.from(a)
+            SpotlightLog.info(this.getClass, "Paragraph %d: %s.", i, a.id)
             nOriginalOccurrences = nOriginalOccurrences + a.occurrences.toTraversable.size
 
             var acc = 0.0
             try {
-                val bestK = filter(disambiguator.bestK(paragraph,100))
-
-                val goldOccurrences = occFilters.foldLeft(a.occurrences.toTraversable){ (o,f) => f.filterOccs(o) } // discounting URIs from gold standard that we know are disambiguations, fixing redirects, etc.
-
-                goldOccurrences.foreach( correctOccurrence => {
+                result.get().foreach( disambResult => {
                     nOccurrences = nOccurrences + 1
 
-                    val disambResult = new DisambiguationResult(correctOccurrence,                                                     // correct
-                                                                bestK.getOrElse(Factory.SurfaceFormOccurrence.from(correctOccurrence), // predicted
-                                                                                List[DBpediaResourceOccurrence]()))
-
                     outputs.foreach(_.write(disambResult))
 
                     val invRank = if (disambResult.rank>0) (1.0/disambResult.rank) else  0.0
@@ -83,21 +89,41 @@ object EvaluateParagraphDisambiguator {
                 });
                 outputs.foreach(_.flush)
             } catch {
+                case e: ExecutionException => SpotlightLog.error(this.getClass, "%s\n%s", e.getCause.getMessage, e.getCause.getStackTraceString)
                 case e: Exception => SpotlightLog.error(this.getClass, "%s\n%s", e.getMessage, e.getStackTraceString)
             }
             val mrr = if (a.occurrences.size==0) 0.0 else acc / a.occurrences.size
             SpotlightLog.info(this.getClass, "Mean Reciprocal Rank (MRR) = %.5f", mrr)
-            mrr
-        })
+            mrrSum = mrrSum + mrr
+        }
+
+        try {
+            testSource.foreach( a => {
+                pending.enqueue((a, executor.submit(new Callable[List[DisambiguationResult]] {
+                    def call() = disambiguate(a, disambiguator, occFilters, latency)
+                })))
+                if (pending.size >= 2 * nThreads)
+                    collect()
+            })
+            while (!pending.isEmpty)
+                collect()
+        } finally {
+            executor.shutdown()
+        }
+
         val endTime = System.nanoTime()
+        val elapsed = (endTime-startTime) / 1000000000.0
+        val globalMrr = mrrSum / i
         SpotlightLog.info(this.getClass, "********************")
         SpotlightLog.info(this.getClass, "Corpus: %s", testSource.name)
         SpotlightLog.info(this.getClass, "Number of occs: %d (original), %d (processed)", nOriginalOccurrences,nOccurrences)
         SpotlightLog.info(this.getClass, "Disambiguator: %s", disambiguator.name)
         SpotlightLog.info(this.getClass, "Correct URI not found = %d / %d = %.3f", nZeros,nOccurrences,nZeros.toDouble/nOccurrences)
         SpotlightLog.info(this.getClass, "Accuracy = %d / %d = %.3f", nCorrects,nOccurrences,nCorrects.toDouble/nOccurrences)
-        SpotlightLog.info(this.getClass, "Global MRR: %s", mrrResults.sum / mrrResults.size)
-        SpotlightLog.info(this.getClass, "Elapsed time: %s sec", (endTime-startTime) / 1000000000)
+        SpotlightLog.info(this.getClass, "Global MRR: %s", globalMrr)
+        SpotlightLog.info(this.getClass, "Elapsed time: %.1f sec (%d threads)", elapsed, nThreads)
+        SpotlightLog.info(this.getClass, "Throughput: %.2f paragraphs/sec, %.2f occs/sec", i / elapsed, nOccurrences / elapsed)
+        SpotlightLog.info(this.getClass, "Paragraph latency: %s", latency)
         SpotlightLog.info(this.getClass, "********************")
 
         val disambigSummary = "Corpus: %s".format(testSource.name) +
@@ -105,14 +131,37 @@ object EvaluateParagraphDisambiguator {
                     "\nDisambiguator: %s".format(disambiguator.name)+
                     "\nCorrect URI not found = %d / %d = %.3f".format(nZeros,nOccurrences,nZeros.toDouble/nOccurrences)+
                     "\nAccuracy = %d / %d = %.3f".format(nCorrects,nOccurrences,nCorrects.toDouble/nOccurrences) +
-                    "\nGlobal MRR: %s".format(mrrResults.sum / mrrResults.size)+
-                    "\nElapsed time: %s sec".format( (endTime-startTime) / 1000000000);
+                    "\nGlobal MRR: %s".format(globalMrr)+
+                    "\nElapsed time: %.1f sec (%d threads)".format(elapsed, nThreads) +
+                    "\nThroughput: %.2f paragraphs/sec, %.2f occs/sec".format(i / elapsed, nOccurrences / elapsed) +
+                    "\nParagraph latency: %s".format(latency);
 
         outputs.foreach(_.summary(disambigSummary))
 
         outputs.foreach(_.flush)
     }
 
+    /**
+     * Disambiguates one paragraph and ranks the correct resource of each gold occurrence. Runs in the worker threads.
+     */
+    private def disambiguate(a: AnnotatedParagraph, disambiguator: ParagraphDisambiguator, occFilters: List[OccurrenceFilter], latency: LatencyStatistics): List[DisambiguationResult] = {
+        val paragraph = Factory.Paragraph.from(a)
+
+        val start = System.nanoTime()
+        val bestK = filter(disambiguator.bestK(paragraph,100))
+        latency.add(System.nanoTime() - start)
+
+        val goldOccurrences = occFilters.foldLeft(a.occurrences.toTraversable){ (o,f) => f.filterOccs(o) } // discounting URIs from gold standard that we know are disambiguations, fixing redirects, etc.
+
+        goldOccurrences.map( correctOccurrence => {
+            val disambResult = new DisambiguationResult(correctOccurrence,                                                     // correct
+                                                        bestK.getOrElse(Factory.SurfaceFormOccurrence.from(correctOccurrence), // predicted
+                                                                        List[DBpediaResourceOccurrence]()))
+            disambResult.rank // ranked here, in parallel
+            disambResult
+        }).toList
+    }
+
     def main(args : Array[String]) {
         //val indexDir: String = args(0)  //"e:\\dbpa\\data\\index\\index-that-works\\Index.wikipediaTraining.Merged."
         val config = new SpotlightConfiguration(args(0));
@@ -6,16 +6,44 @@ import org.dbpedia.spotlight.db._
 import org.dbpedia.spotlight.model.SpotterConfiguration.SpotterPolicy
 import org.dbpedia.spotlight.model.SpotlightConfiguration.DisambiguationPolicy
 import scala.collection.JavaConversions._
-import org.dbpedia.spotlight.model.Paragraph
+import org.dbpedia.spotlight.model.{Candidate, SurfaceFormOccurrence, Paragraph}
+import org.dbpedia.spotlight.db.model.{ContextStore, SurfaceFormStore}
+import org.dbpedia.spotlight.exceptions.SurfaceFormNotFoundException
 import scala.io.Source
 import org.dbpedia.spotlight.db.concurrent.SpotterWrapper
 
 object EvaluateSpotlightModel {
 
+  /**
+   * Records the number of candidates of each spot and the number of context entries of the candidates of a paragraph,
+   * i.e. the entries the disambiguator reads from the context store.
+   */
+  def recordCandidates(performance: PerformanceReport, spots: List[SurfaceFormOccurrence], disambiguator: DBTwoStepDisambiguator, sfStore: SurfaceFormStore, contextStore: ContextStore) {
+    val candidates = spots.flatMap { spot =>
+      val cands = try {
+        disambiguator.candidateSearcher.getCandidates(sfStore.getSurfaceForm(spot.surfaceForm.name))
+      } catch {
+        case e: SurfaceFormNotFoundException => Set[Candidate]()
+      }
+      performance.record("candidatesPerMention", cands.size)
+      cands.toList.sortBy(_.prior).reverse.take(disambiguator.MAX_CANDIDATES).map(_.resource)
+    }.toSet
+
+    if (contextStore != null)
+      performance.record("contextEntriesPerParagraph", candidates.toList.map(contextStore.getContextCounts(_).size).sum)
+  }
+
   def main(args: Array[String]) {
 
-    val model = SpotlightModel.fromFolder(new File(args(0)))
-    val (_, sfStore, resStore, candMapStore, _) = SpotlightModel.storesFromFolder(new File(args(0)))
+    val performance = new PerformanceReport("EvaluateSpotlightModel")
+
+    //The memory footprint of each store is recorded while the stores of the model are loaded:
+    val modelFolder = new File(args(0))
+    val (model, stores) = performance.measureMemory("model") {
+      val stores = SpotlightModel.storesFromFolder(modelFolder, performance.recordMemory _)
+      (SpotlightModel.fromFolder(modelFolder, stores), stores)
+    }
+    val (_, sfStore, resStore, candMapStore, contextStore) = stores
 
     val memLoaded = (Runtime.getRuntime.totalMemory() - Runtime.getRuntime.freeMemory()) / (1024 * 1024)
     System.err.println("Memory footprint (model loaded): %s".format( memLoaded ) )
@@ -39,13 +67,19 @@ object EvaluateSpotlightModel {
 
     //Time performance:
     val startTime = System.nanoTime()
-    corpusDisambiguate.foreach(p => {
+    val paragraphSpots = corpusDisambiguate.map(p => {
       val text = p.text
-      model.tokenizer.tokenizeMaybe(text)
-      val spots = spotter.extract(text)
-      disambiguator.disambiguate(new Paragraph("", text, spots.toList))
-    })
+      performance.time("tokenize") { model.tokenizer.tokenizeMaybe(text) }
+      val spots = performance.time("spot") { spotter.extract(text) }
+      performance.time("disambiguate") { disambiguator.disambiguate(new Paragraph("", text, spots.toList)) }
+      spots.toList
+    }).toList
     val endTime = System.nanoTime()
+
+    //Cost drivers, collected after the timed loop so that they do not count as annotation time:
+    paragraphSpots.foreach(spots =>
+      recordCandidates(performance, spots, disambiguator.disambiguator.asInstanceOf[DBTwoStepDisambiguator], sfStore, contextStore)
+    )
     val t = (endTime-startTime) / 1000000000
     System.err.println("Annotation time: %s sec".format( t ))
     System.err.println("Annotation time avg: %s sec".format( t / corpusDisambiguate.size.toDouble) )
@@ -73,6 +107,7 @@ object EvaluateSpotlightModel {
     val expected = EvalSpotter.getExpectedResult(corpusSpot)
     EvalSpotter.evalSpotter(corpusDisambiguate, spotter, expected)
 
+    performance.finish()
 
   }
 }
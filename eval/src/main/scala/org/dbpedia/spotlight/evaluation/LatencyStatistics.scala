@@ -0,0 +1,41 @@
+package org.dbpedia.spotlight.evaluation
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * Collects the latencies of a repeated operation (e.g. disambiguating a paragraph) and summarizes them.
+ * Latencies are added in nanoseconds and reported in milliseconds. Thread-safe.
+ */
+class LatencyStatistics {
+
+  private val latencies = new ArrayBuffer[Long]()
+
+  def add(nanos: Long) {
+    synchronized { latencies += nanos }
+  }
+
+  def count: Int = synchronized { latencies.size }
+
+  def totalMillis: Double = synchronized { latencies.sum / 1000000.0 }
+
+  def meanMillis: Double = synchronized { if (latencies.isEmpty) 0.0 else latencies.sum / 1000000.0 / latencies.size }
+
+  /**
+   * Latency (in ms) below which the fraction p (between 0 and 1) of the operations finished.
+   */
+  def percentileMillis(p: Double): Double = synchronized {
+    if (latencies.isEmpty)
+      0.0
+    else {
+      val sorted = latencies.sorted
+      sorted(math.min(sorted.size - 1, math.ceil(p * sorted.size).toInt - 1).max(0)) / 1000000.0
+    }
+  }
+
+  def maxMillis: Double = synchronized { if (latencies.isEmpty) 0.0 else latencies.max / 1000000.0 }
+
+  override def toString = "n=%d, mean=%.2f ms, p50=%.2f ms, p90=%.2f ms, p99=%.2f ms, max=%.2f ms".format(
+    count, meanMillis, percentileMillis(0.5), percentileMillis(0.9), percentileMillis(0.99), maxMillis
+  )
+
+}
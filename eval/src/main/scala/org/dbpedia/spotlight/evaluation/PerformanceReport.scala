@@ -0,0 +1,167 @@
+package org.dbpedia.spotlight.evaluation
+
+import java.io.{FileInputStream, FileOutputStream, File}
+import java.util.Properties
+import org.dbpedia.spotlight.log.SpotlightLog
+import scala.collection.mutable
+import scala.collection.JavaConversions._
+
+/**
+ * Performance measurements of an evaluation run: the time spent in each stage (e.g. spotting, disambiguation), the
+ * distribution of cost drivers such as the number of candidates per mention and the memory footprint of the stores.
+ *
+ * At the end of the run the report is logged and saved as a properties file. If a baseline report is given, the
+ * timings are compared to the baseline and the run fails if a stage became slower than the allowed slowdown.
+ * The report is configured with system properties:
+ *
+ * org.dbpedia.spotlight.eval.performanceReport: file the report is saved to (default: [name].performance.properties)
+ * org.dbpedia.spotlight.eval.performanceBaseline: report of an earlier run to compare to (default: no comparison)
+ * org.dbpedia.spotlight.eval.maxSlowdown: allowed slowdown relative to the baseline (default: 0.25, i.e. 25%)
+ */
+class PerformanceReport(val name: String) {
+
+  private val stages = mutable.LinkedHashMap[String, LatencyStatistics]()
+  private val metrics = mutable.LinkedHashMap[String, (Long, Double, Double)]() //count, sum, max
+  private val memory = mutable.LinkedHashMap[String, Long]()
+
+  private def key(s: String) = s.replaceAll("[^A-Za-z0-9]+", "_")
+
+  private def stage(stageName: String): LatencyStatistics = synchronized {
+    stages.getOrElseUpdate(key(stageName), new LatencyStatistics())
+  }
+
+  /**
+   * Runs f and adds its running time to the stage.
+   */
+  def time[T](stageName: String)(f: => T): T = {
+    val latency = stage(stageName)
+    val start = System.nanoTime()
+    try {
+      f
+    } finally {
+      latency.add(System.nanoTime() - start)
+    }
+  }
+
+  /**
+   * Adds one value (e.g. the number of candidates of a mention) to the distribution of the metric.
+   */
+  def record(metric: String, value: Double) {
+    synchronized {
+      val (count, sum, max) = metrics.getOrElse(key(metric), (0L, 0.0, 0.0))
+      metrics.put(key(metric), (count + 1, sum + value, math.max(max, value)))
+    }
+  }
+
+  def recordMemory(store: String, bytes: Long) {
+    synchronized { memory.put(key(store), bytes) }
+  }
+
+  /**
+   * Loads a store (or model) and records the growth of the used heap as its memory footprint.
+   */
+  def measureMemory[T](store: String)(load: => T): T = {
+    val before = PerformanceReport.usedMemory()
+    val loaded = load
+    recordMemory(store, PerformanceReport.usedMemory() - before)
+    loaded
+  }
+
+  def toProperties: Properties = synchronized {
+    val properties = new Properties()
+    stages.foreach { case (stageName, latency) =>
+      properties.setProperty("stage.%s.count".format(stageName), latency.count.toString)
+      properties.setProperty("stage.%s.total_ms".format(stageName), "%.3f".format(latency.totalMillis))
+      properties.setProperty("stage.%s.mean_ms".format(stageName), "%.3f".format(latency.meanMillis))
+      properties.setProperty("stage.%s.p90_ms".format(stageName), "%.3f".format(latency.percentileMillis(0.9)))
+    }
+    metrics.foreach { case (metric, (count, sum, max)) =>
+      properties.setProperty("metric.%s.count".format(metric), count.toString)
+      properties.setProperty("metric.%s.mean".format(metric), "%.3f".format(sum / count))
+      properties.setProperty("metric.%s.max".format(metric), "%.3f".format(max))
+    }
+    memory.foreach { case (store, bytes) =>
+      properties.setProperty("memory.%s.mb".format(store), "%.1f".format(bytes / (1024.0 * 1024.0)))
+    }
+    properties
+  }
+
+  /**
+   * The stage timings that are slower than in the baseline by more than maxSlowdown.
+   */
+  def regressions(baseline: Properties, maxSlowdown: Double): Seq[String] = {
+    val current = toProperties
+    current.stringPropertyNames().toSeq.sorted.filter(k => k.endsWith("mean_ms") || k.endsWith("p90_ms")).flatMap { k =>
+      Option(baseline.getProperty(k)).map(_.toDouble).filter(_ > 0.0).flatMap { base =>
+        val value = current.getProperty(k).toDouble
+        if (value > base * (1.0 + maxSlowdown))
+          Some("%s: %.3f ms (baseline: %.3f ms, +%.0f%%)".format(k, value, base, (value / base - 1.0) * 100))
+        else
+          None
+      }
+    }
+  }
+
+  /**
+   * Logs and saves the report and compares it to the baseline, configured by the system properties.
+   *
+   * @throws PerformanceRegressionException if a stage is slower than allowed
+   */
+  def finish() {
+    finish(
+      new File(System.getProperty("org.dbpedia.spotlight.eval.performanceReport", "%s.performance.properties".format(key(name)))),
+      Option(System.getProperty("org.dbpedia.spotlight.eval.performanceBaseline")).map(new File(_)),
+      System.getProperty("org.dbpedia.spotlight.eval.maxSlowdown", "0.25").toDouble
+    )
+  }
+
+  /**
+   * Logs and saves the report to reportFile and compares it to the baseline report, if there is one.
+   *
+   * @throws PerformanceRegressionException if a stage is more than maxSlowdown slower than in the baseline
+   */
+  def finish(reportFile: File, baselineFile: Option[File], maxSlowdown: Double) {
+    val properties = toProperties
+    SpotlightLog.info(this.getClass, "Performance (%s):", name)
+    properties.stringPropertyNames().toSeq.sorted.foreach(k => SpotlightLog.info(this.getClass, "  %s = %s", k, properties.getProperty(k)))
+
+    val out = new FileOutputStream(reportFile)
+    try {
+      properties.store(out, "Performance report of " + name)
+    } finally {
+      out.close()
+    }
+    SpotlightLog.info(this.getClass, "Saved performance report to %s.", reportFile)
+
+    baselineFile.foreach { baselineFile =>
+      val baseline = new Properties()
+      val in = new FileInputStream(baselineFile)
+      try {
+        baseline.load(in)
+      } finally {
+        in.close()
+      }
+
+      val slower = regressions(baseline, maxSlowdown)
+      if (slower.isEmpty) {
+        SpotlightLog.info(this.getClass, "No stage is more than %.0f%% slower than in %s.", maxSlowdown * 100, baselineFile)
+      } else {
+        slower.foreach(r => SpotlightLog.error(this.getClass, "Slower than baseline: %s", r))
+        throw new PerformanceRegressionException("%d timings are more than %.0f%% slower than in %s.".format(slower.size, maxSlowdown * 100, baselineFile))
+      }
+    }
+  }
+
+}
+
+object PerformanceReport {
+
+  def usedMemory(): Long = {
+    System.gc()
+    val runtime = Runtime.getRuntime
+    runtime.totalMemory() - runtime.freeMemory()
+  }
+
+}
+
+class PerformanceRegressionException(message: String) extends RuntimeException(message)
@@ -0,0 +1,94 @@
+package org.dbpedia.spotlight.evaluation
+
+import java.io.{FileInputStream, FileOutputStream, File}
+import java.util.Properties
+import org.scalatest.FlatSpec
+import org.scalatest.matchers.ShouldMatchers
+
+class PerformanceReportTest extends FlatSpec with ShouldMatchers {
+
+  /**
+   * A report with one stage that took at least 20 ms per run.
+   */
+  def slowReport = {
+    val report = new PerformanceReport("test")
+    (0 until 3).foreach(i => report.time("disambiguate") { Thread.sleep(20) })
+    report
+  }
+
+  def baseline(meanMillis: Double) = {
+    val properties = new Properties()
+    properties.setProperty("stage.disambiguate.mean_ms", meanMillis.toString)
+    properties.setProperty("stage.disambiguate.p90_ms", meanMillis.toString)
+    properties
+  }
+
+  def saved(properties: Properties) = {
+    val file = File.createTempFile("baseline", ".properties")
+    val out = new FileOutputStream(file)
+    try {
+      properties.store(out, null)
+    } finally {
+      out.close()
+    }
+    file
+  }
+
+  "A performance report" should "report the stages that are slower than the baseline" in {
+    val regressions = slowReport.regressions(baseline(1.0), 0.25)
+    regressions should have size (2)
+    regressions(0) should startWith ("stage.disambiguate.mean_ms")
+    regressions(1) should startWith ("stage.disambiguate.p90_ms")
+
+    //twice as slow as the baseline exceeds an allowed slowdown of 50%, but not one of 150%
+    val report = slowReport
+    val mean = report.toProperties.getProperty("stage.disambiguate.mean_ms").toDouble
+    report.regressions(baseline(mean / 2), 0.5) should have size (2)
+    report.regressions(baseline(report.toProperties.getProperty("stage.disambiguate.p90_ms").toDouble / 2), 1.5) should be ('empty)
+  }
+
+  it should "not report stages within the allowed slowdown" in {
+    val report = slowReport
+    report.regressions(baseline(10000.0), 0.25) should be ('empty)
+
+    //the report itself is exactly as fast as the baseline
+    report.regressions(report.toProperties, 0.0) should be ('empty)
+  }
+
+  it should "ignore timings that are missing from the baseline" in {
+    slowReport.regressions(new Properties(), 0.0) should be ('empty)
+  }
+
+  it should "save the report and fail if a stage is slower than the baseline" in {
+    val reportFile = File.createTempFile("report", ".properties")
+    val baselineFile = saved(baseline(1.0))
+    try {
+      evaluating { slowReport.finish(reportFile, Some(baselineFile), 0.25) } should produce [PerformanceRegressionException]
+
+      val report = new Properties()
+      val in = new FileInputStream(reportFile)
+      try {
+        report.load(in)
+      } finally {
+        in.close()
+      }
+      report.getProperty("stage.disambiguate.count") should equal ("3")
+    } finally {
+      reportFile.delete()
+      baselineFile.delete()
+    }
+  }
+
+  it should "not fail if no stage is slower than the baseline" in {
+    val reportFile = File.createTempFile("report", ".properties")
+    val baselineFile = saved(baseline(10000.0))
+    try {
+      slowReport.finish(reportFile, Some(baselineFile), 0.25)
+      slowReport.finish(reportFile, None, 0.25)
+    } finally {
+      reportFile.delete()
+      baselineFile.delete()
+    }
+  }
+
+}
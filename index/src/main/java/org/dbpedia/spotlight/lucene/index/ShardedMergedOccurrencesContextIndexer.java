@@ -0,0 +1,265 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.lucene.index;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.dbpedia.spotlight.exceptions.IndexException;
+import org.dbpedia.spotlight.lucene.LuceneManager;
+import org.dbpedia.spotlight.model.DBpediaResourceOccurrence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the merged occurrences context index with several threads.
+ *
+ * Occurrences are partitioned by the hash of their resource URI, so that all occurrences of a resource
+ * end up in the same shard. Each shard is indexed by its own thread with its own {@link MergedOccurrencesContextIndexer}
+ * (i.e. its own IndexWriter and in-memory merging). Since the shards contain disjoint sets of resources,
+ * they are combined into the final index with a single IndexWriter.addIndexes call when the indexer is closed.
+ *
+ * The queues between the caller and the shard threads are bounded, so {@link #add(DBpediaResourceOccurrence)}
+ * blocks if the shards can not keep up.
+ *
+ * Since the shards are added to the final index instead of being merged with its documents, the final index
+ * must be empty, i.e. it has to be overwritten if it exists.
+ */
+public class ShardedMergedOccurrencesContextIndexer extends OccurrenceContextIndexer {
+
+    Log LOG = LogFactory.getLog(this.getClass());
+
+    private final File shardBaseDir;
+    private final Shard[] shards;
+    private final boolean lastOptimize;
+    private final int numberOfSegmentsForOptimize = 4;
+
+    public int numEntriesProcessed = 0;
+    private long startTime = System.currentTimeMillis();
+    private int reportEvery = 100000;
+
+    private volatile Exception shardException = null;
+
+    /**
+     * A single shard: a queue of occurrences and the thread that indexes them.
+     */
+    private class Shard extends Thread {
+
+        final int id;
+        final File dir;
+        final Directory directory;
+        final BlockingQueue<Object> queue;
+        final MergedOccurrencesContextIndexer indexer;
+        int numEntries = 0;
+
+        Shard(int id, LuceneManager.BufferedMerging lucene, int numShards, int queueSize) throws IOException {
+            super("context-index-shard-" + id);
+            this.id = id;
+            this.dir = new File(shardBaseDir, "shard-" + id);
+            this.directory = FSDirectory.open(dir);
+            this.queue = new ArrayBlockingQueue<Object>(queueSize);
+
+            // Every shard buffers a share of the documents and gets a share of the RAM buffer of the final writer.
+            LuceneManager.BufferedMerging shardLucene = new LuceneManager.BufferedMerging(
+                    directory,
+                    Math.max(1, lucene.minNumDocsBeforeFlush() / numShards),
+                    false);
+            shardLucene.setContextSimilarity(lucene.contextSimilarity());
+            shardLucene.setDefaultAnalyzer(lucene.defaultAnalyzer());
+            shardLucene.setRAMBufferSizeMB(Math.max(16, lucene.RAMBufferSizeMB() / numShards));
+            shardLucene.shouldOverwrite = true;
+
+            this.indexer = new MergedOccurrencesContextIndexer(shardLucene);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Object item = queue.take();
+                    if (item == this)
+                        break; // end of input for this shard
+                    indexer.add((DBpediaResourceOccurrence) item);
+                    numEntries++;
+                }
+                indexer.close();
+                LOG.info(String.format("Shard %s done: %s occurrences.", id, numEntries));
+            } catch (Exception e) {
+                LOG.error("Error in shard " + id, e);
+                shardException = e;
+                queue.clear(); // unblock the producer
+            }
+        }
+    }
+
+    /**
+     * @param lucene the Lucene manager of the final index, its settings are used for all shards
+     * @param shardBaseDir working directory for the shard indexes, removed after the final merge
+     * @param numShards number of shards (and threads)
+     * @throws IOException
+     */
+    public ShardedMergedOccurrencesContextIndexer(LuceneManager.BufferedMerging lucene, File shardBaseDir, int numShards) throws IOException {
+        super(lucene);
+        this.shardBaseDir = shardBaseDir;
+        this.lastOptimize = lucene.lastOptimize();
+        this.mWriter.setSimilarity(lucene.contextSimilarity());
+
+        // The shards only contain the new occurrences, adding them would duplicate the documents of existing resources.
+        if (mWriter.numDocs() > 0) {
+            int numDocs = mWriter.numDocs();
+            mWriter.close();
+            throw new IOException(String.format("The index %s already contains %s documents. Sharded indexing " +
+                    "can only create a new index, overwrite the index or use a single shard.", lucene.directory(), numDocs));
+        }
+
+        if (!shardBaseDir.exists())
+            shardBaseDir.mkdirs();
+
+        LOG.info(String.format("Indexing with %s shards in %s.", numShards, shardBaseDir));
+
+        this.shards = new Shard[numShards];
+        for (int i = 0; i < numShards; i++) {
+            shards[i] = new Shard(i, lucene, numShards, 10000);
+            shards[i].start();
+        }
+    }
+
+    private void checkShards() throws IndexException {
+        if (shardException != null)
+            throw new IndexException("Error while indexing a shard.", shardException);
+    }
+
+    private int shardFor(String uri) {
+        return (uri.hashCode() & Integer.MAX_VALUE) % shards.length;
+    }
+
+    /**
+     * Waits until the queue of the shard accepts the item, fails if the shard thread has stopped.
+     */
+    private void put(Shard shard, Object item) throws InterruptedException, IndexException {
+        while (!shard.queue.offer(item, 1, TimeUnit.SECONDS)) {
+            if (!shard.isAlive()) {
+                checkShards();
+                throw new IndexException("Shard " + shard.id + " has stopped.");
+            }
+        }
+    }
+
+    /**
+     * Hands the occurrence to the shard of its resource, blocks if the queue of the shard is full.
+     *
+     * @param occ a dbpedia resource occurrence
+     * @throws IndexException
+     */
+    @Override
+    public void add(DBpediaResourceOccurrence occ) throws IndexException {
+        checkShards();
+
+        try {
+            put(shards[shardFor(occ.resource().uri())], occ);
+        } catch (InterruptedException e) {
+            throw new IndexException("Interrupted while adding occurrence.", e);
+        }
+
+        numEntriesProcessed++;
+        if (numEntriesProcessed % reportEvery == 0)
+            reportProgress();
+    }
+
+    private void reportProgress() {
+        double seconds = (System.currentTimeMillis() - startTime) / 1000.0;
+        StringBuilder queueSizes = new StringBuilder();
+        for (Shard shard: shards)
+            queueSizes.append(shard.queue.size()).append(" ");
+
+        LOG.info(String.format("Processed %s occurrences in %.1f s (%.1f occurrences/s). Shard queues: %s",
+                numEntriesProcessed, seconds, numEntriesProcessed / Math.max(seconds, 0.001), queueSizes.toString().trim()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        boolean merged = false;
+        try {
+            try {
+                for (Shard shard: shards)
+                    put(shard, shard); // marks the end of the input for the shard
+                for (Shard shard: shards)
+                    shard.join();
+                checkShards();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } catch (IndexException e) {
+                throw new IOException(e);
+            }
+            reportProgress();
+
+            LOG.info("Merging " + shards.length + " shards into the final index...");
+            long mergeStart = System.currentTimeMillis();
+            Directory[] shardDirectories = new Directory[shards.length];
+            for (int i = 0; i < shards.length; i++)
+                shardDirectories[i] = shards[i].directory;
+            mWriter.addIndexes(shardDirectories);
+            LOG.info(String.format("Merge done (%s ms).", System.currentTimeMillis() - mergeStart));
+
+            if (lastOptimize) {
+                LOG.info("Last optimization of index before closing...");
+                mWriter.optimize(numberOfSegmentsForOptimize);
+                LOG.info("Done.");
+            }
+
+            mWriter.commit();
+            mWriter.close();
+            merged = true;
+            LOG.info("Index closed.");
+        } finally {
+            if (!merged) {
+                LOG.error("Indexing failed, discarding the shards.");
+                mWriter.rollback();
+            }
+            removeShards();
+        }
+    }
+
+    /**
+     * Stops the shard threads that are still running and deletes the shard indexes.
+     */
+    private void removeShards() throws IOException {
+        for (Shard shard: shards) {
+            if (shard.isAlive()) {
+                shard.interrupt();
+                try {
+                    shard.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            shard.directory.close();
+            FileUtils.deleteDirectory(shard.dir);
+        }
+        if (shardBaseDir.exists() && shardBaseDir.list().length == 0)
+            shardBaseDir.delete();
+    }
+
+}
@@ -142,7 +142,7 @@ public abstract class AnnotatedDatasetEnricher {
 	 * @return List of Attributes
 	 */
 	protected ArrayList<Attribute> buildAttributeList() {
-		return instanceBuilder.buildAttributeList();
+		return new ArrayList<Attribute>(instanceBuilder.getAttributeList());
 	}
 	
 }
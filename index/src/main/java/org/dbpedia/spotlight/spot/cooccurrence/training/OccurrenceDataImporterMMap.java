@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.spot.cooccurrence.training;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbpedia.spotlight.exceptions.ConfigurationException;
+import org.dbpedia.spotlight.exceptions.InitializationException;
+import org.dbpedia.spotlight.model.SpotterConfiguration;
+import org.dbpedia.spotlight.spot.cooccurrence.features.data.OccurrenceDataFileWriter;
+import org.dbpedia.spotlight.spot.cooccurrence.features.data.OccurrenceDataProviderMMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+
+/**
+ * Occurrence data importer.
+ *
+ * Reads the words, bigrams and trigrams tables from the JDBC database defined in server.properties
+ * (see {@link LCCImporterSQL}) and writes them to an occurrence data file for
+ * {@link OccurrenceDataProviderMMap}.
+ *
+ * Usage: OccurrenceDataImporterMMap conf/server.properties output.occ
+ */
+public class OccurrenceDataImporterMMap {
+
+	private final Log LOG = LogFactory.getLog(this.getClass());
+
+	Connection sqlConnection;
+
+	public OccurrenceDataImporterMMap(SpotterConfiguration spotterConfiguration) throws InitializationException {
+
+		try {
+			Class.forName(spotterConfiguration.getCoOcSelectorDatabaseDriver()).newInstance();
+
+			this.sqlConnection = DriverManager.getConnection(spotterConfiguration.getCoOcSelectorDatabaseConnector(),
+					spotterConfiguration.getCoOcSelectorDatabaseUser(),
+					spotterConfiguration.getCoOcSelectorDatabasePassword()
+					);
+
+		} catch(Exception e) {
+			throw new InitializationException("Error in database initialization", e);
+		}
+
+	}
+
+	public void importSQL(File outputFile) throws SQLException, IOException {
+
+		OccurrenceDataFileWriter writer = new OccurrenceDataFileWriter();
+		Statement statement = this.sqlConnection.createStatement();
+		statement.setFetchSize(10000);
+
+		LOG.info("Reading words...");
+		ResultSet resultSet = statement.executeQuery("SELECT id, word, count_corpus, count_web FROM words;");
+		while(resultSet.next())
+			writer.addWord(resultSet.getInt("id"), resultSet.getString("word"),
+					resultSet.getLong("count_corpus"), resultSet.getLong("count_web"));
+		resultSet.close();
+
+		// OccurrenceDataProviderSQL reads the significance as a long, do the same so that the features do not change
+		LOG.info("Reading bigrams...");
+		resultSet = statement.executeQuery("SELECT word1, word2, significance_web FROM bigrams;");
+		while(resultSet.next())
+			writer.addBigram(resultSet.getInt("word1"), resultSet.getInt("word2"), resultSet.getLong("significance_web"));
+		resultSet.close();
+
+		LOG.info("Reading trigrams...");
+		resultSet = statement.executeQuery("SELECT word1, word2, word3, count_web FROM trigrams;");
+		while(resultSet.next())
+			writer.addTrigram(resultSet.getInt("word1"), resultSet.getInt("word2"), resultSet.getInt("word3"),
+					resultSet.getLong("count_web"));
+		resultSet.close();
+
+		statement.close();
+		sqlConnection.close();
+
+		LOG.info("Writing occurrence data file...");
+		writer.write(outputFile);
+		LOG.info("Done.");
+	}
+
+	public static void main(String[] args) throws InitializationException, IOException, SQLException, ConfigurationException {
+
+		if (args.length != 2) {
+			System.err.println("Usage: OccurrenceDataImporterMMap <server.properties> <output file>");
+			System.exit(1);
+		}
+
+		OccurrenceDataImporterMMap importer = new OccurrenceDataImporterMMap(new SpotterConfiguration(args[0]));
+		importer.importSQL(new File(args[1]));
+
+	}
+
+}
@@ -16,6 +16,8 @@ import opennlp.tools.chunker.ChunkerModel
 import stem.SnowballStemmer
 import tokenize._
 import scala.Some
+import io.util.{ExternalCountMap, ParallelLineReader}
+import org.dbpedia.spotlight.log.SpotlightLog
 
 /**
  * This script creates a Spotlight model folder from the results of
@@ -47,6 +49,9 @@ object CreateSpotlightModel {
         System.err.println("Usage:")
         System.err.println(" - English:    mvn scala:run -DmainClass=org.dbpedia.spotlight.db.CreateSpotlightModel -Dexec.args=\"en /data/input /data/output /data/opennlp /data/stopwords.list EnglishStemmer\"")
         System.err.println(" - no stemmer: mvn scala:run -DmainClass=org.dbpedia.spotlight.db.CreateSpotlightModel -Dexec.args=\"en /data/input /data/output /data/opennlp /data/stopwords.list None\"")
+        System.err.println("Optional JVM properties:")
+        System.err.println(" -Dspotlight.index.threads=n            number of threads for parsing the input files (default: number of cores)")
+        System.err.println(" -Dspotlight.index.memoryBudgetMB=n     memory budget for the candidate counts before spilling to disk (default: 1/4 of the heap)")
         System.exit(1)
       }
     }
@@ -140,6 +145,8 @@ object CreateSpotlightModel {
     val modelDataFolder = new File(outputFolder, "model")
     modelDataFolder.mkdir()
 
+    SpotlightLog.info(this.getClass, "Building model with %d threads and a memory budget of %d entries for the candidate counts.", ParallelLineReader.defaultThreads, ExternalCountMap.defaultMaxEntries)
+
     val memoryIndexer = new MemoryStoreIndexer(modelDataFolder)
     //val diskIndexer = new JDBMStoreIndexer(new File("data/"))
 
@@ -175,15 +182,16 @@ object CreateSpotlightModel {
     val resStore = MemoryStore.loadResourceStore(new FileInputStream(new File(modelDataFolder, "res.mem")))
     val sfStore  = MemoryStore.loadSurfaceFormStore(new FileInputStream(new File(modelDataFolder, "sf.mem")))
 
-    memoryIndexer.addCandidatesByID(
-      CandidateMapSource.fromPigFiles(
-        new File(rawDataFolder, "pairCounts"),
-        wikipediaToDBpediaClosure,
-        resStore,
-        sfStore
-      ),
-      sfStore.size
+    //Candidate counts are aggregated in a primitive map that is spilled to disk if it exceeds the memory budget,
+    //the token counts and contexts are kept in memory:
+    val candidateCounts = CandidateMapSource.countsFromPigFiles(
+      new File(rawDataFolder, "pairCounts"),
+      wikipediaToDBpediaClosure,
+      resStore,
+      sfStore
     )
+    memoryIndexer.addCandidatesByID(candidateCounts, sfStore.size)
+    candidateCounts.close()
 
     memoryIndexer.addTokenTypes(
       TokenSource.fromPigFile(
@@ -205,6 +213,14 @@ object CreateSpotlightModel {
     )
     memoryIndexer.writeTokenOccurrences()
 
+    //Precompute the log probability tables used during disambiguation:
+    memoryIndexer.writeProbabilities(
+      sfStore,
+      resStore,
+      MemoryStore.loadCandidateMapStore(new FileInputStream(new File(modelDataFolder, "candmap.mem")), resStore),
+      tokenStore
+    )
+
 
     val tokenizer: TextTokenizer = if (opennlpFolder.isDefined) {
       val opennlpOut = new File(outputFolder, OPENNLP_FOLDER)
@@ -15,6 +15,9 @@ import java.io.File
 import org.dbpedia.spotlight.model._
 import scala.{Array, Int}
 import collection.mutable
+import io.util.{ProgressReporter, ExternalCountMap}
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap
 
 /**
  * Implements memory-based indexing. The memory stores are serialized and deserialized using Kryo.
@@ -40,10 +43,6 @@ class MemoryStoreIndexer(val baseDir: File)
     tokenizer.tokenize(sf)
   }
 
-  def getAllNgrams(grams: Seq[String]): Seq[Seq[String]] = {
-    (1 to grams.size-1).flatMap( grams.sliding(_) )
-  }
-
   var tokenizer: Option[StringTokenizer] = None
 
   def addSurfaceForms(sfCount: Map[SurfaceForm, (Int, Int)]) {
@@ -68,9 +67,6 @@ class MemoryStoreIndexer(val baseDir: File)
 
     if (tokenizer.isDefined) {
 
-      //Get all sfs as ngrams in increasing order by their length in tokens
-      val sfId = mutable.HashMap[String, Int]()
-
       //Here be dragons:
       // Correct the counts for sf that are parts of large surface forms:
       // Careful:
@@ -78,34 +74,63 @@ class MemoryStoreIndexer(val baseDir: File)
       //   Assumption: In a Wiki article, an annotation is always of the longest possible surface form.
       //   Example: My [Apple Macbook Pro]. [Apple Macbook Pro] and not [Apple Macbook] Pro
       //
-      // Walk the ngrams of the surface forms in increasing order of length from 2 to n, always take the sub-ngrams of size i-1
+      // Walk the ngrams of the surface forms in decreasing order of length from n to 2, always take the sub-ngrams.
       // For every sub-ngram: if it is a surface form, reduce its total count by the count of the current surface form.
-      stringForID.zipWithIndex.flatMap{
-        case (sf: String, id: Int) => {
-          val sfNgram = ngram(sf, tokenizer.get)
-
-          sfId.put(sfNgram.mkString(" "),
-            sfId.get(sfNgram.mkString(" ")) match {
-              case None => id
-              case Some(existingID) => if(annotatedCountForID(id) > annotatedCountForID(existingID)) id else existingID
-            }
-          )
+      //
+      // The surface forms are stored as token ID sequences in a trie, so that all sub-ngrams of a surface form can
+      // be found by walking the trie from every token position. If several surface forms have the same tokens,
+      // the trie contains the one with the highest annotated count.
+
+      val progress = new ProgressReporter("Surface form count correction")
 
-          Some(sfNgram, id)
+      val tokenIDs = new Object2IntOpenHashMap[String]()
+      tokenIDs.defaultReturnValue(-1)
+
+      def tokenID(token: String): Int = tokenIDs.getInt(token) match {
+        case -1 => {
+          val id = tokenIDs.size
+          tokenIDs.put(token, id)
+          id
         }
-        case _ => None
-      }.sortBy(_._1.size).reverse.foreach{
-        case (ngram: Seq[String], id: Int) if(ngram.size > 1) => {
-          getAllNgrams(ngram).foreach{ subngram: Seq[String] =>
-            sfId.get(subngram.mkString(" ")) match {
-              case Some(subID) if(totalCountForID(subID) > 0 && annotatedCountForID(id) > 0) => totalCountForID(subID) = totalCountForID(subID) - annotatedCountForID(id)
-              case _ =>
-            }
+        case id: Int => id
+      }
+
+      val trie = new TokenTrie()
+      val ngrams = new Array[Array[Int]](stringForID.length)
+
+      (0 until stringForID.length).foreach { id: Int =>
+        if (stringForID(id) != null) {
+          val sfNgram = ngram(stringForID(id), tokenizer.get).map(tokenID).toArray
+          ngrams(id) = sfNgram
+
+          val node = trie.getOrCreateNode(sfNgram)
+          val existingID = trie.value(node)
+          if (existingID == trie.NO_VALUE || annotatedCountForID(id) > annotatedCountForID(existingID))
+            trie.setValue(node, id)
+
+          progress.tick()
+        }
+      }
+
+      //Process the surface forms by length bucket. Within a bucket, the sub-ngrams are found in parallel and the
+      //counts are corrected in decreasing order of the surface form IDs:
+      val buckets = (0 until ngrams.length).filter{ id: Int =>
+        ngrams(id) != null && ngrams(id).length > 1 && annotatedCountForID(id) > 0
+      }.groupBy( ngrams(_).length )
+
+      buckets.keys.toList.sorted.reverse.foreach { length: Int =>
+        val ids = buckets(length).sorted.reverse.toArray
+        val subIDs = ids.par.map{ id: Int => trie.subSequenceValues(ngrams(id)) }.toArray
+
+        (0 until ids.length).foreach { i: Int =>
+          subIDs(i).foreach { subID: Int =>
+            if (totalCountForID(subID) > 0)
+              totalCountForID(subID) = totalCountForID(subID) - annotatedCountForID(ids(i))
           }
         }
-        case _ =>
       }
 
+      progress.done()
     }
 
 
@@ -215,6 +240,45 @@ class MemoryStoreIndexer(val baseDir: File)
     MemoryStore.dump(candmapStore, new File(baseDir, "candmap.mem"))
   }
 
+  /**
+   * Create the candidate map from primitive (surface form ID, resource ID) counts. The counts are read
+   * twice, first to allocate the candidate arrays for each surface form and then to fill them.
+   */
+  def addCandidatesByID(cands: ExternalCountMap, numberOfSurfaceForms: Int) {
+    val candmapStore = new MemoryCandidateMapStore()
+
+    val progress = new ProgressReporter("Candidate map store")
+
+    val candidatesPerSF = new Array[Int](numberOfSurfaceForms)
+    cands.foreachPair{ (sfID: Int, resID: Int, count: Int) =>
+      candidatesPerSF(sfID) += 1
+    }
+
+    val candidates      = new Array[Array[Int]](numberOfSurfaceForms)
+    val candidateCounts = new Array[Array[Int]](numberOfSurfaceForms)
+    (0 until numberOfSurfaceForms).foreach { sfID: Int =>
+      if (candidatesPerSF(sfID) > 0) {
+        candidates(sfID)      = new Array[Int](candidatesPerSF(sfID))
+        candidateCounts(sfID) = new Array[Int](candidatesPerSF(sfID))
+        candidatesPerSF(sfID) = 0
+      }
+    }
+
+    cands.foreachPair{ (sfID: Int, resID: Int, count: Int) =>
+      val j = candidatesPerSF(sfID)
+      candidates(sfID)(j)      = resID
+      candidateCounts(sfID)(j) = count
+      candidatesPerSF(sfID) += 1
+      progress.tick()
+    }
+    progress.done()
+
+    candmapStore.candidates = candidates
+    candmapStore.candidateCounts = candidateCounts
+
+    MemoryStore.dump(candmapStore, new File(baseDir, "candmap.mem"))
+  }
+
   def addTokenType(token: TokenType, count: Int) {
     throw new NotImplementedException()
   }
@@ -273,9 +337,20 @@ class MemoryStoreIndexer(val baseDir: File)
         if (res != null) {
           assert (tokens.size == counts.size)
           if(contextStore.tokens(res.id) != null) {
-            val (mergedTokens, mergedCounts) = (tokens.map{ t: TokenType => t.id }.array.zip(counts.array) ++ contextStore.tokens(res.id).zip( contextStore.counts(res.id) )).groupBy(_._1).map{ case(k, v) => (k, v.map{ p => p._2}.sum ) }.unzip
-            contextStore.tokens(res.id) = mergedTokens.toArray.array
-            contextStore.counts(res.id) = mergedCounts.toArray.array
+            //Merge the counts in a primitive map:
+            val merged = new Int2IntOpenHashMap(tokens.size + contextStore.tokens(res.id).size)
+            merged.defaultReturnValue(0)
+
+            (0 until tokens.size).foreach{ i: Int =>
+              merged.put(tokens(i).id, merged.get(tokens(i).id) + counts(i))
+            }
+            (0 until contextStore.tokens(res.id).size).foreach{ i: Int =>
+              merged.put(contextStore.tokens(res.id)(i), merged.get(contextStore.tokens(res.id)(i)) + contextStore.counts(res.id)(i))
+            }
+
+            val mergedTokens = merged.keySet().toIntArray
+            contextStore.tokens(res.id) = mergedTokens
+            contextStore.counts(res.id) = mergedTokens.map{ t: Int => merged.get(t) }
           } else{
             contextStore.tokens(res.id) = tokens.map{ t: TokenType => t.id }.array
             contextStore.counts(res.id) = counts.array
@@ -291,6 +366,16 @@ class MemoryStoreIndexer(val baseDir: File)
   }
 
 
+  //PROBABILITIES
+
+  def writeProbabilities(sfStore: MemorySurfaceFormStore, resStore: MemoryResourceStore, candMapStore: MemoryCandidateMapStore, tokenStore: MemoryTokenTypeStore) {
+    MemoryStore.dump(
+      MemoryProbabilityStore.fromStores(sfStore, resStore, candMapStore, tokenStore),
+      new File(baseDir, "prob.mem")
+    )
+  }
+
+
 }
 
 object MemoryStoreIndexer {
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.db
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap
+import it.unimi.dsi.fastutil.ints.IntArrayList
+
+/**
+ * A trie over sequences of token IDs that stores an integer value (e.g. a surface form ID)
+ * for each sequence. Nodes are identified by integers, the transitions of all nodes are kept in
+ * a single primitive map from (node, token ID) to the child node.
+ *
+ * The trie is built by a single thread, after it is built it can be queried concurrently.
+ */
+
+class TokenTrie {
+
+  val NO_VALUE = -1
+  val ROOT = 0
+
+  private val transitions = new Long2IntOpenHashMap()
+  transitions.defaultReturnValue(-1)
+
+  private val values = new IntArrayList()
+  values.add(NO_VALUE)
+
+  def size: Int = values.size
+
+  private def key(node: Int, token: Int): Long = (node.toLong << 32) | (token.toLong & 0xFFFFFFFFL)
+
+  def child(node: Int, token: Int): Int = transitions.get(key(node, token))
+
+  /**
+   * Returns the node for the token sequence, creating all missing nodes on the way.
+   */
+  def getOrCreateNode(tokens: Array[Int]): Int = {
+    var node = ROOT
+    tokens.foreach { token: Int =>
+      val next = child(node, token)
+      node = if (next == -1) {
+        val created = values.size
+        values.add(NO_VALUE)
+        transitions.put(key(node, token), created)
+        created
+      } else {
+        next
+      }
+    }
+    node
+  }
+
+  def value(node: Int): Int = values.getInt(node)
+
+  def setValue(node: Int, value: Int) {
+    values.set(node, value)
+  }
+
+  /**
+   * Returns the values of all proper sub-sequences of the token sequence that are in the trie.
+   * A value is returned once for every position at which its sub-sequence occurs.
+   *
+   * @param tokens the token sequence
+   * @return
+   */
+  def subSequenceValues(tokens: Array[Int]): Array[Int] = {
+    val found = new IntArrayList()
+
+    var start = 0
+    while (start < tokens.length) {
+      var node = ROOT
+
+      //Only proper sub-sequences, i.e. stop before the full sequence is matched:
+      val end = if (start == 0) tokens.length - 1 else tokens.length
+
+      var j = start
+      while (j < end && node != -1) {
+        node = child(node, tokens(j))
+        if (node != -1 && values.getInt(node) != NO_VALUE)
+          found.add(values.getInt(node))
+        j += 1
+      }
+
+      start += 1
+    }
+
+    found.toIntArray
+  }
+
+}
@@ -13,6 +13,8 @@ import org.dbpedia.spotlight.log.SpotlightLog
 import org.dbpedia.spotlight.exceptions._
 import org.dbpedia.spotlight.db.memory.MemoryResourceStore
 import org.dbpedia.extraction.util.WikiUtil
+import java.util.concurrent.atomic.AtomicInteger
+import util.{ProgressReporter, ExternalCountMap, ParallelLineReader}
 
 
 /**
@@ -76,6 +78,60 @@ object CandidateMapSource {
   ): java.util.Map[Pair[Int, Int], Int] = fromPigInputStreams(new FileInputStream(pairCounts), wikipediaToDBPediaClosure, resStore, sfStore)
 
 
+  /**
+   * Reads the candidate counts from the Pig output into an [[org.dbpedia.spotlight.db.io.util.ExternalCountMap]]
+   * with (surface form ID, resource ID) keys. Lines are parsed and resolved by the worker threads of the reader,
+   * counts are spilled to disk if they exceed the memory budget of the count map.
+   */
+  def countsFromPigInputStreams(
+    pairCounts: InputStream,
+    wikipediaToDBpediaClosure: WikipediaToDBpediaClosure,
+    resStore: ResourceStore,
+    sfStore: SurfaceFormStore,
+    reader: ParallelLineReader = new ParallelLineReader(),
+    candidateCounts: ExternalCountMap = new ExternalCountMap()
+  ): ExternalCountMap = {
+
+    val uriNotFound = new AtomicInteger()
+    val sfNotFound  = new AtomicInteger()
+    val uriIgnored  = new AtomicInteger()
+
+    SpotlightLog.info(this.getClass, "Reading Candidate Map.")
+    reader.map(pairCounts, {
+      line: String => {
+        try {
+          val Array(sf, wikiurl, count) = line.trim().split('\t')
+          val uri = wikipediaToDBpediaClosure.wikipediaToDBpediaURI(wikiurl)
+
+          Triple(sfStore.getSurfaceForm(sf).id, resStore.getResourceByName(uri).id, count.toInt)
+        } catch {
+          case e: NotADBpediaResourceException     => uriIgnored.incrementAndGet(); null
+          case e: ArrayIndexOutOfBoundsException   => SpotlightLog.warn(this.getClass, "WARNING: Could not read line."); null
+          case e: MatchError                       => SpotlightLog.warn(this.getClass, "WARNING: Could not read line."); null
+          case e: DBpediaResourceNotFoundException => uriNotFound.incrementAndGet(); null
+          case e: SurfaceFormNotFoundException     => sfNotFound.incrementAndGet(); null
+        }
+      }
+    }, new ProgressReporter("Candidate map")) foreach {
+      case (sfID: Int, resID: Int, count: Int) => candidateCounts.add(sfID, resID, count)
+    }
+    SpotlightLog.info(this.getClass, "Done.")
+
+    SpotlightLog.warn(this.getClass, "DBpedia resource not found: %d", uriNotFound.get())
+    SpotlightLog.warn(this.getClass, "Invalid DBpedia resources (e.g. disambiguation page): %d", uriIgnored.get())
+    SpotlightLog.warn(this.getClass, "SF not found: %d", sfNotFound.get())
+
+    candidateCounts
+  }
+
+  def countsFromPigFiles(
+    pairCounts: File,
+    wikipediaToDBPediaClosure: WikipediaToDBpediaClosure,
+    resStore: ResourceStore,
+    sfStore: SurfaceFormStore
+  ): ExternalCountMap = countsFromPigInputStreams(new FileInputStream(pairCounts), wikipediaToDBPediaClosure, resStore, sfStore)
+
+
   def fromTSVInputStream(
     candmap: InputStream,
     resourceStore: ResourceStore,
@@ -17,6 +17,7 @@ import org.dbpedia.spotlight.model._
 import collection.parallel.mutable
 import org.dbpedia.spotlight.exceptions.NotADBpediaResourceException
 import org.semanticweb.yars.nx.parser.NxParser
+import util.{ProgressReporter, ParallelLineReader}
 
 
 /**
@@ -81,7 +82,8 @@ object DBpediaResourceSource {
     wikipediaToDBpediaClosure: WikipediaToDBpediaClosure,
     resourceCounts: InputStream,
     instanceTypes: (String, InputStream),
-    namespace: String
+    namespace: String,
+    reader: ParallelLineReader = new ParallelLineReader()
   ): java.util.Map[DBpediaResource, Int] = {
 
     SpotlightLog.info(this.getClass, "Creating DBepdiaResourceSource.")
@@ -93,28 +95,30 @@ object DBpediaResourceSource {
 
     SpotlightLog.info(this.getClass, "Reading resources+counts...")
 
-    Source.fromInputStream(resourceCounts).getLines() foreach {
+    //Resolving the redirects is done by the worker threads, IDs are assigned in input order:
+    reader.map(resourceCounts, {
       line: String => {
         try {
           val Array(wikiurl, count) = line.trim().split('\t')
-          val res = new DBpediaResource(wikipediaToDBpediaClosure.wikipediaToDBpediaURI(wikiurl))
-
-          resourceByURI.get(res.uri) match {
-            case Some(oldRes) => {
-              oldRes.setSupport(oldRes.support + count.toInt)
-              resourceByURI.put(oldRes.uri, oldRes)
-            }
-            case None => {
-              res.id = id
-              id += 1
-              res.setSupport(count.toInt)
-              resourceByURI.put(res.uri, res)
-            }
-          }
+          Pair(new DBpediaResource(wikipediaToDBpediaClosure.wikipediaToDBpediaURI(wikiurl)), count.toInt)
         } catch {
-          case e: NotADBpediaResourceException => //Ignore Disambiguation pages
+          case e: NotADBpediaResourceException => null //Ignore Disambiguation pages
+        }
+      }
+    }, new ProgressReporter("Resources")) foreach {
+      case (res: DBpediaResource, count: Int) => {
+        resourceByURI.get(res.uri) match {
+          case Some(oldRes) => {
+            oldRes.setSupport(oldRes.support + count)
+            resourceByURI.put(oldRes.uri, oldRes)
+          }
+          case None => {
+            res.id = id
+            id += 1
+            res.setSupport(count)
+            resourceByURI.put(res.uri, res)
+          }
         }
-
       }
     }
 
@@ -13,6 +13,7 @@ import scala.collection.JavaConversions._
 import org.dbpedia.spotlight.db.WikipediaToDBpediaClosure
 import org.dbpedia.spotlight.db.memory.MemoryResourceStore
 import org.dbpedia.extraction.util.WikiUtil
+import util.{ProgressReporter, ParallelLineReader}
 
 /**
  * Represents a source of SurfaceForms
@@ -24,7 +25,8 @@ object SurfaceFormSource {
 
   def fromPigInputStreams(
     sfAndTotalCounts: InputStream,
-    wikiClosure: WikipediaToDBpediaClosure = null
+    wikiClosure: WikipediaToDBpediaClosure = null,
+    reader: ParallelLineReader = new ParallelLineReader()
   ): Map[SurfaceForm, (Int, Int)] = {
 
     SpotlightLog.info(this.getClass, "Creating SurfaceFormSource...")
@@ -32,17 +34,18 @@ object SurfaceFormSource {
     val sfMap = new HashMap[SurfaceForm, (Int, Int)]()
 
     SpotlightLog.info(this.getClass, "Reading annotated and total counts...")
-    Source.fromInputStream(sfAndTotalCounts).getLines() foreach {
+    reader.map(sfAndTotalCounts, {
       lineS: String => {
         val line = lineS.trim().split('\t')
 
-        val surfaceform = new SurfaceForm(line(0))
-        val countAnnotated = line(1).toInt
-        
         //Read the total count: If there is no total count for the
-        //surface form, we use -1 to encode this case for handling 
+        //surface form, we use -1 to encode this case for handling
         //in later steps.
-        val countTotal = if( line.size == 3 ) line(2).toInt else -1
+        Triple(line(0), line(1).toInt, if( line.size == 3 ) line(2).toInt else -1)
+      }
+    }, new ProgressReporter("Surface forms")) foreach {
+      case (sf: String, countAnnotated: Int, countTotal: Int) => {
+        val surfaceform = new SurfaceForm(sf)
 
         sfMap.put(
           surfaceform,
@@ -4,12 +4,11 @@ import java.io.{InputStream, FileInputStream, File}
 import io.Source
 import org.dbpedia.spotlight.db.WikipediaToDBpediaClosure
 import org.dbpedia.spotlight.db.model.{ResourceStore, TokenTypeStore}
-import org.dbpedia.spotlight.log.SpotlightLog
 import scala.Predef._
 import scala.Array
 import org.dbpedia.spotlight.exceptions.{DBpediaResourceNotFoundException, NotADBpediaResourceException}
 import org.dbpedia.spotlight.model.{TokenType, DBpediaResource}
-import util.TokenOccurrenceParser
+import util.{ProgressReporter, ParallelLineReader, TokenOccurrenceParser}
 
 
 /**
@@ -20,26 +19,26 @@ import util.TokenOccurrenceParser
 
 object TokenOccurrenceSource {
 
-  def fromPigInputStream(tokenInputStream: InputStream, tokenTypeStore: TokenTypeStore, wikipediaToDBpediaClosure: WikipediaToDBpediaClosure, resStore: ResourceStore): Iterator[Triple[DBpediaResource, Array[TokenType], Array[Int]]] = {
-
-    var i = 0
-    plainTokenOccurrenceSource(tokenInputStream) map {
-      case (wikiurl: String, tokens: Array[String], counts: Array[Int]) => {
-        i += 1
-        if (i % 10000 == 0)
-          SpotlightLog.info(this.getClass, "Read context for %d resources...", i)
-        try {
-          Triple(
-            resStore.getResourceByName(wikipediaToDBpediaClosure.wikipediaToDBpediaURI(wikiurl)),
-            tokens.map{ token => tokenTypeStore.getTokenType(token) },
-            counts
-          )
-        } catch {
-          case e: DBpediaResourceNotFoundException => Triple(null, null, null)
-          case e: NotADBpediaResourceException     => Triple(null, null, null)
+  def fromPigInputStream(tokenInputStream: InputStream, tokenTypeStore: TokenTypeStore, wikipediaToDBpediaClosure: WikipediaToDBpediaClosure, resStore: ResourceStore, reader: ParallelLineReader = new ParallelLineReader()): Iterator[Triple[DBpediaResource, Array[TokenType], Array[Int]]] = {
+
+    //Parsing the tokens and resolving the resources is done by the worker threads:
+    reader.map(tokenInputStream, { line: String =>
+      parseLine(line) match {
+        case null => null
+        case (wikiurl: String, tokens: Array[String], counts: Array[Int]) => {
+          try {
+            Triple(
+              resStore.getResourceByName(wikipediaToDBpediaClosure.wikipediaToDBpediaURI(wikiurl)),
+              tokens.map{ token => tokenTypeStore.getTokenType(token) },
+              counts
+            )
+          } catch {
+            case e: DBpediaResourceNotFoundException => Triple(null, null, null)
+            case e: NotADBpediaResourceException     => Triple(null, null, null)
+          }
         }
       }
-    }
+    }, new ProgressReporter("Token occurrences", 10000))
 
   }
 
@@ -47,13 +46,24 @@ object TokenOccurrenceSource {
 
   val tokensParser = TokenOccurrenceParser.createDefault
 
-  def plainTokenOccurrenceSource(tokenInputStream: InputStream): Iterator[Triple[String, Array[String], Array[Int]]] = {
-    Source.fromInputStream(tokenInputStream) getLines() filter(!_.equals("")) map {
-      line: String => {
-        val Array(wikiurl, tokens) = line.trim().split('\t')
-        val Pair(tokensA, countsA) = tokensParser.parse(tokens)
-        Triple(wikiurl, tokensA, countsA)
-      }
+  def parseLine(line: String): Triple[String, Array[String], Array[Int]] = {
+    if (line.equals(""))
+      null
+    else {
+      val Array(wikiurl, tokens) = line.trim().split('\t')
+      val Pair(tokensA, countsA) = tokensParser.parse(tokens)
+      Triple(wikiurl, tokensA, countsA)
     }
   }
+
+  def plainTokenOccurrenceSource(tokenInputStream: InputStream): Iterator[Triple[String, Array[String], Array[Int]]] = {
+    Source.fromInputStream(tokenInputStream) getLines() filter(!_.equals("")) map(parseLine)
+  }
+
+  /**
+   * Parses the token occurrences on the worker threads of the reader.
+   */
+  def plainTokenOccurrenceSource(tokenInputStream: InputStream, reader: ParallelLineReader): Iterator[Triple[String, Array[String], Array[Int]]] = {
+    reader.map(tokenInputStream, parseLine, new ProgressReporter("Tokens", 10000))
+  }
 }
@@ -2,12 +2,13 @@ package org.dbpedia.spotlight.db.io
 
 import org.dbpedia.spotlight.io.OccurrenceSource
 import org.dbpedia.spotlight.db.model.{StringTokenizer, SurfaceFormStore}
-import collection.mutable.HashMap
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap
 import scala.collection.JavaConversions._
 import scala.collection.JavaConverters._
 import java.io.{InputStream, FileInputStream, File}
 import org.dbpedia.spotlight.log.SpotlightLog
 import org.dbpedia.spotlight.model._
+import util.ParallelLineReader
 
 
 /**
@@ -32,19 +33,16 @@ object TokenSource {
   }
 
   def fromPigFile(tokenFile: File, additionalTokens: Option[Seq[String]] = None) = fromPigInputStream(new FileInputStream(tokenFile), additionalTokens)
-  def fromPigInputStream(tokenFile: InputStream, additionalTokens: Option[Seq[String]] = None) = {
+  def fromPigInputStream(tokenFile: InputStream, additionalTokens: Option[Seq[String]] = None, reader: ParallelLineReader = new ParallelLineReader()) = {
 
-    val tokenMap = HashMap[String, Int]()
+    //Primitive map for the token counts, the token lines are parsed by the worker threads of the reader:
+    val tokenMap = new Object2IntOpenHashMap[String]()
+    tokenMap.defaultReturnValue(0)
 
-    var i = 0
-    TokenOccurrenceSource.plainTokenOccurrenceSource(tokenFile) foreach {
+    TokenOccurrenceSource.plainTokenOccurrenceSource(tokenFile, reader) foreach {
       p: Triple[String, Array[String], Array[Int]] => {
-        i += 1
-        if (i % 10000 == 0)
-          SpotlightLog.info(this.getClass, "Read context for %d resources...", i)
-
         (0 to p._2.size -1).foreach {
-          i: Int => tokenMap.put(p._2(i), tokenMap.getOrElse(p._2(i), 0) + p._3(i))
+          i: Int => tokenMap.put(p._2(i), tokenMap.getInt(p._2(i)) + p._3(i))
         }
       }
     }
@@ -53,19 +51,24 @@ object TokenSource {
       case Some(tokens) => {
         SpotlightLog.info(this.getClass, "Read %d additional tokens...", tokens.size)
         tokens.foreach { token: String =>
-          tokenMap.put(token, tokenMap.getOrElse(token, 0) + ADDITIONAL_TOKEN_COUNT)
+          tokenMap.put(token, tokenMap.getInt(token) + ADDITIONAL_TOKEN_COUNT)
         }
       }
       case None =>
     }
 
+    val tokenTypes = new java.util.HashMap[TokenType, Int](tokenMap.size)
+
     var id = -1
-    tokenMap.map{
-      case(token, count) => {
-        id += 1
-        (new TokenType(id, token, count), count)
-      }
-    }.toMap.asJava
+    val it = tokenMap.keySet().iterator()
+    while (it.hasNext) {
+      val token = it.next()
+      val count = tokenMap.getInt(token)
+      id += 1
+      tokenTypes.put(new TokenType(id, token, count), count)
+    }
+
+    tokenTypes
   }
 
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.db.io.util
+
+import it.unimi.dsi.fastutil.longs.{LongArrays, Long2IntOpenHashMap}
+import java.io._
+import org.dbpedia.spotlight.log.SpotlightLog
+import collection.mutable.ArrayBuffer
+
+/**
+ * Aggregates counts for primitive long keys (e.g. a pair of IDs, see [[org.dbpedia.spotlight.db.io.util.ExternalCountMap.pair]])
+ * within a fixed memory budget.
+ *
+ * Counts are summed in a primitive hash map. If the number of keys in the map exceeds
+ * the budget, the map is written to disk as a run sorted by key and cleared. When the
+ * counts are read, all runs are merged, so that each key is reported exactly once with
+ * its total count.
+ *
+ * @param maxEntriesInMemory maximum number of keys kept in memory before spilling to disk
+ * @param tempDir directory for the spilled runs
+ */
+
+class ExternalCountMap(val maxEntriesInMemory: Int = ExternalCountMap.defaultMaxEntries, val tempDir: File = null) {
+
+  private val counts = new Long2IntOpenHashMap()
+  counts.defaultReturnValue(0)
+
+  private val runs = ArrayBuffer[File]()
+
+  def add(key: Long, count: Int) {
+    counts.put(key, counts.get(key) + count)
+
+    if (counts.size >= maxEntriesInMemory)
+      spill()
+  }
+
+  def add(key1: Int, key2: Int, count: Int) {
+    add(ExternalCountMap.pair(key1, key2), count)
+  }
+
+  private def sortedKeys(): Array[Long] = {
+    val keys = counts.keySet().toLongArray
+    LongArrays.quickSort(keys)
+    keys
+  }
+
+  private def spill() {
+    val run = File.createTempFile("spotlight-counts-", ".run", tempDir)
+    run.deleteOnExit()
+
+    SpotlightLog.info(this.getClass, "Spilling %d counts to %s (run %d)...", counts.size, run.getAbsolutePath, runs.size + 1)
+
+    val out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16))
+    sortedKeys().foreach { key: Long =>
+      out.writeLong(key)
+      out.writeInt(counts.get(key))
+    }
+    out.close()
+
+    counts.clear()
+    counts.trim()
+    runs += run
+  }
+
+  /**
+   * Calls f once for every key with its total count.
+   * If the counts were spilled to disk, keys are reported in increasing order.
+   */
+  def foreach(f: (Long, Int) => Unit) {
+    if (runs.isEmpty) {
+      val it = counts.keySet().iterator()
+      while (it.hasNext) {
+        val key = it.nextLong()
+        f(key, counts.get(key))
+      }
+    } else {
+      if (counts.size > 0)
+        spill()
+      mergeRuns(f)
+    }
+  }
+
+  def foreachPair(f: (Int, Int, Int) => Unit) {
+    foreach { (key: Long, count: Int) =>
+      f(ExternalCountMap.first(key), ExternalCountMap.second(key), count)
+    }
+  }
+
+  private class RunReader(file: File) {
+    val in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))
+    var key = 0L
+    var count = 0
+    var exhausted = false
+
+    def advance() {
+      try {
+        key = in.readLong()
+        count = in.readInt()
+      } catch {
+        case e: EOFException => {
+          exhausted = true
+          in.close()
+        }
+      }
+    }
+
+    advance()
+  }
+
+  private def mergeRuns(f: (Long, Int) => Unit) {
+    val queue = new java.util.PriorityQueue[RunReader](runs.size, new java.util.Comparator[RunReader] {
+      def compare(a: RunReader, b: RunReader): Int = if (a.key < b.key) -1 else if (a.key > b.key) 1 else 0
+    })
+
+    runs.foreach { run: File =>
+      val reader = new RunReader(run)
+      if (!reader.exhausted)
+        queue.add(reader)
+    }
+
+    while (!queue.isEmpty) {
+      val key = queue.peek().key
+      var total = 0
+
+      while (!queue.isEmpty && queue.peek().key == key) {
+        val reader = queue.poll()
+        total += reader.count
+        reader.advance()
+        if (!reader.exhausted)
+          queue.add(reader)
+      }
+
+      f(key, total)
+    }
+  }
+
+  /**
+   * Removes all spilled runs from disk.
+   */
+  def close() {
+    runs.foreach(_.delete())
+    runs.clear()
+    counts.clear()
+  }
+
+}
+
+object ExternalCountMap {
+
+  /* Approximate number of bytes for a single entry in the in-memory map */
+  val BYTES_PER_ENTRY = 24
+
+  /**
+   * Default number of entries kept in memory, derived from the memory budget in MB
+   * that can be set with -Dspotlight.index.memoryBudgetMB=n (default: a quarter of the max. heap).
+   */
+  def defaultMaxEntries: Int = {
+    val budgetMB = Integer.getInteger("spotlight.index.memoryBudgetMB", (Runtime.getRuntime.maxMemory() / (4 * 1024 * 1024)).toInt).longValue()
+    math.min(budgetMB * 1024 * 1024 / BYTES_PER_ENTRY, Int.MaxValue / 2).toInt
+  }
+
+  def pair(first: Int, second: Int): Long = (first.toLong << 32) | (second.toLong & 0xFFFFFFFFL)
+  def first(key: Long): Int  = (key >>> 32).toInt
+  def second(key: Long): Int = key.toInt
+
+}
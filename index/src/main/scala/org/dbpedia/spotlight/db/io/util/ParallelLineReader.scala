@@ -0,0 +1,190 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.db.io.util
+
+import java.io.InputStream
+import java.util.concurrent._
+import scala.io.Source
+import collection.mutable.ArrayBuffer
+
+/**
+ * Reads the lines of an input stream (or the items of an iterator) and parses them on a pool of
+ * worker threads.
+ *
+ * Lines are read in chunks by the consuming thread and each chunk is parsed by one of
+ * the workers. At most maxPendingChunks chunks are read ahead, so the memory used by the
+ * reader is bounded regardless of the size of the input. The parsed results are returned
+ * in the order of the input lines.
+ *
+ * Each call uses its own workers. They are shut down when the input is exhausted or parsing
+ * fails, and they exit when idle if the consumer stops reading early.
+ *
+ * @param threads number of worker threads
+ * @param chunkSize number of lines parsed by a worker at once
+ * @param maxPendingChunks maximum number of chunks that are read ahead of the consumer
+ */
+
+class ParallelLineReader(val threads: Int = ParallelLineReader.defaultThreads, val chunkSize: Int = 10000, val maxPendingChunks: Int = ParallelLineReader.defaultThreads * 4) {
+
+  /**
+   * Parse all lines of the input stream. Lines for which the parse function returns null are skipped.
+   *
+   * @param in the input stream
+   * @param parse the function applied to each line, this is called concurrently and must be thread-safe
+   * @param progress optional progress reporter, ticked for each parsed line
+   * @return iterator over the parsed lines in input order
+   */
+  def map[T](in: InputStream, parse: String => T, progress: ProgressReporter = null): Iterator[T] = {
+    mapIterator(Source.fromInputStream(in).getLines(), parse, progress)
+  }
+
+  /**
+   * Apply a function to all items of the iterator on the worker threads. Items for which the function
+   * returns null are skipped. The input iterator is only consumed by the calling thread.
+   *
+   * @param items the input items
+   * @param f the function applied to each item, this is called concurrently and must be thread-safe
+   * @param progress optional progress reporter, ticked for each result
+   * @param ordered if true, results are returned in input order, otherwise chunks are returned as soon as they are done
+   * @return iterator over the results
+   */
+  def mapIterator[A, T](items: Iterator[A], f: A => T, progress: ProgressReporter = null, ordered: Boolean = true): Iterator[T] = {
+
+    if (threads <= 1)
+      return items.map(f).filter{ r: T =>
+        if (r != null && progress != null) progress.tick()
+        r != null
+      }
+
+    val executor = ParallelLineReader.newExecutor(threads)
+
+    new Iterator[T] {
+      val pending = new java.util.LinkedList[Future[ArrayBuffer[T]]]()
+      var current: Iterator[T] = Iterator.empty
+
+      private def readAhead() {
+        while (pending.size < maxPendingChunks && items.hasNext) {
+          val chunk = new ArrayBuffer[A](chunkSize)
+          while (chunk.size < chunkSize && items.hasNext)
+            chunk += items.next()
+
+          pending.add(executor.submit(new Callable[ArrayBuffer[T]] {
+            def call(): ArrayBuffer[T] = {
+              val results = new ArrayBuffer[T](chunk.size)
+              chunk.foreach{ item: A =>
+                val r = f(item)
+                if (r != null)
+                  results += r
+              }
+              results
+            }
+          }))
+        }
+      }
+
+      /* The next chunk to return: the oldest one or, if the order does not matter, any finished one. */
+      private def nextChunk(): Future[ArrayBuffer[T]] = {
+        if (!ordered) {
+          val it = pending.iterator()
+          while (it.hasNext) {
+            val chunk = it.next()
+            if (chunk.isDone) {
+              it.remove()
+              return chunk
+            }
+          }
+        }
+        pending.poll()
+      }
+
+      def hasNext: Boolean = {
+        try {
+          while (!current.hasNext) {
+            readAhead()
+
+            if (pending.isEmpty) {
+              executor.shutdown()
+              return false
+            }
+
+            val results = try {
+              nextChunk().get()
+            } catch {
+              case e: ExecutionException => throw e.getCause
+            }
+
+            if (progress != null)
+              progress.tick(results.size)
+
+            current = results.iterator
+          }
+          true
+        } catch {
+          case e: Throwable => {
+            //reading or parsing failed, the pending chunks are not needed anymore
+            executor.shutdownNow()
+            throw e
+          }
+        }
+      }
+
+      def next(): T = {
+        if (!hasNext)
+          throw new NoSuchElementException()
+        current.next()
+      }
+    }
+  }
+
+}
+
+object ParallelLineReader {
+
+  /**
+   * Number of threads used for parsing, can be set with -Dspotlight.index.threads=n
+   */
+  def defaultThreads: Int = Integer.getInteger("spotlight.index.threads", Runtime.getRuntime.availableProcessors()).intValue()
+
+  /**
+   * Seconds an idle worker waits for work before it exits.
+   */
+  val idleTimeoutSeconds = 10L
+
+  /**
+   * A pool of daemon threads whose workers exit when idle, so that the threads of an iterator
+   * that is not read to the end are not kept.
+   */
+  def newExecutor(threads: Int): ExecutorService = {
+    val executor = new ThreadPoolExecutor(threads, threads, idleTimeoutSeconds, TimeUnit.SECONDS,
+      new LinkedBlockingQueue[Runnable](), daemonThreadFactory)
+    executor.allowCoreThreadTimeOut(true)
+    executor
+  }
+
+  val daemonThreadFactory = new ThreadFactory {
+    val defaultFactory = Executors.defaultThreadFactory()
+
+    def newThread(r: Runnable): Thread = {
+      val t = defaultFactory.newThread(r)
+      t.setDaemon(true)
+      t
+    }
+  }
+
+}
@@ -1,18 +1,22 @@
 package org.dbpedia.spotlight.db.io.util
 
+import collection.mutable.ArrayBuffer
+
 class PigTokenOccurrenceParser extends TokenOccurrenceParser {
 
   def parse(tokens: String): Pair[Array[String], Array[Int]] = {
-    var tokensA = Array[String]()
-    var countsA = Array[Int]()
+    val tokensA = ArrayBuffer[String]()
+    val countsA = ArrayBuffer[Int]()
 
-    tokens.tail.init.split("[()]").filter(pair => !pair.equals(",") && !pair.equals("")).map {
+    tokens.tail.init.split("[()]").foreach {
       pair: String => {
-        val i = pair.lastIndexOf(',')
-        tokensA :+= pair.take(i)
-        countsA :+= pair.drop(i+1).toInt
+        if (!pair.equals(",") && !pair.equals("")) {
+          val i = pair.lastIndexOf(',')
+          tokensA += pair.take(i)
+          countsA += pair.drop(i+1).toInt
+        }
       }
     }
-    Pair(tokensA, countsA)
+    Pair(tokensA.toArray, countsA.toArray)
   }
-}
\ No newline at end of file
+}
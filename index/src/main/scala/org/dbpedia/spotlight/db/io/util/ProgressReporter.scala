@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.db.io.util
+
+import org.dbpedia.spotlight.log.SpotlightLog
+
+/**
+ * Reports the progress and throughput of a single stage of the model build.
+ *
+ * The reporter is not thread-safe, it is meant to be ticked by the thread that
+ * consumes the results of a stage.
+ *
+ * @param stage name of the stage, used in the log messages
+ * @param reportEvery log the progress every n items
+ */
+
+class ProgressReporter(val stage: String, val reportEvery: Long = 100000) {
+
+  private val startTime = System.currentTimeMillis()
+  private var lastReport = 0L
+
+  var count = 0L
+
+  SpotlightLog.info(this.getClass, "[%s] Starting...", stage)
+
+  def tick() {
+    tick(1)
+  }
+
+  def tick(n: Int) {
+    count += n
+    if (count - lastReport >= reportEvery) {
+      lastReport = count
+      SpotlightLog.info(this.getClass, "[%s] Processed %d items (%.1f items/s, %d MB heap used)...", stage, count, throughput, ProgressReporter.usedHeapMB)
+    }
+  }
+
+  def elapsedMillis: Long = System.currentTimeMillis() - startTime
+
+  def throughput: Double = count / math.max(elapsedMillis / 1000.0, 0.001)
+
+  def done() {
+    SpotlightLog.info(this.getClass, "[%s] Done: %d items in %.1f s (%.1f items/s, %d MB heap used).", stage, count, (elapsedMillis / 1000.0), throughput, ProgressReporter.usedHeapMB)
+  }
+
+}
+
+object ProgressReporter {
+
+  def usedHeapMB: Long = (Runtime.getRuntime.totalMemory() - Runtime.getRuntime.freeMemory()) / (1024 * 1024)
+
+}
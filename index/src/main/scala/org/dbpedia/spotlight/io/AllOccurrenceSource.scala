@@ -19,11 +19,13 @@ package org.dbpedia.spotlight.io
 import org.dbpedia.spotlight.string.WikiMarkupStripper
 import org.dbpedia.spotlight.model._
 import org.dbpedia.extraction.wikiparser._
-import org.dbpedia.extraction.sources.{Source, XMLSource}
+import org.dbpedia.extraction.sources.{WikiPage, Source, XMLSource}
 import org.dbpedia.spotlight.log.SpotlightLog
 import java.io.{File}
 import xml.{XML, Elem}
 import org.dbpedia.extraction.util.Language
+import org.dbpedia.spotlight.db.io.util.{ProgressReporter, ParallelLineReader}
+import collection.mutable.ListBuffer
 
 /**
  * Loads Occurrences from a wiki dump.
@@ -63,6 +65,85 @@ object AllOccurrenceSource
         new AllOccurrenceSource(XMLSource.fromXML(xml, language))
     }
 
+    /**
+     * Creates an DBpediaResourceOccurrence Source from a dump file (plain or bzip2-compressed) that is read with a
+     * streaming StAX reader. The wiki markup of the pages is parsed by a bounded pool of worker threads.
+     *
+     * @param threads number of worker threads
+     * @param ordered if true, the occurrences are returned in the order of the pages in the dump
+     */
+    def fromXMLDumpFileParallel(dumpFile : File, language: Language, threads: Int = ParallelLineReader.defaultThreads, ordered: Boolean = true) : OccurrenceSource =
+    {
+        new ParallelAllOccurrenceSource(WikiDumpPageReader.fromFile(dumpFile, language), threads, ordered)
+    }
+
+    /**
+     * Returns the occurrences of a page: the list items of disambiguation pages (each repeated multiplyDisambigs times),
+     * the links in the paragraphs of definition pages followed by the definition itself. Redirects have no occurrences.
+     */
+    def getOccurrences(wikiPage : WikiPage, wikiParser : WikiParser, multiplyDisambigs : Int=MULTIPLY_DISAMBIGUATION_CONTEXT) : List[DBpediaResourceOccurrence] =
+    {
+        var pageNode = wikiParser( wikiPage )
+        val occs = new ListBuffer[DBpediaResourceOccurrence]()
+
+        // disambiguations
+        if (pageNode.isDisambiguation) {
+            // clean the wiki markup from everything but links
+            val cleanSource = WikiMarkupStripper.stripEverythingButBulletPoints(wikiPage.source)
+
+            // parse the (clean) wiki page
+            pageNode = wikiParser( WikiPageUtil.copyWikiPage(wikiPage, cleanSource) )
+
+            val surfaceForm = new SurfaceForm(
+                    wikiPage.title.decoded.replace(" (disambiguation)", "").replaceAll("""^(The|A) """, ""))   //TODO i18n
+
+
+            // split the page node into list items
+            val listItems = NodeUtil.splitNodes(pageNode.children, splitDisambiguationsRegex)
+            var itemsCount = 0
+            for (listItem <- listItems)
+            {
+                itemsCount += 1
+                val id = pageNode.title.encoded+"-pl"+itemsCount
+                DisambiguationContextSource.getOccurrence(listItem, surfaceForm, id) match {
+                    case Some(occ) => (1 to multiplyDisambigs).foreach{i => occs += occ}
+                    case None =>
+                }
+            }
+        }
+
+        // definitions and occurrences
+        else if (!pageNode.isRedirect) {   // and not a disambiguation
+            // Occurrences
+
+            // clean the wiki markup from everything but links
+            val cleanSource = WikiMarkupStripper.stripEverything(wikiPage.source)
+
+            // parse the (clean) wiki page
+            pageNode = wikiParser( WikiPageUtil.copyWikiPage(wikiPage, cleanSource) )
+
+            // split the page node into paragraphs
+            val paragraphs = NodeUtil.splitNodes(pageNode.children, splitParagraphsRegex)
+            var paragraphCount = 0
+            for (paragraph <- paragraphs) {
+                paragraphCount += 1
+                val idBase = pageNode.title.encoded+"-p"+paragraphCount
+                occs ++= WikiOccurrenceSource.getOccurrences(paragraph, idBase)
+            }
+
+            // Definition a.k.a. WikiPageContext
+            val resource = new DBpediaResource(pageNode.title.encoded)
+            val surfaceForm = new SurfaceForm(pageNode.title.decoded.replaceAll(""" \(.+?\)$""", "")
+                                                                    .replaceAll("""^(The|A) """, ""))
+            val pageContext = new Text( WikiPageContextSource.getPageText(pageNode) )
+            val offset = pageContext.text.indexOf(surfaceForm.name)
+            occs += new DBpediaResourceOccurrence(pageNode.title.encoded+"-", resource, surfaceForm, pageContext, offset, Provenance.Wikipedia)
+
+        }
+
+        occs.toList
+    }
+
     /**
      * DBpediaResourceOccurrence Source which reads from a wiki pages source.
      */
@@ -77,74 +158,40 @@ object AllOccurrenceSource
 
             for (wikiPage <- wikiPages)
             {
-                var pageNode = wikiParser( wikiPage )
-
-                // disambiguations
-                if (pageNode.isDisambiguation) {
-                    // clean the wiki markup from everything but links
-                    val cleanSource = WikiMarkupStripper.stripEverythingButBulletPoints(wikiPage.source)
-
-                    // parse the (clean) wiki page
-                    pageNode = wikiParser( WikiPageUtil.copyWikiPage(wikiPage, cleanSource) )
-
-                    val surfaceForm = new SurfaceForm(
-                            wikiPage.title.decoded.replace(" (disambiguation)", "").replaceAll("""^(The|A) """, ""))   //TODO i18n
-
-
-                    // split the page node into list items
-                    val listItems = NodeUtil.splitNodes(pageNode.children, splitDisambiguationsRegex)
-                    var itemsCount = 0
-                    for (listItem <- listItems)
-                    {
-                        itemsCount += 1
-                        val id = pageNode.title.encoded+"-pl"+itemsCount
-                        DisambiguationContextSource.getOccurrence(listItem, surfaceForm, id) match {
-                            case Some(occ) => {
-                                (1 to multiplyDisambigs).foreach{i => f( occ )}
-                                occCount += 1
-                            }
-                            case None =>
-                        }
-                    }
-                }
-
-                // definitions and occurrences
-                else if (!pageNode.isRedirect) {   // and not a disambiguation
-                    // Occurrences
-                    
-                    // clean the wiki markup from everything but links
-                    val cleanSource = WikiMarkupStripper.stripEverything(wikiPage.source)
-
-                    // parse the (clean) wiki page
-                    pageNode = wikiParser( WikiPageUtil.copyWikiPage(wikiPage, cleanSource) )
-    
-                    // split the page node into paragraphs
-                    val paragraphs = NodeUtil.splitNodes(pageNode.children, splitParagraphsRegex)
-                    var paragraphCount = 0
-                    for (paragraph <- paragraphs) {
-                        paragraphCount += 1
-                        val idBase = pageNode.title.encoded+"-p"+paragraphCount
-                        WikiOccurrenceSource.getOccurrences(paragraph, idBase).foreach{occ =>
-                            occCount += 1
-                            f(occ)
-                        }
-                    }
-
-                    // Definition a.k.a. WikiPageContext
-                    val resource = new DBpediaResource(pageNode.title.encoded)
-                    val surfaceForm = new SurfaceForm(pageNode.title.decoded.replaceAll(""" \(.+?\)$""", "")
-                                                                            .replaceAll("""^(The|A) """, ""))
-                    val pageContext = new Text( WikiPageContextSource.getPageText(pageNode) )
-                    val offset = pageContext.text.indexOf(surfaceForm.name)
-                    f( new DBpediaResourceOccurrence(pageNode.title.encoded+"-", resource, surfaceForm, pageContext, offset, Provenance.Wikipedia) )
-
+                getOccurrences(wikiPage, wikiParser, multiplyDisambigs).foreach{occ =>
+                    occCount += 1
+                    f(occ)
                 }
 
                 pageCount += 1
                 if (pageCount %100000 == 0) {
-                    SpotlightLog.info(this.getClass, "Processed %d Wikipedia definition pages (average %.2f links per page)", pageCount, occCount/pageCount.toDouble)
+                    SpotlightLog.info(this.getClass, "Processed %d Wikipedia definition pages (average %.2f occurrences per page)", pageCount, occCount/pageCount.toDouble)
                 }
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * DBpediaResourceOccurrence Source which parses the pages on a pool of worker threads. At most a fixed number
+     * of pages is read ahead of the consumer, so the memory use does not depend on the size of the dump.
+     */
+    private class ParallelAllOccurrenceSource(wikiPages : Iterator[WikiPage], threads : Int, ordered : Boolean, multiplyDisambigs : Int=MULTIPLY_DISAMBIGUATION_CONTEXT) extends OccurrenceSource
+    {
+        // every worker thread uses its own wiki parser
+        val wikiParser = new ThreadLocal[WikiParser] {
+            override def initialValue() = WikiParser()
+        }
+
+        override def foreach[U](f : DBpediaResourceOccurrence => U) : Unit =
+        {
+            val reader = new ParallelLineReader(threads, 16, threads * 4)
+            val progress = new ProgressReporter("Wikipedia pages", 100000)
+
+            reader.mapIterator(wikiPages, { wikiPage : WikiPage => getOccurrences(wikiPage, wikiParser.get(), multiplyDisambigs) }, progress, ordered).foreach{
+                occs => occs.foreach(f)
+            }
+
+            progress.done()
+        }
+    }
+}
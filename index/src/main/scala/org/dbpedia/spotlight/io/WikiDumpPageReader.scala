@@ -0,0 +1,168 @@
+package org.dbpedia.spotlight.io
+
+/**
+ * Copyright 2011 DBpedia Spotlight Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.{FileInputStream, BufferedInputStream, File, InputStream}
+import javax.xml.stream.{XMLStreamConstants, XMLInputFactory}
+import org.dbpedia.extraction.sources.WikiPage
+import org.dbpedia.extraction.wikiparser.{Namespace, WikiTitle}
+import org.dbpedia.extraction.util.Language
+import org.dbpedia.spotlight.log.SpotlightLog
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream
+import java.text.{ParseException, SimpleDateFormat}
+import java.util.TimeZone
+
+/**
+ * Streaming reader for MediaWiki XML dumps based on StAX.
+ *
+ * Only one page is held in memory at a time. Pages whose title does not pass the filter
+ * (by default: pages that are not in the Main namespace) are skipped without building them.
+ */
+
+class WikiDumpPageReader(in: InputStream, language: Language, filter: WikiTitle => Boolean = WikiDumpPageReader.mainNamespace) extends Iterator[WikiPage]
+{
+    private val reader = WikiDumpPageReader.inputFactory.createXMLStreamReader(in, "UTF-8")
+
+    private val timestampFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'")
+    timestampFormat.setTimeZone(TimeZone.getTimeZone("UTC"))
+
+    private var nextPage: WikiPage = readPage()
+
+    def hasNext: Boolean = nextPage != null
+
+    def next(): WikiPage =
+    {
+        if (nextPage == null)
+            throw new NoSuchElementException()
+
+        val page = nextPage
+        nextPage = readPage()
+        page
+    }
+
+    /**
+     * Reads pages until one passes the filter, returns null at the end of the dump.
+     */
+    private def readPage(): WikiPage =
+    {
+        while (reader.hasNext) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName == "page") {
+                val page = readPageElement()
+                if (page != null)
+                    return page
+            }
+        }
+        reader.close()
+        in.close()
+        null
+    }
+
+    /**
+     * Reads the content of a page element, the reader is positioned on its start tag.
+     */
+    private def readPageElement(): WikiPage =
+    {
+        var title: WikiTitle = null
+        var redirect: WikiTitle = null
+        var id = -1L
+        var revision = -1L
+        var timestamp = 0L
+        var source: String = null
+
+        var inRevision = false
+        var inContributor = false
+        var skip = false
+
+        while (reader.hasNext) {
+            reader.next() match {
+                case XMLStreamConstants.START_ELEMENT => reader.getLocalName match {
+                    case "title" => {
+                        title = parseTitle(reader.getElementText)
+                        skip = (title == null || !filter(title))
+                    }
+                    case "redirect" if !skip => redirect = parseTitle(reader.getAttributeValue(null, "title"))
+                    case "revision"    => inRevision = true
+                    case "contributor" => inContributor = true
+                    case "id" if !skip && !inContributor => {
+                        val value = reader.getElementText.trim.toLong
+                        if (inRevision) revision = value else id = value
+                    }
+                    case "timestamp" if !skip => timestamp = parseTimestamp(reader.getElementText)
+                    case "text" if !skip      => source = reader.getElementText
+                    case _ =>
+                }
+                case XMLStreamConstants.END_ELEMENT => reader.getLocalName match {
+                    case "revision"    => inRevision = false
+                    case "contributor" => inContributor = false
+                    case "page" => {
+                        return if (skip || source == null)
+                            null
+                        else
+                            new WikiPage(title, redirect, id, revision, timestamp, source)
+                    }
+                    case _ =>
+                }
+                case _ =>
+            }
+        }
+        null
+    }
+
+    private def parseTitle(title: String): WikiTitle =
+    {
+        if (title == null)
+            return null
+
+        try {
+            WikiTitle.parse(title, language)
+        } catch {
+            case e: Exception => {
+                SpotlightLog.debug(this.getClass, "Invalid page title %s: %s", title, e.getMessage)
+                null
+            }
+        }
+    }
+
+    private def parseTimestamp(timestamp: String): Long =
+    {
+        try {
+            timestampFormat.parse(timestamp.trim).getTime
+        } catch {
+            case e: ParseException => 0L
+        }
+    }
+}
+
+object WikiDumpPageReader
+{
+    private val inputFactory = XMLInputFactory.newInstance()
+
+    val mainNamespace: WikiTitle => Boolean = _.namespace == Namespace.Main
+
+    /**
+     * Creates a page reader for a dump file, bzip2-compressed files are decompressed on the fly.
+     */
+    def fromFile(dumpFile: File, language: Language, filter: WikiTitle => Boolean = mainNamespace): WikiDumpPageReader =
+    {
+        val in = new BufferedInputStream(new FileInputStream(dumpFile), 1 << 20)
+        new WikiDumpPageReader(
+            if (dumpFile.getName.endsWith(".bz2")) new BZip2CompressorInputStream(in, true) else in,
+            language,
+            filter
+        )
+    }
+}
@@ -24,6 +24,7 @@ import org.dbpedia.spotlight.log.SpotlightLog
 import java.io.{PrintStream, FileOutputStream, File}
 import xml.{XML, Elem}
 import org.dbpedia.extraction.util.Language
+import org.dbpedia.spotlight.db.io.util.{ProgressReporter, ParallelLineReader}
 
 /**
  * Loads Occurrences from a wiki dump.
@@ -78,6 +79,59 @@ object WikiOccurrenceSource
       )
     }
 
+    /**
+     * Creates an DBpediaResourceOccurrence Source from a dump file (plain or bzip2-compressed) that is read with a
+     * streaming StAX reader. The wiki markup of the pages is parsed by a bounded pool of worker threads.
+     *
+     * @param threads number of worker threads
+     * @param ordered if true, the occurrences are returned in the order of the pages in the dump
+     */
+    def fromXMLDumpFileParallel(dumpFile : File, language: Language, threads: Int = ParallelLineReader.defaultThreads, ordered: Boolean = true) : OccurrenceSource =
+    {
+        new ParallelWikiOccurrenceSource(WikiDumpPageReader.fromFile(dumpFile, language), threads, ordered)
+    }
+
+    /**
+     * Returns all occurrences in the definition page, redirect and disambiguation pages have no occurrences.
+     */
+    def getOccurrences(wikiPage : WikiPage, wikiParser : WikiParser) : List[DBpediaResourceOccurrence] =
+    {
+        parseDefinitionPage(wikiPage, wikiParser) match {
+            case Some(pageNode) => getOccurrences(pageNode)
+            case None => Nil
+        }
+    }
+
+    /**
+     * Parses the page without the markup except for links, returns None for redirect and disambiguation pages.
+     */
+    private def parseDefinitionPage(wikiPage : WikiPage, wikiParser : WikiParser) : Option[PageNode] =
+    {
+        // clean the wiki markup from everything but links
+        val cleanSource = WikiMarkupStripper.stripEverything(wikiPage.source)
+
+        // parse the (clean) wiki page
+        val pageNode = wikiParser( WikiPageUtil.copyWikiPage(wikiPage, cleanSource) )
+
+        // exclude redirect and disambiguation pages
+        if (!pageNode.isRedirect && !pageNode.isDisambiguation)
+            Some(pageNode)
+        else
+            None
+    }
+
+    private def getOccurrences(pageNode : PageNode) : List[DBpediaResourceOccurrence] =
+    {
+        // split the page node into paragraphs
+        val paragraphs = NodeUtil.splitNodes(pageNode.children, splitDocumentRegex)
+        var paragraphCount = 0
+        paragraphs.flatMap{ paragraph =>
+            paragraphCount += 1
+            val idBase = pageNode.title.encoded+"-p"+paragraphCount
+            getOccurrences(paragraph, idBase)
+        }
+    }
+
     /**
      * DBpediaResourceOccurrence Source which reads from a wiki pages source.
      */
@@ -92,25 +146,10 @@ object WikiOccurrenceSource
 
             for (wikiPage <- wikiPages)
             {
-                // clean the wiki markup from everything but links
-                val cleanSource = WikiMarkupStripper.stripEverything(wikiPage.source)
-
-                // parse the (clean) wiki page
-                val pageNode = wikiParser( WikiPageUtil.copyWikiPage(wikiPage, cleanSource) )
-
                 // exclude redirect and disambiguation pages
-                if (!pageNode.isRedirect && !pageNode.isDisambiguation) {
-
-                    // split the page node into paragraphs
-                    val paragraphs = NodeUtil.splitNodes(pageNode.children, splitDocumentRegex)
-                    var paragraphCount = 0
-                    for (paragraph <- paragraphs)
-                    {
-                        paragraphCount += 1
-                        val idBase = pageNode.title.encoded+"-p"+paragraphCount
-                        getOccurrences(paragraph, idBase).foreach{occ => occCount += 1
-                                                                         f(occ)}
-                    }
+                for (pageNode <- parseDefinitionPage(wikiPage, wikiParser)) {
+                    getOccurrences(pageNode).foreach{occ => occCount += 1
+                                                           f(occ)}
 
                     pageCount += 1
                     if (pageCount %5000 == 0) {
@@ -125,6 +164,30 @@ object WikiOccurrenceSource
         }
     }
 
+    /**
+     * DBpediaResourceOccurrence Source which parses the pages on a pool of worker threads. At most a fixed number
+     * of pages is read ahead of the consumer, so the memory use does not depend on the size of the dump.
+     */
+    private class ParallelWikiOccurrenceSource(wikiPages : Iterator[WikiPage], threads : Int, ordered : Boolean) extends OccurrenceSource
+    {
+        // every worker thread uses its own wiki parser
+        val wikiParser = new ThreadLocal[WikiParser] {
+            override def initialValue() = WikiParser()
+        }
+
+        override def foreach[U](f : DBpediaResourceOccurrence => U) : Unit =
+        {
+            val reader = new ParallelLineReader(threads, 16, threads * 4)
+            val progress = new ProgressReporter("Wikipedia pages", 100000)
+
+            reader.mapIterator(wikiPages, { wikiPage : WikiPage => getOccurrences(wikiPage, wikiParser.get()) }, progress, ordered).foreach{
+                occs => occs.foreach(f)
+            }
+
+            progress.done()
+        }
+    }
+
     def getOccurrences(paragraph : List[Node], occurrenceIdBase : String) : List[DBpediaResourceOccurrence] =
     {
         var paragraphText = ""
@@ -25,16 +25,16 @@ import org.dbpedia.spotlight.util.IndexingConfiguration
 import org.dbpedia.spotlight.filter.occurrences.{RedirectResolveFilter, UriWhitelistFilter, ContextNarrowFilter}
 import org.dbpedia.spotlight.io._
 import org.dbpedia.spotlight.model.DBpediaResourceOccurrence
-import org.dbpedia.spotlight.BzipUtils
 import org.dbpedia.extraction.util.Language
 
 /**
  * Saves Occurrences to a TSV file.
  * - Surface forms are taken from anchor texts
  * - Redirects are resolved
+ * - The dump (plain or bzipped) is streamed and its pages are parsed in parallel,
+ *   the number of threads can be set with -Dspotlight.index.threads=n
  *
  * TODO think about having a two file output, one with (id, sf, uri) and another with (id, context)
- * TODO allow reading from a bzipped wikiDump (needs upgrading our dependency on the DBpedia Extraction Framework)
  *
  * Used to be called SurrogatesUtil
  *
@@ -48,7 +48,7 @@ object ExtractOccsFromWikipedia {
         val targetFileName = args(1)
 
         val config = new IndexingConfiguration(indexingConfigFileName)
-        var wikiDumpFileName    = config.get("org.dbpedia.spotlight.data.wikipediaDump")
+        val wikiDumpFileName    = config.get("org.dbpedia.spotlight.data.wikipediaDump")
         val conceptURIsFileName = config.get("org.dbpedia.spotlight.data.conceptURIs")
         val redirectTCFileName  = config.get("org.dbpedia.spotlight.data.redirectsTC")
         val maxContextWindowSize  = config.get("org.dbpedia.spotlight.data.maxContextWindowSize").toInt
@@ -56,12 +56,6 @@ object ExtractOccsFromWikipedia {
         val languageCode = config.get("org.dbpedia.spotlight.language_i18n_code")
 
 
-        if (wikiDumpFileName.endsWith(".bz2")) {
-            SpotlightLog.warn(this.getClass, "The DBpedia Extraction Framework does not support parsing from bz2 files. You can stop here, decompress and restart the process with an uncompressed XML.")
-            SpotlightLog.warn(this.getClass, "If you do not stop the process, we will decompress the file into the /tmp/ directory for you.")
-            wikiDumpFileName = BzipUtils.extract(wikiDumpFileName)
-        }
-
         val conceptUriFilter = UriWhitelistFilter.fromFile(new File(conceptURIsFileName))
 
         val redirectResolver = RedirectResolveFilter.fromFile(new File(redirectTCFileName))
@@ -71,7 +65,7 @@ object ExtractOccsFromWikipedia {
 
         val filters = (conceptUriFilter :: redirectResolver :: contextNarrowFilter :: Nil)
 
-        val occSource : Traversable[DBpediaResourceOccurrence] = AllOccurrenceSource.fromXMLDumpFile(new File(wikiDumpFileName), Language(languageCode))
+        val occSource : Traversable[DBpediaResourceOccurrence] = AllOccurrenceSource.fromXMLDumpFileParallel(new File(wikiDumpFileName), Language(languageCode))
         //val filter = new OccurrenceFilter(redirectsTC = redirectsTCMap, conceptURIs = conceptUrisSet, contextExtractor = narrowContext)
         //val occs = filter.filter(occSource)
 
@@ -116,7 +116,13 @@ object IndexMergedOccurrences
             lucene.shouldOverwrite = shouldOverwrite
         }
 
-        val vectorBuilder = new MergedOccurrencesContextIndexer(lucene)
+        //With more than one shard, the occurrences are indexed in parallel and merged into the final index at the end.
+        //The shards are not merged with existing documents, so an existing index has to be overwritten:
+        val numShards : Int = config.get("org.dbpedia.spotlight.index.shards", "1").toInt
+        val vectorBuilder = if (numShards > 1)
+            new ShardedMergedOccurrencesContextIndexer(lucene, new File(config.get("org.dbpedia.spotlight.index.shardDir", indexOutputDir+".shards")), numShards)
+        else
+            new MergedOccurrencesContextIndexer(lucene)
 
         val freeMemGB : Double = Runtime.getRuntime.freeMemory / 1073741824.0
         if (Runtime.getRuntime.freeMemory < minNumDocsBeforeFlush) SpotlightLog.error(this.getClass, "Your available memory %fGB is less than minNumDocsBeforeFlush. This setting is known to give OutOfMemoryError.", freeMemGB)
@@ -1,6 +1,7 @@
 package org.dbpedia.spotlight.spot.lingpipe
 
-import org.dbpedia.spotlight.spot.Spotter
+import com.aliasi.dict.Dictionary
+import com.aliasi.util.AbstractExternalizable
 import java.io.{PrintWriter, File}
 import org.dbpedia.spotlight.model.SpotlightConfiguration
 import scala.collection.JavaConversions._
@@ -9,12 +10,13 @@ import org.dbpedia.spotlight.log.SpotlightLog
 object DumpLingPipeSpotterDict {
     def main(args : Array[String]) {
         val configuration: SpotlightConfiguration = new SpotlightConfiguration(args(0))
-        val spotter = new LingPipeSpotter(new File(configuration.getSpotterConfiguration.getSpotterFile), configuration.getAnalyzer)
+        // the spotter only keeps the tokenized surface forms, read the phrases from the LingPipe dictionary
+        val dictionary = AbstractExternalizable.readObject(new File(configuration.getSpotterConfiguration.getSpotterFile)).asInstanceOf[Dictionary[String]]
         //val lingPipeFactory = new LingPipeFactory(new File(configuration.getTaggerFile), new IndoEuropeanSentenceModel)
         val outFile = configuration.getSpotterConfiguration().getSpotterFile + ".out"
         SpotlightLog.info(this.getClass, "Writing spotter dictionary to file %s", outFile)
         val out = new PrintWriter(outFile)
-        spotter.dictionary.entryList().foreach( e => out.println(e.phrase()) )
+        dictionary.entryList().foreach( e => out.println(e.phrase()) )
         out.close
         SpotlightLog.info(this.getClass, "Done.")
     }
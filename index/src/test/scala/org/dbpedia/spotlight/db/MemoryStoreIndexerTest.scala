@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.db
+
+import org.junit.Test
+import org.junit.Assert._
+import java.io.{FileInputStream, File}
+import collection.mutable
+import opennlp.tools.util.Span
+import memory.MemoryStore
+import model.StringTokenizer
+import org.dbpedia.spotlight.model.{Text, SurfaceForm}
+
+/**
+ * Compares the total counts of the surface forms corrected with the [[org.dbpedia.spotlight.db.TokenTrie]] to the
+ * counts of the former implementation that looked up the sub-ngrams of every surface form by their strings.
+ */
+class MemoryStoreIndexerTest {
+
+  /**
+   * Splits at spaces and lower-cases, so that "Apple" and "apple" have the same ngram.
+   */
+  private val tokenizer = new StringTokenizer {
+    def tokenize(text: Text): Seq[String] = tokenize(text.text)
+    def tokenize(text: String): Seq[String] = text.toLowerCase.split(" ").toSeq
+    def tokenizePos(text: String): Array[Span] = throw new UnsupportedOperationException()
+  }
+
+  //surface form -> (annotated count, total count)
+  private val fixture = List(
+    "apple" -> (50, 100),
+    "Apple" -> (60, 80),
+    "apple macbook" -> (20, 30),
+    "apple macbook pro" -> (10, 12),
+    "Apple MacBook Pro" -> (4, 6),
+    "macbook" -> (15, 40),
+    "macbook pro" -> (8, 9),
+    "pro" -> (5, 200),
+    "apple apple" -> (3, 4),
+    "new york" -> (30, 35),
+    "new york city" -> (12, 15),
+    "york" -> (2, 3),
+    "city" -> (0, 50),
+    "new" -> (1, 1000),
+    "new york new york" -> (0, 2)
+  )
+
+  private def getAllNgrams(grams: Seq[String]): Seq[Seq[String]] = {
+    (1 to grams.size-1).flatMap( grams.sliding(_) )
+  }
+
+  /**
+   * The count correction of MemoryStoreIndexer.addSurfaceForms before the TokenTrie was introduced.
+   */
+  private def correctedCounts(stringForID: Array[String], annotatedCountForID: Array[Int], totalCounts: Array[Int]): Array[Int] = {
+    val totalCountForID = totalCounts.clone()
+    val sfId = mutable.HashMap[String, Int]()
+
+    stringForID.zipWithIndex.flatMap{
+      case (sf: String, id: Int) => {
+        val sfNgram = tokenizer.tokenize(sf)
+
+        sfId.put(sfNgram.mkString(" "),
+          sfId.get(sfNgram.mkString(" ")) match {
+            case None => id
+            case Some(existingID) => if(annotatedCountForID(id) > annotatedCountForID(existingID)) id else existingID
+          }
+        )
+
+        Some(sfNgram, id)
+      }
+      case _ => None
+    }.sortBy(_._1.size).reverse.foreach{
+      case (ngram: Seq[String], id: Int) if(ngram.size > 1) => {
+        getAllNgrams(ngram).foreach{ subngram: Seq[String] =>
+          sfId.get(subngram.mkString(" ")) match {
+            case Some(subID) if(totalCountForID(subID) > 0 && annotatedCountForID(id) > 0) => totalCountForID(subID) = totalCountForID(subID) - annotatedCountForID(id)
+            case _ =>
+          }
+        }
+      }
+      case _ =>
+    }
+
+    totalCountForID
+  }
+
+  @Test
+  def sameCountsAsStringNgrams() {
+    val baseDir = File.createTempFile("sf-store", "")
+    baseDir.delete()
+    baseDir.mkdir()
+
+    try {
+      val sfCount = new java.util.LinkedHashMap[SurfaceForm, (Int, Int)]()
+      fixture.foreach { case (sf, counts) => sfCount.put(new SurfaceForm(sf), counts) }
+
+      val indexer = new MemoryStoreIndexer(baseDir)
+      indexer.tokenizer = Some(tokenizer)
+      indexer.addSurfaceForms(sfCount)
+
+      val sfStore = MemoryStore.loadSurfaceFormStore(new FileInputStream(new File(baseDir, "sf.mem")))
+
+      val uncorrected = sfStore.stringForID.map{ sf: String =>
+        if (sf == null) 0 else fixture.find(_._1 == sf).get._2._2
+      }
+      val expected = correctedCounts(sfStore.stringForID, sfStore.annotatedCountForID, uncorrected)
+
+      assertArrayEquals(expected, sfStore.totalCountForID)
+      assertFalse("The fixture does not exercise the correction.", uncorrected.sameElements(expected))
+    } finally {
+      baseDir.listFiles().foreach(_.delete())
+      baseDir.delete()
+    }
+  }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+
+package org.dbpedia.spotlight.db.io.util
+
+import org.junit.Test
+import org.junit.Assert._
+import java.io.File
+import scala.collection.mutable
+import scala.util.Random
+
+/**
+ * Forces the counts to be spilled to disk by a tiny memory limit and compares the merged counts to counts kept in memory.
+ */
+class ExternalCountMapTest {
+
+  private def withTempDir(f: File => Unit) {
+    val dir = File.createTempFile("counts", "")
+    dir.delete()
+    dir.mkdir()
+    try {
+      f(dir)
+    } finally {
+      dir.listFiles().foreach(_.delete())
+      dir.delete()
+    }
+  }
+
+  @Test
+  def spilledCountsAreMerged() {
+    withTempDir { dir: File =>
+      val random = new Random(42)
+      val expected = mutable.HashMap[(Int, Int), Int]()
+      val counts = new ExternalCountMap(maxEntriesInMemory = 10, tempDir = dir)
+
+      (0 until 5000).foreach { i: Int =>
+        //Negative IDs check that the pair keys are split correctly:
+        val pair = (random.nextInt(40) - 5, random.nextInt(30) - 5)
+        val count = random.nextInt(5) + 1
+        counts.add(pair._1, pair._2, count)
+        expected.put(pair, expected.getOrElse(pair, 0) + count)
+      }
+      assertTrue("The counts were not spilled.", dir.listFiles().length > 1)
+
+      val merged = mutable.HashMap[(Int, Int), Int]()
+      val keys = mutable.ArrayBuffer[Long]()
+      counts.foreachPair { (first: Int, second: Int, count: Int) =>
+        assertFalse("Pair reported twice.", merged.contains((first, second)))
+        merged.put((first, second), count)
+        keys += ExternalCountMap.pair(first, second)
+      }
+
+      assertEquals(expected, merged)
+      assertEquals(keys.sorted, keys)
+
+      counts.close()
+      assertEquals(0, dir.listFiles().length)
+    }
+  }
+
+  @Test
+  def countsInMemory() {
+    withTempDir { dir: File =>
+      val counts = new ExternalCountMap(maxEntriesInMemory = 100, tempDir = dir)
+      counts.add(1, 2, 3)
+      counts.add(1, 2, 4)
+      counts.add(2, 1, 1)
+
+      val merged = mutable.HashMap[(Int, Int), Int]()
+      counts.foreachPair { (first: Int, second: Int, count: Int) => merged.put((first, second), count) }
+
+      assertEquals(Map((1, 2) -> 7, (2, 1) -> 1), merged.toMap)
+      assertEquals(0, dir.listFiles().length)
+      counts.close()
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+
+package org.dbpedia.spotlight.db.io.util
+
+import org.junit.Test
+import org.junit.Assert._
+import java.io.ByteArrayInputStream
+
+/**
+ * Checks that the chunks parsed on the worker threads are handed back in input order.
+ */
+class ParallelLineReaderTest {
+
+  private val n = 1000
+
+  //Small chunks and few pending chunks, so that many chunks are handed off while others are still parsed:
+  private val reader = new ParallelLineReader(threads = 4, chunkSize = 7, maxPendingChunks = 3)
+
+  /* Parsing takes longer for the first lines of a chunk, so later chunks tend to finish first. */
+  private def slowParse(line: String): Integer = {
+    val i = line.toInt
+    if (i % 7 == 0)
+      Thread.sleep(1)
+    if (i % 3 == 0) null else i
+  }
+
+  @Test
+  def linesAreReturnedInInputOrder() {
+    val in = new ByteArrayInputStream((0 until n).mkString("\n").getBytes("UTF-8"))
+    val parsed = reader.map(in, slowParse _).toList
+
+    assertEquals((0 until n).filter(_ % 3 != 0).toList, parsed.map(_.intValue))
+  }
+
+  @Test
+  def unorderedReturnsAllResults() {
+    val parsed = reader.mapIterator((0 until n).map(_.toString).iterator, slowParse _, ordered = false).toList
+
+    assertEquals((0 until n).filter(_ % 3 != 0).toList, parsed.map(_.intValue).sorted)
+  }
+
+  @Test
+  def parseErrorsAreRethrown() {
+    val items = (0 until n).iterator.map{ i: Int => if (i == 500) "not a number" else i.toString }
+    try {
+      reader.mapIterator(items, slowParse _).foreach{ r: Integer => }
+      fail("The parse error was not rethrown.")
+    } catch {
+      case e: NumberFormatException =>
+    }
+  }
+
+}
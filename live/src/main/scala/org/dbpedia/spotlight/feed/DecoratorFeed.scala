@@ -3,7 +3,7 @@ package org.dbpedia.spotlight.feed
 /**
  * Baseclass for all feeds that decorate (enrich) other feeds with new information
  * @param feed
- * @param synchronous Should be true if the consumers are slower than this feed as a producer
+ * @param synchronous Should be true if the consumers are slower than this feed as a producer (wait for them instead of dropping items)
  * @param mA
  * @param mB
  * @tparam A Type of feed to decorate
@@ -6,38 +6,41 @@ import actors.Actor
 /**
  * Baseclass for all feeds, which handles subscriptions and information distribution.
  *
+ * Items are put into the bounded queues of the listeners (see [[org.dbpedia.spotlight.feed.FeedListener]]), which process
+ * them on the shared [[org.dbpedia.spotlight.feed.FeedExecutor]].
+ *
+ * @param synchronous if true, notifyListeners waits while a listener's queue is full (back-pressure on the producer;
+ *                    feeds that notify from a feed thread hand the item off instead of waiting), otherwise items that
+ *                    do not fit into a listener's queue are dropped
  * @tparam T Type of feed item (has to be a tuple)
  */
 abstract class Feed[T <: Product](synchronous: Boolean)(implicit m: Manifest[T]) extends Actor {
     private var listeners = Set[FeedListener[_]]()
 
     def subscribe(listener: FeedListener[_]) {
-         listeners += (listener)
+        listeners.synchronized {
+            listeners += (listener)
+        }
     }
 
     def unSubscribe(listener: FeedListener[_]) {
-        listeners.remove(listener)
+        listeners.synchronized {
+            listeners.remove(listener)
+        }
     }
 
     protected def notifyListeners(item: T) {
-        if (synchronous)
-            listeners.foreach(listener => {
-                var thread: Thread = null
-                listener.synchronized {
-                    thread = new Thread(new Runnable {
-                        def run() {
-                            listener.synchronized {
-                                listener.notify(item, m)
-                            }
-                        }
-                    })
-                }
-                thread.start()
-            })
-        else
-            listeners.foreach {
-                _ !(item, m)
-            }
+        val currentListeners = listeners.synchronized {
+            listeners.toList
+        }
+        currentListeners.foreach(_.enqueue(item, m, synchronous))
+    }
+
+    /**
+     * Largest number of items waiting in the queue of one of the listeners.
+     */
+    def maxQueueDepth: Int = listeners.synchronized {
+        listeners.foldLeft(0)((depth, listener) => math.max(depth, listener.queueDepth))
     }
 
     FeedRegistry.register(this, m)
@@ -0,0 +1,84 @@
+package org.dbpedia.spotlight.feed
+
+import java.util.concurrent._
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Bounded thread pool on which FeedListeners process their items.
+ *
+ * Each listener has its own bounded queue and at most one task running or waiting in this pool at a time, so the
+ * number of threads does not grow with the number of feed items.
+ *
+ * The threads of the pool never wait for a full listener queue: they may be the threads that would drain it (e.g. a
+ * DecoratorFeed that notifies its listeners from its own update). Items that do not fit are handed off to separate
+ * threads instead and the listener that produced them is paused until they are queued, see
+ * [[org.dbpedia.spotlight.feed.FeedListener]].enqueue.
+ *
+ * @param threads number of threads of the pool
+ */
+class FeedExecutor(val threads: Int) {
+
+    private val counter = new AtomicInteger()
+
+    private val executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue[Runnable](),
+        new ThreadFactory {
+            def newThread(runnable: Runnable): Thread = {
+                val thread = new FeedExecutor.FeedThread(runnable, "feed-" + counter.incrementAndGet())
+                thread.setDaemon(true)
+                thread
+            }
+        })
+
+    //Threads that wait for full listener queues on behalf of the pool.
+    private val handOffExecutor = Executors.newCachedThreadPool(new ThreadFactory {
+        def newThread(runnable: Runnable): Thread = {
+            val thread = new Thread(runnable, "feed-handoff-" + counter.incrementAndGet())
+            thread.setDaemon(true)
+            thread
+        }
+    })
+
+    def execute(task: Runnable) {
+        executor.execute(task)
+    }
+
+    /**
+     * Runs a task that may block (e.g. a put into a full queue) outside of the pool.
+     */
+    def handOff(task: Runnable) {
+        handOffExecutor.execute(task)
+    }
+
+    /**
+     * Number of listener tasks waiting for a thread.
+     */
+    def pendingTasks: Int = executor.getQueue.size
+
+    def shutdown() {
+        executor.shutdown()
+        handOffExecutor.shutdown()
+    }
+
+}
+
+/**
+ * The shared feed executor. The defaults can be changed with system properties:
+ * <ul>
+ *   <li>org.dbpedia.spotlight.feed.threads: number of threads (default: number of processors)</li>
+ *   <li>org.dbpedia.spotlight.feed.queueCapacity: items a listener can have queued (default: 1000)</li>
+ *   <li>org.dbpedia.spotlight.feed.batchSize: maximum number of items passed to a listener at once (default: 1)</li>
+ * </ul>
+ */
+object FeedExecutor extends FeedExecutor(Integer.getInteger("org.dbpedia.spotlight.feed.threads", Runtime.getRuntime.availableProcessors).intValue) {
+
+    val queueCapacity = Integer.getInteger("org.dbpedia.spotlight.feed.queueCapacity", 1000).intValue
+    val batchSize = Integer.getInteger("org.dbpedia.spotlight.feed.batchSize", 1).intValue
+
+    private class FeedThread(runnable: Runnable, name: String) extends Thread(runnable, name)
+
+    /**
+     * @return true if the current thread belongs to the pool of a feed executor
+     */
+    def isFeedThread: Boolean = Thread.currentThread.isInstanceOf[FeedThread]
+
+}
@@ -1,23 +1,57 @@
 package org.dbpedia.spotlight.feed
 
-import actors.Actor
 import org.dbpedia.spotlight.log.SpotlightLog
 import scala.Product
 import ClassManifest.fromClass
+import java.util.concurrent.{ConcurrentHashMap, ConcurrentLinkedQueue, TimeUnit, LinkedBlockingQueue}
+import java.util.concurrent.atomic.{AtomicInteger, AtomicLong, AtomicBoolean}
 
 /**
  * FeedListeners have the ability to listen to feeds and get updated. A feed listener can subscribe to all feeds whose feed items at least
  * contain the subset of objects defined by T (which is a tuple). <br> <br>
  * E.g.: There is a feed which pushes items of type (Topic, Text) to its listeners. The following types T (for listeners) can handle
  * such a feed: (Topic), (Text), (Topic, Text), (Text, Topic). I.e. that a feedlistener just takes the stuff he needs from
- * a feed.
+ * a feed. <br> <br>
+ * Feed items are put into a bounded queue of the listener and processed in order on a [[org.dbpedia.spotlight.feed.FeedExecutor]]
+ * (by default the shared one), one batch at a time.
  *
+ * @param queueCapacity maximum number of items waiting to be processed
+ * @param batchSize maximum number of items passed to updateBatch at once
+ * @param executor executor the items are processed on
  * @param m manifest of T
  * @tparam T Type of feed item that will be consumed
  */
-abstract class FeedListener[T <: Product](implicit m: Manifest[T]) extends Actor {
+abstract class FeedListener[T <: Product](queueCapacity: Int = FeedExecutor.queueCapacity, batchSize: Int = FeedExecutor.batchSize,
+                                          executor: FeedExecutor = FeedExecutor)
+                                         (implicit m: Manifest[T]) {
+
+    /** Queued items with their manifest and the time they were queued. */
+    private val queue = new LinkedBlockingQueue[(Product, Manifest[_], Long)](queueCapacity)
+    private val scheduled = new AtomicBoolean(false)
+
+    /** Items of synchronous feeds that came from a feed thread while the queue was full, in order. */
+    private val overflow = new ConcurrentLinkedQueue[(Product, Manifest[_], Long)]()
+    private val handingOff = new AtomicBoolean(false)
+
+    /** Listeners whose processing added items to the overflow, they are paused until the overflow is empty. */
+    private val waiting = java.util.Collections.newSetFromMap(new ConcurrentHashMap[FeedListener[_], java.lang.Boolean]())
+
+    /** Number of downstream listeners this listener waits for, it does not process items while this is not 0. */
+    private val pauses = new AtomicInteger()
+
+    private val processed = new AtomicLong()
+    private val dropped = new AtomicLong()
+    @volatile private var lastLag = 0L
+
     protected def update(item: T)
 
+    /**
+     * Processes a batch of items, by default one after another with update.
+     */
+    protected def updateBatch(items: Seq[T]) {
+        items.foreach(update)
+    }
+
     def subscribeTo(feed: Feed[_]) {
         feed.subscribe(this)
     }
@@ -26,23 +60,158 @@ abstract class FeedListener[T <: Product](implicit m: Manifest[T]) extends Actor
         feed.unSubscribe(this)
     }
 
-    //TODO possible mailbox overflow??
-    def act {
-        loop {
-            receive {
-                case item: (Product, Manifest[_]) => notify(item._1, item._2)
-                case _ => SpotlightLog.error(this.getClass, "Received wrong feed item!")
+    /**
+     * Queues an item for processing. If the queue is full, waits for space if block is true (back-pressure on the
+     * feed), otherwise the item is dropped.
+     *
+     * A thread of a feed executor (e.g. a DecoratorFeed notifying its listeners) never waits, because it may be
+     * the thread that would drain the queue: the item is kept in order in an overflow and put into the queue by a
+     * hand-off thread. The listener that is processing on the feed thread is paused until the overflow is empty,
+     * so its own queue fills up and the back-pressure reaches its producer. The overflow therefore holds at most
+     * the items of the batches that were being processed when it filled up.
+     *
+     * @return false if the item was dropped
+     */
+    def enqueue(item: Product, iMan: Manifest[_], block: Boolean): Boolean = {
+        val entry = (item, iMan, System.currentTimeMillis())
+        val queued = if (!block) {
+            queue.offer(entry)
+        } else if (!FeedExecutor.isFeedThread) {
+            queue.put(entry)
+            true
+        } else {
+            if (!overflow.isEmpty || !queue.offer(entry)) {
+                val upstream = FeedListener.processing.get
+                if (upstream != null && upstream != this && waiting.add(upstream))
+                    upstream.pause()
+                overflow.add(entry)
+                handOff()
+            }
+            true
+        }
+
+        if (queued)
+            schedule()
+        else if (dropped.incrementAndGet() % 100 == 1)
+            SpotlightLog.warn(this.getClass, "Queue of %s is full, dropped %d feed items so far.", this, dropped.get)
+        queued
+    }
+
+    /**
+     * Moves the overflow into the queue on a hand-off thread, waiting for space as a blocking enqueue would.
+     */
+    private def handOff() {
+        if (!overflow.isEmpty && handingOff.compareAndSet(false, true))
+            executor.handOff(new Runnable {
+                def run() {
+                    try {
+                        while (!overflow.isEmpty) {
+                            //the item stays in the overflow until it is queued, so that later items queue behind it
+                            queue.put(overflow.peek())
+                            overflow.poll()
+                            schedule()
+                        }
+                    } catch {
+                        case e: InterruptedException => SpotlightLog.warn(FeedListener.this.getClass, "Interrupted while handing off feed items.")
+                    } finally {
+                        handingOff.set(false)
+                        if (overflow.isEmpty)
+                            resumeWaiting()
+                        handOff()
+                    }
+                }
+            })
+    }
+
+    private def resumeWaiting() {
+        val it = waiting.iterator
+        while (it.hasNext) {
+            val upstream = it.next()
+            if (waiting.remove(upstream))
+                upstream.resume()
+        }
+    }
+
+    private def pause() {
+        pauses.incrementAndGet()
+    }
+
+    private def resume() {
+        pauses.decrementAndGet()
+        schedule()
+    }
+
+    private def schedule() {
+        if (!queue.isEmpty && pauses.get == 0 && scheduled.compareAndSet(false, true))
+            executor.execute(new Runnable {
+                def run() {
+                    processBatch()
+                }
+            })
+    }
+
+    private def processBatch() {
+        try {
+            val batch = new java.util.ArrayList[(Product, Manifest[_], Long)](batchSize)
+            queue.drainTo(batch, batchSize)
+
+            if (!batch.isEmpty) {
+                lastLag = System.currentTimeMillis() - batch.get(0)._3
+                val items = scala.collection.JavaConversions.asScalaBuffer(batch).flatMap {
+                    case (item, iMan, _) => convert(item, iMan)
+                }
+                FeedListener.processing.set(this)
+                try {
+                    updateBatch(items)
+                } catch {
+                    case e: Exception => SpotlightLog.error(this.getClass, "Error processing feed items: %s", e)
+                } finally {
+                    FeedListener.processing.remove()
+                }
+                processed.addAndGet(batch.size)
+                SpotlightLog.debug(this.getClass, "Processed %d feed items, queue depth: %d, lag: %d ms", batch.size, queue.size, lastLag)
             }
+        } finally {
+            scheduled.set(false)
+            schedule()
         }
     }
 
+    /** Number of items waiting to be processed. */
+    def queueDepth: Int = queue.size + overflow.size
+
+    /** Time the last processed batch waited in the queue (in ms). */
+    def lagMillis: Long = lastLag
+
+    def processedItems: Long = processed.get
+
+    def droppedItems: Long = dropped.get
+
+    /**
+     * Waits until all queued items were processed or the timeout expired.
+     *
+     * @return true if the queue was drained
+     */
+    def awaitEmpty(timeout: Long, unit: TimeUnit): Boolean = {
+        val end = System.currentTimeMillis() + unit.toMillis(timeout)
+        while ((!queue.isEmpty || !overflow.isEmpty || scheduled.get) && System.currentTimeMillis() < end)
+            Thread.sleep(10)
+        queue.isEmpty && overflow.isEmpty && !scheduled.get
+    }
+
     def notify(item: Product, iMan: Manifest[_]) {
+        convert(item, iMan).foreach(update)
+    }
+
+    /**
+     * Takes the objects this listener needs from a feed item (see class description).
+     */
+    private def convert(item: Product, iMan: Manifest[_]): Option[T] = {
         if (iMan.equals(m))
-            update(item.asInstanceOf[T])
+            Some(item.asInstanceOf[T])
         else {
             val iManIt = iMan.typeArguments.iterator
             var possibleArgs = item.productIterator.foldLeft(List[(Object, Manifest[_])]())((list, element) => list.::((element.asInstanceOf[Object], iManIt.next()))).reverse
-            //try {
             val args =
                 m.typeArguments.foldLeft(List[Object]())((list, manifest) => {
                     val obj = possibleArgs.find(element =>
@@ -54,9 +223,9 @@ abstract class FeedListener[T <: Product](implicit m: Manifest[T]) extends Actor
 
             if (m.typeArguments.length.equals(args.length)) {
                 val constructor = m.erasure.getConstructors()(0)
-                update(constructor.newInstance(args: _*).asInstanceOf[T])
-            }
-            //  }
+                Some(constructor.newInstance(args: _*).asInstanceOf[T])
+            } else
+                None
         }
     }
 
@@ -66,11 +235,24 @@ abstract class FeedListener[T <: Product](implicit m: Manifest[T]) extends Actor
         )
     }
 
+    /**
+     * Subscribes to all matching feeds, including the feeds that are created later.
+     */
+    def registerForAllFeeds {
+        FeedRegistry.registerListener(this, m)
+    }
+
     def unSubscribeToAllFeeds {
         FeedRegistry.getFeedsByManifest(m).foreach(
             _.unSubscribe(this)
         )
     }
 
-    this.start()
+}
+
+object FeedListener {
+
+    /** The listener whose items are processed on the current thread. */
+    private val processing = new ThreadLocal[FeedListener[_]]
+
 }
@@ -4,17 +4,44 @@ import scala.reflect.Manifest
 import collection.mutable._
 
 /**
- * Simple registry for Feeds, which helps FeedListeners to find matching feeds.
+ * Simple registry for Feeds, which helps FeedListeners to find matching feeds. Registered listeners are
+ * subscribed to all matching feeds, including the feeds that are created later (e.g. by the Wikipedia harvester).
  */
 object FeedRegistry {
 
     var feeds = Set[(Manifest[_], Feed[_ <: Product])]()
 
+    private var listeners = Set[(Manifest[_], FeedListener[_])]()
+
     def register(feed: Feed[_ <: Product], m: Manifest[_]) {
-        feeds += (m -> feed)
+        synchronized {
+            feeds += (m -> feed)
+            listeners.foreach {
+                case (listenerManifest, listener) =>
+                    if (matches(listenerManifest, m))
+                        feed.subscribe(listener)
+            }
+        }
+    }
+
+    /**
+     * Subscribes the listener to all current and future feeds whose items match m.
+     */
+    def registerListener(listener: FeedListener[_], m: Manifest[_]) {
+        synchronized {
+            listeners += (m -> listener)
+            getFeedsByManifest(m).foreach(_.subscribe(listener))
+        }
     }
 
-    def getFeeds[T <: Product](implicit m: Manifest[T]): Set[Feed[_]] = {
+    def unregisterListener(listener: FeedListener[_]) {
+        synchronized {
+            listeners = listeners.filterNot(_._2 == listener)
+            feeds.foreach(_._2.unSubscribe(listener))
+        }
+    }
+
+    def getFeeds[T <: Product](implicit m: Manifest[T]): Set[Feed[_]] = synchronized {
         var ret = Set[Feed[_]]()
         val should = listToMap[Manifest[_]](m.typeArguments)
         for (feed <-
@@ -30,22 +57,23 @@ object FeedRegistry {
         ret
     }
 
-    def getFeedsByManifest(m: Manifest[_]): Set[Feed[_]] = {
+    def getFeedsByManifest(m: Manifest[_]): Set[Feed[_]] = synchronized {
         var ret = Set[Feed[_]]()
-        val should = listToMap[Manifest[_]](m.typeArguments)
-        for (feed <-
-             feeds filter {
-                 case (manifest, feed) => {
-                     val is = listToMap[Manifest[_]](manifest.typeArguments)
-                     should.foldLeft(true)((result, element) => result && element._2 <= is.getOrElse(element._1, 0))
-                 }
-             }) {
-
+        for (feed <- feeds filter { case (manifest, feed) => matches(m, manifest) }) {
             ret += (feed._2)
         }
         ret
     }
 
+    /**
+     * Whether the items of a feed (feedManifest) contain the objects a listener (listenerManifest) takes.
+     */
+    private def matches(listenerManifest: Manifest[_], feedManifest: Manifest[_]): Boolean = {
+        val should = listToMap[Manifest[_]](listenerManifest.typeArguments)
+        val is = listToMap[Manifest[_]](feedManifest.typeArguments)
+        should.foldLeft(true)((result, element) => result && element._2 <= is.getOrElse(element._1, 0))
+    }
+
     private def listToMap[A](seq: List[A]): Map[A, Int] = {
         var result = Map[A, Int]()
 
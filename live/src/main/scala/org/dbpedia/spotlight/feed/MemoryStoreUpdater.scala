@@ -0,0 +1,46 @@
+package org.dbpedia.spotlight.feed
+
+import collection.mutable._
+import org.dbpedia.spotlight.model.{Text, DBpediaResourceOccurrence}
+import org.dbpedia.spotlight.db.memory.MemoryStoreDelta
+import org.dbpedia.spotlight.db.SpotlightModel
+import org.dbpedia.spotlight.log.SpotlightLog
+
+/**
+ * Adds the annotated paragraphs of a feed (e.g. the [[org.dbpedia.spotlight.feed.WikipediaUpdateFeed]]) to the delta of
+ * the memory stores.
+ *
+ * @param delta delta layer of the memory stores
+ */
+class MemoryStoreUpdater(val delta: MemoryStoreDelta, batchSize: Int = FeedExecutor.batchSize)
+    extends FeedListener[(Set[DBpediaResourceOccurrence], Text)](FeedExecutor.queueCapacity, batchSize) {
+
+    protected def update(item: (Set[DBpediaResourceOccurrence], Text)) {
+        delta.add(item._1)
+    }
+
+    override protected def updateBatch(items: Seq[(Set[DBpediaResourceOccurrence], Text)]) {
+        delta.add(items.flatMap(_._1))
+    }
+
+}
+
+object MemoryStoreUpdater {
+
+    /**
+     * Adds the occurrences of all current and future matching feeds to the delta of the model.
+     *
+     * @return the updater, or None if live updates are disabled for the model (see [[org.dbpedia.spotlight.db.SpotlightModel]])
+     */
+    def register(model: SpotlightModel): Option[MemoryStoreUpdater] = {
+        if (model.delta == null) {
+            SpotlightLog.info(this.getClass, "Live updates are disabled for the model, the memory stores are not updated.")
+            None
+        } else {
+            val updater = new MemoryStoreUpdater(model.delta)
+            updater.registerForAllFeeds
+            Some(updater)
+        }
+    }
+
+}
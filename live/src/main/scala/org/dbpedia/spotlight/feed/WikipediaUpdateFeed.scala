@@ -14,12 +14,14 @@ import hu.sztaki.pedia.uima.RunCPE
 import collection.mutable._
 import java.util.regex.Pattern
 import org.dbpedia.spotlight.model._
+import org.dbpedia.spotlight.db.SpotlightModel
 
 /**
  * Feed of paragraphs of wikipedia updates, which is an implementation of wikipedia harvester's external processor.
- * The first entry is the article the update was made in.
+ * The first entry is the article the update was made in. The feed is synchronous, so that during bursts of edits
+ * the harvester waits for the listeners instead of queueing paragraphs without bounds.
  */
-class WikipediaUpdateFeed extends Feed[(DBpediaResource, Set[DBpediaResourceOccurrence], Set[DBpediaCategory], Text)](false) with IExternalProcessor {
+class WikipediaUpdateFeed extends Feed[(DBpediaResource, Set[DBpediaResourceOccurrence], Set[DBpediaCategory], Text)](true) with IExternalProcessor {
     protected var interval = Long.MaxValue
 
     override def initialize(argv: Array[String]) {
@@ -123,10 +125,16 @@ object WikipediaUpdateFeed {
      * @param configurationXml
      * @param apiUser
      * @param apiPassword
+     * @param model if not null, the occurrences of the feed are added to the memory stores of the model (see [[org.dbpedia.spotlight.feed.MemoryStoreUpdater]])
      */
     def startFeed(domain: String, destinationHostname: String, destinationPort: Int,
                   applicationName: String, language: String, redirectsPath: String,
-                  nonArticleTitlesPath: String, configurationXml: String, apiUser: String = null, apiPassword: String = null) {
+                  nonArticleTitlesPath: String, configurationXml: String, apiUser: String = null, apiPassword: String = null,
+                  model: SpotlightModel = null) {
+
+        //the harvester creates the feed itself, so the updater subscribes to feeds created later
+        if (model != null)
+            MemoryStoreUpdater.register(model)
 
         val domainUrl = domain + ".org"
         val ircChannel = "#" + domain
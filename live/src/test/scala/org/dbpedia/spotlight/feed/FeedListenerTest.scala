@@ -0,0 +1,157 @@
+package org.dbpedia.spotlight.feed
+
+import org.junit.Test
+import org.junit.Assert._
+import java.util.concurrent.{CopyOnWriteArrayList, TimeUnit}
+import java.util.concurrent.atomic.AtomicInteger
+import scala.collection.JavaConversions._
+
+/**
+ * Tests that listeners that pass items on to other listeners (like a DecoratorFeed) do not block the feed threads
+ * and that the back-pressure still reaches the producer.
+ */
+class FeedListenerTest {
+
+    private val nItems = 5
+    private val fanOut = 3
+
+    @Test
+    def fullDownstreamQueueDoesNotDeadlockSingleThread() {
+        val executor = new FeedExecutor(1)
+        val received = new CopyOnWriteArrayList[String]()
+
+        //capacity 1: the second item of a batch finds the queue full while the only thread is busy upstream
+        val downstream = new FeedListener[Tuple1[String]](1, 1, executor) {
+            protected def update(item: Tuple1[String]) {
+                received.add(item._1)
+            }
+        }
+
+        val upstream = new FeedListener[Tuple1[String]](nItems, nItems, executor) {
+            protected def update(item: Tuple1[String]) {
+                (0 until fanOut).foreach(i => downstream.enqueue(Tuple1(item._1 + "-" + i), manifest[Tuple1[String]], true))
+            }
+        }
+
+        try {
+            (0 until nItems).foreach(i => upstream.enqueue(Tuple1(i.toString), manifest[Tuple1[String]], true))
+
+            assertTrue("upstream did not finish", upstream.awaitEmpty(10, TimeUnit.SECONDS))
+            assertTrue("downstream did not finish", downstream.awaitEmpty(10, TimeUnit.SECONDS))
+
+            val expected = (0 until nItems).flatMap(i => (0 until fanOut).map(j => i + "-" + j))
+            assertEquals(expected.toList, received.toList)
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    def registeredListenerGetsItemsOfLaterFeeds() {
+        val executor = new FeedExecutor(1)
+        val received = new CopyOnWriteArrayList[String]()
+
+        val listener = new FeedListener[Tuple1[String]](nItems, nItems, executor) {
+            protected def update(item: Tuple1[String]) {
+                received.add(item._1)
+            }
+        }
+
+        try {
+            listener.registerForAllFeeds
+
+            //created after the listener was registered, like the feeds the Wikipedia harvester creates
+            val feed = new Feed[(String, Int)](true) {
+                def act() {}
+                def push(s: String) {
+                    notifyListeners((s, 1))
+                }
+            }
+            feed.push("a")
+
+            assertTrue(listener.awaitEmpty(10, TimeUnit.SECONDS))
+            assertEquals(List("a"), received.toList)
+        } finally {
+            FeedRegistry.unregisterListener(listener)
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    def producerThreadWaitsForFullQueue() {
+        val executor = new FeedExecutor(1)
+        val received = new CopyOnWriteArrayList[String]()
+
+        val listener = new FeedListener[Tuple1[String]](1, 1, executor) {
+            protected def update(item: Tuple1[String]) {
+                received.add(item._1)
+            }
+        }
+
+        try {
+            //not a feed thread: blocking enqueues wait and nothing is dropped
+            (0 until 20).foreach(i => assertTrue(listener.enqueue(Tuple1(i.toString), manifest[Tuple1[String]], true)))
+
+            assertTrue(listener.awaitEmpty(10, TimeUnit.SECONDS))
+            assertEquals((0 until 20).map(_.toString).toList, received.toList)
+            assertEquals(0L, listener.droppedItems)
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    def burstThroughDecoratorIsBounded() {
+        val executor = new FeedExecutor(1)
+        val received = new CopyOnWriteArrayList[String]()
+        val nBurst = 2000
+        val maxDepth = new AtomicInteger()
+
+        val downstream = new FeedListener[(String, Int)](1, 1, executor) {
+            protected def update(item: (String, Int)) {
+                received.add(item._1 + "-" + item._2)
+            }
+        }
+
+        val source = new Feed[Tuple1[String]](true) {
+            def act() {}
+            def push(s: String) {
+                notifyListeners(Tuple1(s))
+            }
+        }
+
+        //notifies the downstream listener from a thread of the shared feed executor
+        val decorator = new DecoratorFeed[Tuple1[String], (String, Int)](source, true) {
+            def processFeedItem(item: Tuple1[String]) {
+                (0 until fanOut).foreach(i => {
+                    notifyListeners((item._1, i))
+                    val depth = downstream.queueDepth
+                    while (maxDepth.get < depth && !maxDepth.compareAndSet(maxDepth.get, depth)) {}
+                })
+            }
+        }
+
+        try {
+            decorator.act
+            downstream.subscribeTo(decorator)
+
+            //the producer is not a feed thread, it waits while the queue of the decorator is full
+            (0 until nBurst).foreach(i => source.push(i.toString))
+
+            assertTrue("decorator did not finish", decorator.feedListener.awaitEmpty(30, TimeUnit.SECONDS))
+            assertTrue("downstream did not finish", downstream.awaitEmpty(30, TimeUnit.SECONDS))
+
+            val expected = (0 until nBurst).flatMap(i => (0 until fanOut).map(j => i + "-" + j))
+            assertEquals(expected.toList, received.toList)
+            assertEquals(0L, decorator.feedListener.droppedItems)
+
+            //the decorator is paused while the downstream overflow is not empty, so the overflow only holds the
+            //items of the batch that filled it (and of the next one, if it starts while the last items are handed off)
+            assertTrue("downstream queue depth " + maxDepth.get, maxDepth.get <= 1 + 2 * fanOut)
+        } finally {
+            decorator.feedListener.unSubscribeTo(source)
+            executor.shutdown()
+        }
+    }
+
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2011 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.web.rest;
+
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbpedia.spotlight.disambiguate.ParagraphDisambiguatorJ;
+import org.dbpedia.spotlight.exceptions.InitializationException;
+import org.dbpedia.spotlight.exceptions.InputException;
+import org.dbpedia.spotlight.model.DBpediaResourceOccurrence;
+import org.dbpedia.spotlight.model.SpotlightConfiguration;
+import org.dbpedia.spotlight.model.SurfaceFormOccurrence;
+import org.dbpedia.spotlight.model.Text;
+
+import java.io.*;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Annotates a corpus offline, without the HTTP server.
+ *
+ * The documents are read as a stream of JSON lines ({"id": ..., "text": ...}) or, if the input file ends with .tsv,
+ * as lines of the form id TAB text (files ending with .gz are decompressed). The results are written in the same
+ * format, one document per line, with the annotation in one of the output formats of the server (xml, json, html,
+ * rdfa or the NIF formats turtle, ntriples and rdfxml). The documents are written in the order they are finished.
+ *
+ * The documents go through a pipeline of stages that run in their own threads and are connected by bounded queues:
+ * reading, tokenization and spotting, disambiguation and filtering (including the output format), and writing.
+ * The annotation parameters have the same semantics as the parameters of the server, they are set as system
+ * properties, e.g. -Dorg.dbpedia.spotlight.bulk.confidence=0.2:
+ *
+ * confidence, support, types, sparql, policy, coreferenceResolution, spotter, disambiguator, prefix (of the NIF
+ * document URIs, followed by the document id), spotThreads, disambiguationThreads, queueCapacity
+ */
+public class BulkAnnotator {
+
+    static Log LOG = LogFactory.getLog(BulkAnnotator.class);
+
+    static String usage = "usage: java -cp dbpedia-spotlight.jar org.dbpedia.spotlight.web.rest.BulkAnnotator " +
+            "[model folder or config file] [input: .jsonl or .tsv, - for stdin] [output, - for stdout] [format: xml|json|html|rdfa|turtle|ntriples|rdfxml]";
+
+    private static final String PROPERTY_PREFIX = "org.dbpedia.spotlight.bulk.";
+
+    /** Interval of the throughput reports (ms). */
+    private static final long REPORT_INTERVAL = 10000;
+
+    /** Marks the end of the input in the queues. */
+    private static final Document END = new Document(null, null);
+
+    private static class Document {
+        final String id;
+        final Text text;
+        List<SurfaceFormOccurrence> spots;
+        String result;
+
+        Document(String id, Text text) {
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    private final SpotlightInterface spotlightInterface = new SpotlightInterface("/bulk");
+    private final OutputManager outputManager = new OutputManager();
+
+    private final boolean tsv;
+    private final String format;
+
+    private final double confidence = Double.parseDouble(property("confidence", SpotlightConfiguration.DEFAULT_CONFIDENCE));
+    private final int support = Integer.parseInt(property("support", SpotlightConfiguration.DEFAULT_SUPPORT));
+    private final String types = property("types", SpotlightConfiguration.DEFAULT_TYPES);
+    private final String sparql = property("sparql", SpotlightConfiguration.DEFAULT_SPARQL);
+    private final String policy = property("policy", SpotlightConfiguration.DEFAULT_POLICY);
+    private final boolean coreferenceResolution = Boolean.parseBoolean(property("coreferenceResolution", "true"));
+    private final String spotterName = property("spotter", "Default");
+    private final String prefix = property("prefix", "http://localhost/");
+
+    private final int spotThreads;
+    private final int disambiguationThreads;
+
+    private final BlockingQueue<Document> spotQueue;
+    private final BlockingQueue<Document> disambiguationQueue;
+    private final BlockingQueue<Document> outputQueue;
+
+    private final ParagraphDisambiguatorJ disambiguator;
+    private final ParagraphDisambiguatorJ longTextDisambiguator;
+
+    private final AtomicLong annotated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile IOException writeError;
+
+    public BulkAnnotator(boolean tsv, String format) throws InputException {
+        this.tsv = tsv;
+        this.format = format;
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        spotThreads = Integer.parseInt(property("spotThreads", String.valueOf(Math.max(1, processors / 4))));
+        disambiguationThreads = Integer.parseInt(property("disambiguationThreads", String.valueOf(Math.max(1, processors - spotThreads))));
+
+        int queueCapacity = Integer.parseInt(property("queueCapacity", "1000"));
+        spotQueue = new ArrayBlockingQueue<Document>(queueCapacity);
+        disambiguationQueue = new ArrayBlockingQueue<Document>(queueCapacity);
+        outputQueue = new ArrayBlockingQueue<Document>(queueCapacity);
+
+        Server.getSpotter(spotterName); // fails early if the spotter is not available
+        String disambiguatorName = property("disambiguator", "Default");
+        disambiguator = spotlightInterface.getDisambiguator(disambiguatorName, 0);
+        longTextDisambiguator = spotlightInterface.getDisambiguator(disambiguatorName, Integer.MAX_VALUE);
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty(PROPERTY_PREFIX + name, defaultValue);
+    }
+
+    /**
+     * Annotates all documents of the input and writes them to the output.
+     */
+    public void annotate(BufferedReader input, Writer output) throws IOException, InterruptedException {
+        LOG.info(String.format("Annotating with %d spotting and %d disambiguation threads.", spotThreads, disambiguationThreads));
+
+        final AtomicInteger activeSpotters = new AtomicInteger(spotThreads);
+        for (int i = 0; i < spotThreads; i++) {
+            startStage("bulk-spot-" + i, new Runnable() {
+                public void run() {
+                    try {
+                        Document doc;
+                        while ((doc = spotQueue.take()) != END) {
+                            try {
+                                doc.spots = spotlightInterface.spot(spotterName, doc.text);
+                                disambiguationQueue.put(doc);
+                            } catch (Exception e) {
+                                failed(doc, e);
+                            }
+                        }
+                        spotQueue.put(END);
+                        if (activeSpotters.decrementAndGet() == 0)
+                            disambiguationQueue.put(END);
+                    } catch (InterruptedException e) {
+                        LOG.error("Spotting was interrupted.");
+                    }
+                }
+            });
+        }
+
+        final AtomicInteger activeDisambiguators = new AtomicInteger(disambiguationThreads);
+        for (int i = 0; i < disambiguationThreads; i++) {
+            startStage("bulk-disambiguate-" + i, new Runnable() {
+                public void run() {
+                    try {
+                        Document doc;
+                        while ((doc = disambiguationQueue.take()) != END) {
+                            try {
+                                doc.result = disambiguate(doc);
+                                outputQueue.put(doc);
+                            } catch (Exception e) {
+                                failed(doc, e);
+                            }
+                        }
+                        disambiguationQueue.put(END);
+                        if (activeDisambiguators.decrementAndGet() == 0)
+                            outputQueue.put(END);
+                    } catch (InterruptedException e) {
+                        LOG.error("Disambiguation was interrupted.");
+                    }
+                }
+            });
+        }
+
+        final Writer out = output;
+        Thread writer = startStage("bulk-write", new Runnable() {
+            public void run() {
+                long start = System.currentTimeMillis();
+                long lastReport = start;
+                try {
+                    Document doc;
+                    while ((doc = outputQueue.take()) != END) {
+                        if (writeError != null)
+                            continue; // keep the pipeline moving until the reader has stopped
+
+                        try {
+                            out.write(formatLine(doc));
+                            out.write('\n');
+                        } catch (IOException e) {
+                            writeError = e;
+                            LOG.error("Could not write the annotations: " + e.getMessage());
+                            continue;
+                        }
+                        annotated.incrementAndGet();
+
+                        long now = System.currentTimeMillis();
+                        if (now - lastReport >= REPORT_INTERVAL) {
+                            report(start, now);
+                            lastReport = now;
+                        }
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    writeError = e;
+                } catch (InterruptedException e) {
+                    LOG.error("Writing was interrupted.");
+                }
+                report(start, System.currentTimeMillis());
+            }
+        });
+
+        String line;
+        long lineNumber = 0;
+        while ((line = input.readLine()) != null && writeError == null) {
+            lineNumber++;
+            if (line.trim().length() == 0)
+                continue;
+            try {
+                spotQueue.put(parseLine(line, lineNumber));
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                LOG.warn(String.format("Skipping line %d: %s", lineNumber, e.getMessage()));
+            }
+        }
+        spotQueue.put(END);
+
+        writer.join();
+        if (writeError != null)
+            throw writeError;
+    }
+
+    private Thread startStage(String name, Runnable stage) {
+        Thread thread = new Thread(stage, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private Document parseLine(String line, long lineNumber) {
+        if (tsv) {
+            int tab = line.indexOf('\t');
+            if (tab < 0)
+                return new Document(String.valueOf(lineNumber), new Text(line));
+            return new Document(line.substring(0, tab), new Text(line.substring(tab + 1)));
+        } else {
+            JSONObject json = JSONObject.fromObject(line);
+            String id = json.has("id") ? json.getString("id") : String.valueOf(lineNumber);
+            return new Document(id, new Text(json.getString("text")));
+        }
+    }
+
+    /**
+     * Disambiguates and filters the spots of the document and returns the annotation in the output format.
+     */
+    private String disambiguate(Document doc) throws Exception {
+        String text = doc.text.text();
+        ParagraphDisambiguatorJ d = text.length() > SpotlightInterface.MAX_LENGTH_FOR_OCCURRENCE_CENTRIC ? longTextDisambiguator : disambiguator;
+
+        List<DBpediaResourceOccurrence> occs = spotlightInterface.disambiguate(doc.spots, d);
+        occs = spotlightInterface.filter(occs, confidence, support, types, sparql, spotlightInterface.policyIsBlacklist(policy), coreferenceResolution);
+        doc.spots = null;
+
+        if (format.equals("xml"))
+            return outputManager.makeXML(text, occs, confidence, support, types, sparql, policy, coreferenceResolution);
+        else if (format.equals("json"))
+            return outputManager.xml2json(outputManager.makeXML(text, occs, confidence, support, types, sparql, policy, coreferenceResolution));
+        else if (format.equals("html"))
+            return outputManager.makeHTML(text, occs);
+        else if (format.equals("rdfa"))
+            return outputManager.makeRDFa(text, occs);
+        else
+            return outputManager.makeNIF(text, occs, format, prefix + URLEncoder.encode(doc.id, "UTF-8"));
+    }
+
+    private String formatLine(Document doc) {
+        if (tsv) {
+            return doc.id + "\t" + doc.result.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+        } else {
+            JSONObject json = new JSONObject();
+            json.element("id", doc.id);
+            if (format.equals("json"))
+                json.element("annotation", JSONSerializer.toJSON(doc.result));
+            else
+                json.element("annotation", doc.result);
+            return json.toString();
+        }
+    }
+
+    private void failed(Document doc, Exception e) {
+        failed.incrementAndGet();
+        LOG.warn(String.format("Could not annotate document %s: %s", doc.id, e.getMessage()));
+    }
+
+    private void report(long start, long now) {
+        double seconds = Math.max(now - start, 1) / 1000.0;
+        LOG.info(String.format("Annotated %d documents (%d failed) in %.0f s: %.1f docs/sec.",
+                annotated.get(), failed.get(), seconds, annotated.get() / seconds));
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, InitializationException, InputException {
+        if (args.length < 3) {
+            System.err.println(usage);
+            System.exit(1);
+        }
+
+        String format = args.length > 3 ? args[3] : "json";
+        boolean tsv = args[1].endsWith(".tsv") || args[1].endsWith(".tsv.gz");
+
+        Server.initSpotlightConfiguration(args[0]);
+        BulkAnnotator annotator = new BulkAnnotator(tsv, format);
+
+        InputStream in = args[1].equals("-") ? System.in : new FileInputStream(args[1]);
+        if (args[1].endsWith(".gz"))
+            in = new GZIPInputStream(in);
+        OutputStream out = args[2].equals("-") ? System.out : new FileOutputStream(args[2]);
+        if (args[2].endsWith(".gz"))
+            out = new GZIPOutputStream(out);
+
+        BufferedReader input = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        Writer output = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+        try {
+            annotator.annotate(input, output);
+        } finally {
+            input.close();
+            output.close();
+        }
+    }
+
+}
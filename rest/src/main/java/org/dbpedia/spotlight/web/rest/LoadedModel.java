@@ -0,0 +1,196 @@
+/*
+ * Copyright 2011 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.web.rest;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbpedia.spotlight.db.SpotlightModel;
+import org.dbpedia.spotlight.db.model.TextTokenizer;
+import org.dbpedia.spotlight.disambiguate.ParagraphDisambiguatorJ;
+import org.dbpedia.spotlight.exceptions.InitializationException;
+import org.dbpedia.spotlight.model.SpotlightConfiguration.DisambiguationPolicy;
+import org.dbpedia.spotlight.model.SpotterConfiguration.SpotterPolicy;
+import org.dbpedia.spotlight.model.SurfaceFormOccurrence;
+import org.dbpedia.spotlight.model.Factory;
+import org.dbpedia.spotlight.model.Text;
+import org.dbpedia.spotlight.sparql.SparqlQueryExecuter;
+import org.dbpedia.spotlight.spot.Spotter;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The spotters, disambiguators and model-dependent settings served by the {@link Server}.
+ *
+ * A LoadedModel is not changed after it was created. Reloading the model creates a new LoadedModel that
+ * replaces the old one. Requests keep the model they started with (see {@link ModelPinningFilter}), the
+ * number of these requests is counted so that the old model can be closed once they are finished.
+ */
+public class LoadedModel {
+
+    static Log LOG = LogFactory.getLog(LoadedModel.class);
+
+    /** Text used to warm up a new model before it is swapped in. */
+    private static final String WARM_UP_TEXT = "Berlin is the capital and largest city of Germany. " +
+            "The city is situated on the River Spree and has been the capital of Prussia and the German Empire.";
+
+    private final File folder;
+    private final TextTokenizer tokenizer;
+    private final Map<SpotterPolicy,Spotter> spotters;
+    private final Map<DisambiguationPolicy,ParagraphDisambiguatorJ> disambiguators;
+    private final String namespacePrefix;
+    private final SparqlQueryExecuter sparqlExecuter;
+
+    // The model the spotters and disambiguators were created from, null if it was loaded from a configuration file
+    private SpotlightModel spotlightModel;
+
+    private final AtomicInteger activeRequests = new AtomicInteger();
+
+    /**
+     * @param folder model folder the model was loaded from, null if it was loaded from a configuration file
+     */
+    public LoadedModel(File folder, TextTokenizer tokenizer, Map<SpotterPolicy,Spotter> spotters,
+                       Map<DisambiguationPolicy,ParagraphDisambiguatorJ> disambiguators,
+                       String namespacePrefix, SparqlQueryExecuter sparqlExecuter) {
+        this.folder = folder;
+        this.tokenizer = tokenizer;
+        this.spotters = spotters;
+        this.disambiguators = disambiguators;
+        this.namespacePrefix = namespacePrefix;
+        this.sparqlExecuter = sparqlExecuter;
+    }
+
+    /**
+     * Loads the model in the model folder.
+     */
+    public static LoadedModel fromFolder(File folder) throws InitializationException {
+        SpotlightModel db;
+        try {
+            db = SpotlightModel.fromFolder(folder);
+        } catch (Exception e) {
+            throw new InitializationException(String.format("Could not load model from %s.", folder), e);
+        }
+
+        LoadedModel model = new LoadedModel(folder, db.tokenizer(), db.spotters(), db.disambiguators(),
+                db.properties().getProperty("namespace"),
+                createSparqlExecuter(db.properties().getProperty("endpoint", ""), db.properties().getProperty("graph", "")));
+        model.spotlightModel = db;
+        return model;
+    }
+
+    public static SparqlQueryExecuter createSparqlExecuter(String endpoint, String graph) {
+        if (endpoint == null || endpoint.equals(""))  endpoint= "http://dbpedia.org/sparql";
+        if (graph == null || graph.equals(""))  graph= "http://dbpedia.org";
+
+        return new SparqlQueryExecuter(graph, endpoint);
+    }
+
+    /**
+     * Checks if the model in the folder fits into the free heap space (next to the models that are already loaded).
+     * The size of the model data files is used as a lower bound of the memory the model needs.
+     */
+    public static void checkMemory(File folder) throws InitializationException {
+        long required = 0;
+        File[] files = new File(folder, "model").listFiles();
+        if (files == null)
+            throw new InitializationException(String.format("Invalid Spotlight model folder %s.", folder));
+        for (File file : files)
+            required += file.length();
+
+        Runtime runtime = Runtime.getRuntime();
+        long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        if (required > available)
+            throw new InitializationException(String.format("Not enough memory to load the model in %s: the model needs at least %d MB, %d MB are available.",
+                    folder, required >> 20, available >> 20));
+    }
+
+    /**
+     * Runs a short text through all spotters and disambiguators, so that the first requests do not pay for
+     * lazy initialization.
+     */
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        for (Map.Entry<SpotterPolicy,Spotter> spotter : spotters.entrySet()) {
+            try {
+                Text text = new Text(WARM_UP_TEXT);
+                if (tokenizer != null)
+                    tokenizer.tokenizeMaybe(text);
+                List<SurfaceFormOccurrence> spots = spotter.getValue().extract(text);
+                if (spots.isEmpty())
+                    continue;
+                for (ParagraphDisambiguatorJ disambiguator : disambiguators.values())
+                    disambiguator.disambiguate(Factory.paragraph().fromJ(spots));
+            } catch (Exception e) {
+                LOG.warn(String.format("Error warming up spotter %s: %s", spotter.getKey(), e.getMessage()));
+            }
+        }
+        LOG.info(String.format("Warmed up model in %d ms.", System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Stops the background threads of the model. Called once no request uses the model anymore.
+     */
+    public void close() {
+        if (spotlightModel != null) {
+            spotlightModel.close();
+            spotlightModel = null;
+        }
+    }
+
+    void requestStarted() {
+        activeRequests.incrementAndGet();
+    }
+
+    void requestFinished() {
+        activeRequests.decrementAndGet();
+    }
+
+    /**
+     * Number of requests that are currently using this model.
+     */
+    public int getActiveRequests() {
+        return activeRequests.get();
+    }
+
+    public File getFolder() {
+        return folder;
+    }
+
+    public TextTokenizer getTokenizer() {
+        return tokenizer;
+    }
+
+    public Map<SpotterPolicy, Spotter> getSpotters() {
+        return spotters;
+    }
+
+    public Map<DisambiguationPolicy, ParagraphDisambiguatorJ> getDisambiguators() {
+        return disambiguators;
+    }
+
+    public String getNamespacePrefix() {
+        return namespacePrefix;
+    }
+
+    public SparqlQueryExecuter getSparqlExecuter() {
+        return sparqlExecuter;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2011 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.web.rest;
+
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+
+/**
+ * Makes each request use the model that was served when it started, even if the model is reloaded
+ * while the request is processed (see {@link Server#reloadModel(java.io.File)}).
+ *
+ * Registered as request and response filter of the Jersey container.
+ */
+public class ModelPinningFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public ContainerRequest filter(ContainerRequest request) {
+        Server.pinModel();
+        return request;
+    }
+
+    public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+        Server.unpinModel();
+        return response;
+    }
+
+}
@@ -22,7 +22,6 @@ import com.sun.grizzly.http.SelectorThread;
 import com.sun.jersey.api.container.grizzly.GrizzlyWebContainerFactory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.dbpedia.spotlight.db.SpotlightModel;
 import org.dbpedia.spotlight.db.model.TextTokenizer;
 import org.dbpedia.spotlight.disambiguate.ParagraphDisambiguatorJ;
 import org.dbpedia.spotlight.exceptions.InitializationException;
@@ -45,6 +44,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Instantiates Web Service that will execute annotation and disambiguation tasks.
@@ -61,24 +65,29 @@ public class Server {
     // Server reads configuration parameters into this static configuration object that will be used by other classes downstream
     protected static SpotlightConfiguration configuration;
 
-    // Server will hold a few spotters that can be chosen from URL parameters
-    protected static Map<SpotterPolicy,Spotter> spotters = new HashMap<SpotterConfiguration.SpotterPolicy,Spotter>();
+    // Server holds the spotters and disambiguators (that can be chosen from URL parameters) of the current model
+    private static volatile LoadedModel model = null;
 
-    // Server will hold a few disambiguators that can be chosen from URL parameters
-    protected static Map<DisambiguationPolicy,ParagraphDisambiguatorJ> disambiguators = new HashMap<SpotlightConfiguration.DisambiguationPolicy,ParagraphDisambiguatorJ>();
+    // The model a request started with, see ModelPinningFilter
+    private static final ThreadLocal<LoadedModel> pinnedModel = new ThreadLocal<LoadedModel>();
+
+    // Time to wait for the requests using a replaced model to finish
+    private static final long RELEASE_TIMEOUT = 5 * 60 * 1000;
+
+    // Loads new models in the background, one at a time (see reloadModel)
+    private static final ExecutorService modelLoader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "model-loader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
 
     private static volatile Boolean running = true;
 
     static String usage = "usage: java -jar dbpedia-spotlight.jar org.dbpedia.spotlight.web.rest.Server [config file]"
                         + "   or: mvn scala:run \"-DaddArgs=[config file]\"";
 
-    //This is currently only used in the DB-based version.
-    private static TextTokenizer tokenizer;
-
-    private static String namespacePrefix = SpotlightConfiguration.DEFAULT_NAMESPACE;
-
-    private static SparqlQueryExecuter sparqlExecuter = null;
-
     private static List<Double> similarityThresholds = new ArrayList<Double>();
 
     public static void main(String[] args) throws IOException, InterruptedException, URISyntaxException, ClassNotFoundException, InitializationException {
@@ -101,13 +110,15 @@ public class Server {
         //ExternalUriWadlGeneratorConfig.setUri(configuration.getServerURI()); //TODO get another parameter, maybe getExternalServerURI since Grizzly will use this in order to find out to which port to bind
 
 
-        LOG.info(String.format("Initiated %d disambiguators.",disambiguators.size()));
-        LOG.info(String.format("Initiated %d spotters.",spotters.size()));
+        LOG.info(String.format("Initiated %d disambiguators.",model.getDisambiguators().size()));
+        LOG.info(String.format("Initiated %d spotters.",model.getSpotters().size()));
 
         final Map<String, String> initParams = new HashMap<String, String>();
         initParams.put("com.sun.jersey.config.property.resourceConfigClass", "com.sun.jersey.api.core.PackagesResourceConfig");
         initParams.put("com.sun.jersey.config.property.packages", "org.dbpedia.spotlight.web.rest.resources");
         initParams.put("com.sun.jersey.config.property.WadlGeneratorConfig", "org.dbpedia.spotlight.web.rest.wadl.ExternalUriWadlGeneratorConfig");
+        initParams.put("com.sun.jersey.spi.container.ContainerRequestFilters", "org.dbpedia.spotlight.web.rest.ModelPinningFilter");
+        initParams.put("com.sun.jersey.spi.container.ContainerResponseFilters", "org.dbpedia.spotlight.web.rest.ModelPinningFilter");
 
 
         SelectorThread threadSelector = GrizzlyWebContainerFactory.create(serverURI, initParams);
@@ -135,18 +146,143 @@ public class Server {
     }
 
 
-    private static void setSpotters(Map<SpotterPolicy,Spotter> s) throws InitializationException {
-        if (spotters.size() == 0)
-            spotters = s;
+    private static void setModel(LoadedModel m) throws InitializationException {
+        if (model == null)
+            model = m;
         else
-            throw new InitializationException("Trying to overwrite singleton Server.spotters. Something fishy happened!");
+            throw new InitializationException("Trying to overwrite singleton Server.model. Use reloadModel to replace it.");
     }
 
-    private static void setDisambiguators(Map<SpotlightConfiguration.DisambiguationPolicy,ParagraphDisambiguatorJ> s) throws InitializationException {
-        if (disambiguators.size() == 0)
-            disambiguators = s;
-        else
-            throw new InitializationException("Trying to overwrite singleton Server.disambiguators. Something fishy happened!");
+    /**
+     * The model of the current request (see {@link ModelPinningFilter}), or the current model.
+     */
+    private static LoadedModel currentModel() {
+        LoadedModel pinned = pinnedModel.get();
+        return pinned != null ? pinned : model;
+    }
+
+    static void pinModel() {
+        unpinModel(); // in case the response filter was not called for the last request of this thread
+        while (true) {
+            LoadedModel m = model;
+            if (m == null)
+                return;
+            // Count the request first: if the model is still current afterwards, it was swapped out
+            // (if at all) after the count was visible, so release() waits for this request.
+            m.requestStarted();
+            if (m == model) {
+                pinnedModel.set(m);
+                return;
+            }
+            m.requestFinished();
+        }
+    }
+
+    static void unpinModel() {
+        LoadedModel pinned = pinnedModel.get();
+        if (pinned != null) {
+            pinned.requestFinished();
+            pinnedModel.remove();
+        }
+    }
+
+    /**
+     * Loads the model in the folder, warms it up and replaces the current model with it. Loading happens
+     * in the background, one model at a time, the current model is served until the new one is ready.
+     * Requests that started before the swap are finished with the old model, which is closed afterwards.
+     *
+     * @param folder model folder, the folder of the current model if null
+     * @return the new model, once it is served
+     */
+    public static Future<LoadedModel> reloadModel(File folder) throws InitializationException {
+        LoadedModel current = model;
+        if (folder == null)
+            folder = current == null ? null : current.getFolder();
+        if (folder == null)
+            throw new InitializationException("Reloading is only supported for models loaded from a model folder.");
+
+        final File modelFolder = folder;
+        return modelLoader.submit(new Callable<LoadedModel>() {
+            public LoadedModel call() throws InitializationException {
+                try {
+                    return loadAndSwap(modelFolder);
+                } catch (InitializationException e) {
+                    LOG.error("Could not reload the model, still serving the old one: " + e.getMessage());
+                    throw e;
+                }
+            }
+        });
+    }
+
+    private static LoadedModel loadAndSwap(File folder) throws InitializationException {
+        LOG.info(String.format("Loading model from %s...", folder));
+        LoadedModel.checkMemory(folder);
+        LoadedModel newModel = LoadedModel.fromFolder(folder);
+        newModel.warmUp();
+
+        LoadedModel oldModel = model;
+        model = newModel;
+        LOG.info(String.format("Now serving model from %s.", folder));
+
+        if (oldModel != null)
+            release(oldModel);
+        return newModel;
+    }
+
+    /**
+     * Closes the model once the requests using it are finished.
+     */
+    private static void release(final LoadedModel oldModel) {
+        Thread release = new Thread("model-release") {
+            public void run() {
+                long end = System.currentTimeMillis() + RELEASE_TIMEOUT;
+                while (oldModel.getActiveRequests() > 0 && System.currentTimeMillis() < end) {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                if (oldModel.getActiveRequests() > 0)
+                    LOG.warn(String.format("%d requests still use the old model, closing it anyway.", oldModel.getActiveRequests()));
+                oldModel.close();
+                LOG.info("Closed the old model.");
+            }
+        };
+        release.setDaemon(true);
+        release.start();
+    }
+
+    /**
+     * Reloads the model when model.properties in the model folder is modified. The new model has to be
+     * completely written before model.properties is touched.
+     *
+     * @param interval time between checks (ms)
+     */
+    public static void watchModelFolder(final File folder, final long interval) {
+        final File trigger = new File(folder, "model.properties");
+        Thread watcher = new Thread("model-watcher") {
+            public void run() {
+                long lastModified = trigger.lastModified();
+                while (running) {
+                    try {
+                        Thread.sleep(interval);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (trigger.lastModified() != lastModified) {
+                        lastModified = trigger.lastModified();
+                        try {
+                            reloadModel(folder);
+                        } catch (InitializationException e) {
+                            LOG.error("Could not reload the model: " + e.getMessage());
+                        }
+                    }
+                }
+            }
+        };
+        watcher.setDaemon(true);
+        watcher.start();
     }
 
     public static Spotter getSpotter(String name) throws InputException {
@@ -157,6 +293,7 @@ public class Server {
             throw new InputException(String.format("Specified parameter spotter=%s is invalid. Use one of %s.",name,SpotterPolicy.values()));
         }
 
+        Map<SpotterPolicy,Spotter> spotters = currentModel() == null ? new HashMap<SpotterPolicy,Spotter>() : currentModel().getSpotters();
         if (spotters.size() == 0)
             throw new InputException(String.format("No spotters were loaded. Please add one of %s.",spotters.keySet()));
 
@@ -175,6 +312,7 @@ public class Server {
             throw new InputException(String.format("Specified parameter disambiguator=%s is invalid. Use one of %s.",name,DisambiguationPolicy.values()));
         }
 
+        Map<DisambiguationPolicy,ParagraphDisambiguatorJ> disambiguators = currentModel() == null ? new HashMap<DisambiguationPolicy,ParagraphDisambiguatorJ>() : currentModel().getDisambiguators();
         if (disambiguators.size() == 0)
             throw new InputException(String.format("No disambiguators were loaded. Please add one of %s.",disambiguators.keySet()));
 
@@ -204,32 +342,21 @@ public class Server {
         return configuration;
     }
 
+    //This is currently only used in the DB-based version.
     public static TextTokenizer getTokenizer() {
-        return tokenizer;
-    }
-
-    public static void setTokenizer(TextTokenizer tokenizer) {
-        Server.tokenizer = tokenizer;
+        LoadedModel m = currentModel();
+        return m == null ? null : m.getTokenizer();
     }
 
     public static String getPrefixedDBpediaURL(DBpediaResource resource) {
+        LoadedModel m = currentModel();
+        String namespacePrefix = (m == null || m.getNamespacePrefix() == null) ? SpotlightConfiguration.DEFAULT_NAMESPACE : m.getNamespacePrefix();
         return namespacePrefix + resource.uri();
     }
 
-    public static void setNamespacePrefix(String namespacePrefix) {
-        Server.namespacePrefix = namespacePrefix;
-    }
-
-    private static void setSparqlExecuter(String endpoint, String graph)
-    {
-        if (endpoint == null || endpoint.equals(""))  endpoint= "http://dbpedia.org/sparql";
-        if (graph == null || graph.equals(""))  endpoint= "http://dbpedia.org";
-
-        Server.sparqlExecuter = new SparqlQueryExecuter(graph, endpoint);
-    }
-
     public static SparqlQueryExecuter getSparqlExecute(){
-        return sparqlExecuter;
+        LoadedModel m = currentModel();
+        return m == null ? null : m.getSparqlExecuter();
     }
 
     private static void setSimilarityThresholds( List<Double> similarityThresholds){
@@ -254,9 +381,9 @@ public class Server {
 
         }
 
-        LOG.info(String.format("Initiated %d disambiguators.",disambiguators.size()));
+        LOG.info(String.format("Initiated %d disambiguators.",model.getDisambiguators().size()));
 
-        LOG.info(String.format("Initiated %d spotters.",spotters.size()));
+        LOG.info(String.format("Initiated %d spotters.",model.getSpotters().size()));
 
     }
 
@@ -273,12 +400,17 @@ public class Server {
         }
         // Set static annotator that will be used by Annotate and Disambiguate
         final SpotlightFactory factory  = new SpotlightFactory(configuration);
-        setDisambiguators(factory.disambiguators());
-        setSpotters(factory.spotters());
-        setNamespacePrefix(configuration.getDbpediaResource());
-        setSparqlExecuter(configuration.getSparqlEndpoint(), configuration.getSparqlMainGraph());
+        setModel(new LoadedModel(null, null, factory.spotters(), factory.disambiguators(), configuration.getDbpediaResource(),
+                LoadedModel.createSparqlExecuter(configuration.getSparqlEndpoint(), configuration.getSparqlMainGraph())));
         setSimilarityThresholds(configuration.getSimilarityThresholds());
 
+        // The server runs until the JVM is stopped, the queued queries are written to the query log then
+        Runtime.getRuntime().addShutdownHook(new Thread("factory-close") {
+            public void run() {
+                factory.close();
+            }
+        });
+
     }
 
     private static void initByModel(String folder) throws InitializationException {
@@ -294,13 +426,11 @@ public class Server {
         }
 
 
-        SpotlightModel db = SpotlightModel.fromFolder(modelFolder);
+        setModel(LoadedModel.fromFolder(modelFolder));
 
-        setNamespacePrefix(db.properties().getProperty("namespace"));
-        setTokenizer(db.tokenizer());
-        setSpotters(db.spotters());
-        setDisambiguators(db.disambiguators());
-        setSparqlExecuter(db.properties().getProperty("endpoint", ""),db.properties().getProperty("graph", ""));
+        long reloadInterval = Long.getLong("org.dbpedia.spotlight.model.reloadInterval", 0);
+        if (reloadInterval > 0)
+            watchModelFolder(modelFolder, reloadInterval);
 
     }
 }
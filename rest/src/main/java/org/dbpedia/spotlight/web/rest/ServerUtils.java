@@ -7,6 +7,7 @@ import org.apache.commons.logging.LogFactory;
 import org.dbpedia.spotlight.exceptions.InputException;
 
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.net.MalformedURLException;
 import java.net.URL;
 
@@ -21,6 +22,10 @@ public class ServerUtils {
         return Response.ok().entity(response).header("Access-Control-Allow-Origin","*").build();
     }
 
+    public static Response ok(StreamingOutput response) {
+        return Response.ok().entity(response).header("Access-Control-Allow-Origin","*").build();
+    }
+
     public static String print(Exception exception) {  //TODO need a nicer way to send error messages to client
         String eMessage = exception.getMessage();
         StackTraceElement[] elements = exception.getStackTrace();
@@ -30,6 +30,13 @@ import org.dbpedia.spotlight.filter.visitor.OccsFilter;
 import org.dbpedia.spotlight.model.*;
 import org.dbpedia.spotlight.spot.Spotter;
 
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
@@ -44,6 +51,9 @@ public class SpotlightInterface {
 
     Log LOG = LogFactory.getLog(this.getClass());
 
+    // Longer texts are disambiguated with the Document disambiguator if the Default disambiguator is requested
+    public static final int MAX_LENGTH_FOR_OCCURRENCE_CENTRIC = 1200; //TODO configuration
+
     // Name of the REST api so that we can announce it in the log (can be disambiguate, annotate, candidates)
     String apiName;
 
@@ -117,6 +127,30 @@ public class SpotlightInterface {
         return spots;
     }
 
+    /**
+     * The disambiguator with the name. Long texts are disambiguated with the Document disambiguator
+     * instead of the Default disambiguator if the model does not tokenize the text.
+     */
+    public ParagraphDisambiguatorJ getDisambiguator(String disambiguatorName, int textLength) throws InputException {
+        if (Server.getTokenizer() == null && disambiguatorName.equals(SpotlightConfiguration.DisambiguationPolicy.Default.name())
+                && textLength > MAX_LENGTH_FOR_OCCURRENCE_CENTRIC) {
+            disambiguatorName = SpotlightConfiguration.DisambiguationPolicy.Document.name();
+            LOG.info(String.format("Text length > %d. Using %s to disambiguate.",MAX_LENGTH_FOR_OCCURRENCE_CENTRIC,disambiguatorName));
+        }
+        return Server.getDisambiguator(disambiguatorName);
+    }
+
+    public List<DBpediaResourceOccurrence> filter(List<DBpediaResourceOccurrence> occList,
+                                                  double confidence,
+                                                  int support,
+                                                  String ontologyTypesString,
+                                                  String sparqlQuery,
+                                                  boolean blacklist,
+                                                  boolean coreferenceResolution) {
+        FilterElement filter = new OccsFilter(confidence, support, ontologyTypesString, sparqlQuery, blacklist, coreferenceResolution, Server.getSimilarityThresholds(), Server.getSparqlExecute());
+        return filter.accept(new FilterOccsImpl() ,occList);
+    }
+
     /**
      * Retrieves representation of an instance of org.dbpedia.spotlight.web.Annotation
      * @return an instance of java.lang.String
@@ -147,17 +181,10 @@ public class SpotlightInterface {
         List<SurfaceFormOccurrence> spots = spot(spotterName,context);
 
         // Call annotation or disambiguation
-        int maxLengthForOccurrenceCentric = 1200; //TODO configuration
-        if (Server.getTokenizer() == null && disambiguatorName.equals(SpotlightConfiguration.DisambiguationPolicy.Default.name())
-                && textString.length() > maxLengthForOccurrenceCentric) {
-            disambiguatorName = SpotlightConfiguration.DisambiguationPolicy.Document.name();
-            LOG.info(String.format("Text length > %d. Using %s to disambiguate.",maxLengthForOccurrenceCentric,disambiguatorName));
-        }
-        ParagraphDisambiguatorJ disambiguator = Server.getDisambiguator(disambiguatorName);
+        ParagraphDisambiguatorJ disambiguator = getDisambiguator(disambiguatorName, textString.length());
         List<DBpediaResourceOccurrence> occList = disambiguate(spots, disambiguator);
 
-        FilterElement filter = new OccsFilter(confidence, support, ontologyTypesString, sparqlQuery, blacklist, coreferenceResolution, Server.getSimilarityThresholds(), Server.getSparqlExecute());
-        occList = filter.accept(new FilterOccsImpl() ,occList);
+        occList = filter(occList, confidence, support, ontologyTypesString, sparqlQuery, blacklist, coreferenceResolution);
 
 
 
@@ -272,7 +299,57 @@ public class SpotlightInterface {
 			 String requestedURL) throws Exception {
         String result;
         String textToProcess = ServerUtils.getTextToProcess(text, inUrl);
+        prefix = getNIFPrefix(text, inUrl, prefix, requestedURL);
+	
+	    List<DBpediaResourceOccurrence> occs = getOccurrences(textToProcess, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter,disambiguator);
+	    result = outputManager.makeNIF(textToProcess, occs, format, prefix);
+
+	    LOG.info("NIF format: " + format);
+        LOG.debug("****************************************************************");
+
+        return result;
+    }
+
+    /**
+     * Annotates the text like getNIF, but returns the NIF as a stream that is written to the response
+     * occurrence by occurrence, instead of building it in memory first.
+     */
+    public StreamingOutput getNIFStream(String text,
+                                        String inUrl,
+                                        double confidence,
+                                        int support,
+                                        String dbpediaTypesString,
+                                        String sparqlQuery,
+                                        String policy,
+                                        boolean coreferenceResolution,
+                                        String clientIp,
+                                        String spotter,
+                                        String disambiguator,
+                                        final String format,
+                                        String prefix,
+                                        String requestedURL) throws Exception {
+        final String textToProcess = ServerUtils.getTextToProcess(text, inUrl);
+        final String nifPrefix = getNIFPrefix(text, inUrl, prefix, requestedURL);
+
+        // the occurrences are found before the response is started, so that errors are still sent as errors
+        final List<DBpediaResourceOccurrence> occs = getOccurrences(textToProcess, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter,disambiguator);
+
+        LOG.info("NIF format: " + format);
+        LOG.debug("****************************************************************");
+
+        // the resource URIs are resolved before the response is started: the model is released when the request
+        // returns, the stream is written after that
+        final NIFDocument document = NIFOutputFormatter.resourceOccsDocument(textToProcess, occs, format, nifPrefix);
+
+        return new StreamingOutput() {
+            public void write(OutputStream output) throws IOException {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"));
+                document.write(writer);
+            }
+        };
+    }
 
+    private String getNIFPrefix(String text, String inUrl, String prefix, String requestedURL) throws UnsupportedEncodingException {
 	    // when no prefix argument specified and url param is used the prefix
 	    // is set to the given url
 	    if (prefix == null && !inUrl.equals(""))
@@ -281,14 +358,7 @@ public class SpotlightInterface {
 	        // is set to the spotlight url + the given text
 	    else if (prefix == null && !text.equals(""))
 	        prefix = requestedURL.concat("/?text=").concat(URLEncoder.encode(text, "UTF-8"));
-	
-	    List<DBpediaResourceOccurrence> occs = getOccurrences(textToProcess, confidence, support, dbpediaTypesString, sparqlQuery, policy, coreferenceResolution, clientIp, spotter,disambiguator);
-	    result = outputManager.makeNIF(textToProcess, occs, format, prefix);
-
-	    LOG.info("NIF format: " + format);
-        LOG.debug("****************************************************************");
-
-        return result;
+	    return prefix;
     }
     
     //FIXME
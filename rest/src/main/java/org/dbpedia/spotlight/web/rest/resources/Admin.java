@@ -0,0 +1,83 @@
+/*
+ * Copyright 2011 DBpedia Spotlight Development Team
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  Check our project website for information on how to acknowledge the authors and how to contribute to the project: http://spotlight.dbpedia.org
+ */
+
+package org.dbpedia.spotlight.web.rest.resources;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbpedia.spotlight.web.rest.Server;
+import org.dbpedia.spotlight.web.rest.ServerUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.MessageDigest;
+
+/**
+ * REST Web Service for administration: reloading the model without restarting the server.
+ *
+ * Only the folder of the current model can be reloaded. If the system property org.dbpedia.spotlight.admin.token
+ * is set, requests have to send it as parameter token, otherwise only requests from the local machine are accepted.
+ */
+
+@ApplicationPath(Server.APPLICATION_PATH)
+@Path("/admin")
+public class Admin {
+
+    Log LOG = LogFactory.getLog(this.getClass());
+
+    private static final String TOKEN = System.getProperty("org.dbpedia.spotlight.admin.token", "");
+
+    /**
+     * Starts loading the model from the folder of the current model and swaps it in once it is ready.
+     * Returns immediately, the current model is served until the new one is loaded.
+     */
+    @POST
+    @Path("/reload")
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response reload(@DefaultValue("") @FormParam("token") String token,
+                           @Context HttpServletRequest request) {
+
+        String clientIp = request.getRemoteAddr();
+
+        try {
+            if (!authorized(token, clientIp))
+                throw new WebApplicationException(Response.status(Response.Status.FORBIDDEN).build());
+
+            LOG.info(String.format("Model reload requested by %s.", clientIp));
+            Server.reloadModel(null);
+            return Response.status(Response.Status.ACCEPTED).entity("reloading").build();
+        } catch (WebApplicationException e) {
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new WebApplicationException(Response.status(Response.Status.INTERNAL_SERVER_ERROR). entity(ServerUtils.print(e)).type(MediaType.TEXT_HTML).build());
+        }
+    }
+
+    private boolean authorized(String token, String clientIp) throws UnknownHostException {
+        if (TOKEN.equals(""))
+            return InetAddress.getByName(clientIp).isLoopbackAddress();
+        return MessageDigest.isEqual(TOKEN.getBytes(), token.getBytes());
+    }
+
+}
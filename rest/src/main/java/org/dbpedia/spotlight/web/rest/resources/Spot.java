@@ -23,6 +23,7 @@ import org.apache.commons.logging.LogFactory;
 import org.dbpedia.spotlight.model.SpotlightConfiguration;
 import org.dbpedia.spotlight.model.SurfaceFormOccurrence;
 import org.dbpedia.spotlight.model.Text;
+import org.dbpedia.spotlight.web.rest.NIFDocument;
 import org.dbpedia.spotlight.web.rest.NIFOutputFormatter;
 import org.dbpedia.spotlight.web.rest.Server;
 import org.dbpedia.spotlight.web.rest.ServerUtils;
@@ -34,7 +35,13 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.List;
 
 /**
@@ -112,8 +119,13 @@ public class Spot {
         try {
             String textToProcess = ServerUtils.getTextToProcess(text, inUrl);
             List<SurfaceFormOccurrence> spots = annotationInterface.spot(spotterName, new Text(textToProcess));
-	    String response = NIFOutputFormatter.fromSurfaceFormOccs(text, spots, format, prefix);
-            return ServerUtils.ok(response);
+            final NIFDocument document = NIFOutputFormatter.surfaceFormOccsDocument(textToProcess, spots, format, prefix);
+            return ServerUtils.ok(new StreamingOutput() {
+                public void write(OutputStream output) throws IOException {
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"));
+                    document.write(writer);
+                }
+            });
         } catch (Exception e) {
             e.printStackTrace();
             throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST). entity(ServerUtils.print(e)).type(accept).build());
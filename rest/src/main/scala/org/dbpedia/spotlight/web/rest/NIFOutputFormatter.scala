@@ -18,15 +18,16 @@ package org.dbpedia.spotlight.web.rest
 
 import org.dbpedia.spotlight.model.{DBpediaResourceOccurrence, SurfaceFormOccurrence}
 import java.util.List
-import org.aksw.spotlight.nif.bean.NIFBean
-import java.util
+import java.io.{StringWriter, Writer}
 import scala.collection.JavaConversions._
-import org.aksw.spotlight.nif.business.NIFManager
 
 /**
  * Class that handles the output of DBpedia Spotlight annotations
  * in the NLP Interchange Format (NIF).
  *
+ * The NIF is written by a [[org.dbpedia.spotlight.web.rest.NIFWriter]] occurrence by occurrence, so that it can
+ * be streamed to the response without building an RDF model of the document.
+ *
  * @author Marcus Nitzschke
  */
 object NIFOutputFormatter {
@@ -41,48 +42,41 @@ object NIFOutputFormatter {
    * @return the NIF representation of the annotated input text
    */
   def fromResourceOccs(text: String, occs: List[DBpediaResourceOccurrence], format: String, prefix: String): String = {
-
-    val list = new util.LinkedList[NIFBean]
-    val root = new NIFBean
-    root.setURL(prefix)
-    root.setContent(text)
-    root.setOffset(0)
-    root.setSize(text.length)
-    list.add(root)
-
-    occs.toList.foreach(occ => {
-
-      var child = new NIFBean
-      child.setURL(prefix)
-      child.setOffset(occ.textOffset)
-      child.setSize(occ.surfaceForm.name.length)
-      child.setContent(occ.surfaceForm.name)
-      val types = occ.resource.getTypes.map(t => t.typeID).toList
-      child.setResourceTypes(types)
-      child.setReferenceContextURL(root.getURL)
-
-      list.add(child)
-    })
-
-    getNIFOutput(format, new NIFManager(list))
+    val out = new StringWriter()
+    writeResourceOccs(text, occs, format, prefix, out)
+    out.toString
   }
 
   /**
-   * Return a content based on the requested format
-   * @param format
-   * @param manager
-   * @return
+   * Writes the NIF representation of the resource occurrences to out.
+   *
+   * @param text the original input text
+   * @param occs a list of the resource occurrences of the input text
+   * @param format requested format
+   * @param prefix url
+   * @param out the writer the NIF is written to
    */
-  private def getNIFOutput(format:String,manager:NIFManager):String=
-  {
-    format match {
-      case "rdfxml" =>  manager.getRDFxml
-      case "ntriples" =>  manager.getNTriples
-      case "turtle" =>  manager.getTurtle
-      case _ =>  manager.getTurtle
-    }
+  def writeResourceOccs(text: String, occs: List[DBpediaResourceOccurrence], format: String, prefix: String, out: Writer) {
+    resourceOccsDocument(text, occs, format, prefix).write(out)
   }
 
+  /**
+   * The NIF representation of the resource occurrences, to be written later (e.g. by a streamed response).
+   * The resource URIs are resolved with the namespace of the current model here, so that writing the
+   * document does not need the model anymore.
+   *
+   * @param text the original input text
+   * @param occs a list of the resource occurrences of the input text
+   * @param format requested format
+   * @param prefix url
+   */
+  def resourceOccsDocument(text: String, occs: List[DBpediaResourceOccurrence], format: String, prefix: String): NIFDocument = {
+    val annotations = occs.map(occ => {
+      val types = occ.resource.getTypes.map(t => t.getFullUri).toList
+      new NIFAnnotation(occ.textOffset, occ.surfaceForm.name, Server.getPrefixedDBpediaURL(occ.resource), types)
+    }).toList
+    new NIFDocument(text, format, prefix, annotations)
+  }
 
   /**
    * Method for processing the spotlight annotations to NIF format.
@@ -94,29 +88,56 @@ object NIFOutputFormatter {
    * @return the NIF representation of the annotated input text
    */
   def fromSurfaceFormOccs(text: String, occs: List[SurfaceFormOccurrence], format: String, prefix: String): String = {
+    val out = new StringWriter()
+    writeSurfaceFormOccs(text, occs, format, prefix, out)
+    out.toString
+  }
 
-    val list = new util.LinkedList[NIFBean]
-    val root = new NIFBean
-    root.setURL(prefix)
-    root.setContent(text)
-    root.setOffset(0)
-    root.setSize(text.length)
-    list.add(root)
+  /**
+   * Writes the NIF representation of the surface form occurrences to out.
+   *
+   * @param text the original input text
+   * @param occs a list of the surface occurrences of the input text
+   * @param format requested format
+   * @param prefix url
+   * @param out the writer the NIF is written to
+   */
+  def writeSurfaceFormOccs(text: String, occs: List[SurfaceFormOccurrence], format: String, prefix: String, out: Writer) {
+    surfaceFormOccsDocument(text, occs, format, prefix).write(out)
+  }
 
-    occs.toList.foreach(occ => {
+  /**
+   * The NIF representation of the surface form occurrences, to be written later (e.g. by a streamed response).
+   *
+   * @param text the original input text
+   * @param occs a list of the surface occurrences of the input text
+   * @param format requested format
+   * @param prefix url
+   */
+  def surfaceFormOccsDocument(text: String, occs: List[SurfaceFormOccurrence], format: String, prefix: String): NIFDocument = {
+    val annotations = occs.map(occ => new NIFAnnotation(occ.textOffset, occ.surfaceForm.name, null, Nil)).toList
+    new NIFDocument(text, format, prefix, annotations)
+  }
 
-      var child = new NIFBean
-      child.setURL(prefix)
-      child.setOffset(occ.textOffset)
-      child.setSize(occ.surfaceForm.name.length)
-      child.setContent(occ.surfaceForm.name)
-      child.setReferenceContextURL(root.getURL)
+}
 
-      list.add(child)
-    })
+/**
+ * An annotation of a NIF document.
+ *
+ * @param resourceURI URI of the annotated resource or null (e.g. for spotted surface forms)
+ */
+class NIFAnnotation(val begin: Int, val surfaceForm: String, val resourceURI: String, val typeURIs: Seq[String])
 
-    getNIFOutput(format, new NIFManager(list))
+/**
+ * A NIF document whose annotations are fully resolved, so that it can be written at any time.
+ */
+class NIFDocument(text: String, format: String, prefix: String, annotations: Seq[NIFAnnotation]) {
 
+  def write(out: Writer) {
+    val writer = NIFWriter(format, out, Option(prefix).getOrElse(""), text)
+    writer.writeContext()
+    annotations.foreach(a => writer.writeAnnotation(a.begin, a.surfaceForm, a.resourceURI, a.typeURIs))
+    writer.close()
   }
 
 }
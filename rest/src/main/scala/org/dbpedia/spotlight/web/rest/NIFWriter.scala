@@ -0,0 +1,306 @@
+/**
+ * Copyright 2011 DBpedia Spotlight Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dbpedia.spotlight.web.rest
+
+import java.io.Writer
+
+/**
+ * Writes NIF 2.0 directly to a Writer, one annotation at a time, without building an RDF model of the document.
+ *
+ * The URIs are based on offsets (RFC 5147): the context is [prefix]#char=0,[length of text] and an
+ * annotation is [prefix]#char=[begin],[end]. The formats are Turtle, N-Triples and RDF/XML.
+ */
+abstract class NIFWriter(out: Writer, prefix: String, text: String) {
+
+  import NIFWriter._
+
+  private val uriPrefix = (if (prefix.contains("#")) prefix else prefix + "#") + "char="
+
+  protected val contextURI = uri(0, text.length)
+
+  protected def uri(begin: Int, end: Int) = uriPrefix + begin + "," + end
+
+  /**
+   * Starts the document and writes the context, i.e. the annotated text.
+   */
+  def writeContext() {
+    startDocument()
+    startSubject(contextURI, ContextTypes)
+    literal(IsString, text, XSDString)
+    literal(BeginIndex, "0", XSDNonNegativeInteger)
+    literal(EndIndex, text.length.toString, XSDNonNegativeInteger)
+    endSubject()
+  }
+
+  /**
+   * Writes an annotation of the context.
+   *
+   * @param resourceURI URI of the annotated resource or null (e.g. for spotted surface forms)
+   * @param typeURIs URIs of the types of the resource
+   */
+  def writeAnnotation(begin: Int, surfaceForm: String, resourceURI: String, typeURIs: Seq[String]) {
+    val end = begin + surfaceForm.length
+    startSubject(uri(begin, end), AnnotationTypes)
+    literal(AnchorOf, surfaceForm, XSDString)
+    literal(BeginIndex, begin.toString, XSDNonNegativeInteger)
+    literal(EndIndex, end.toString, XSDNonNegativeInteger)
+    link(ReferenceContext, contextURI)
+    if (resourceURI != null)
+      link(TaIdentRef, resourceURI)
+    typeURIs.foreach(link(TaClassRef, _))
+    endSubject()
+  }
+
+  /**
+   * Ends the document and flushes the Writer.
+   */
+  def close() {
+    endDocument()
+    out.flush()
+  }
+
+  protected def write(s: String) {
+    out.write(s)
+  }
+
+  protected def startDocument()
+  protected def startSubject(uri: String, types: Seq[Term])
+  protected def literal(property: Term, value: String, datatype: Term)
+  protected def link(property: Term, uri: String)
+  protected def endSubject()
+  protected def endDocument()
+
+}
+
+object NIFWriter {
+
+  val RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#"
+  val XSD = "http://www.w3.org/2001/XMLSchema#"
+  val NIF = "http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#"
+  val ITSRDF = "http://www.w3.org/2005/11/its/rdf#"
+
+  val Namespaces = Seq("rdf" -> RDF, "xsd" -> XSD, "nif" -> NIF, "itsrdf" -> ITSRDF)
+
+  /**
+   * A term of one of the namespaces, with its serializations precomputed.
+   */
+  class Term(prefix: String, namespace: String, localName: String) {
+    val uri = namespace + localName
+    val qName = prefix + ":" + localName
+    val ntriples = "<" + uri + ">"
+  }
+
+  val RDFType = new Term("rdf", RDF, "type")
+  val XSDString = new Term("xsd", XSD, "string")
+  val XSDNonNegativeInteger = new Term("xsd", XSD, "nonNegativeInteger")
+  val ContextTypes = Seq(new Term("nif", NIF, "Context"), new Term("nif", NIF, "String"), new Term("nif", NIF, "RFC5147String"))
+  val AnnotationTypes = Seq(new Term("nif", NIF, "String"), new Term("nif", NIF, "RFC5147String"))
+  val IsString = new Term("nif", NIF, "isString")
+  val AnchorOf = new Term("nif", NIF, "anchorOf")
+  val BeginIndex = new Term("nif", NIF, "beginIndex")
+  val EndIndex = new Term("nif", NIF, "endIndex")
+  val ReferenceContext = new Term("nif", NIF, "referenceContext")
+  val TaIdentRef = new Term("itsrdf", ITSRDF, "taIdentRef")
+  val TaClassRef = new Term("itsrdf", ITSRDF, "taClassRef")
+
+  /**
+   * @param format rdfxml, ntriples or turtle (default)
+   */
+  def apply(format: String, out: Writer, prefix: String, text: String): NIFWriter = format match {
+    case "rdfxml" => new RDFXMLWriter(out, prefix, text)
+    case "ntriples" => new NTriplesWriter(out, prefix, text)
+    case _ => new TurtleWriter(out, prefix, text)
+  }
+
+  /**
+   * URI for Turtle and N-Triples.
+   */
+  def iri(uri: String): String = "<" + encodeIRI(uri) + ">"
+
+  /**
+   * Percent-encodes the characters that are not allowed in an IRI (RFC 3987), i.e. spaces, control characters
+   * and <>"{}|^`\. All of them are ASCII, so each is encoded as one byte.
+   */
+  def encodeIRI(uri: String): String = {
+    var i = 0
+    while (i < uri.length && !illegalInIRI(uri.charAt(i)))
+      i += 1
+    if (i == uri.length)
+      return uri
+
+    val sb = new java.lang.StringBuilder(uri.length + 8)
+    sb.append(uri, 0, i)
+    while (i < uri.length) {
+      val c = uri.charAt(i)
+      if (illegalInIRI(c))
+        sb.append('%').append(HexDigits(c >> 4)).append(HexDigits(c & 0xF))
+      else
+        sb.append(c)
+      i += 1
+    }
+    sb.toString
+  }
+
+  private val HexDigits = "0123456789ABCDEF"
+
+  private def illegalInIRI(c: Char) = c <= ' ' || c == 0x7F || "<>\"{}|^`\\".indexOf(c) >= 0
+
+  /**
+   * Quoted string literal for Turtle and N-Triples.
+   */
+  def quote(value: String): String = {
+    val sb = new java.lang.StringBuilder(value.length + 2)
+    sb.append('"')
+    var i = 0
+    while (i < value.length) {
+      value.charAt(i) match {
+        case '\\' => sb.append("\\\\")
+        case '"' => sb.append("\\\"")
+        case '\n' => sb.append("\\n")
+        case '\r' => sb.append("\\r")
+        case '\t' => sb.append("\\t")
+        case c if c < ' ' => sb.append('\\').append('u').append("%04X".format(c.toInt))
+        case c => sb.append(c)
+      }
+      i += 1
+    }
+    sb.append('"').toString
+  }
+
+  /**
+   * Escapes text and attribute values for XML, characters that are not allowed in XML are dropped. Carriage
+   * returns are written as character references, since XML parsers would replace them by line feeds.
+   */
+  def escapeXML(value: String): String = {
+    val sb = new java.lang.StringBuilder(value.length)
+    var i = 0
+    while (i < value.length) {
+      value.charAt(i) match {
+        case '&' => sb.append("&amp;")
+        case '<' => sb.append("&lt;")
+        case '>' => sb.append("&gt;")
+        case '"' => sb.append("&quot;")
+        case '\r' => sb.append("&#13;")
+        case c if c < ' ' && c != '\n' && c != '\r' && c != '\t' =>
+        case c => sb.append(c)
+      }
+      i += 1
+    }
+    sb.toString
+  }
+
+}
+
+class TurtleWriter(out: Writer, prefix: String, text: String) extends NIFWriter(out, prefix, text) {
+
+  import NIFWriter._
+
+  protected def startDocument() {
+    Namespaces.foreach { case (p, namespace) => write("@prefix " + p + ": <" + namespace + "> .\n") }
+    write("\n")
+  }
+
+  protected def startSubject(uri: String, types: Seq[Term]) {
+    write(iri(uri))
+    write("\n    a ")
+    write(types.map(_.qName).mkString(" , "))
+  }
+
+  protected def literal(property: Term, value: String, datatype: Term) {
+    write(" ;\n    " + property.qName + " ")
+    write(quote(value))
+    write("^^" + datatype.qName)
+  }
+
+  protected def link(property: Term, uri: String) {
+    write(" ;\n    " + property.qName + " ")
+    write(iri(uri))
+  }
+
+  protected def endSubject() {
+    write(" .\n\n")
+  }
+
+  protected def endDocument() {}
+
+}
+
+class NTriplesWriter(out: Writer, prefix: String, text: String) extends NIFWriter(out, prefix, text) {
+
+  import NIFWriter._
+
+  private var subject: String = null
+
+  protected def startDocument() {}
+
+  protected def startSubject(uri: String, types: Seq[Term]) {
+    subject = iri(uri) + " "
+    types.foreach(t => write(subject + RDFType.ntriples + " " + t.ntriples + " .\n"))
+  }
+
+  protected def literal(property: Term, value: String, datatype: Term) {
+    write(subject + property.ntriples + " ")
+    write(quote(value))
+    write("^^" + datatype.ntriples + " .\n")
+  }
+
+  protected def link(property: Term, uri: String) {
+    write(subject + property.ntriples + " ")
+    write(iri(uri))
+    write(" .\n")
+  }
+
+  protected def endSubject() {}
+
+  protected def endDocument() {}
+
+}
+
+class RDFXMLWriter(out: Writer, prefix: String, text: String) extends NIFWriter(out, prefix, text) {
+
+  import NIFWriter._
+
+  protected def startDocument() {
+    write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<rdf:RDF")
+    Namespaces.foreach { case (p, namespace) => write("\n    xmlns:" + p + "=\"" + namespace + "\"") }
+    write(">\n")
+  }
+
+  protected def startSubject(uri: String, types: Seq[Term]) {
+    write("  <rdf:Description rdf:about=\"" + escapeXML(encodeIRI(uri)) + "\">\n")
+    types.foreach(t => write("    <rdf:type rdf:resource=\"" + t.uri + "\"/>\n"))
+  }
+
+  protected def literal(property: Term, value: String, datatype: Term) {
+    write("    <" + property.qName + " rdf:datatype=\"" + datatype.uri + "\">")
+    write(escapeXML(value))
+    write("</" + property.qName + ">\n")
+  }
+
+  protected def link(property: Term, uri: String) {
+    write("    <" + property.qName + " rdf:resource=\"" + escapeXML(encodeIRI(uri)) + "\"/>\n")
+  }
+
+  protected def endSubject() {
+    write("  </rdf:Description>\n")
+  }
+
+  protected def endDocument() {
+    write("</rdf:RDF>\n")
+  }
+
+}
@@ -0,0 +1,77 @@
+package org.dbpedia.spotlight.web.rest
+
+import java.io.{StringReader, StringWriter}
+import org.scalatest.FlatSpec
+import org.scalatest.matchers.ShouldMatchers
+import com.hp.hpl.jena.rdf.model.{Model, ModelFactory}
+import com.hp.hpl.jena.vocabulary.RDF
+import scala.collection.JavaConversions._
+
+/**
+ * Parses the NIF written in each format with Jena and checks that the text and the annotations are read back.
+ */
+class NIFWriterTest extends FlatSpec with ShouldMatchers {
+
+  import NIFWriter._
+
+  val prefix = "http://spotlight.dbpedia.org/rest/annotate/?text=x"
+
+  val text = "He said \"Berlin\" \\ and\nthen <São Paulo> & Rio {x}\r\n\tended"
+
+  def annotations = Seq(
+    new NIFAnnotation(9, "Berlin", "http://dbpedia.org/resource/Berlin", Seq("http://dbpedia.org/ontology/Place", "http://dbpedia.org/ontology/City")),
+    new NIFAnnotation(text.indexOf("São"), "São Paulo", "http://dbpedia.org/resource/São Paulo<\"{|}>", Nil),
+    new NIFAnnotation(text.indexOf("Rio"), "Rio", null, Nil))
+
+  val formats = Seq("turtle" -> "TURTLE", "ntriples" -> "N-TRIPLE", "rdfxml" -> "RDF/XML")
+
+  def parse(format: String, jenaFormat: String): Model = {
+    val out = new StringWriter()
+    new NIFDocument(text, format, prefix, annotations).write(out)
+    val model = ModelFactory.createDefaultModel()
+    model.read(new StringReader(out.toString), null, jenaFormat)
+    model
+  }
+
+  def literal(model: Model, subject: String, property: Term) =
+    model.getResource(subject).getProperty(model.createProperty(property.uri)).getLiteral
+
+  def objects(model: Model, subject: String, property: Term) =
+    model.listObjectsOfProperty(model.getResource(subject), model.createProperty(property.uri)).toList.map(_.asResource.getURI).toSet
+
+  formats.foreach { case (format, jenaFormat) =>
+
+    "NIF written as " + format should "contain the text of the context" in {
+      val model = parse(format, jenaFormat)
+      val context = prefix + "#char=0," + text.length
+
+      literal(model, context, IsString).getLexicalForm should equal (text)
+      literal(model, context, IsString).getDatatypeURI should equal (XSDString.uri)
+      literal(model, context, EndIndex).getInt should equal (text.length)
+      model.listObjectsOfProperty(model.getResource(context), RDF.`type`).toList.map(_.asResource.getURI).toSet should equal (ContextTypes.map(_.uri).toSet)
+    }
+
+    it should "contain the annotations" in {
+      val model = parse(format, jenaFormat)
+      val context = prefix + "#char=0," + text.length
+
+      annotations.foreach(a => {
+        val uri = prefix + "#char=" + a.begin + "," + (a.begin + a.surfaceForm.length)
+        literal(model, uri, AnchorOf).getLexicalForm should equal (a.surfaceForm)
+        text.substring(literal(model, uri, BeginIndex).getInt, literal(model, uri, EndIndex).getInt) should equal (a.surfaceForm)
+        objects(model, uri, ReferenceContext) should equal (Set(context))
+        objects(model, uri, TaClassRef) should equal (a.typeURIs.toSet)
+        objects(model, uri, TaIdentRef) should equal (Option(a.resourceURI).map(encodeIRI).toSet)
+      })
+      model.listSubjects().toList should have size (1 + annotations.size)
+    }
+  }
+
+  "IRIs" should "be percent-encoded" in {
+    encodeIRI("http://dbpedia.org/resource/Berlin") should equal ("http://dbpedia.org/resource/Berlin")
+    encodeIRI("http://dbpedia.org/resource/São Paulo<\"{|}>") should equal ("http://dbpedia.org/resource/São%20Paulo%3C%22%7B%7C%7D%3E")
+    encodeIRI("a\\b^c`d\ne") should equal ("a%5Cb%5Ec%60d%0Ae")
+    iri("x y") should equal ("<x%20y>")
+  }
+
+}
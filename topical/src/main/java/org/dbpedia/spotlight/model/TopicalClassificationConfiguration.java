@@ -2,6 +2,8 @@ package org.dbpedia.spotlight.model;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.dbpedia.spotlight.db.memory.MemoryResourceStore;
+import org.dbpedia.spotlight.db.memory.MemoryTopicalPriorStore;
 import org.dbpedia.spotlight.exceptions.ConfigurationException;
 import scala.collection.Seq;
 
@@ -66,4 +68,12 @@ public class TopicalClassificationConfiguration {
         return new File(config.getProperty(TOPICAL_PRIORS));
     }
 
+    /**
+     * Loads the topical priors, either a binary store or a directory with topic count files, indexed by the
+     * resource IDs of the resource store.
+     */
+    public MemoryTopicalPriorStore getTopicalPriorStore(MemoryResourceStore resourceStore) throws IOException {
+        return MemoryTopicalPriorStore.fromFile(getPriorsDir(), resourceStore);
+    }
+
 }
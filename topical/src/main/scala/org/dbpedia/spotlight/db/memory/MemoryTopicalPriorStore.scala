@@ -0,0 +1,262 @@
+package org.dbpedia.spotlight.db.memory
+
+import org.dbpedia.spotlight.log.SpotlightLog
+import org.dbpedia.spotlight.model.{Topic, DBpediaResource}
+import org.dbpedia.spotlight.db.model.TopicalPriorStore
+import org.dbpedia.spotlight.db.model.HashMapTopicalPriorStore.ExtractCountAndResource
+import com.esotericsoftware.kryo.Kryo
+import com.esotericsoftware.kryo.serializers.DefaultArraySerializers
+import java.io.{FileInputStream, IOException, InputStream, File}
+import scala.io.Source
+import scala.transient
+
+/**
+ * Topical prior store indexed by the resource IDs of a [[org.dbpedia.spotlight.db.memory.MemoryResourceStore]].
+ *
+ * The counts are stored in compressed rows: the topics and counts of the resource with ID i are
+ * topicIDs(offsets(i) until offsets(i+1)) and counts(offsets(i) until offsets(i+1)), so a lookup
+ * does not create any objects apart from the result.
+ */
+
+@SerialVersionUID(1009001)
+class MemoryTopicalPriorStore
+  extends MemoryStore
+  with TopicalPriorStore {
+
+  var topicNames: Array[String] = null
+  var totalCountForTopic: Array[Int] = null
+
+  var offsets: Array[Int] = null
+  var topicIDs: Array[Short] = null
+  var counts: Array[Int] = null
+
+  @transient
+  var resourceStore: MemoryResourceStore = null
+
+  @transient
+  var topics: Array[Topic] = null
+
+  @transient
+  var idForTopic: Map[Topic, Int] = null
+
+  override def loaded() {
+    topics = topicNames.map(new Topic(_))
+    idForTopic = topics.zipWithIndex.toMap
+  }
+
+  def size = offsets.length - 1
+
+  /**
+   * ID of the resource in the resource store, -1 if the resource is not known.
+   */
+  def getResourceID(resource: DBpediaResource): Int = {
+    if (resource.id > 0 && resource.id < size)
+      resource.id
+    else
+      resourceStore.idFromURI.get(resource.uri) match {
+        case id: Integer if id < size => id.intValue()
+        case _ => -1
+      }
+  }
+
+  def getTotalCounts(): Map[Topic, Int] = topics.zip(totalCountForTopic).toMap
+
+  /**
+   * @return the counts of all topics for the resource, including the topics with count 0
+   */
+  def getTopicalPriorCounts(resource: DBpediaResource): Map[Topic, Int] =
+    topics.zip(getTopicalPriorCountMatrix(Array(getResourceID(resource)))).toMap
+
+  def getTopicalPriorCount(resource: DBpediaResource, topic: Topic): Int = {
+    val id = getResourceID(resource)
+    val topicID = idForTopic.getOrElse(topic, -1)
+
+    var i = if (id < 0) 0 else offsets(id)
+    val end = if (id < 0) 0 else offsets(id + 1)
+    while (i < end) {
+      if (topicIDs(i) == topicID)
+        return counts(i)
+      i += 1
+    }
+    0
+  }
+
+  /**
+   * Counts of all topics for a batch of resources (e.g. all candidates of a paragraph) as one
+   * row-major matrix: the count of topic t for resource r is at r * topics.length + t.
+   */
+  def getTopicalPriorCountMatrix(resourceIDs: Array[Int]): Array[Int] = {
+    val matrix = new Array[Int](resourceIDs.length * topics.length)
+    var r = 0
+    while (r < resourceIDs.length) {
+      val id = resourceIDs(r)
+      if (id >= 0 && id < size) {
+        var i = offsets(id)
+        while (i < offsets(id + 1)) {
+          matrix(r * topics.length + topicIDs(i)) = counts(i)
+          i += 1
+        }
+      }
+      r += 1
+    }
+    matrix
+  }
+
+  override def getTopicalPriorCountMatrix(resources: Seq[DBpediaResource], columnTopics: Seq[Topic]): Array[Int] = {
+    //column of each topic of the store, -1 if it is not requested
+    val columns = Array.fill(topics.length)(-1)
+    columnTopics.zipWithIndex.foreach { case (topic, column) => idForTopic.get(topic).foreach(id => columns(id) = column) }
+
+    val numColumns = columnTopics.size
+    val matrix = new Array[Int](resources.size * numColumns)
+    var r = 0
+    resources.foreach { resource =>
+      val id = getResourceID(resource)
+      if (id >= 0) {
+        var i = offsets(id)
+        while (i < offsets(id + 1)) {
+          val column = columns(topicIDs(i))
+          if (column >= 0)
+            matrix(r * numColumns + column) = counts(i)
+          i += 1
+        }
+      }
+      r += 1
+    }
+    matrix
+  }
+
+}
+
+object MemoryTopicalPriorStore {
+
+  MemoryStore.kryos.put(classOf[MemoryTopicalPriorStore].getSimpleName,
+  {
+    val kryo = new Kryo()
+    kryo.setRegistrationRequired(true)
+
+    kryo.register(classOf[Array[Int]],    new DefaultArraySerializers.IntArraySerializer())
+    kryo.register(classOf[Array[Short]],  new DefaultArraySerializers.ShortArraySerializer())
+    kryo.register(classOf[Array[String]], new DefaultArraySerializers.StringArraySerializer())
+    kryo.register(classOf[MemoryTopicalPriorStore])
+
+    kryo
+  }
+  )
+
+  def load(in: InputStream, resourceStore: MemoryResourceStore): MemoryTopicalPriorStore = {
+    val s = MemoryStore.load[MemoryTopicalPriorStore](in, classOf[MemoryTopicalPriorStore].getSimpleName)
+    s.resourceStore = resourceStore
+    s
+  }
+
+  def dump(store: MemoryTopicalPriorStore, out: File) {
+    MemoryStore.dump(store, out)
+  }
+
+  /**
+   * Loads the store from a binary file written by dump or, if priors is a directory, creates it from the
+   * topic count files in the directory.
+   */
+  def fromFile(priors: File, resourceStore: MemoryResourceStore): MemoryTopicalPriorStore = {
+    if (priors.isDirectory) {
+      fromDir(priors, resourceStore)
+    } else {
+      val in = new FileInputStream(priors)
+      try {
+        load(in, resourceStore)
+      } finally {
+        in.close()
+      }
+    }
+  }
+
+  /**
+   * Creates the store from a directory with one [topic].count file per topic (the format read by
+   * [[org.dbpedia.spotlight.db.model.HashMapTopicalPriorStore]]). Resources that are not in the
+   * resource store are skipped.
+   */
+  def fromDir(dir: File, resourceStore: MemoryResourceStore): MemoryTopicalPriorStore = {
+    if (!dir.exists() || !dir.isDirectory)
+      throw new IOException("Could not load directory with topics.")
+
+    SpotlightLog.info(this.getClass, "Creating topical prior store from %s.", dir)
+
+    val files = dir.listFiles().filter(_.getName.endsWith(".count")).sortBy(_.getName)
+    if (files.length > Short.MaxValue)
+      throw new IOException("Too many topics: %d".format(files.length))
+
+    //(resource ID, topic ID, count) of all known resources:
+    var n = 0
+    var resourceIDs = new Array[Int](1024)
+    var rowTopicIDs = new Array[Short](1024)
+    var rowCounts = new Array[Int](1024)
+    val totals = new Array[Int](files.length)
+    var skipped = 0
+
+    files.zipWithIndex.foreach { case (file, topicID) =>
+      val source = Source.fromFile(file)
+      source.getLines().foreach {
+        case ExtractCountAndResource(count, uri) => {
+          val c = count.toInt
+          totals(topicID) += c
+          resourceStore.idFromURI.get(uri.trim) match {
+            case id: Integer => {
+              if (n == resourceIDs.length) {
+                resourceIDs = java.util.Arrays.copyOf(resourceIDs, 2 * n)
+                rowTopicIDs = java.util.Arrays.copyOf(rowTopicIDs, 2 * n)
+                rowCounts = java.util.Arrays.copyOf(rowCounts, 2 * n)
+              }
+              resourceIDs(n) = id.intValue()
+              rowTopicIDs(n) = topicID.toShort
+              rowCounts(n) = c
+              n += 1
+            }
+            case _ => skipped += 1
+          }
+        }
+        case line => SpotlightLog.warn(this.getClass, "Could not parse line in %s: %s", file.getName, line)
+      }
+      source.close()
+    }
+
+    //Sort the counts into rows by resource ID:
+    val offsets = new Array[Int](resourceStore.size + 1)
+    (0 until n).foreach(i => offsets(resourceIDs(i) + 1) += 1)
+    (0 until resourceStore.size).foreach(id => offsets(id + 1) += offsets(id))
+
+    val next = java.util.Arrays.copyOf(offsets, offsets.length)
+    val topicIDs = new Array[Short](n)
+    val counts = new Array[Int](n)
+    (0 until n).foreach { i =>
+      val j = next(resourceIDs(i))
+      topicIDs(j) = rowTopicIDs(i)
+      counts(j) = rowCounts(i)
+      next(resourceIDs(i)) += 1
+    }
+
+    val store = new MemoryTopicalPriorStore()
+    store.topicNames = files.map(_.getName.replaceAll(".count", "").trim)
+    store.totalCountForTopic = totals
+    store.offsets = offsets
+    store.topicIDs = topicIDs
+    store.counts = counts
+    store.resourceStore = resourceStore
+    store.loaded()
+
+    SpotlightLog.info(this.getClass, "Done: %d topics, %d counts, %d counts of unknown resources skipped.",
+      store.topicNames.length, store.counts.length, skipped)
+    store
+  }
+
+  /**
+   * Converts the topic count files to the binary store.
+   *
+   * Arguments: topic directory, resource store (res.mem), output file
+   */
+  def main(args: Array[String]) {
+    val resourceStore = MemoryStore.loadResourceStore(new FileInputStream(new File(args(1))))
+    dump(fromDir(new File(args(0)), resourceStore), new File(args(2)))
+  }
+
+}
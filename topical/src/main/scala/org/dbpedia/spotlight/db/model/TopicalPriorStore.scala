@@ -17,10 +17,25 @@ trait TopicalPriorStore {
   //    def getTopicalPriorCount(resource:DBpediaResource, topic: Topic): Int
   //    def getTotalCounts(): Map[Topic,Int]
 
+  /**
+   * @return the counts of all topics of the store for the resource, including the topics with count 0
+   */
   def getTopicalPriorCounts(resource:DBpediaResource): Map[Topic,Int]
   def getTopicalPriorCount(resource:DBpediaResource, topic: Topic): Int
   def getTotalCounts(): Map[Topic,Int]
 
+  /**
+   * Topical prior counts of a batch of resources (e.g. all candidates of a paragraph) as one row-major matrix:
+   * the count of topics(t) for resources(r) is at r * topics.size + t. Topics that are not in the store have count 0.
+   */
+  def getTopicalPriorCountMatrix(resources: Seq[DBpediaResource], topics: Seq[Topic]): Array[Int] = {
+    val matrix = new Array[Int](resources.size * topics.size)
+    resources.zipWithIndex.foreach { case (resource, r) =>
+      topics.zipWithIndex.foreach { case (topic, t) => matrix(r * topics.size + t) = getTopicalPriorCount(resource, topic) }
+    }
+    matrix
+  }
+
 }
 
 object HashMapTopicalPriorStore extends TopicalPriorStore {
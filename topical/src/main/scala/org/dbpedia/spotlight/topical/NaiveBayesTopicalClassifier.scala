@@ -15,6 +15,7 @@ import scala.Predef._
 import collection.mutable.ArrayBuffer
 import cc.factorie.util.{TensorCubbie, BinarySerializer}
 import cc.factorie.app.classify
+import java.util.concurrent.atomic.AtomicReference
 
 /**
  * @author dirk
@@ -29,9 +30,12 @@ protected class NaiveBayesTopicalClassifier extends TopicalClassifier {
 
     private val analyzer: Analyzer =  new EnglishAnalyzer(Version.LUCENE_36)
 
+    //feature of the document domain that counts the number of training documents
+    protected val documentCountId = "###DOCCOUNT###"
+
     class Document(text:String, labelName:String = labelDomain.category(0),training:Boolean = false) extends FeatureVectorVariable[String] {
         def domain = documentDomain
-        final val docCountId = "###DOCCOUNT###"
+        final val docCountId = documentCountId
 
         domain.dimensionDomain.gatherCounts = training
         //also count number of documents in document domain - this is hacky but works :)
@@ -99,19 +103,177 @@ protected class NaiveBayesTopicalClassifier extends TopicalClassifier {
     protected var totalMasses = new DenseTensor1(0)
 
 
-    protected var _model:LogLinearModel[Label,Document] = null
-    private var classifier = new ModelBasedClassifier[Label,LogLinearModel[Label,Document]](_model, labelDomain)
+    @volatile protected var _model:LogLinearModel[Label,Document] = null
+    @volatile private var classifier = new ModelBasedClassifier[Label,LogLinearModel[Label,Document]](_model, labelDomain)
+
+    //number of training batches, the model can be changed in place by training, so it is not identified by its instance
+    @volatile private var modelVersion = 0L
+
+    //inference model, compiled from the trained model of a version when it is first used
+    private val compiled = new AtomicReference[CompiledModel]()
+
     /**
-     * @param text
-     * @return predicted probabilities of topics given the text
+     * The trained model compiled for inference: the features are looked up by token once, and the weights of the
+     * features are stored in a dense matrix with the weights of all topics for one feature next to each other.
+     * A text is classified with a product of its sparse tf*idf vector and the matrix.
+     *
+     * A compiled model is not changed after it is created, so it can be used by many threads without locking.
      */
-    def getPredictions(text: Text) = {
+    private class CompiledModel(val version: Long,
+                                val topics: Array[Topic],
+                                val featureIds: java.util.HashMap[String, Integer],
+                                val idf: Array[Float],
+                                val weights: Array[Float],
+                                val bias: Array[Double]) {
+
+        private val numTopics = topics.length
+
+        def predict(text: String): Array[(Topic, Double)] = {
+            //ids of the known tokens:
+            var ids = new Array[Int](64)
+            var n = 0
+            val tokenStream = analyzer.reusableTokenStream(null, new StringReader(text))
+            val charTermAttribute = tokenStream.addAttribute(classOf[CharTermAttribute])
+            while (tokenStream.incrementToken()) {
+                val token = charTermAttribute.toString().toLowerCase
+                if (isFeature(token)) {
+                    val id = featureIds.get(token)
+                    if (id != null) {
+                        if (n == ids.length)
+                            ids = java.util.Arrays.copyOf(ids, 2 * n)
+                        ids(n) = id.intValue
+                        n += 1
+                    }
+                }
+            }
+
+            //length-normalized tf*idf vector, same as Document.normalize:
+            java.util.Arrays.sort(ids, 0, n)
+            val features = new Array[Int](n)
+            val values = new Array[Double](n)
+            var m = 0
+            var length = 0.0
+            var i = 0
+            while (i < n) {
+                var j = i + 1
+                while (j < n && ids(j) == ids(i))
+                    j += 1
+                features(m) = ids(i)
+                values(m) = math.log(1 + (j - i)) * idf(ids(i))
+                length += values(m) * values(m)
+                m += 1
+                i = j
+            }
+            length = math.sqrt(length)
+
+            //scores of the topics:
+            val scores = bias.clone()
+            var k = 0
+            while (k < m) {
+                val value = if (length > 0.0) values(k) / length else 0.0
+                val offset = features(k) * numTopics
+                var t = 0
+                while (t < numTopics) {
+                    scores(t) += weights(offset + t) * value
+                    t += 1
+                }
+                k += 1
+            }
+
+            //normalize to probabilities:
+            val max = scores.max
+            var sum = 0.0
+            var t = 0
+            while (t < numTopics) {
+                scores(t) = math.exp(scores(t) - max)
+                sum += scores(t)
+                t += 1
+            }
+            topics.zip(scores.map(_ / sum))
+        }
+
+        //tokens of at least 3 letters, see Document
+        private def isFeature(token: String): Boolean = {
+            if (token.length < 3)
+                return false
+            var i = 0
+            while (i < token.length) {
+                val c = token.charAt(i)
+                if (c < 'a' || c > 'z')
+                    return false
+                i += 1
+            }
+            true
+        }
+    }
+
+    //holds the lock of the classifier, so that the model is not changed by training while it is compiled
+    private def compile(): CompiledModel = synchronized {
+        val version = modelVersion
+        val dimensionDomain = documentDomain.dimensionDomain
+        val numTopics = labelDomain.size
+        val numFeatures = dimensionDomain.size
+        val documentCount = dimensionDomain.count(documentCountId)
+        val evidence = _model.evidenceTemplate.weights.value
+
+        val featureIds = new java.util.HashMap[String, Integer](numFeatures * 2)
+        val idf = new Array[Float](numFeatures)
+        val weights = new Array[Float](numFeatures * numTopics)
+        (0 until numFeatures).foreach(fi => {
+            val token = dimensionDomain.category(fi)
+            val df = dimensionDomain.count(fi)
+            if (token != documentCountId && df > 0 && fi < evidence.dim2) {
+                featureIds.put(token, fi)
+                //integer division, same as Document.normalize
+                idf(fi) = math.log(documentCount / df).toFloat
+                (0 until math.min(numTopics, evidence.dim1)).foreach(li => weights(fi * numTopics + li) = evidence(li, fi).toFloat)
+            }
+        })
+        val bias = Array.tabulate(numTopics)(li => _model.biasTemplate.weights.value(li))
+
+        SpotlightLog.info(this.getClass, "Compiled topical classifier with %d topics and %d features.", numTopics, featureIds.size)
+        new CompiledModel(version, getTopics().toArray, featureIds, idf, weights, bias)
+    }
+
+    private def compiledModel: CompiledModel = {
+        val current = compiled.get
+        if (current != null && current.version == modelVersion) {
+            current
+        } else {
+            //compiling the same model twice in parallel does no harm, but a model compiled from an older version
+            //must never replace a newer one
+            val model = compile()
+            var published = compiled.get
+            while ((published == null || published.version < model.version) && !compiled.compareAndSet(published, model))
+                published = compiled.get
+            model
+        }
+    }
+
+    /**
+     * Predictions of the factorie classifier the compiled model is derived from.
+     */
+    private[topical] def getClassifierPredictions(text: Text) = synchronized {
         val doc = new Document(text.text)
         doc.normalize
         val classification = classifier.classify(doc.label)
         getTopics().zip(classification.proportions.asSeq).toArray
     }
 
+    /**
+     * @param text
+     * @return predicted probabilities of topics given the text
+     */
+    def getPredictions(text: Text) = compiledModel.predict(text.text)
+
+    /**
+     * @return predicted probabilities of topics for each of the texts, the texts are classified in parallel
+     */
+    override def getPredictions(texts: Seq[Text]): Seq[Array[(Topic, Double)]] = {
+        val model = compiledModel
+        texts.par.map(text => model.predict(text.text)).seq
+    }
+
     /**
      * @return list of topics the classifier is able to predict
      */
@@ -140,7 +302,7 @@ protected class NaiveBayesTopicalClassifier extends TopicalClassifier {
     //mainly copied from NaiveBayesTrainer; Complementary naive bayes as explained here (http://machinelearning.wustl.edu/mlpapers/paper_files/icml2003_RennieSTK03.pdf)
     private val biasSmoothingMass = 1.0
     private val evidenceSmoothingMass = 1.0
-    private def trainIncremental(il: LabelList[Label, Document]) {
+    private def trainIncremental(il: LabelList[Label, Document]) = synchronized {
         il.foreach(_.document.normalize)
         //make model growable
         val cmodel =
@@ -196,7 +358,14 @@ protected class NaiveBayesTopicalClassifier extends TopicalClassifier {
         })
 
         _model = cmodel
-        classifier = new ModelBasedClassifier[Label,LogLinearModel[Label,Document]](_model, labelDomain)
+        modelChanged()
+    }
+
+    private def modelChanged() {
+        synchronized {
+            classifier = new ModelBasedClassifier[Label,LogLinearModel[Label,Document]](_model, labelDomain)
+            modelVersion += 1
+        }
     }
 }
 
@@ -281,6 +450,7 @@ object NaiveBayesTopicalClassifier extends TopicalClassifierTrainer{
         BinarySerializer.deserialize(classifier.documentDomain.dimensionDomain,tensorCubbie,classifier.labelDomain,classifier._model, file,true)
 
         classifier.totalMasses = tensorCubbie.fetch()
+        classifier.modelChanged()
 
         classifier
     }
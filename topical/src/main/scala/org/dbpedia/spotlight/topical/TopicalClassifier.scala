@@ -16,6 +16,12 @@ trait TopicalClassifier {
      */
     def getPredictions(text: Text): Array[(Topic, Double)]
 
+    /**
+     * @param texts
+     * @return predicted probabilities of topics for each of the texts
+     */
+    def getPredictions(texts: Seq[Text]): Seq[Array[(Topic, Double)]] = texts.map(getPredictions(_))
+
     /**
      * @return list of topics the classifier is able to predict
      */
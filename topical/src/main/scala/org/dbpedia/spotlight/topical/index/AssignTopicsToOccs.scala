@@ -1,11 +1,10 @@
 package org.dbpedia.spotlight.topical.index
 
 import scala.{Boolean, Double}
-import java.io.{FileWriter, PrintWriter, File}
+import java.io.{PrintWriter, File}
 import org.dbpedia.spotlight.model.{Topic, TopicalClassificationConfiguration}
 import org.dbpedia.spotlight.topical.{TopicalClassifierFactory, TopicalClassifier}
 import org.dbpedia.spotlight.topical.util.TopicUtil
-import org.dbpedia.spotlight.io.FileOccurrenceSource
 import org.dbpedia.spotlight.log.SpotlightLog
 import collection.mutable._
 
@@ -29,36 +28,36 @@ object AssignTopicsToOccs {
         assignTopics(new File(args(0)), TopicalClassifierFactory.fromFile(config.getModelFile, config.getClassifierType).get, args(2).toDouble, new File(args(3)), args(4).toBoolean)
     }
 
+    /**
+     * The occs are read and classified in chunks on a pool of worker threads (see ParallelOccsProcessor) and
+     * written to the topic files in the order of the input.
+     */
     def assignTopics(occsFile: File, model: TopicalClassifier, minimalConfidence: Double, output: File, append: Boolean = false) {
         val writers = Map[Topic, PrintWriter]()
 
-        model.getTopics.foreach(topic => writers += (topic -> new PrintWriter(new FileWriter(new File(output, topic.getName + ".tsv"), append))))
-        val otherWriter = new PrintWriter(new FileWriter(new File(output, TopicUtil.CATCH_TOPIC.getName + ".tsv"), append))
-        var predictions: Array[(Topic, Double)] = null
-        var written = false
+        model.getTopics.foreach(topic => writers += (topic -> ParallelOccsProcessor.bufferedWriter(new File(output, topic.getName + ".tsv"), append)))
+        val otherWriter = ParallelOccsProcessor.bufferedWriter(new File(output, TopicUtil.CATCH_TOPIC.getName + ".tsv"), append)
 
         var ctr = 0
         var assignments = 0
-        FileOccurrenceSource.fromFile(occsFile).foreach(occ => {
-            predictions = model.getPredictions(occ.context)
-            written = false
-            predictions.foreach {
-                case (topic, prediction) => {
-                    if (prediction >= minimalConfidence) {
-                        writers(topic).println(occ.toTsvString)
-                        written = true
-                        assignments += 1
-                        if (assignments % 10000 == 0)
-                            SpotlightLog.info(this.getClass, "%d-th assignment: %s, %s->%s", assignments, occ.id, occ.resource.uri, topic.getName)
-                    }
-                }
-            }
-            if (!written)
-                otherWriter.println(occ.toTsvString)
+        ParallelOccsProcessor.process(occsFile)(occs => {
+            //classified on the worker threads:
+            occs.map(occ => (occ, occ.toTsvString, model.getPredictions(occ.context).filter(_._2 >= minimalConfidence).map(_._1)))
+        })(_.foreach {
+            case (occ, tsv, topics) => {
+                topics.foreach(topic => {
+                    writers(topic).println(tsv)
+                    assignments += 1
+                    if (assignments % 10000 == 0)
+                        SpotlightLog.info(this.getClass, "%d-th assignment: %s, %s->%s", assignments, occ.id, occ.resource.uri, topic.getName)
+                })
+                if (topics.isEmpty)
+                    otherWriter.println(tsv)
 
-            ctr += 1
-            if (ctr % 100000 == 0)
-                SpotlightLog.info(this.getClass, "%d occs processed", ctr)
+                ctr += 1
+                if (ctr % 100000 == 0)
+                    SpotlightLog.info(this.getClass, "%d occs processed", ctr)
+            }
         })
 
         writers.foreach(_._2.close())
@@ -1,6 +1,6 @@
 package org.dbpedia.spotlight.topical.index
 
-import java.io.{FileWriter, PrintWriter, File}
+import java.io.{FileInputStream, FileOutputStream, PrintWriter, File}
 import scala._
 import org.dbpedia.spotlight.model.{DBpediaCategory, Topic}
 import org.dbpedia.spotlight.topical.util.TopicUtil
@@ -30,41 +30,27 @@ object GenerateOccTopicCorpus {
 
     /**
      * Simplest way of generating a topic corpus from splitted occs, which takes examples from splitted occs by random,
-     * until nrOfExamples is reached
+     * until nrOfExamples is reached. The topics are processed in parallel.
      * @param splittedOccsDir
      * @param output
      * @param nrOfExamples <=0 means write maximum number of examples to corpus
      */
     def generateCorpus(splittedOccsDir: File, output: File,nrOfExamples: Int = -1) {
         output.getParentFile.mkdirs()
-        val outputWriter = new PrintWriter(new FileWriter(output))
 
-        splittedOccsDir.listFiles().foreach(topicFile => {
-            val topic = new Topic(topicFile.getName.substring(0, topicFile.getName.length - 4))
-
-            SpotlightLog.info(this.getClass, "======================= Processing %s =======================", topicFile.getName)
-
-            if (!topic.getName.equals(TopicUtil.CATCH_TOPIC)) {
-                var counter = 0
-                FileOccurrenceSource.fromFile(topicFile).takeWhile(occ => {
-                    outputWriter.println(topic.getName + "\t" + occ.context.text)
-                    counter += 1
-                    if (counter % 10000 == 0)
-                        SpotlightLog.info(this.getClass, "%d examples written", counter)
-                    nrOfExamples <= 0 || counter < nrOfExamples
-                })
-
-                outputWriter.flush()
-            }
+        writeTopicsInParallel(splittedOccsDir, output)((topicFile, examples) => {
+            FileOccurrenceSource.fromFile(topicFile).takeWhile(occ => {
+                examples.add(occ.context.text)
+                nrOfExamples <= 0 || examples.count < nrOfExamples
+            })
         })
 
-        outputWriter.close()
         SpotlightLog.info(this.getClass, "Done")
     }
 
     /**
      * Simplest way of generating a topic corpus from splitted occs, which takes examples from splitted occs,
-     * until nrOfExamples is reached
+     * until nrOfExamples is reached. The topics are counted and processed in parallel.
      * @param splittedOccsDir
      * @param nrOfExamples <=1 means write maximum number of examples to corpus
      * @param output
@@ -72,57 +58,103 @@ object GenerateOccTopicCorpus {
      */
     def generateCorpusWithEqualCount(splittedOccsDir: File, output: File,nrOfExamples: Int = -1) {
         output.getParentFile.mkdirs()
-        val outputWriter = new PrintWriter(new FileWriter(output))
-
-        var corpusSize = 0
-        var sizes = Map[Topic, Int]()
 
         SpotlightLog.info(this.getClass, "======================= Counting occurrences in each split =======================")
-        corpusSize = Int.MaxValue
-        splittedOccsDir.listFiles().foreach(topicFile => {
+        val sizes = splittedOccsDir.listFiles().par.map(topicFile => {
             val topic = new Topic(topicFile.getName.substring(0, topicFile.getName.length - 4))
-            var lineNr = 0
-            scala.io.Source.fromFile(topicFile).getLines().foreach(_ => lineNr += 1)
-            sizes += (topic -> lineNr)
-            corpusSize = math.min(lineNr, corpusSize)
-        })
+            val source = scala.io.Source.fromFile(topicFile)
+            val lineNr = source.getLines().size
+            source.close()
+            (topic -> lineNr)
+        }).seq.toMap
 
+        var corpusSize = if (sizes.isEmpty) 0 else sizes.values.min
         if (nrOfExamples > 1 && nrOfExamples < corpusSize)
             corpusSize = nrOfExamples
 
         SpotlightLog.info(this.getClass, "Writing corpus with size %d for each topic", corpusSize)
 
-        splittedOccsDir.listFiles().foreach(topicFile => {
+        writeTopicsInParallel(splittedOccsDir, output)((topicFile, examples) => {
+            SpotlightLog.info(this.getClass, "======================= Extract %d occs to corpus =======================", corpusSize)
+            val threshold = corpusSize.toDouble / sizes(examples.topic)
+            val random = new scala.util.Random()
+
+            breakable {
+                FileOccurrenceSource.fromFile(topicFile).foreach(occ => {
+                    if (examples.count < corpusSize) {
+                        if (random.nextDouble() <= threshold)
+                            examples.add(occ.context.text)
+                    }
+                    else
+                        break()
+
+                })
+            }
+        })
+    }
+
+    /**
+     * Extracts the examples of each topic file in parallel. Each topic is written to its own part file and the
+     * parts are concatenated in the order of the topic file names, so that the examples of a topic stay together
+     * and the corpus does not depend on the scheduling of the threads.
+     */
+    private def writeTopicsInParallel(splittedOccsDir: File, output: File)(extract: (File, ExampleWriter) => Unit) {
+        val parts = splittedOccsDir.listFiles().sortBy(_.getName).par.map(topicFile => {
             val topic = new Topic(topicFile.getName.substring(0, topicFile.getName.length - 4))
 
             SpotlightLog.info(this.getClass, "======================= Processing %s =======================", topicFile.getName)
 
             if (!topic.getName.equals(TopicUtil.CATCH_TOPIC)) {
-                SpotlightLog.info(this.getClass, "======================= Extract %d occs to corpus =======================", corpusSize)
-                val threshold = corpusSize.toDouble / sizes(topic)
-                var counter = 0
-
-                breakable {
-                    FileOccurrenceSource.fromFile(topicFile).foreach(occ => {
-                        if (counter < corpusSize) {
-                            if (math.random <= threshold) {
-                                outputWriter.println(topic.getName + "\t" + occ.context.text)
-                                counter += 1
-                                if (counter % 10000 == 0)
-                                    SpotlightLog.info(this.getClass, "%d examples written", counter)
-                            }
-                        }
-                        else
-                            break()
-
-                    })
+                val part = new File(output.getPath + "." + topicFile.getName + ".part")
+                val examples = new ExampleWriter(topic, ParallelOccsProcessor.bufferedWriter(part))
+                try {
+                    extract(topicFile, examples)
+                } finally {
+                    examples.close()
                 }
-
-                outputWriter.flush()
+                Some(part)
+            } else {
+                None
             }
-        })
+        }).seq.flatten
+
+        val out = new FileOutputStream(output)
+        try {
+            val buffer = new Array[Byte](ParallelOccsProcessor.writerBufferSize)
+            parts.foreach(part => {
+                val in = new FileInputStream(part)
+                try {
+                    var n = in.read(buffer)
+                    while (n >= 0) {
+                        out.write(buffer, 0, n)
+                        n = in.read(buffer)
+                    }
+                } finally {
+                    in.close()
+                }
+                part.delete()
+            })
+        } finally {
+            out.close()
+        }
+    }
 
-        outputWriter.close()
+    /**
+     * Writes the examples of one topic.
+     */
+    private class ExampleWriter(val topic: Topic, writer: PrintWriter) {
+        var count = 0
+
+        def add(text: String) {
+            writer.append(topic.getName).append('\t').append(text).append('\n')
+            count += 1
+            if (count % 10000 == 0)
+                SpotlightLog.info(this.getClass, "%d examples written for %s", count, topic.getName)
+        }
+
+        def close() {
+            writer.close()
+        }
     }
 
     private class CategoryTuple(var parent: DBpediaCategory,
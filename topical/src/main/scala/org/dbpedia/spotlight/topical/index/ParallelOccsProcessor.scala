@@ -0,0 +1,72 @@
+package org.dbpedia.spotlight.topical.index
+
+import java.io._
+import java.util.concurrent.{Callable, Future, Executors}
+import org.dbpedia.spotlight.model._
+import org.dbpedia.spotlight.io.FileOccurrenceSource
+import org.dbpedia.spotlight.log.SpotlightLog
+import scala.collection.mutable
+
+/**
+ * Processes large occs files in parallel: the lines of the file are read in chunks, each chunk is parsed and processed
+ * (e.g. classified) on a pool of worker threads and the results are handed back in the order of the input on the
+ * calling thread, so that they can be written without synchronization.
+ *
+ * The number of threads and the chunk size can be configured with the system properties
+ * org.dbpedia.spotlight.topical.threads (default: number of cores) and org.dbpedia.spotlight.topical.chunkSize (default: 1000).
+ */
+object ParallelOccsProcessor {
+
+    def nThreads = System.getProperty("org.dbpedia.spotlight.topical.threads", Runtime.getRuntime.availableProcessors.toString).toInt
+
+    def chunkSize = System.getProperty("org.dbpedia.spotlight.topical.chunkSize", "1000").toInt
+
+    /**
+     * Output buffer of each writer, in characters.
+     */
+    val writerBufferSize = 1 << 20
+
+    /**
+     * @return a writer with a large buffer, for writing one of many topic files at the same time
+     */
+    def bufferedWriter(file: File, append: Boolean = false): PrintWriter =
+        new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), "UTF-8"), writerBufferSize))
+
+    /**
+     * Reads the occs file in chunks, applies f to the occs of each chunk on the worker threads and
+     * calls write with the results of each chunk, in the order of the file.
+     */
+    def process[T](occsFile: File)(f: Seq[DBpediaResourceOccurrence] => T)(write: T => Unit) {
+        val input = FileOccurrenceSource.openInputStream(occsFile)
+        val lines = FileOccurrenceSource.getLines(input)
+
+        val threads = nThreads
+        val size = chunkSize
+        val executor = Executors.newFixedThreadPool(threads)
+        val pending = new mutable.Queue[Future[T]]()
+        val start = System.currentTimeMillis()
+        var nChunks = 0
+
+        try {
+            lines.grouped(size).foreach(chunk => {
+                pending.enqueue(executor.submit(new Callable[T] {
+                    def call() = f(chunk.flatMap(FileOccurrenceSource.parseOccurrence))
+                }))
+                //bounds the number of chunks in memory:
+                if (pending.size >= 2 * threads)
+                    write(pending.dequeue().get())
+
+                nChunks += 1
+                if (nChunks % 100 == 0)
+                    SpotlightLog.info(this.getClass, "%d occs read (%.0f occs/sec)", nChunks * size,
+                        nChunks * size * 1000.0 / math.max(1, System.currentTimeMillis() - start))
+            })
+            while (!pending.isEmpty)
+                write(pending.dequeue().get())
+        } finally {
+            executor.shutdownNow()
+            input.close()
+        }
+    }
+
+}
@@ -1,11 +1,10 @@
 package org.dbpedia.spotlight.topical.index
 
-import java.io.{FileWriter, PrintWriter, File}
+import java.io.{PrintWriter, File}
 import org.dbpedia.spotlight.model._
 import org.dbpedia.spotlight.util.IndexingConfiguration
 import org.dbpedia.spotlight.topical.{TopicalClassifier, TopicalClassifierTrainer}
 import org.dbpedia.spotlight.topical.util.TopicUtil
-import org.dbpedia.spotlight.io.FileOccurrenceSource
 import org.dbpedia.spotlight.log.SpotlightLog
 import collection.mutable._
 import com.sun.grizzly.util.FileUtil
@@ -142,13 +141,13 @@ object SplitOccsSemiSupervised {
         deleteDir.listFiles().foreach(f => {
             keepDir.listFiles().find(_.getName == f.getName) match {
                 case Some(otherF) => {
-                    val pw = new PrintWriter(new FileWriter(otherF,true))
-                    Source.fromFile(f).getLines().foreach(l => pw.println(l))
+                    val pw = ParallelOccsProcessor.bufferedWriter(otherF, true)
+                    Source.fromFile(f, "UTF-8").getLines().foreach(l => pw.println(l))
                     pw.close()
                 }
                 case None => {
-                    val pw = new PrintWriter(new FileWriter(new File(keepDir,f.getName)))
-                    Source.fromFile(f).getLines().foreach(l => pw.println(l))
+                    val pw = ParallelOccsProcessor.bufferedWriter(new File(keepDir,f.getName))
+                    Source.fromFile(f, "UTF-8").getLines().foreach(l => pw.println(l))
                     pw.close()
                 }
             }
@@ -191,33 +190,31 @@ object SplitOccsSemiSupervised {
         val initialAssignments = loadArticleCategories(articleCatsFile, topicDescriptions)
 
         topicDescriptions.foreach(description => {
-            writers += (description.topic -> new PrintWriter(new FileWriter(new File(output, description.topic.getName + ".tsv"))))
+            writers += (description.topic -> ParallelOccsProcessor.bufferedWriter(new File(output, description.topic.getName + ".tsv")))
         })
         var assignedResourcesCtr = 0
         var ctr = 0
 
-        var lastResource: DBpediaResource = new DBpediaResource("")
-        var selectedTopics = Set[Topic]()
-        FileOccurrenceSource.fromFile(occsFile).foreach(occ => {
-            if (!occ.resource.equals(lastResource)) {
-                lastResource = occ.resource
-                selectedTopics = initialAssignments.getOrElse(lastResource, Set[Topic]())
-            }
-
-            if (selectedTopics.size > 0) {
-                selectedTopics.foreach(topic => {
-                    writers(topic).println(occ.toTsvString)
-                })
-                assignedResourcesCtr += 1
-                if (assignedResourcesCtr % 10000 == 0) {
-                    SpotlightLog.info(this.getClass, "Assigned %d occs to topics", assignedResourcesCtr)
-                    SpotlightLog.info(this.getClass, "Latest assignment: %s -> %s", lastResource.uri, selectedTopics.foldLeft("")(_ + " " + _.getName))
+        ParallelOccsProcessor.process(occsFile)(occs => {
+            //looked up and serialized on the worker threads:
+            occs.map(occ => (occ.resource, occ.toTsvString, initialAssignments.getOrElse(occ.resource, Set[Topic]())))
+        })(_.foreach {
+            case (resource, tsv, selectedTopics) => {
+                if (selectedTopics.size > 0) {
+                    selectedTopics.foreach(topic => {
+                        writers(topic).println(tsv)
+                    })
+                    assignedResourcesCtr += 1
+                    if (assignedResourcesCtr % 10000 == 0) {
+                        SpotlightLog.info(this.getClass, "Assigned %d occs to topics", assignedResourcesCtr)
+                        SpotlightLog.info(this.getClass, "Latest assignment: %s -> %s", resource.uri, selectedTopics.foldLeft("")(_ + " " + _.getName))
+                    }
                 }
-            }
 
-            ctr += 1
-            if (ctr % 10000 == 0)
-                SpotlightLog.info(this.getClass, "%d occs processed!", ctr)
+                ctr += 1
+                if (ctr % 10000 == 0)
+                    SpotlightLog.info(this.getClass, "%d occs processed!", ctr)
+            }
         })
 
         writers.foreach(_._2.close())
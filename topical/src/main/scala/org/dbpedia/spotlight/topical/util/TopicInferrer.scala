@@ -14,7 +14,10 @@ import org.dbpedia.spotlight.db.model.TopicalPriorStore
  */
 class TopicInferrer(topicalPriors: TopicalPriorStore) {
 
-    private val topics = topicalPriors.getTotalCounts().keySet.filter(!_.equals(TopicUtil.CATCH_TOPIC))
+    private val topics = topicalPriors.getTotalCounts().keySet.filter(!_.equals(TopicUtil.CATCH_TOPIC)).toIndexedSeq
+
+    //columns of the count matrix: the topics, then the catch topic
+    private val columns = topics :+ TopicUtil.CATCH_TOPIC
 
     def inferTopics(annotations: Map[DBpediaResource, Double], mainResources: Set[DBpediaResource]): Map[Topic, Double] = {
         val probabilitiesAnnotations = inferTopics(annotations)
@@ -37,20 +40,24 @@ class TopicInferrer(topicalPriors: TopicalPriorStore) {
         //p(r1,r2,...) = c(r1,r2,...) / c                           Assumption: c(r1,r2,...)= Sum(c(ri))/n
         //  -> p(t|r1,r2,...) = c(r1,r2,...,t) / c(r1,r2,...) = Sum(c(ri,t)) / Sum(c(ri))
 
-        annotations.foreach {
-            case (resource, occCount) => {
-                val counts = topicalPriors.getTopicalPriorCounts(resource).filter(!_._1.equals(TopicUtil.CATCH_TOPIC))
-                val resourceSum = counts.values.sum.toDouble
+        //counts of all annotated resources, looked up in one batch:
+        val resources = annotations.keys.toIndexedSeq
+        val matrix = topicalPriors.getTopicalPriorCountMatrix(resources, columns)
+        val catchColumn = topics.size
+
+        resources.zipWithIndex.foreach {
+            case (resource, r) => {
+                val row = r * columns.size
+                val occCount = annotations(resource)
+                val resourceSum = (0 until catchColumn).map(t => matrix(row + t)).sum.toDouble
 
                 if (resourceSum > 0.0) {
-                    val weight = resourceSum / (resourceSum + topicalPriors.getTopicalPriorCount(resource, TopicUtil.CATCH_TOPIC))
+                    val weight = resourceSum / (resourceSum + matrix(row + catchColumn))
                     normalizingConstant += resourceSum * occCount * weight
 
-                    counts.filter(_._2 > 0).foreach {
-                        case (topic, count) => {
-                            probabilities(topic) += count.toDouble * occCount * weight
-                        }
-                    }
+                    (0 until catchColumn).filter(t => matrix(row + t) > 0).foreach(t => {
+                        probabilities(topics(t)) += matrix(row + t).toDouble * occCount * weight
+                    })
                 }
             }
         }
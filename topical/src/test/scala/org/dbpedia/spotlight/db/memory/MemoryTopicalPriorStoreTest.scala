@@ -0,0 +1,100 @@
+package org.dbpedia.spotlight.db.memory
+
+import org.junit.Test
+import org.junit.Assert._
+import java.io.{FileOutputStream, File}
+import org.dbpedia.spotlight.model.{Topic, DBpediaResource}
+import org.dbpedia.spotlight.topical.util.TopicInferrer
+import scala.collection.mutable
+
+/**
+ * Creates the store from topic count files, writes and reads it back, and compares its lookups to the counts.
+ */
+class MemoryTopicalPriorStoreTest {
+
+    private val counts = Map(
+        "sports" -> Map("Football" -> 10, "Berlin" -> 2),
+        "politics" -> Map("Berlin" -> 5, "Parliament" -> 7, "Unknown_Resource" -> 3),
+        "other" -> Map("Berlin" -> 1))
+
+    private def resourceStore = {
+        val store = new MemoryResourceStore()
+        store.uriForID = Array("", "Berlin", "Football", "Parliament", "Paris")
+        store.supportForID = Array(0, 10, 10, 10, 10)
+        store.typesForID = Array.fill(5)(new Array[java.lang.Short](0))
+        store.loaded()
+        store
+    }
+
+    private def withTopicDir[T](f: File => T): T = {
+        val dir = new File(System.getProperty("java.io.tmpdir"), "topics-test-" + System.nanoTime)
+        dir.mkdirs()
+        counts.foreach { case (topic, resources) =>
+            val out = new FileOutputStream(new File(dir, topic + ".count"))
+            out.write(resources.map { case (uri, count) => "     %d %s\n".format(count, uri) }.mkString.getBytes("UTF-8"))
+            out.close()
+        }
+        try {
+            f(dir)
+        } finally {
+            dir.listFiles().foreach(_.delete())
+            dir.delete()
+        }
+    }
+
+    private def assertCounts(store: MemoryTopicalPriorStore) {
+        val topics = counts.keys.map(new Topic(_)).toSeq
+        assertEquals(Map(new Topic("sports") -> 12, new Topic("politics") -> 15, new Topic("other") -> 1), store.getTotalCounts())
+
+        List("Berlin", "Football", "Parliament", "Paris", "Unknown_Resource").foreach(uri => {
+            val resource = new DBpediaResource(uri)
+            val expected = topics.map(t => t -> (if (uri == "Unknown_Resource") 0 else counts(t.getName).getOrElse(uri, 0))).toMap
+
+            //all topics, also those with count 0
+            assertEquals(expected, store.getTopicalPriorCounts(resource))
+            topics.foreach(t => assertEquals(expected(t), store.getTopicalPriorCount(resource, t)))
+        })
+
+        val resources = List("Paris", "Berlin", "Unknown_Resource", "Football").map(new DBpediaResource(_))
+        val columns = topics :+ new Topic("unknown topic")
+        val matrix = store.getTopicalPriorCountMatrix(resources, columns)
+        for ((resource, r) <- resources.zipWithIndex; (topic, t) <- columns.zipWithIndex)
+            assertEquals(store.getTopicalPriorCount(resource, topic), matrix(r * columns.size + t))
+    }
+
+    @Test
+    def fromDir() {
+        withTopicDir(dir => assertCounts(MemoryTopicalPriorStore.fromDir(dir, resourceStore)))
+    }
+
+    @Test
+    def dumpAndLoad() {
+        withTopicDir(dir => {
+            val resources = resourceStore
+            val file = File.createTempFile("topicalPriors", ".mem")
+            try {
+                MemoryTopicalPriorStore.dump(MemoryTopicalPriorStore.fromDir(dir, resources), file)
+                assertCounts(MemoryTopicalPriorStore.fromFile(file, resources))
+            } finally {
+                file.delete()
+            }
+        })
+    }
+
+    @Test
+    def inferTopics() {
+        withTopicDir(dir => {
+            val inferrer = new TopicInferrer(MemoryTopicalPriorStore.fromDir(dir, resourceStore))
+            val probabilities = inferrer.inferTopics(mutable.Map(new DBpediaResource("Football") -> 1.0,
+                new DBpediaResource("Berlin") -> 1.0, new DBpediaResource("Paris") -> 1.0))
+
+            //Berlin is weighted by its share of counts outside of the catch topic "other": 7 / (7 + 1)
+            val weight = 7.0 / 8.0
+            val total = 10.0 + 7.0 * weight
+            assertEquals(Set(new Topic("sports"), new Topic("politics")), probabilities.keySet)
+            assertEquals((10.0 + 2.0 * weight) / total, probabilities(new Topic("sports")), 1e-9)
+            assertEquals(5.0 * weight / total, probabilities(new Topic("politics")), 1e-9)
+        })
+    }
+
+}
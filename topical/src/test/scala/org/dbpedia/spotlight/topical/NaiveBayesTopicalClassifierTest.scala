@@ -0,0 +1,72 @@
+package org.dbpedia.spotlight.topical
+
+import org.junit.Test
+import org.junit.Assert._
+import org.dbpedia.spotlight.model.{Text, Topic}
+
+/**
+ * Compares the predictions of the compiled model to the predictions of the factorie classifier it is compiled from.
+ */
+class NaiveBayesTopicalClassifierTest {
+
+    private val corpus = List(
+        ("sports", "The football team won the match after the striker scored twice in the second half"),
+        ("sports", "The tennis player lost the final match of the tournament in three sets"),
+        ("sports", "The team signed a new goalkeeper before the football season started"),
+        ("politics", "The parliament passed the budget after the minister defended the new taxes"),
+        ("politics", "The president met the minister to discuss the election and the parliament"),
+        ("politics", "The opposition party criticized the government budget and the election campaign"),
+        ("science", "The physicists measured the particle mass with the new detector experiment"),
+        ("science", "The biologists sequenced the genome of the bacteria in the laboratory experiment"),
+        ("science", "The telescope observed the galaxy and measured the mass of the black hole"))
+
+    private val texts = List(
+        "The striker scored in the football match",
+        "The minister presented the budget to the parliament",
+        "The experiment measured the mass of the particle",
+        "The team of physicists won the election of the parliament",
+        "Football football football budget",
+        "words that never occurred in training",
+        "")
+
+    private def train(): NaiveBayesTopicalClassifier =
+        NaiveBayesTopicalClassifier.trainModel(corpus.iterator.map { case (topic, text) => (new Topic(topic), new Text(text)) }, 1)
+          .asInstanceOf[NaiveBayesTopicalClassifier]
+
+    private def assertSamePredictions(classifier: NaiveBayesTopicalClassifier) {
+        texts.foreach(text => {
+            val expected = classifier.getClassifierPredictions(new Text(text))
+            val compiled = classifier.getPredictions(new Text(text))
+            assertEquals(expected.map(_._1).toList, compiled.map(_._1).toList)
+            expected.zip(compiled).foreach { case ((topic, p), (_, q)) =>
+                assertEquals("%s: %s".format(text, topic.getName), p, q, 1e-4)
+            }
+            assertEquals(1.0, compiled.map(_._2).sum, 1e-6)
+        })
+    }
+
+    @Test
+    def compiledPredictionsEqualClassifierPredictions() {
+        val classifier = train()
+        assertEquals(Set("sports", "politics", "science"), classifier.getTopics().map(_.getName).toSet)
+        assertSamePredictions(classifier)
+
+        val batch = classifier.getPredictions(texts.map(new Text(_)))
+        texts.zip(batch).foreach { case (text, predictions) =>
+            assertEquals(classifier.getPredictions(new Text(text)).toList, predictions.toList)
+        }
+    }
+
+    @Test
+    def compiledModelFollowsTraining() {
+        val classifier = train()
+        val text = new Text("The team won the election")
+        val before = classifier.getPredictions(text).toMap
+
+        (0 until 5).foreach(i => classifier.update(new Text("The team won the election campaign"), new Topic("politics")))
+
+        assertSamePredictions(classifier)
+        assertTrue(classifier.getPredictions(text).toMap.apply(new Topic("politics")) > before(new Topic("politics")))
+    }
+
+}
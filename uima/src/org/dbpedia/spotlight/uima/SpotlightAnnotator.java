@@ -1,8 +1,13 @@
 package org.dbpedia.spotlight.uima;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.core.MediaType;
 
@@ -11,32 +16,57 @@ import org.apache.uima.analysis_component.JCasAnnotator_ImplBase;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
+import org.dbpedia.spotlight.db.SpotlightModel;
+import org.dbpedia.spotlight.disambiguate.ParagraphDisambiguatorJ;
+import org.dbpedia.spotlight.filter.visitor.FilterElement;
+import org.dbpedia.spotlight.filter.visitor.FilterOccsImpl;
+import org.dbpedia.spotlight.filter.visitor.OccsFilter;
+import org.dbpedia.spotlight.model.DBpediaResourceOccurrence;
+import org.dbpedia.spotlight.model.Factory;
+import org.dbpedia.spotlight.model.SpotlightConfiguration;
+import org.dbpedia.spotlight.model.SpotlightConfiguration.DisambiguationPolicy;
+import org.dbpedia.spotlight.model.SpotterConfiguration.SpotterPolicy;
+import org.dbpedia.spotlight.model.SurfaceFormOccurrence;
+import org.dbpedia.spotlight.model.Text;
+import org.dbpedia.spotlight.sparql.SparqlQueryExecuter;
+import org.dbpedia.spotlight.spot.Spotter;
 import org.dbpedia.spotlight.uima.response.Annotation;
 import org.dbpedia.spotlight.uima.response.Resource;
 import org.dbpedia.spotlight.uima.types.JCasResource;
 
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.representation.Form;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 /**
- * Wrapper for the DbpediaSpotlight Annotate Web Service. This annotator assumes that the
- * web service endpoint specified in the configuration has already been started.
- * 
- * The annotator has no input size limitation, 
+ * Annotates the CAS documents with DBpedia Spotlight. The annotator runs in one of two modes:
+ *
+ * - remote: wrapper for the DbpediaSpotlight Annotate Web Service. This mode assumes that the
+ *   web service endpoint specified in the configuration has already been started. One HTTP client
+ *   is used for all documents (so that connections are kept alive) and the text is sent in the body of a POST request.
+ * - embedded: if the parameter "model" is set to a Spotlight model folder, the model is loaded inside the
+ *   UIMA pipeline and the documents are annotated directly. The model is shared by all annotator instances that
+ *   use the same folder.
+ *
+ * The annotator has no input size limitation,
  * however it assumes the input is structured as one sentence at a line.
  * This is not a strict requirement though,
  * the annotator would still work fine as long as there are no lines containing extra-long text.
- *   
+ *
  * @author Mustafa Nural
  */
 public class SpotlightAnnotator extends JCasAnnotator_ImplBase {
 
 	Log LOG = LogFactory.getLog(this.getClass());
-	
+
+	/** Models loaded in embedded mode, by model folder. */
+	private static final Map<String, SpotlightModel> models = new HashMap<String, SpotlightModel>();
+
 	private String SPOTLIGHT_ENDPOINT;
+	private String MODEL_FOLDER;
 
 	// Default values for the web service parameters for the spotlight endpoint
 	private double CONFIDENCE = 0.0;
@@ -48,20 +78,33 @@ public class SpotlightAnnotator extends JCasAnnotator_ImplBase {
 	private String SPOTTER = "Default";
 	private String DISAMBIGUATOR = "Default";
 
-	private final int BATCH_SIZE = 10; 
+	// Number of lines that are annotated together
+	private int BATCH_SIZE = 10;
+
+	// Remote mode
+	private Client client;
+
+	// Embedded mode
+	private SpotlightModel model;
+	private Spotter spotter;
+	private ParagraphDisambiguatorJ disambiguator;
+	private FilterElement filter;
+	private String namespacePrefix;
 
 	@Override
 	public void initialize(UimaContext aContext)
 			throws ResourceInitializationException {
 
-		if ((SPOTLIGHT_ENDPOINT = (String) aContext
-				.getConfigParameterValue("endPoint")) == null) {
+		MODEL_FOLDER = (String) aContext.getConfigParameterValue("model");
+		SPOTLIGHT_ENDPOINT = (String) aContext.getConfigParameterValue("endPoint");
+		// The endpoint is only used in remote mode
+		if (MODEL_FOLDER == null && (SPOTLIGHT_ENDPOINT == null || SPOTLIGHT_ENDPOINT.trim().isEmpty())) {
 			throw new ResourceInitializationException(
 					"Spotlight Endpoint can not be null", null);
 		}
 		if ((aContext.getConfigParameterValue("confidence")) != null) {
-			CONFIDENCE = (Double) aContext
-					.getConfigParameterValue("confidence");
+			CONFIDENCE = ((Number) aContext
+					.getConfigParameterValue("confidence")).doubleValue();
 		}
 		if ((aContext.getConfigParameterValue("support")) != null) {
 			SUPPORT = (Integer) aContext.getConfigParameterValue("support");
@@ -86,106 +129,194 @@ public class SpotlightAnnotator extends JCasAnnotator_ImplBase {
 			DISAMBIGUATOR = (String) aContext
 					.getConfigParameterValue("disambiguator");
 		}
+		if ((aContext.getConfigParameterValue("batchSize")) != null) {
+			BATCH_SIZE = (Integer) aContext.getConfigParameterValue("batchSize");
+		}
+
+		if (MODEL_FOLDER != null)
+			initializeModel();
+		else
+			client = Client.create();
+	}
+
+	/**
+	 * Loads the model (or takes it from the models that were already loaded) and picks the spotter,
+	 * disambiguator and filter of the configuration.
+	 */
+	private void initializeModel() throws ResourceInitializationException {
+		synchronized (models) {
+			model = models.get(MODEL_FOLDER);
+			if (model == null) {
+				LOG.info("Loading Spotlight model from " + MODEL_FOLDER);
+				try {
+					model = SpotlightModel.fromFolder(new File(MODEL_FOLDER));
+				} catch (Exception e) {
+					throw new ResourceInitializationException(e);
+				}
+				models.put(MODEL_FOLDER, model);
+			}
+		}
+
+		try {
+			spotter = model.spotters().get(SpotterPolicy.valueOf(SPOTTER));
+			disambiguator = model.disambiguators().get(DisambiguationPolicy.valueOf(DISAMBIGUATOR));
+		} catch (IllegalArgumentException e) {
+			throw new ResourceInitializationException(e);
+		}
+		if (spotter == null || disambiguator == null) {
+			throw new ResourceInitializationException(
+					"The spotter " + SPOTTER + " or the disambiguator " + DISAMBIGUATOR + " is not available in the model " + MODEL_FOLDER, null);
+		}
+
+		String endpoint = model.properties().getProperty("endpoint", "");
+		String graph = model.properties().getProperty("graph", "");
+		SparqlQueryExecuter sparqlExecuter = new SparqlQueryExecuter(
+				graph.equals("") ? "http://dbpedia.org" : graph,
+				endpoint.equals("") ? "http://dbpedia.org/sparql" : endpoint);
 
+		filter = new OccsFilter(CONFIDENCE, SUPPORT, TYPES, SPARQL, POLICY.trim().equalsIgnoreCase("blacklist"),
+				COREFERENCE_RESOLUTION, new ArrayList<Double>(), sparqlExecuter);
+		namespacePrefix = model.properties().getProperty("namespace", SpotlightConfiguration.DEFAULT_NAMESPACE);
 	}
 
 	@Override
 	public void process(JCas aJCas) throws AnalysisEngineProcessException {
 		String documentText = aJCas.getDocumentText();
 
-
-		Client c = Client.create();
-
 		BufferedReader documentReader = new BufferedReader(new StringReader(documentText));
-		//Send requests to the server by dividing the document into sentence chunks determined by BATCH_SIZE.
+		//Annotate the document in sentence chunks determined by BATCH_SIZE.
 		int documentOffset = 0;
-		int numLines = 0;
 		boolean moreLines = true;
+		StringBuilder request = new StringBuilder();
 		while (moreLines){
-			String request = "";
+			request.setLength(0);
 			for (int index = 0; index < BATCH_SIZE; index++) {
 				String line = null;
 				try {
 					line = documentReader.readLine();
 				} catch (IOException e) {
-					// TODO Auto-generated catch block
 					LOG.error("Can't read from input file",e);
 				}
 				if (line == null) {
 					moreLines = false;
 					break;
 				}else if (index !=0){
-					request += "\n";
+					request.append('\n');
 				}
-				request += line;
-				numLines++;
+				request.append(line);
 			}
 
-			
-			Annotation response = null;
-			boolean retry = false;
-			int retryCount = 0;
-			do{
-				try{
-
-					LOG.info("Sending request to the server");
-
-					WebResource r = c.resource(SPOTLIGHT_ENDPOINT);
-					response =
-							r.queryParam("text", request)
-							.queryParam("confidence", "" + CONFIDENCE)
-							.queryParam("support", "" + SUPPORT)
-							.queryParam("types", TYPES)
-							.queryParam("sparql", SPARQL)
-							.queryParam("policy", POLICY)
-							.queryParam("coreferenceResolution",
-									Boolean.toString(COREFERENCE_RESOLUTION))
-									.queryParam("spotter", SPOTTER)
-									.queryParam("disambiguator", DISAMBIGUATOR)
-									.type("application/x-www-form-urlencoded")
-									.accept(MediaType.TEXT_XML).post(Annotation.class);
-					retry = false;
-				} catch (Exception e){
-					//In case of a failure, try sending the request with a 2 second delay at least three times before throwing an exception
-					LOG.error("Server request failed. Will try again in 2 seconds..", e);
-					LOG.error("Failed request payload: " +request);
-					try {
-						Thread.sleep(2000);
-					} catch (InterruptedException e1) {
-						// TODO Auto-generated catch block
-						LOG.error("Thread interrupted",e1);
-					}
-					if (retryCount++ < 3){
-						retry = true;	
-					} else {
-						throw new AnalysisEngineProcessException("The server request failed", null);
-					}
+			if (request.length() > 0) {
+				if (model != null)
+					annotateEmbedded(aJCas, request.toString(), documentOffset);
+				else
+					annotateRemote(aJCas, request.toString(), documentOffset);
+			}
+
+			documentOffset += request.length() + 1 ;
+		}
+
+	}
+
+	/**
+	 * Annotates the chunk with the model loaded in this pipeline.
+	 */
+	private void annotateEmbedded(JCas aJCas, String request, int documentOffset) throws AnalysisEngineProcessException {
+		List<DBpediaResourceOccurrence> occs;
+		try {
+			Text text = new Text(request);
+			if (model.tokenizer() != null)
+				model.tokenizer().tokenizeMaybe(text);
+
+			List<SurfaceFormOccurrence> spots = spotter.extract(text);
+			if (spots.isEmpty())
+				return;
+
+			occs = filter.accept(new FilterOccsImpl(), disambiguator.disambiguate(Factory.paragraph().fromJ(spots)));
+		} catch (Exception e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+
+		for (DBpediaResourceOccurrence occ : occs) {
+			JCasResource res = new JCasResource(aJCas);
+			res.setBegin(documentOffset + occ.textOffset());
+			res.setEnd(documentOffset + occ.textOffset() + occ.surfaceForm().name().length());
+			res.setSimilarityScore(occ.similarityScore());
+			res.setTypes(occ.resource().types().mkString(","));
+			res.setSupport(occ.resource().support());
+			res.setURI(namespacePrefix + occ.resource().uri());
+
+			res.addToIndexes(aJCas);
+		}
+	}
+
+	/**
+	 * Sends the chunk to the Spotlight endpoint.
+	 */
+	private void annotateRemote(JCas aJCas, String request, int documentOffset) throws AnalysisEngineProcessException {
+		Form form = new Form();
+		form.add("text", request);
+		form.add("confidence", "" + CONFIDENCE);
+		form.add("support", "" + SUPPORT);
+		form.add("types", TYPES);
+		form.add("sparql", SPARQL);
+		form.add("policy", POLICY);
+		form.add("coreferenceResolution", Boolean.toString(COREFERENCE_RESOLUTION));
+		form.add("spotter", SPOTTER);
+		form.add("disambiguator", DISAMBIGUATOR);
+
+		Annotation response = null;
+		boolean retry = false;
+		int retryCount = 0;
+		do{
+			try{
+
+				LOG.info("Sending request to the server");
+
+				WebResource r = client.resource(SPOTLIGHT_ENDPOINT);
+				response = r.type(MediaType.APPLICATION_FORM_URLENCODED)
+						.accept(MediaType.TEXT_XML).post(Annotation.class, form);
+				retry = false;
+			} catch (Exception e){
+				//In case of a failure, try sending the request with a 2 second delay at least three times before throwing an exception
+				LOG.error("Server request failed. Will try again in 2 seconds..", e);
+				LOG.error("Failed request payload: " +request);
+				try {
+					Thread.sleep(2000);
+				} catch (InterruptedException e1) {
+					LOG.error("Thread interrupted",e1);
+				}
+				if (retryCount++ < 3){
+					retry = true;
+				} else {
+					throw new AnalysisEngineProcessException("The server request failed", null);
 				}
-			}while(retry);
-					
-					LOG.info("Server request completed. Writing to the index");
-					/*
-					 * Add the results to the AnnotationIndex
-					 */
-					for (Resource resource : response.getResources()) {
-						JCasResource res = new JCasResource(aJCas);
-						res.setBegin(documentOffset + new Integer(resource.getOffset()));
-						res.setEnd(documentOffset + new Integer(resource.getOffset())
-						+ resource.getSurfaceForm().length());
-						res.setSimilarityScore(new Double(resource.getSimilarityScore()));
-						res.setTypes(resource.getTypes());
-						res.setSupport(new Integer(resource.getSupport()));
-						res.setURI(resource.getURI());
-
-						res.addToIndexes(aJCas);
-					}
-
-					documentOffset += request.length() + 1 ;
-
-		}
-		documentReader.close();
+			}
+		}while(retry);
 
+		LOG.info("Server request completed. Writing to the index");
+		/*
+		 * Add the results to the AnnotationIndex
+		 */
+		for (Resource resource : response.getResources()) {
+			JCasResource res = new JCasResource(aJCas);
+			res.setBegin(documentOffset + new Integer(resource.getOffset()));
+			res.setEnd(documentOffset + new Integer(resource.getOffset())
+			+ resource.getSurfaceForm().length());
+			res.setSimilarityScore(new Double(resource.getSimilarityScore()));
+			res.setTypes(resource.getTypes());
+			res.setSupport(new Integer(resource.getSupport()));
+			res.setURI(resource.getURI());
+
+			res.addToIndexes(aJCas);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (client != null)
+			client.destroy();
+		super.destroy();
 	}
 
-	
 }